@@ -0,0 +1,36 @@
+#!/bin/sh
+# Arranque del host de Functions con AppCDS para el worker de Java.
+#
+# El worker carga las funciones con su propio classloader desde
+# $AzureWebJobsScriptRoot, así que el archivo tiene que salir de una corrida
+# del mismo worker: target/appcds/app-cds.jsa (perfil appcds del pom) se
+# generó con otro classpath y la JVM lo ignoraría. Por eso:
+# - si no hay archivo para estos jars, el worker arranca con
+#   -XX:ArchiveClassesAtExit y lo escribe al terminar (el host lo detiene con
+#   SIGTERM al apagarse el contenedor);
+# - si ya existe, arranca con -XX:SharedArchiveFile.
+# El nombre lleva una huella de los jars desplegados: la JVM rechaza el archivo
+# si cambian, y así un despliegue nuevo genera el suyo en vez de arrancar sin
+# ninguno. Las opciones se agregan a languageWorkers__java__arguments, que el
+# host pasa a la JVM del worker.
+#
+# APPCDS_ENABLED=false arranca sin AppCDS; APPCDS_DIR es donde se guardan los
+# archivos (en docker-compose, un volumen para que sobrevivan al contenedor).
+set -e
+
+if [ "${APPCDS_ENABLED:-true}" = "true" ]; then
+    dir="${APPCDS_DIR:-/home/site/appcds}"
+    key=$(find "$AzureWebJobsScriptRoot" -name '*.jar' -exec ls -l --time-style=+%s {} + | sort | md5sum | cut -c1-12)
+    archive="$dir/worker-$key.jsa"
+    mkdir -p "$dir"
+    if [ -f "$archive" ]; then
+        cds="-XX:SharedArchiveFile=$archive"
+    else
+        # Los de despliegues anteriores ya no sirven
+        rm -f "$dir"/worker-*.jsa
+        cds="-XX:ArchiveClassesAtExit=$archive"
+    fi
+    export languageWorkers__java__arguments="$cds ${languageWorkers__java__arguments:-}"
+fi
+
+exec "$@"
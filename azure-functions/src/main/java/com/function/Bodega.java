@@ -0,0 +1,66 @@
+package com.function;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fila de la tabla bodegas para las rutas REST y los DataLoaders de GraphQL
+ * ({@link #toMap}).
+ *
+ * {@link #fromRow} lee por posición según {@link #COLUMNS}; se serializa con
+ * {@link Json.BodegaSerializer}.
+ *
+ * {@code version} (ver {@link CatalogVersion}) no se serializa: solo entra en los ETags.
+ */
+public record Bodega(
+    int id,
+    String nombre,
+    String direccion,
+    String telefono,
+    String email,
+    String responsable,
+    String estado,
+    int capacidadMax,
+    Timestamp creadoEn,
+    Timestamp modificadoEn,
+    long version
+) {
+
+    /** Columnas en el orden que espera {@link #fromRow}. */
+    public static final String COLUMNS = "id, nombre, direccion, telefono, email, responsable, estado, capacidad_max, creado_en, modificado_en, version";
+
+    public static Bodega fromRow(ResultSet rs) throws SQLException {
+        return new Bodega(
+            rs.getInt(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getString(4),
+            rs.getString(5),
+            rs.getString(6),
+            rs.getString(7),
+            rs.getInt(8),
+            rs.getTimestamp(9),
+            rs.getTimestamp(10),
+            rs.getLong(11)
+        );
+    }
+
+    /** Fila como Map con los nombres de columna, que es lo que resuelve GraphQL. */
+    public Map<String, Object> toMap() {
+        Map<String, Object> warehouse = new HashMap<>();
+        warehouse.put("id", id);
+        warehouse.put("nombre", nombre);
+        warehouse.put("direccion", direccion);
+        warehouse.put("telefono", telefono);
+        warehouse.put("email", email);
+        warehouse.put("responsable", responsable);
+        warehouse.put("estado", estado);
+        warehouse.put("capacidad_max", capacidadMax);
+        warehouse.put("creado_en", creadoEn);
+        warehouse.put("modificado_en", modificadoEn);
+        return warehouse;
+    }
+}
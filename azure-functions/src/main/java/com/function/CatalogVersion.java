@@ -0,0 +1,58 @@
+package com.function;
+
+import java.sql.*;
+import java.util.logging.Logger;
+
+/**
+ * Columna version de productos, categorias y bodegas, base de los ETags y de
+ * la comprobación de {@link ReferenceData}.
+ *
+ * modificado_en no sirve para eso: CURRENT_TIMESTAMP es la hora de inicio de
+ * la transacción, así que dos escrituras en la misma transacción, o una
+ * transacción larga que confirma después de otra más nueva, dejan el mismo
+ * MAX(modificado_en) con datos distintos. En cambio version sale de la
+ * secuencia catalogo_version_seq en cada INSERT (default de la columna) y en
+ * cada UPDATE (trigger BEFORE UPDATE), de modo que cualquier escritura, venga
+ * de donde venga, le da a la fila un valor nuevo y mayor. La suma de versiones
+ * de un conjunto de filas cambia con cada escritura aunque las transacciones
+ * confirmen en otro orden, y la cantidad de filas cambia con los borrados.
+ *
+ * La secuencia, las columnas y los triggers los crea la migración
+ * db/postgres/001-catalogo-version.sql (en Oracle, db/oracle-schema-oci.sql);
+ * las functions solo leen la columna y no ejecutan DDL. {@link #check} revisa
+ * al arrancar que la migración esté aplicada.
+ */
+public final class CatalogVersion {
+
+    private static final Logger LOGGER = Logger.getLogger(CatalogVersion.class.getName());
+
+    public static final String MIGRATION = "db/postgres/001-catalogo-version.sql";
+
+    private static final String CHECK_SQL =
+        "SELECT COUNT(*) FROM pg_trigger WHERE tgname IN ('categorias_version', 'bodegas_version', 'productos_version') " +
+        "AND NOT tgisinternal";
+
+    private CatalogVersion() {
+    }
+
+    /**
+     * Retorna si los triggers de version están instalados; si faltan lo
+     * registra, porque sin ellos los ETags no cambian con los UPDATE. En otras
+     * bases (H2 en pruebas y benchmarks) la columna viene del script de esquema
+     * y retorna true.
+     */
+    public static boolean check(Connection conn) throws SQLException {
+        if (!"PostgreSQL".equals(conn.getMetaData().getDatabaseProductName())) {
+            return true;
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(CHECK_SQL)) {
+            rs.next();
+            if (rs.getInt(1) == 3) {
+                return true;
+            }
+        }
+        LOGGER.severe("Falta la versión del catálogo: aplicar " + MIGRATION);
+        return false;
+    }
+}
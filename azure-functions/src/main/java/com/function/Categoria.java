@@ -0,0 +1,54 @@
+package com.function;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fila de la tabla categorias para las rutas REST y los DataLoaders de GraphQL
+ * ({@link #toMap}).
+ *
+ * {@link #fromRow} lee por posición según {@link #COLUMNS}; se serializa con
+ * {@link Json.CategoriaSerializer}.
+ *
+ * {@code version} (ver {@link CatalogVersion}) no se serializa: solo entra en los ETags.
+ */
+public record Categoria(
+    int id,
+    String nombre,
+    String descripcion,
+    String estado,
+    Timestamp creadoEn,
+    Timestamp modificadoEn,
+    long version
+) {
+
+    /** Columnas en el orden que espera {@link #fromRow}. */
+    public static final String COLUMNS = "id, nombre, descripcion, estado, creado_en, modificado_en, version";
+
+    public static Categoria fromRow(ResultSet rs) throws SQLException {
+        return new Categoria(
+            rs.getInt(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getString(4),
+            rs.getTimestamp(5),
+            rs.getTimestamp(6),
+            rs.getLong(7)
+        );
+    }
+
+    /** Fila como Map con los nombres de columna, que es lo que resuelve GraphQL. */
+    public Map<String, Object> toMap() {
+        Map<String, Object> category = new HashMap<>();
+        category.put("id", id);
+        category.put("nombre", nombre);
+        category.put("descripcion", descripcion);
+        category.put("estado", estado);
+        category.put("creado_en", creadoEn);
+        category.put("modificado_en", modificadoEn);
+        return category;
+    }
+}
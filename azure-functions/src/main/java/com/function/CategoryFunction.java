@@ -12,7 +12,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * API REST para operaciones con categorías de productos
  *
  * Endpoints:
- * GET /api/CategoryFunction - Listar todas las categorías
+ * GET /api/CategoryFunction?after_id={id}&limit={n} - Listar categorías paginadas por id
  * GET /api/CategoryFunction?id={id} - Obtener categoría por ID
  * POST /api/CategoryFunction - Crear nueva categoría
  * PUT /api/CategoryFunction?id={id} - Actualizar categoría
@@ -20,14 +20,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  */
 public class CategoryFunction {
 
-    private static final String DB_URL = System.getenv("POSTGRES_URL") != null ?
-        System.getenv("POSTGRES_URL") : "jdbc:postgresql://104.208.158.85:5432/duoc?sslmode=require";
-    private static final String DB_USER = System.getenv("POSTGRES_USER") != null ?
-        System.getenv("POSTGRES_USER") : "duoc";
-    private static final String DB_PASSWORD = System.getenv("POSTGRES_PASSWORD") != null ?
-        System.getenv("POSTGRES_PASSWORD") : "duoc1234";
-
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = Json.MAPPER;
 
     @FunctionName("CategoryFunction")
     public HttpResponseMessage run(
@@ -38,7 +31,18 @@ public class CategoryFunction {
             HttpRequestMessage<Optional<String>> request,
             final ExecutionContext context) {
 
-        context.getLogger().info("CategoryFunction procesando request: " + request.getHttpMethod());
+        StageTimer.begin("CategoryFunction");
+        Log.begin("CategoryFunction", request, context);
+        try {
+            return dispatch(request, context);
+        } finally {
+            StageTimer.end();
+            Log.end();
+        }
+    }
+
+    private HttpResponseMessage dispatch(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
+        Log.info(Log.REQUEST, () -> "CategoryFunction procesando request: " + request.getHttpMethod());
 
         try {
             switch (request.getHttpMethod()) {
@@ -54,84 +58,113 @@ public class CategoryFunction {
                     return createErrorResponse(request, "Método no soportado", 405);
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en CategoryFunction: " + e.getMessage());
+            Log.error(() -> "Error en CategoryFunction: " + e.getMessage(), e);
             return createErrorResponse(request, "Error interno: " + e.getMessage(), 500);
         }
     }
 
     private HttpResponseMessage handleGet(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
         String idParam = request.getQueryParameters().get("id");
+        String idsParam = request.getQueryParameters().get("ids");
 
         try (Connection conn = getConnection()) {
-            if (idParam != null) {
+            if (idsParam != null) {
+                return getCategoriesByIds(conn, idsParam, request, context);
+            } else if (idParam != null) {
                 return getCategoryById(conn, idParam, request, context);
             } else {
                 return getAllCategories(conn, request, context);
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en GET: " + e.getMessage());
+            Log.error(() -> "Error en GET: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al obtener categorías: " + e.getMessage(), 500);
         }
     }
 
     private HttpResponseMessage getAllCategories(Connection conn, HttpRequestMessage<Optional<String>> request, ExecutionContext context) throws SQLException {
-        String sql = "SELECT id, nombre, descripcion, estado, creado_en, modificado_en FROM categorias ORDER BY id";
-
-        List<Map<String, Object>> categories = new ArrayList<>();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                Map<String, Object> category = new HashMap<>();
-                category.put("id", rs.getInt("id"));
-                category.put("nombre", rs.getString("nombre"));
-                category.put("descripcion", rs.getString("descripcion"));
-                category.put("estado", rs.getString("estado"));
-                category.put("creado_en", rs.getTimestamp("creado_en"));
-                category.put("modificado_en", rs.getTimestamp("modificado_en"));
-                categories.add(category);
+        KeysetPage page;
+        try {
+            page = KeysetPage.fromQuery(request.getQueryParameters());
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(request, e.getMessage(), 400);
+        }
+
+        List<Categoria> categories;
+        if (ReferenceData.ENABLED) {
+            categories = ReferenceData.getInstance().categorias(conn).page(page);
+        } else {
+            categories = new ArrayList<>();
+            String sql = "SELECT " + Categoria.COLUMNS + " FROM categorias WHERE " + page.clause("id");
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                page.bind(stmt, 1);
+
+                try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                    long mapStarted = System.nanoTime();
+                    while (rs.next()) {
+                        categories.add(Categoria.fromRow(rs));
+                    }
+                    StageTimer.record(StageTimer.Stage.MAP, mapStarted);
+                }
             }
         }
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
+        page.describe(response, categories, Categoria::id);
+
+        String etag = ETags.forRows(categories, (Boolean) response.get("has_more"), Categoria::id, Categoria::version);
+        if (ETags.matches(request, etag)) {
+            return ETags.notModified(request, etag);
+        }
         response.put("data", categories);
         response.put("total", categories.size());
         response.put("message", "Categorías obtenidas exitosamente");
         response.put("timestamp", new Date());
 
-        return createSuccessResponse(request, response);
+        return createSuccessResponse(request, response, etag);
+    }
+
+    private HttpResponseMessage getCategoriesByIds(Connection conn, String idsParam, HttpRequestMessage<Optional<String>> request, ExecutionContext context) throws SQLException {
+        List<Integer> ids;
+        try {
+            ids = IdList.parse(idsParam);
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(request, e.getMessage(), 400);
+        }
+
+        List<Categoria> categories = IdList.load(conn, "categorias", Categoria.COLUMNS, ids, Categoria::fromRow, Categoria::id);
+
+        String etag = ETags.forRows(categories, false, Categoria::id, Categoria::version);
+        if (ETags.matches(request, etag)) {
+            return ETags.notModified(request, etag);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", categories);
+        response.put("total", categories.size());
+        response.put("no_encontrados", IdList.missing(ids, categories, Categoria::id));
+        response.put("etags", IdList.etags(categories, Categoria::id, Categoria::version));
+        response.put("message", "Categorías obtenidas por ids exitosamente");
+        response.put("timestamp", new Date());
+
+        return createSuccessResponse(request, response, etag);
     }
 
     private HttpResponseMessage getCategoryById(Connection conn, String idParam, HttpRequestMessage<Optional<String>> request, ExecutionContext context) throws SQLException {
         try {
             int id = Integer.parseInt(idParam);
-            String sql = "SELECT id, nombre, descripcion, estado, creado_en, modificado_en FROM categorias WHERE id = ?";
+            if (ReferenceData.ENABLED) {
+                return categoryResponse(request, ReferenceData.getInstance().categorias(conn).get(id));
+            }
+            String sql = "SELECT " + Categoria.COLUMNS + " FROM categorias WHERE id = ?";
 
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setInt(1, id);
 
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        Map<String, Object> category = new HashMap<>();
-                        category.put("id", rs.getInt("id"));
-                        category.put("nombre", rs.getString("nombre"));
-                        category.put("descripcion", rs.getString("descripcion"));
-                        category.put("estado", rs.getString("estado"));
-                        category.put("creado_en", rs.getTimestamp("creado_en"));
-                        category.put("modificado_en", rs.getTimestamp("modificado_en"));
-
-                        Map<String, Object> response = new HashMap<>();
-                        response.put("success", true);
-                        response.put("data", category);
-                        response.put("message", "Categoría encontrada exitosamente");
-                        response.put("timestamp", new Date());
-
-                        return createSuccessResponse(request, response);
-                    } else {
-                        return createErrorResponse(request, "Categoría no encontrada", 404);
-                    }
+                try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                    return categoryResponse(request, rs.next() ? Categoria.fromRow(rs) : null);
                 }
             }
         } catch (NumberFormatException e) {
@@ -139,10 +172,29 @@ public class CategoryFunction {
         }
     }
 
+    private HttpResponseMessage categoryResponse(HttpRequestMessage<Optional<String>> request, Categoria category) {
+        if (category == null) {
+            return createErrorResponse(request, "Categoría no encontrada", 404);
+        }
+
+        String etag = ETags.forRow(category.id(), category.version());
+        if (ETags.matches(request, etag)) {
+            return ETags.notModified(request, etag);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", category);
+        response.put("message", "Categoría encontrada exitosamente");
+        response.put("timestamp", new Date());
+
+        return createSuccessResponse(request, response, etag);
+    }
+
     @SuppressWarnings("unchecked")
     private HttpResponseMessage handlePost(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
         String body = request.getBody().orElse("{}");
-        context.getLogger().info("Creando categoría con datos: " + body);
+        Log.info(Log.WRITE, () -> "Creando categoría con datos: " + body);
 
         try {
             Map<String, Object> categoryData = objectMapper.readValue(body, Map.class);
@@ -155,9 +207,10 @@ public class CategoryFunction {
                     stmt.setString(2, (String) categoryData.getOrDefault("descripcion", "Descripción de categoría"));
                     stmt.setString(3, (String) categoryData.getOrDefault("estado", "ACTIVO"));
 
-                    try (ResultSet rs = stmt.executeQuery()) {
+                    try (ResultSet rs = StageTimer.executeQuery(stmt)) {
                         if (rs.next()) {
                             int newId = rs.getInt("id");
+                            ReferenceData.markChanged(ReferenceData.CATEGORIAS);
 
                             Map<String, Object> response = new HashMap<>();
                             response.put("success", true);
@@ -175,7 +228,7 @@ public class CategoryFunction {
                 }
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en POST: " + e.getMessage());
+            Log.error(() -> "Error en POST: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al crear categoría: " + e.getMessage(), 500);
         }
 
@@ -204,9 +257,11 @@ public class CategoryFunction {
                     stmt.setString(3, (String) categoryData.getOrDefault("estado", "ACTIVO"));
                     stmt.setInt(4, id);
 
-                    int affectedRows = stmt.executeUpdate();
+                    int affectedRows = StageTimer.executeUpdate(stmt);
 
                     if (affectedRows > 0) {
+                        ReferenceData.markChanged(ReferenceData.CATEGORIAS);
+
                         Map<String, Object> response = new HashMap<>();
                         response.put("success", true);
                         response.put("data", Map.of("id", id, "message", "Categoría actualizada exitosamente"));
@@ -220,7 +275,7 @@ public class CategoryFunction {
                 }
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en PUT: " + e.getMessage());
+            Log.error(() -> "Error en PUT: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al actualizar categoría: " + e.getMessage(), 500);
         }
     }
@@ -238,9 +293,11 @@ public class CategoryFunction {
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setInt(1, id);
 
-                int affectedRows = stmt.executeUpdate();
+                int affectedRows = StageTimer.executeUpdate(stmt);
 
                 if (affectedRows > 0) {
+                    ReferenceData.markChanged(ReferenceData.CATEGORIAS);
+
                     Map<String, Object> response = new HashMap<>();
                     response.put("success", true);
                     response.put("data", Map.of("id", id, "message", "Categoría eliminada exitosamente"));
@@ -253,27 +310,31 @@ public class CategoryFunction {
                 }
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en DELETE: " + e.getMessage());
+            Log.error(() -> "Error en DELETE: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al eliminar categoría: " + e.getMessage(), 500);
         }
     }
 
     private Connection getConnection() throws SQLException {
-        try {
-            DriverManager.setLoginTimeout(15);
-            System.out.println("Intentando conectar a: " + DB_URL);
-            return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-        } catch (SQLException e) {
-            System.err.println("Error conectando a PostgreSQL: " + e.getMessage());
-            throw new SQLException("Error conectando a PostgreSQL: " + e.getMessage(), e);
-        }
+        return ConnectionPool.getConnection();
     }
 
     private HttpResponseMessage createSuccessResponse(HttpRequestMessage<Optional<String>> request, Object data) {
-        return request.createResponseBuilder(HttpStatus.OK)
+        String body = Json.write(data);
+        return StageTimer.header(request.createResponseBuilder(HttpStatus.OK))
+                .header("Content-Type", "application/json")
+                .header("Access-Control-Allow-Origin", "*")
+                .body(body)
+                .build();
+    }
+
+    private HttpResponseMessage createSuccessResponse(HttpRequestMessage<Optional<String>> request, Object data, String etag) {
+        String body = Json.write(data);
+        return StageTimer.header(request.createResponseBuilder(HttpStatus.OK))
                 .header("Content-Type", "application/json")
                 .header("Access-Control-Allow-Origin", "*")
-                .body(data)
+                .header("ETag", etag)
+                .body(body)
                 .build();
     }
 
@@ -284,10 +345,11 @@ public class CategoryFunction {
         error.put("timestamp", new Date());
         error.put("status", statusCode);
 
-        return request.createResponseBuilder(HttpStatus.valueOf(statusCode))
+        String body = Json.write(error);
+        return StageTimer.header(request.createResponseBuilder(HttpStatus.valueOf(statusCode)))
                 .header("Content-Type", "application/json")
                 .header("Access-Control-Allow-Origin", "*")
-                .body(error)
+                .body(body)
                 .build();
     }
 }
\ No newline at end of file
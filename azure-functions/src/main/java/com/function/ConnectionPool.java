@@ -0,0 +1,125 @@
+package com.function;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * Pool de conexiones compartido por todas las funciones del proceso.
+ *
+ * Se inicializa de forma perezosa en la primera llamada a {@link #getConnection()}
+ * y sobrevive entre invocaciones mientras la instancia de la Function App siga
+ * caliente, evitando el handshake TLS con PostgreSQL en cada request.
+ *
+ * Configuración (ver {@link Settings}):
+ * POSTGRES_URL, POSTGRES_USER, POSTGRES_PASSWORD - Datos de conexión
+ * DB_POOL_MIN_IDLE - Conexiones ociosas mínimas (default 2)
+ * DB_POOL_MAX_SIZE - Tamaño máximo del pool (default 10)
+ * DB_POOL_CONNECTION_TIMEOUT_MS - Espera máxima por una conexión (default 15000)
+ * DB_POOL_VALIDATION_TIMEOUT_MS - Timeout de validación de conexión (default 3000)
+ * DB_POOL_IDLE_TIMEOUT_MS - Tiempo antes de cerrar conexiones ociosas (default 300000)
+ * DB_POOL_MAX_LIFETIME_MS - Vida máxima de una conexión (default 1800000)
+ * DB_POOL_KEEPALIVE_MS - Intervalo de keepalive de conexiones ociosas (default 120000)
+ * DB_POOL_LEAK_DETECTION_MS - Umbral para reportar conexiones no devueltas (default 20000, 0 = desactivado)
+ */
+public final class ConnectionPool {
+
+    private static final String DEFAULT_URL = "jdbc:postgresql://104.208.158.85:5432/duoc?sslmode=require";
+
+    private ConnectionPool() {
+    }
+
+    // Holder idiom: la JVM garantiza una única inicialización thread-safe
+    private static final class Holder {
+        private static final HikariDataSource DATA_SOURCE = createDataSource();
+    }
+
+    public static Connection getConnection() throws SQLException {
+        long started = System.nanoTime();
+        try {
+            return Holder.DATA_SOURCE.getConnection();
+        } catch (SQLException e) {
+            throw new SQLException("Error conectando a PostgreSQL: " + e.getMessage(), e);
+        } finally {
+            StageTimer.record(StageTimer.Stage.CONNECT, started);
+        }
+    }
+
+    /**
+     * Abre por adelantado las DB_POOL_MIN_IDLE conexiones del pool (carga del
+     * driver y handshake TLS incluidos) para que no las pague el primer request.
+     * Devuelve cuántas se abrieron.
+     */
+    public static int prefill() throws SQLException {
+        HikariDataSource dataSource = Holder.DATA_SOURCE;
+        List<Connection> connections = new ArrayList<>();
+        try {
+            // Se retienen todas a la vez para que el pool tenga que crear cada una
+            for (int i = 0; i < dataSource.getMinimumIdle(); i++) {
+                connections.add(getConnection());
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+        return connections.size();
+    }
+
+    /**
+     * Métricas actuales del pool para la ruta de diagnóstico.
+     */
+    public static Map<String, Object> getPoolStats() {
+        HikariDataSource dataSource = Holder.DATA_SOURCE;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pool_name", dataSource.getPoolName());
+        stats.put("minimum_idle", dataSource.getMinimumIdle());
+        stats.put("maximum_pool_size", dataSource.getMaximumPoolSize());
+        stats.put("leak_detection_threshold_ms", dataSource.getLeakDetectionThreshold());
+
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool != null) {
+            stats.put("active_connections", pool.getActiveConnections());
+            stats.put("idle_connections", pool.getIdleConnections());
+            stats.put("total_connections", pool.getTotalConnections());
+            stats.put("threads_awaiting_connection", pool.getThreadsAwaitingConnection());
+        }
+        return stats;
+    }
+
+    private static HikariDataSource createDataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("inventory-pool");
+        config.setJdbcUrl(Settings.get("POSTGRES_URL", DEFAULT_URL));
+        config.setUsername(Settings.get("POSTGRES_USER", "duoc"));
+        config.setPassword(Settings.get("POSTGRES_PASSWORD", "duoc1234"));
+
+        config.setMinimumIdle(Settings.getInt("DB_POOL_MIN_IDLE", 2));
+        config.setMaximumPoolSize(Settings.getInt("DB_POOL_MAX_SIZE", 10));
+        config.setConnectionTimeout(Settings.getLong("DB_POOL_CONNECTION_TIMEOUT_MS", 15000));
+        config.setValidationTimeout(Settings.getLong("DB_POOL_VALIDATION_TIMEOUT_MS", 3000));
+        config.setIdleTimeout(Settings.getLong("DB_POOL_IDLE_TIMEOUT_MS", 300000));
+        config.setMaxLifetime(Settings.getLong("DB_POOL_MAX_LIFETIME_MS", 1800000));
+        config.setKeepaliveTime(Settings.getLong("DB_POOL_KEEPALIVE_MS", 120000));
+        config.setLeakDetectionThreshold(Settings.getLong("DB_POOL_LEAK_DETECTION_MS", 20000));
+
+        // No fallar al arrancar si la BD no responde; el error se reporta en getConnection()
+        config.setInitializationFailTimeout(-1);
+
+        // Cache de sentencias preparadas del lado del driver y reescritura de
+        // INSERT en lote como un único INSERT multi-fila
+        if (config.getJdbcUrl().startsWith("jdbc:postgresql:")) {
+            config.addDataSourceProperty("prepareThreshold", "3");
+            config.addDataSourceProperty("preparedStatementCacheQueries", "256");
+            config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        }
+
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,194 @@
+package com.function;
+
+import java.util.*;
+import java.util.Date;
+import com.microsoft.azure.functions.annotation.*;
+import com.microsoft.azure.functions.*;
+
+/**
+ * Azure Function de diagnóstico de la instancia
+ *
+ * Endpoints:
+ * GET /api/diagnostics/pool - Métricas del pool de conexiones compartido
+ * GET /api/diagnostics/stock-buffer - Estado del acumulador de stock con escritura diferida
+ * GET /api/diagnostics/stock-alerts - Estado del índice en memoria de alertas de stock
+ * GET /api/diagnostics/reference-data - Estado de la caché de categorías y bodegas
+ * GET /api/diagnostics/startup - Duración del último arranque de la instancia
+ * GET /api/diagnostics/latency - Percentiles de latencia por función y etapa
+ * POST /api/diagnostics/latency/reset - Los devuelve y los reinicia (requiere clave de función)
+ * GET /api/diagnostics/logging - Líneas escritas, descartadas por muestreo o por cola llena
+ *
+ * Las lecturas son anónimas; reiniciar los histogramas borra datos que otros
+ * están mirando, así que va en una función aparte con nivel FUNCTION.
+ */
+public class DiagnosticsFunction {
+
+    @FunctionName("DiagnosticsFunction")
+    public HttpResponseMessage run(
+            @HttpTrigger(name = "req",
+                        methods = {HttpMethod.GET},
+                        authLevel = AuthorizationLevel.ANONYMOUS,
+                        route = "diagnostics/{action=pool}")
+            HttpRequestMessage<Optional<String>> request,
+            @BindingName("action") String action,
+            final ExecutionContext context) {
+
+        try {
+            switch (action.toLowerCase()) {
+                case "pool":
+                    return handlePoolStats(request);
+                case "stock-buffer":
+                    return handleStockBuffer(request);
+                case "stock-alerts":
+                    return handleStockAlerts(request);
+                case "reference-data":
+                    return handleReferenceData(request);
+                case "startup":
+                    return handleStartup(request);
+                case "latency":
+                    return handleLatency(request);
+                case "logging":
+                    return handleLogging(request);
+                default:
+                    return createErrorResponse(request, "Diagnóstico no soportado: " + action, 404);
+            }
+        } catch (Exception e) {
+            context.getLogger().severe("Error en DiagnosticsFunction: " + e.getMessage());
+            return createErrorResponse(request, "Error interno: " + e.getMessage(), 500);
+        }
+    }
+
+    @FunctionName("DiagnosticsLatencyReset")
+    public HttpResponseMessage resetLatency(
+            @HttpTrigger(name = "req",
+                        methods = {HttpMethod.POST},
+                        authLevel = AuthorizationLevel.FUNCTION,
+                        route = "diagnostics/latency/reset")
+            HttpRequestMessage<Optional<String>> request,
+            final ExecutionContext context) {
+
+        try {
+            return latencyResponse(request, true);
+        } catch (Exception e) {
+            context.getLogger().severe("Error en DiagnosticsFunction: " + e.getMessage());
+            return createErrorResponse(request, "Error interno: " + e.getMessage(), 500);
+        }
+    }
+
+    private HttpResponseMessage handlePoolStats(HttpRequestMessage<Optional<String>> request) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", ConnectionPool.getPoolStats());
+        response.put("message", "Métricas del pool obtenidas exitosamente");
+        response.put("timestamp", new Date());
+
+        return createSuccessResponse(request, response);
+    }
+
+    private HttpResponseMessage handleStockBuffer(HttpRequestMessage<Optional<String>> request) {
+        Map<String, Object> stats = StockAggregator.ENABLED
+            ? StockAggregator.getInstance().getStats()
+            : Map.of("enabled", false);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", stats);
+        response.put("message", "Estado del acumulador de stock obtenido exitosamente");
+        response.put("timestamp", new Date());
+
+        return createSuccessResponse(request, response);
+    }
+
+    private HttpResponseMessage handleStockAlerts(HttpRequestMessage<Optional<String>> request) throws Exception {
+        Map<String, Object> stats = StockAlertIndex.ENABLED
+            ? StockAlertIndex.getInstance().getStats()
+            : Map.of("enabled", false);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", stats);
+        response.put("message", "Estado del índice de alertas obtenido exitosamente");
+        response.put("timestamp", new Date());
+
+        return createSuccessResponse(request, response);
+    }
+
+    private HttpResponseMessage handleReferenceData(HttpRequestMessage<Optional<String>> request) throws Exception {
+        Map<String, Object> stats = ReferenceData.ENABLED
+            ? ReferenceData.getInstance().getStats()
+            : Map.of("enabled", false);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", stats);
+        response.put("message", "Estado de la caché de datos de referencia obtenido exitosamente");
+        response.put("timestamp", new Date());
+
+        return createSuccessResponse(request, response);
+    }
+
+    private HttpResponseMessage handleStartup(HttpRequestMessage<Optional<String>> request) {
+        Map<String, Object> stats = Startup.getStats();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", stats != null ? stats : Map.of("executed", false));
+        response.put("message", "Estado del arranque obtenido exitosamente");
+        response.put("timestamp", new Date());
+
+        return createSuccessResponse(request, response);
+    }
+
+    private HttpResponseMessage handleLatency(HttpRequestMessage<Optional<String>> request) {
+        // Antes se reiniciaba con ?reset=true; avisar en vez de ignorarlo en silencio
+        if (request.getQueryParameters().containsKey("reset")) {
+            return createErrorResponse(request,
+                "Para reiniciar las latencias usa POST /api/diagnostics/latency/reset con la clave de función", 400);
+        }
+        return latencyResponse(request, false);
+    }
+
+    private HttpResponseMessage latencyResponse(HttpRequestMessage<Optional<String>> request, boolean reset) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", StageTimer.getStats(reset));
+        response.put("message", reset
+            ? "Latencias por etapa obtenidas y reiniciadas exitosamente"
+            : "Latencias por etapa obtenidas exitosamente");
+        response.put("timestamp", new Date());
+
+        return createSuccessResponse(request, response);
+    }
+
+    private HttpResponseMessage handleLogging(HttpRequestMessage<Optional<String>> request) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", Log.getStats());
+        response.put("message", "Estadísticas de logging obtenidas exitosamente");
+        response.put("timestamp", new Date());
+
+        return createSuccessResponse(request, response);
+    }
+
+    private HttpResponseMessage createSuccessResponse(HttpRequestMessage<Optional<String>> request, Object data) {
+        return request.createResponseBuilder(HttpStatus.OK)
+                .header("Content-Type", "application/json")
+                .header("Access-Control-Allow-Origin", "*")
+                .body(Json.write(data))
+                .build();
+    }
+
+    private HttpResponseMessage createErrorResponse(HttpRequestMessage<Optional<String>> request, String message, int statusCode) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("success", false);
+        error.put("error", message);
+        error.put("timestamp", new Date());
+        error.put("status", statusCode);
+
+        return request.createResponseBuilder(HttpStatus.valueOf(statusCode))
+                .header("Content-Type", "application/json")
+                .header("Access-Control-Allow-Origin", "*")
+                .body(Json.write(error))
+                .build();
+    }
+}
@@ -0,0 +1,89 @@
+package com.function;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import com.microsoft.azure.functions.HttpRequestMessage;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import com.microsoft.azure.functions.HttpStatus;
+
+/**
+ * ETags de las lecturas REST del catálogo, calculados desde la columna version
+ * (ver {@link CatalogVersion}).
+ *
+ * Para un ítem es su id y su version; para una lista, la suma de las versiones
+ * junto con la cantidad de filas, el primer y último id y si hay más páginas.
+ * Cada escritura le da a la fila una version nueva y mayor, así que la suma
+ * cambia aunque las transacciones confirmen fuera de orden (con el mayor
+ * modificado_en no pasaba), y la cantidad cambia con los borrados. Son
+ * débiles porque el cuerpo incluye el timestamp de la respuesta.
+ *
+ * Con {@link #matches} las funciones responden 304 antes de serializar el cuerpo.
+ */
+public final class ETags {
+
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETags() {
+    }
+
+    public static String forRow(int id, long version) {
+        return WEAK_PREFIX + "\"" + id + "-" + Long.toHexString(version) + "\"";
+    }
+
+    public static <T> String forRows(List<T> rows, boolean hasMore,
+                                     ToIntFunction<? super T> idOf, ToLongFunction<? super T> versionOf) {
+        long sum = 0;
+        for (T row : rows) {
+            sum += versionOf.applyAsLong(row);
+        }
+        String first = rows.isEmpty() ? "" : String.valueOf(idOf.applyAsInt(rows.get(0)));
+        String last = rows.isEmpty() ? "" : String.valueOf(idOf.applyAsInt(rows.get(rows.size() - 1)));
+        return WEAK_PREFIX + "\"" + rows.size() + "-" + first + "-" + last + (hasMore ? "+" : "") +
+            "-" + Long.toHexString(sum) + "\"";
+    }
+
+    /**
+     * Si el If-None-Match del request incluye {@code etag} (comparación débil, o {@code *}).
+     */
+    public static boolean matches(HttpRequestMessage<?> request, String etag) {
+        String header = header(request.getHeaders(), IF_NONE_MATCH);
+        if (header == null) {
+            return false;
+        }
+        String opaque = opaque(etag);
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || opaque(value).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static HttpResponseMessage notModified(HttpRequestMessage<?> request, String etag) {
+        return StageTimer.header(request.createResponseBuilder(HttpStatus.NOT_MODIFIED))
+                .header("ETag", etag)
+                .header("Access-Control-Allow-Origin", "*")
+                .build();
+    }
+
+    // Los nombres de header pueden llegar con cualquier capitalización
+    static String header(Map<String, String> headers, String name) {
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith(WEAK_PREFIX) ? etag.substring(WEAK_PREFIX.length()) : etag;
+    }
+}
@@ -0,0 +1,149 @@
+package com.function;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderFactory;
+import org.dataloader.DataLoaderRegistry;
+import org.dataloader.MappedBatchLoader;
+
+/**
+ * DataLoaders compartidos por los schemas GraphQL de productos y bodegas.
+ *
+ * Cada ejecución GraphQL recibe un registro nuevo (ver {@link #newRegistry()}),
+ * de modo que las búsquedas por ID que aparecen en campos anidados se agrupan
+ * en una sola consulta {@code WHERE id = ANY(?)} por tipo, en vez de una
+ * consulta por fila (N+1).
+ *
+ * Las filas se leen con las columnas y el mapeo de {@link Producto},
+ * {@link Bodega} y {@link Categoria}, y se entregan como Map
+ * ({@code toMap}) porque así las resuelven los schemas.
+ */
+public final class GraphQLDataLoaders {
+
+    public static final String BODEGAS = "bodegas";
+    public static final String CATEGORIAS = "categorias";
+    public static final String PRODUCTOS = "productos";
+    public static final String PRODUCTOS_POR_BODEGA = "productosPorBodega";
+
+    private GraphQLDataLoaders() {
+    }
+
+    /**
+     * Crea un registro nuevo para una única ejecución. Los DataLoaders cachean
+     * por ejecución, así que no deben compartirse entre requests.
+     */
+    public static DataLoaderRegistry newRegistry() {
+        DataLoaderRegistry registry = new DataLoaderRegistry();
+        registry.register(BODEGAS, newLoader(GraphQLDataLoaders::loadBodegas));
+        registry.register(CATEGORIAS, newLoader(GraphQLDataLoaders::loadCategorias));
+        registry.register(PRODUCTOS, newLoader(GraphQLDataLoaders::loadProductos));
+        registry.register(PRODUCTOS_POR_BODEGA, newLoader(GraphQLDataLoaders::loadProductosPorBodega));
+        return registry;
+    }
+
+    private static <V> DataLoader<Integer, V> newLoader(SqlBatchLoader<V> loader) {
+        MappedBatchLoader<Integer, V> batchLoader = keys -> {
+            try {
+                return CompletableFuture.completedFuture(loader.load(keys));
+            } catch (SQLException e) {
+                CompletableFuture<Map<Integer, V>> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new RuntimeException("Error en carga agrupada: " + e.getMessage(), e));
+                return failed;
+            }
+        };
+        return DataLoaderFactory.newMappedDataLoader(batchLoader);
+    }
+
+    @FunctionalInterface
+    private interface SqlBatchLoader<V> {
+        Map<Integer, V> load(Set<Integer> keys) throws SQLException;
+    }
+
+    // ==================== CARGAS AGRUPADAS ====================
+
+    private static Map<Integer, Map<String, Object>> loadBodegas(Set<Integer> ids) throws SQLException {
+        Map<Integer, Map<String, Object>> result = new HashMap<>();
+        String sql = "SELECT " + Bodega.COLUMNS + " FROM bodegas WHERE id = ANY(?)";
+
+        try (Connection conn = ConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+
+            try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                long mapStarted = System.nanoTime();
+                while (rs.next()) {
+                    Map<String, Object> bodega = Bodega.fromRow(rs).toMap();
+                    result.put((Integer) bodega.get("id"), bodega);
+                }
+                StageTimer.record(StageTimer.Stage.MAP, mapStarted);
+            }
+        }
+        return result;
+    }
+
+    private static Map<Integer, Map<String, Object>> loadCategorias(Set<Integer> ids) throws SQLException {
+        Map<Integer, Map<String, Object>> result = new HashMap<>();
+        String sql = "SELECT " + Categoria.COLUMNS + " FROM categorias WHERE id = ANY(?)";
+
+        try (Connection conn = ConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+
+            try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                long mapStarted = System.nanoTime();
+                while (rs.next()) {
+                    Map<String, Object> categoria = Categoria.fromRow(rs).toMap();
+                    result.put((Integer) categoria.get("id"), categoria);
+                }
+                StageTimer.record(StageTimer.Stage.MAP, mapStarted);
+            }
+        }
+        return result;
+    }
+
+    private static Map<Integer, Map<String, Object>> loadProductos(Set<Integer> ids) throws SQLException {
+        Map<Integer, Map<String, Object>> result = new HashMap<>();
+        String sql = "SELECT " + Producto.COLUMNS + " FROM productos WHERE id = ANY(?)";
+
+        try (Connection conn = ConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+
+            try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                long mapStarted = System.nanoTime();
+                while (rs.next()) {
+                    Map<String, Object> producto = Producto.fromRow(rs).toMap();
+                    result.put((Integer) producto.get("id"), producto);
+                }
+                StageTimer.record(StageTimer.Stage.MAP, mapStarted);
+            }
+        }
+        return result;
+    }
+
+    private static Map<Integer, List<Map<String, Object>>> loadProductosPorBodega(Set<Integer> bodegaIds) throws SQLException {
+        Map<Integer, List<Map<String, Object>>> result = new HashMap<>();
+        for (Integer bodegaId : bodegaIds) {
+            result.put(bodegaId, new ArrayList<>());
+        }
+        String sql = "SELECT " + Producto.COLUMNS + " FROM productos WHERE bodega_id = ANY(?) ORDER BY id";
+
+        try (Connection conn = ConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", bodegaIds.toArray()));
+
+            try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                long mapStarted = System.nanoTime();
+                while (rs.next()) {
+                    Map<String, Object> producto = Producto.fromRow(rs).toMap();
+                    result.get((Integer) producto.get("bodega_id")).add(producto);
+                }
+                StageTimer.record(StageTimer.Stage.MAP, mapStarted);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,157 @@
+package com.function;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import graphql.ExecutionInput;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.execution.preparsed.persisted.PersistedQueryError;
+import graphql.execution.preparsed.persisted.PersistedQueryIdInvalid;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+
+/**
+ * Cache LRU acotado de documentos GraphQL ya parseados y validados.
+ *
+ * La clave es el SHA-256 hex del texto de la query, el mismo hash que usan los
+ * clientes con Automatic Persisted Queries (APQ):
+ * - Request con {@code extensions.persistedQuery.sha256Hash} y sin query: se
+ *   resuelve desde el cache o se responde {@code PersistedQueryNotFound} para
+ *   que el cliente reenvíe el texto completo.
+ * - Request con query (y opcionalmente el hash): se verifica el hash, se
+ *   parsea/valida una sola vez y el documento queda disponible para ambos modos.
+ *
+ * Cada schema debe tener su propia instancia, porque la validación depende del schema.
+ */
+public final class GraphQLDocumentCache implements PreparsedDocumentProvider {
+
+    private final int maxEntries;
+    private final Map<String, PreparsedDocumentEntry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public GraphQLDocumentCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparsedDocumentEntry> eldest) {
+                return size() > GraphQLDocumentCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * El parseo y la validación son síncronos, así que el future ya viene completo.
+     */
+    @Override
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(ExecutionInput executionInput,
+            Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        return CompletableFuture.completedFuture(resolve(executionInput, parseAndValidateFunction));
+    }
+
+    /**
+     * Sigue siendo abstracto en graphql-java 21; el motor solo llama a {@link #getDocumentAsync}.
+     */
+    @Deprecated
+    @Override
+    public PreparsedDocumentEntry getDocument(ExecutionInput executionInput,
+                                              Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        return resolve(executionInput, parseAndValidateFunction);
+    }
+
+    private PreparsedDocumentEntry resolve(ExecutionInput executionInput,
+                                           Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        String persistedHash = getPersistedQueryHash(executionInput);
+        String query = executionInput.getQuery();
+
+        // Solo se envió el hash (APQ)
+        if (PersistedQuerySupport.PERSISTED_QUERY_MARKER.equals(query)) {
+            PreparsedDocumentEntry cached = persistedHash != null ? lookup(persistedHash) : null;
+            return cached != null ? cached : persistedQueryError(new PersistedQueryNotFound(persistedHash), persistedHash);
+        }
+
+        String key = sha256Hex(query);
+        if (persistedHash != null && !persistedHash.equalsIgnoreCase(key)) {
+            return persistedQueryError(new PersistedQueryIdInvalid(persistedHash), persistedHash);
+        }
+
+        PreparsedDocumentEntry cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        PreparsedDocumentEntry entry = parseAndValidateFunction.apply(executionInput);
+        // Los documentos inválidos no se cachean para no ocupar espacio con basura
+        if (!entry.hasErrors()) {
+            synchronized (entries) {
+                entries.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("max_entries", maxEntries);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    private PreparsedDocumentEntry lookup(String key) {
+        PreparsedDocumentEntry entry;
+        synchronized (entries) {
+            entry = entries.get(key.toLowerCase(Locale.ROOT));
+        }
+        if (entry != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return entry;
+    }
+
+    private static PreparsedDocumentEntry persistedQueryError(PersistedQueryError error, String hash) {
+        Map<String, Object> extensions = new HashMap<>();
+        extensions.put("persistedQueryId", hash);
+        GraphQLError graphQLError = GraphqlErrorBuilder.newError()
+            .errorType(error)
+            .message(error.getMessage())
+            .extensions(extensions)
+            .build();
+        return new PreparsedDocumentEntry(graphQLError);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String getPersistedQueryHash(ExecutionInput executionInput) {
+        Map<String, Object> extensions = executionInput.getExtensions();
+        if (extensions == null) {
+            return null;
+        }
+        Object persistedQuery = extensions.get("persistedQuery");
+        if (persistedQuery instanceof Map) {
+            Object hash = ((Map<String, Object>) persistedQuery).get("sha256Hash");
+            return hash != null ? hash.toString() : null;
+        }
+        return null;
+    }
+
+    static String sha256Hex(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
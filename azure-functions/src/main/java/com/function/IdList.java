@@ -0,0 +1,123 @@
+package com.function;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Lecturas en bloque por el parámetro {@code ids=1,2,3}.
+ *
+ * Todos los ids se leen en una sola consulta {@code WHERE id = ANY(?)}, en vez
+ * de un request por id. Las filas se devuelven en el orden pedido, sin
+ * repetidos; los ids que no existen se informan aparte. Junto a las filas va
+ * el ETag de cada una (el mismo de la lectura por id), para que quien agrupa
+ * lecturas individuales pueda seguir validándolas por separado.
+ *
+ * Configuración (ver {@link Settings}):
+ * BULK_IDS_MAX - Máximo de ids por request (default 1000)
+ */
+public final class IdList {
+
+    public static final int MAX_IDS = Settings.getInt("BULK_IDS_MAX", 1000);
+
+    private IdList() {
+    }
+
+    /**
+     * @throws IllegalArgumentException si algún id no es un entero positivo o son demasiados
+     */
+    public static List<Integer> parse(String param) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (String part : param.split(",")) {
+            String value = part.trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            int id;
+            try {
+                id = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("ID inválido en ids: " + value);
+            }
+            if (id <= 0) {
+                throw new IllegalArgumentException("ID inválido en ids: " + value);
+            }
+            ids.add(id);
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("ids no puede estar vacío");
+        }
+        if (ids.size() > MAX_IDS) {
+            throw new IllegalArgumentException("ids admite como máximo " + MAX_IDS + " valores");
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * Filas de {@code table} con los ids pedidos, en el mismo orden que {@code ids}.
+     */
+    public static <T> List<T> load(Connection conn, String table, String columns, List<Integer> ids,
+                                   RowMapper<T> mapper, ToIntFunction<? super T> idOf) throws SQLException {
+        Map<Integer, T> byId = new HashMap<>(ids.size() * 2);
+        String sql = "SELECT " + columns + " FROM " + table + " WHERE id = ANY(?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+
+            try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                long mapStarted = System.nanoTime();
+                while (rs.next()) {
+                    T row = mapper.map(rs);
+                    byId.put(idOf.applyAsInt(row), row);
+                }
+                StageTimer.record(StageTimer.Stage.MAP, mapStarted);
+            }
+        }
+
+        List<T> rows = new ArrayList<>(byId.size());
+        for (Integer id : ids) {
+            T row = byId.get(id);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Ids pedidos que no están en {@code rows}.
+     */
+    public static <T> List<Integer> missing(List<Integer> ids, List<T> rows, ToIntFunction<? super T> idOf) {
+        if (rows.size() == ids.size()) {
+            return List.of();
+        }
+        Set<Integer> found = new HashSet<>(rows.size() * 2);
+        for (T row : rows) {
+            found.add(idOf.applyAsInt(row));
+        }
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            if (!found.contains(id)) {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * ETag de cada fila ({@link ETags#forRow}) por id.
+     */
+    public static <T> Map<String, String> etags(List<T> rows, ToIntFunction<? super T> idOf,
+                                                ToLongFunction<? super T> versionOf) {
+        Map<String, String> etags = new LinkedHashMap<>(rows.size() * 2);
+        for (T row : rows) {
+            int id = idOf.applyAsInt(row);
+            etags.put(String.valueOf(id), ETags.forRow(id, versionOf.applyAsLong(row)));
+        }
+        return etags;
+    }
+}
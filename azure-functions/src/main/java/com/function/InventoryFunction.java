@@ -5,6 +5,7 @@ import java.sql.*;
 import java.util.Date;
 import com.microsoft.azure.functions.annotation.*;
 import com.microsoft.azure.functions.*;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -12,23 +13,22 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * API REST para operaciones de control de inventario y movimientos de stock
  *
  * Endpoints:
- * GET /api/InventoryFunction - Listar inventario actual
+ * GET /api/InventoryFunction?after_id={id}&limit={n} - Listar inventario actual paginado por id
  * GET /api/InventoryFunction?producto_id={id} - Obtener stock de un producto
  * GET /api/InventoryFunction?bodega_id={id} - Obtener inventario de una bodega
- * POST /api/InventoryFunction/movement - Registrar movimiento de inventario
+ * POST /api/InventoryFunction/movement - Registrar movimiento de inventario (ENTRADA, SALIDA, AJUSTE, TRANSFERENCIA)
+ * POST /api/inventory/movements/batch - Registrar muchos movimientos (arreglo JSON o NDJSON)
  * PUT /api/InventoryFunction/adjust - Ajustar stock manualmente
- * GET /api/InventoryFunction/alerts - Obtener alertas de stock bajo
+ * GET /api/InventoryFunction/alerts?severidad={CRITICA|ALTA|MEDIA}&after={cursor}&limit={n} - Alertas de stock por severidad
+ * GET /api/InventoryFunction/alert-events?after={cursor}&limit={n} - Transiciones de alerta (sin cursor: posición actual)
+ * GET /api/InventoryFunction/report?live={true|false} - Reporte general (resumen precalculado si está activo)
  */
 public class InventoryFunction {
 
-    private static final String DB_URL = System.getenv("POSTGRES_URL") != null ?
-        System.getenv("POSTGRES_URL") : "jdbc:postgresql://104.208.158.85:5432/duoc?sslmode=require";
-    private static final String DB_USER = System.getenv("POSTGRES_USER") != null ?
-        System.getenv("POSTGRES_USER") : "duoc";
-    private static final String DB_PASSWORD = System.getenv("POSTGRES_PASSWORD") != null ?
-        System.getenv("POSTGRES_PASSWORD") : "duoc1234";
+    private static final int BATCH_CHUNK_SIZE = Settings.getInt("INVENTORY_BATCH_CHUNK_SIZE", 500);
+    private static final int BATCH_MAX_ITEMS = Settings.getInt("INVENTORY_BATCH_MAX_ITEMS", 10000);
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = Json.MAPPER;
 
     @FunctionName("InventoryFunction")
     public HttpResponseMessage run(
@@ -40,7 +40,18 @@ public class InventoryFunction {
             @BindingName("action") String action,
             final ExecutionContext context) {
 
-        context.getLogger().info("InventoryFunction procesando: " + request.getHttpMethod() + " - Action: " + action);
+        StageTimer.begin("InventoryFunction");
+        Log.begin("InventoryFunction", request, context);
+        try {
+            return dispatch(request, action, context);
+        } finally {
+            StageTimer.end();
+            Log.end();
+        }
+    }
+
+    private HttpResponseMessage dispatch(HttpRequestMessage<Optional<String>> request, String action, ExecutionContext context) {
+        Log.info(Log.REQUEST, () -> "InventoryFunction procesando: " + request.getHttpMethod() + " - Action: " + action);
 
         try {
             switch (action.toLowerCase()) {
@@ -52,14 +63,39 @@ public class InventoryFunction {
                     return handleAdjustStock(request, context);
                 case "alerts":
                     return handleStockAlerts(request, context);
+                case "alert-events":
+                    return handleAlertEvents(request, context);
                 case "report":
                     return handleInventoryReport(request, context);
                 default:
                     return handleListInventory(request, context);
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en InventoryFunction: " + e.getMessage());
+            Log.error(() -> "Error en InventoryFunction: " + e.getMessage(), e);
+            return createErrorResponse(request, "Error interno: " + e.getMessage(), 500);
+        }
+    }
+
+    @FunctionName("InventoryMovementsBatch")
+    public HttpResponseMessage runBatch(
+            @HttpTrigger(name = "req",
+                        methods = {HttpMethod.POST},
+                        authLevel = AuthorizationLevel.ANONYMOUS,
+                        route = "inventory/movements/batch")
+            HttpRequestMessage<Optional<String>> request,
+            final ExecutionContext context) {
+
+        StageTimer.begin("InventoryMovementsBatch");
+        Log.begin("InventoryMovementsBatch", request, context);
+        Log.info(Log.REQUEST, () -> "InventoryFunction procesando lote de movimientos");
+        try {
+            return handleMovementBatch(request, context);
+        } catch (Exception e) {
+            Log.error(() -> "Error en InventoryFunction: " + e.getMessage(), e);
             return createErrorResponse(request, "Error interno: " + e.getMessage(), 500);
+        } finally {
+            StageTimer.end();
+            Log.end();
         }
     }
 
@@ -68,16 +104,29 @@ public class InventoryFunction {
         String bodegaId = request.getQueryParameters().get("bodega_id");
         String categoria = request.getQueryParameters().get("categoria");
 
+        KeysetPage page;
+        try {
+            page = KeysetPage.fromQuery(request.getQueryParameters());
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(request, e.getMessage(), 400);
+        }
+
         try (Connection conn = getConnection()) {
-            StringBuilder sql = new StringBuilder(
-                "SELECT p.id, p.sku, p.nombre, p.stock, p.stock_minimo, p.stock_maximo, " +
-                "p.precio, p.categoria_id, p.bodega_id, p.estado, " +
-                "c.nombre as categoria_nombre, b.nombre as bodega_nombre " +
-                "FROM productos p " +
-                "LEFT JOIN categorias c ON p.categoria_id = c.id " +
-                "LEFT JOIN bodegas b ON p.bodega_id = b.id " +
-                "WHERE 1=1"
-            );
+            // Con la caché de referencia los nombres de categoría y bodega salen de memoria
+            RowMapper<InventoryItem> mapper;
+            StringBuilder sql;
+            if (ReferenceData.ENABLED) {
+                ReferenceData reference = ReferenceData.getInstance();
+                mapper = InventoryItem.withNames(reference.categorias(conn), reference.bodegas(conn));
+                sql = new StringBuilder(
+                    "SELECT " + InventoryItem.PRODUCT_COLUMNS + " " + InventoryItem.PRODUCT_FROM + " WHERE 1=1"
+                );
+            } else {
+                mapper = InventoryItem::fromRow;
+                sql = new StringBuilder(
+                    "SELECT " + InventoryItem.COLUMNS + " " + InventoryItem.FROM + " WHERE 1=1"
+                );
+            }
 
             List<Object> params = new ArrayList<>();
 
@@ -94,55 +143,28 @@ public class InventoryFunction {
                 params.add(Integer.parseInt(categoria));
             }
 
-            sql.append(" ORDER BY p.id");
+            sql.append(" AND ").append(page.clause("p.id"));
 
-            List<Map<String, Object>> inventory = new ArrayList<>();
+            List<InventoryItem> inventory = new ArrayList<>();
 
             try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
                 for (int i = 0; i < params.size(); i++) {
                     stmt.setObject(i + 1, params.get(i));
                 }
+                page.bind(stmt, params.size() + 1);
 
-                try (ResultSet rs = stmt.executeQuery()) {
+                try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                    long mapStarted = System.nanoTime();
                     while (rs.next()) {
-                        Map<String, Object> item = new HashMap<>();
-                        item.put("id", rs.getInt("id"));
-                        item.put("sku", rs.getString("sku"));
-                        item.put("nombre", rs.getString("nombre"));
-                        item.put("stock", rs.getInt("stock"));
-                        item.put("stock_minimo", rs.getInt("stock_minimo"));
-                        item.put("stock_maximo", rs.getInt("stock_maximo"));
-                        item.put("precio", rs.getDouble("precio"));
-                        item.put("categoria_id", rs.getInt("categoria_id"));
-                        item.put("categoria_nombre", rs.getString("categoria_nombre"));
-                        item.put("bodega_id", rs.getInt("bodega_id"));
-                        item.put("bodega_nombre", rs.getString("bodega_nombre"));
-                        item.put("estado", rs.getString("estado"));
-
-                        // Calcular estado del stock
-                        int stock = rs.getInt("stock");
-                        int stockMinimo = rs.getInt("stock_minimo");
-                        int stockMaximo = rs.getInt("stock_maximo");
-
-                        String stockStatus;
-                        if (stock <= 0) {
-                            stockStatus = "SIN_STOCK";
-                        } else if (stock <= stockMinimo) {
-                            stockStatus = "STOCK_BAJO";
-                        } else if (stock >= stockMaximo) {
-                            stockStatus = "STOCK_ALTO";
-                        } else {
-                            stockStatus = "STOCK_NORMAL";
-                        }
-                        item.put("stock_status", stockStatus);
-
-                        inventory.add(item);
+                        inventory.add(mapper.map(rs));
                     }
+                    StageTimer.record(StageTimer.Stage.MAP, mapStarted);
                 }
             }
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
+            page.describe(response, inventory, InventoryItem::id);
             response.put("data", inventory);
             response.put("total", inventory.size());
             response.put("message", "Inventario obtenido exitosamente");
@@ -151,105 +173,226 @@ public class InventoryFunction {
             return createSuccessResponse(request, response);
 
         } catch (Exception e) {
-            context.getLogger().severe("Error obteniendo inventario: " + e.getMessage());
+            Log.error(() -> "Error obteniendo inventario: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al obtener inventario: " + e.getMessage(), 500);
         }
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Registra el movimiento en una sola sentencia: bloquea la fila del producto,
+     * actualiza el stock y agrega la fila en movimientos_inventario. Al ser una
+     * única sentencia (autocommit) es atómica y el lock se libera al terminarla.
+     * Si la SALIDA deja el stock negativo, el UPDATE no aplica y no se inserta nada.
+     */
+    private static final String MOVEMENT_SQL =
+        "WITH anterior AS (" +
+        "    SELECT id, stock, bodega_id FROM productos WHERE id = ? FOR UPDATE" +
+        "), actualizado AS (" +
+        "    UPDATE productos p" +
+        "    SET stock = COALESCE(CAST(? AS INTEGER), a.stock + ?)," +
+        "        bodega_id = COALESCE(CAST(? AS INTEGER), a.bodega_id)," +
+        "        modificado_en = CURRENT_TIMESTAMP" +
+        "    FROM anterior a" +
+        "    WHERE p.id = a.id AND COALESCE(CAST(? AS INTEGER), a.stock + ?) >= 0" +
+        "    RETURNING p.id, p.bodega_id, a.bodega_id AS bodega_anterior, a.stock AS stock_anterior, p.stock AS stock_nuevo" +
+        "), movimiento AS (" +
+        "    INSERT INTO movimientos_inventario (producto_id, bodega_id, tipo_movimiento, cantidad, stock_anterior, stock_nuevo, motivo, referencia, usuario)" +
+        "    SELECT id, bodega_id, ?, COALESCE(CAST(? AS INTEGER), stock_nuevo), stock_anterior, stock_nuevo, ?, ?, ?" +
+        "    FROM actualizado" +
+        "    RETURNING id" +
+        ") " +
+        "SELECT a.stock AS stock_actual, u.stock_anterior, u.stock_nuevo, u.bodega_id, u.bodega_anterior, m.id AS movimiento_id " +
+        "FROM anterior a " +
+        "LEFT JOIN actualizado u ON TRUE " +
+        "LEFT JOIN movimiento m ON TRUE";
+
+    @SuppressWarnings({"unchecked", "try"})
     private HttpResponseMessage handleMovement(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
         if (request.getHttpMethod() != HttpMethod.POST) {
             return createErrorResponse(request, "Método no permitido para movimientos", 405);
         }
 
         String body = request.getBody().orElse("{}");
-        context.getLogger().info("Registrando movimiento de inventario: " + body);
+        Log.info(Log.WRITE, () -> "Registrando movimiento de inventario: " + body);
 
         try {
-            Map<String, Object> movementData = objectMapper.readValue(body, Map.class);
-
-            int productoId = ((Number) movementData.get("producto_id")).intValue();
-            String tipoMovimiento = (String) movementData.get("tipo_movimiento"); // ENTRADA, SALIDA, AJUSTE
-            int cantidad = ((Number) movementData.get("cantidad")).intValue();
-            String motivo = (String) movementData.getOrDefault("motivo", "");
-            String usuario = (String) movementData.getOrDefault("usuario", "Sistema");
-
-            try (Connection conn = getConnection()) {
-                conn.setAutoCommit(false);
-
-                try {
-                    // Obtener stock actual
-                    String selectSql = "SELECT stock FROM productos WHERE id = ? FOR UPDATE";
-                    int stockActual = 0;
-
-                    try (PreparedStatement selectStmt = conn.prepareStatement(selectSql)) {
-                        selectStmt.setInt(1, productoId);
-                        try (ResultSet rs = selectStmt.executeQuery()) {
-                            if (rs.next()) {
-                                stockActual = rs.getInt("stock");
-                            } else {
-                                conn.rollback();
-                                return createErrorResponse(request, "Producto no encontrado", 404);
-                            }
-                        }
-                    }
+            InventoryMovement movement;
+            try {
+                movement = InventoryMovement.fromMap(objectMapper.readValue(body, Map.class));
+            } catch (IllegalArgumentException e) {
+                return createErrorResponse(request, e.getMessage(), 400);
+            }
 
-                    // Calcular nuevo stock
-                    int nuevoStock = stockActual;
-                    if ("ENTRADA".equalsIgnoreCase(tipoMovimiento)) {
-                        nuevoStock += cantidad;
-                    } else if ("SALIDA".equalsIgnoreCase(tipoMovimiento)) {
-                        nuevoStock -= cantidad;
-                        if (nuevoStock < 0) {
-                            conn.rollback();
-                            return createErrorResponse(request, "Stock insuficiente", 400);
-                        }
-                    } else if ("AJUSTE".equalsIgnoreCase(tipoMovimiento)) {
-                        nuevoStock = cantidad;
-                    }
+            // ENTRADA/SALIDA van al acumulador en memoria; el resto escribe directo
+            // y antes persiste lo que el acumulador tenga pendiente del producto
+            boolean writeBehind = StockAggregator.ENABLED && movement.stockAbsoluto() == null
+                && movement.getBodegaDestinoId() == null;
+            try (StockAggregator.Fence fence = StockAggregator.fence(
+                     writeBehind ? List.of() : List.of(movement.getProductoId()));
+                 Connection conn = writeBehind ? null : getConnection()) {
+                Map<String, Object> result = writeBehind
+                    ? StockAggregator.getInstance().reserve(movement)
+                    : registerMovement(conn, movement);
+
+                if (result == null) {
+                    return createErrorResponse(request, "Producto no encontrado", 404);
+                }
+                if (result.get("stock_nuevo") == null) {
+                    return createErrorResponse(request, "Stock insuficiente", 400);
+                }
+                if (!writeBehind) {
+                    StockAlertIndex.markChanged(movement.getProductoId());
+                }
 
-                    // Actualizar stock del producto
-                    String updateSql = "UPDATE productos SET stock = ?, modificado_en = CURRENT_TIMESTAMP WHERE id = ?";
-                    try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-                        updateStmt.setInt(1, nuevoStock);
-                        updateStmt.setInt(2, productoId);
-                        updateStmt.executeUpdate();
-                    }
+                Map<String, Object> data = new HashMap<>();
+                data.put("movimiento_id", result.get("movimiento_id"));
+                data.put("producto_id", movement.getProductoId());
+                data.put("tipo_movimiento", movement.getTipo());
+                data.put("cantidad", movement.cantidadRegistrada() != null ? movement.getCantidad() : result.get("stock_nuevo"));
+                data.put("stock_anterior", result.get("stock_anterior"));
+                data.put("stock_nuevo", result.get("stock_nuevo"));
+                data.put("bodega_id", result.get("bodega_id"));
+                data.put("motivo", movement.getMotivo());
+                data.put("usuario", movement.getUsuario());
+                if (InventoryMovement.TRANSFERENCIA.equals(movement.getTipo())) {
+                    data.put("bodega_anterior", result.get("bodega_anterior"));
+                }
 
-                    // Registrar el movimiento (si tuviéramos tabla de movimientos)
-                    // En este caso, solo actualizamos el stock
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("data", data);
+                if (writeBehind) {
+                    data.put("pendiente", true);
+                    response.put("message", "Movimiento de inventario aceptado; se registrará en segundo plano");
+                } else {
+                    response.put("message", "Movimiento de inventario registrado exitosamente");
+                }
+                response.put("timestamp", new Date());
 
-                    conn.commit();
+                return createSuccessResponse(request, response);
+            }
 
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("success", true);
-                    response.put("data", Map.of(
-                        "producto_id", productoId,
-                        "tipo_movimiento", tipoMovimiento,
-                        "cantidad", cantidad,
-                        "stock_anterior", stockActual,
-                        "stock_nuevo", nuevoStock,
-                        "motivo", motivo,
-                        "usuario", usuario
-                    ));
-                    response.put("message", "Movimiento de inventario registrado exitosamente");
-                    response.put("timestamp", new Date());
+        } catch (Exception e) {
+            Log.error(() -> "Error en movimiento de inventario: " + e.getMessage(), e);
+            return createErrorResponse(request, "Error al registrar movimiento: " + e.getMessage(), 500);
+        }
+    }
 
-                    return createSuccessResponse(request, response);
+    /**
+     * Ejecuta {@link #MOVEMENT_SQL}. Retorna null si el producto no existe; si el
+     * movimiento fue rechazado por stock insuficiente, stock_nuevo viene en null.
+     */
+    private Map<String, Object> registerMovement(Connection conn, InventoryMovement movement) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(MOVEMENT_SQL)) {
+            stmt.setInt(1, movement.getProductoId());
+            stmt.setObject(2, movement.stockAbsoluto(), Types.INTEGER);
+            stmt.setInt(3, movement.delta());
+            stmt.setObject(4, movement.getBodegaDestinoId(), Types.INTEGER);
+            stmt.setObject(5, movement.stockAbsoluto(), Types.INTEGER);
+            stmt.setInt(6, movement.delta());
+            stmt.setString(7, movement.getTipo());
+            stmt.setObject(8, movement.cantidadRegistrada(), Types.INTEGER);
+            stmt.setString(9, movement.getMotivo());
+            stmt.setString(10, movement.getReferencia());
+            stmt.setString(11, movement.getUsuario());
+
+            try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Map<String, Object> result = new HashMap<>();
+                result.put("stock_actual", rs.getInt("stock_actual"));
+                result.put("stock_anterior", rs.getObject("stock_anterior") != null ? rs.getInt("stock_anterior") : null);
+                result.put("stock_nuevo", rs.getObject("stock_nuevo") != null ? rs.getInt("stock_nuevo") : null);
+                result.put("bodega_id", rs.getObject("bodega_id") != null ? rs.getInt("bodega_id") : null);
+                result.put("bodega_anterior", rs.getObject("bodega_anterior") != null ? rs.getInt("bodega_anterior") : null);
+                result.put("movimiento_id", rs.getObject("movimiento_id") != null ? rs.getLong("movimiento_id") : null);
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Acepta un arreglo JSON o NDJSON (un movimiento por línea). Los ítems
+     * inválidos se reportan individualmente sin abortar el resto del lote.
+     */
+    @SuppressWarnings({"unchecked", "try"})
+    private HttpResponseMessage handleMovementBatch(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
+        String body = request.getBody().orElse("").trim();
+        if (body.isEmpty()) {
+            return createErrorResponse(request, "Se requiere al menos un movimiento", 400);
+        }
 
-                } catch (Exception e) {
-                    conn.rollback();
-                    throw e;
+        List<Object> rawItems = new ArrayList<>();
+        try {
+            if (body.startsWith("[")) {
+                rawItems = objectMapper.readValue(body, List.class);
+            } else {
+                try (MappingIterator<Object> lines = objectMapper.readerFor(Object.class).readValues(body)) {
+                    while (lines.hasNext()) {
+                        rawItems.add(lines.next());
+                    }
                 }
             }
+        } catch (Exception e) {
+            return createErrorResponse(request, "Lote de movimientos inválido: " + e.getMessage(), 400);
+        }
+
+        if (rawItems.size() > BATCH_MAX_ITEMS) {
+            return createErrorResponse(request, "El lote excede el máximo de " + BATCH_MAX_ITEMS + " movimientos", 413);
+        }
+
+        Map<Integer, Map<String, Object>> results = new HashMap<>();
+        List<MovementBatchProcessor.Item> items = new ArrayList<>();
+        Set<Integer> productoIds = new HashSet<>();
+        for (int i = 0; i < rawItems.size(); i++) {
+            try {
+                // null, números o arreglos dentro del lote son errores del ítem, no del lote
+                if (!(rawItems.get(i) instanceof Map)) {
+                    throw new IllegalArgumentException("El movimiento debe ser un objeto JSON");
+                }
+                InventoryMovement movement = InventoryMovement.fromMap((Map<String, Object>) rawItems.get(i));
+                items.add(new MovementBatchProcessor.Item(i, movement));
+                productoIds.add(movement.getProductoId());
+            } catch (IllegalArgumentException | ClassCastException e) {
+                results.put(i, MovementBatchProcessor.errorResult(i, null, e.getMessage()));
+            }
+        }
 
+        try (StockAggregator.Fence fence = StockAggregator.fence(productoIds);
+             Connection conn = getConnection()) {
+            if (!items.isEmpty()) {
+                results.putAll(new MovementBatchProcessor(BATCH_CHUNK_SIZE).process(conn, items));
+                StockAlertIndex.markChanged(productoIds);
+            }
         } catch (Exception e) {
-            context.getLogger().severe("Error en movimiento de inventario: " + e.getMessage());
-            return createErrorResponse(request, "Error al registrar movimiento: " + e.getMessage(), 500);
+            Log.error(() -> "Error en lote de movimientos: " + e.getMessage(), e);
+            return createErrorResponse(request, "Error al registrar lote de movimientos: " + e.getMessage(), 500);
+        }
+
+        List<Map<String, Object>> ordered = new ArrayList<>(rawItems.size());
+        int aceptados = 0;
+        for (int i = 0; i < rawItems.size(); i++) {
+            Map<String, Object> result = results.get(i);
+            if (Boolean.TRUE.equals(result.get("success"))) {
+                aceptados++;
+            }
+            ordered.add(result);
         }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", ordered);
+        response.put("total", ordered.size());
+        response.put("aceptados", aceptados);
+        response.put("rechazados", ordered.size() - aceptados);
+        response.put("message", "Lote de movimientos procesado");
+        response.put("timestamp", new Date());
+
+        return createSuccessResponse(request, response);
     }
 
-    @SuppressWarnings("unchecked")
+    @SuppressWarnings({"unchecked", "try"})
     private HttpResponseMessage handleAdjustStock(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
         if (request.getHttpMethod() != HttpMethod.PUT) {
             return createErrorResponse(request, "Método no permitido para ajustes", 405);
@@ -259,158 +402,207 @@ public class InventoryFunction {
 
         try {
             Map<String, Object> adjustData = objectMapper.readValue(body, Map.class);
+            if (!(adjustData.get("producto_id") instanceof Number) || !(adjustData.get("nuevo_stock") instanceof Number)) {
+                return createErrorResponse(request, "producto_id y nuevo_stock requeridos", 400);
+            }
             int productoId = ((Number) adjustData.get("producto_id")).intValue();
             int nuevoStock = ((Number) adjustData.get("nuevo_stock")).intValue();
             String motivo = (String) adjustData.getOrDefault("motivo", "Ajuste manual");
+            if (nuevoStock < 0) {
+                return createErrorResponse(request, "nuevo_stock no puede ser negativo", 400);
+            }
 
-            try (Connection conn = getConnection()) {
-                String sql = "UPDATE productos SET stock = ?, modificado_en = CURRENT_TIMESTAMP WHERE id = ?";
-
-                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                    stmt.setInt(1, nuevoStock);
-                    stmt.setInt(2, productoId);
-
-                    int affectedRows = stmt.executeUpdate();
-
-                    if (affectedRows > 0) {
-                        Map<String, Object> response = new HashMap<>();
-                        response.put("success", true);
-                        response.put("data", Map.of(
-                            "producto_id", productoId,
-                            "nuevo_stock", nuevoStock,
-                            "motivo", motivo
-                        ));
-                        response.put("message", "Stock ajustado exitosamente");
-                        response.put("timestamp", new Date());
-
-                        return createSuccessResponse(request, response);
-                    } else {
-                        return createErrorResponse(request, "Producto no encontrado", 404);
-                    }
+            // El ajuste manual queda registrado en el historial como AJUSTE
+            InventoryMovement movement = new InventoryMovement(productoId, InventoryMovement.AJUSTE, nuevoStock, null,
+                motivo, (String) adjustData.get("referencia"), (String) adjustData.getOrDefault("usuario", "Sistema"));
+
+            try (StockAggregator.Fence fence = StockAggregator.fence(List.of(productoId));
+                 Connection conn = getConnection()) {
+                Map<String, Object> result = registerMovement(conn, movement);
+
+                if (result != null) {
+                    StockAlertIndex.markChanged(productoId);
+
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", true);
+                    response.put("data", Map.of(
+                        "producto_id", productoId,
+                        "nuevo_stock", nuevoStock,
+                        "stock_anterior", result.get("stock_anterior"),
+                        "motivo", motivo
+                    ));
+                    response.put("message", "Stock ajustado exitosamente");
+                    response.put("timestamp", new Date());
+
+                    return createSuccessResponse(request, response);
+                } else {
+                    return createErrorResponse(request, "Producto no encontrado", 404);
                 }
             }
 
         } catch (Exception e) {
-            context.getLogger().severe("Error ajustando stock: " + e.getMessage());
+            Log.error(() -> "Error ajustando stock: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al ajustar stock: " + e.getMessage(), 500);
         }
     }
 
+    /**
+     * Alertas ordenadas por severidad y desvío, paginadas con un cursor opaco
+     * ({@code after}) y filtrables por {@code severidad}. Se sirven desde
+     * {@link StockAlertIndex}; con el índice desactivado se calculan en cada
+     * request con el mismo orden y paginación.
+     */
     private HttpResponseMessage handleStockAlerts(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
-        try (Connection conn = getConnection()) {
-            String sql = "SELECT p.id, p.sku, p.nombre, p.stock, p.stock_minimo, p.stock_maximo, " +
-                        "c.nombre as categoria_nombre, b.nombre as bodega_nombre " +
-                        "FROM productos p " +
-                        "LEFT JOIN categorias c ON p.categoria_id = c.id " +
-                        "LEFT JOIN bodegas b ON p.bodega_id = b.id " +
-                        "WHERE p.stock <= p.stock_minimo OR p.stock >= p.stock_maximo " +
-                        "ORDER BY p.stock ASC";
-
-            List<Map<String, Object>> alerts = new ArrayList<>();
-
-            try (PreparedStatement stmt = conn.prepareStatement(sql);
-                 ResultSet rs = stmt.executeQuery()) {
-
-                while (rs.next()) {
-                    Map<String, Object> alert = new HashMap<>();
-                    alert.put("id", rs.getInt("id"));
-                    alert.put("sku", rs.getString("sku"));
-                    alert.put("nombre", rs.getString("nombre"));
-                    alert.put("stock", rs.getInt("stock"));
-                    alert.put("stock_minimo", rs.getInt("stock_minimo"));
-                    alert.put("stock_maximo", rs.getInt("stock_maximo"));
-                    alert.put("categoria", rs.getString("categoria_nombre"));
-                    alert.put("bodega", rs.getString("bodega_nombre"));
-
-                    int stock = rs.getInt("stock");
-                    int stockMinimo = rs.getInt("stock_minimo");
-                    int stockMaximo = rs.getInt("stock_maximo");
-
-                    if (stock <= 0) {
-                        alert.put("tipo_alerta", "SIN_STOCK");
-                        alert.put("severidad", "CRITICA");
-                    } else if (stock <= stockMinimo) {
-                        alert.put("tipo_alerta", "STOCK_BAJO");
-                        alert.put("severidad", "ALTA");
-                    } else if (stock >= stockMaximo) {
-                        alert.put("tipo_alerta", "STOCK_EXCESIVO");
-                        alert.put("severidad", "MEDIA");
-                    }
+        Map<String, String> params = request.getQueryParameters();
+        Integer rango = null;
+        String severidad = params.get("severidad");
+        if (severidad != null) {
+            rango = Arrays.asList(StockAlert.SEVERIDADES).indexOf(severidad.toUpperCase());
+            if (rango < 0) {
+                return createErrorResponse(request, "severidad debe ser una de " + String.join(", ", StockAlert.SEVERIDADES), 400);
+            }
+        }
 
-                    alerts.add(alert);
+        try {
+            KeysetPage keyset = KeysetPage.fromQuery(params);
+            int limit = keyset.getLimit();
+            String after = params.get("after");
+
+            StockAlertIndex.Page page;
+            if (StockAlertIndex.ENABLED) {
+                page = StockAlertIndex.getInstance().page(rango, after, limit);
+            } else {
+                try (Connection conn = getConnection()) {
+                    page = StockAlertIndex.query(conn, rango, after, limit);
                 }
             }
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", alerts);
-            response.put("total_alertas", alerts.size());
+            response.put("data", page.alertas());
+            response.put("total_alertas", page.total());
+            response.put("por_severidad", page.porSeveridad());
+            response.put("limit", keyset.responseLimit());
+            response.put("has_more", page.hasMore());
+            response.put("next_cursor", page.nextCursor());
             response.put("message", "Alertas de stock obtenidas exitosamente");
             response.put("timestamp", new Date());
 
             return createSuccessResponse(request, response);
 
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(request, e.getMessage(), 400);
         } catch (Exception e) {
-            context.getLogger().severe("Error obteniendo alertas: " + e.getMessage());
+            Log.error(() -> "Error obteniendo alertas: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al obtener alertas: " + e.getMessage(), 500);
         }
     }
 
-    private HttpResponseMessage handleInventoryReport(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
+    /**
+     * Transiciones de alerta desde el cursor {@code after} ({@link StockAlertOutbox}).
+     * Sin cursor retorna solo {@code next_cursor} con la posición actual.
+     */
+    private HttpResponseMessage handleAlertEvents(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
+        Map<String, String> params = request.getQueryParameters();
+
         try (Connection conn = getConnection()) {
-            // Reporte general del inventario
-            Map<String, Object> report = new HashMap<>();
+            KeysetPage keyset = KeysetPage.fromQuery(params);
+            StockAlertOutbox.Page page = StockAlertOutbox.read(conn, params.get("after"), keyset.getLimit());
 
-            // Total de productos
-            String countSql = "SELECT COUNT(*) as total_productos, " +
-                             "SUM(stock * precio) as valor_total_inventario, " +
-                             "SUM(stock) as total_unidades " +
-                             "FROM productos WHERE estado = 'ACTIVO'";
-
-            try (PreparedStatement stmt = conn.prepareStatement(countSql);
-                 ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    report.put("total_productos", rs.getInt("total_productos"));
-                    report.put("valor_total_inventario", rs.getDouble("valor_total_inventario"));
-                    report.put("total_unidades", rs.getInt("total_unidades"));
-                }
-            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", page.eventos());
+            response.put("total", page.eventos().size());
+            response.put("limit", keyset.responseLimit());
+            response.put("has_more", page.hasMore());
+            response.put("next_cursor", page.nextCursor());
+            response.put("message", "Eventos de alerta obtenidos exitosamente");
+            response.put("timestamp", new Date());
 
-            // Productos con stock bajo
-            String lowStockSql = "SELECT COUNT(*) as productos_stock_bajo FROM productos WHERE stock <= stock_minimo";
-            try (PreparedStatement stmt = conn.prepareStatement(lowStockSql);
-                 ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    report.put("productos_stock_bajo", rs.getInt("productos_stock_bajo"));
-                }
-            }
+            return createSuccessResponse(request, response);
 
-            // Productos sin stock
-            String noStockSql = "SELECT COUNT(*) as productos_sin_stock FROM productos WHERE stock = 0";
-            try (PreparedStatement stmt = conn.prepareStatement(noStockSql);
-                 ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    report.put("productos_sin_stock", rs.getInt("productos_sin_stock"));
-                }
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(request, e.getMessage(), 400);
+        } catch (Exception e) {
+            Log.error(() -> "Error obteniendo eventos de alerta: " + e.getMessage(), e);
+            return createErrorResponse(request, "Error al obtener eventos de alerta: " + e.getMessage(), 500);
+        }
+    }
+
+    /**
+     * Reporte en una sola sentencia: todos los totales salen de un único recorrido
+     * con agregados FILTER y el top 5 de un ORDER BY ... LIMIT (heapsort top-N, o
+     * el índice parcial de activos por stock si está instalado). Cada fila trae
+     * los totales; si no hay productos activos igual vuelve una fila con ellos.
+     */
+    private static final String REPORT_SQL =
+        "SELECT top.nombre, top.stock, top.precio, top.valor_total, top.id IS NOT NULL AS activo, " +
+        "       t.total_productos, t.valor_total_inventario, t.total_unidades, t.productos_stock_bajo, t.productos_sin_stock " +
+        "FROM (" +
+        "    SELECT COUNT(*) FILTER (WHERE estado = 'ACTIVO') AS total_productos," +
+        "           SUM(stock * precio) FILTER (WHERE estado = 'ACTIVO') AS valor_total_inventario," +
+        "           SUM(stock) FILTER (WHERE estado = 'ACTIVO') AS total_unidades," +
+        "           COUNT(*) FILTER (WHERE stock <= stock_minimo) AS productos_stock_bajo," +
+        "           COUNT(*) FILTER (WHERE stock = 0) AS productos_sin_stock" +
+        "    FROM productos" +
+        ") t " +
+        "LEFT JOIN (" +
+        "    SELECT id, nombre, stock, precio, stock * precio AS valor_total" +
+        "    FROM productos WHERE estado = 'ACTIVO'" +
+        "    ORDER BY stock DESC, id LIMIT 5" +
+        ") top ON TRUE " +
+        "ORDER BY top.stock DESC, top.id";
+
+    /**
+     * Con INVENTORY_REPORT_SUMMARY_ENABLED lee el resumen precalculado
+     * ({@link InventorySummary}); {@code ?live=true} fuerza el cálculo sobre el catálogo.
+     */
+    private HttpResponseMessage handleInventoryReport(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
+        boolean live = !InventorySummary.ENABLED || "true".equalsIgnoreCase(request.getQueryParameters().get("live"));
+
+        try (Connection conn = getConnection()) {
+            if (!live) {
+                InventorySummary.start();
             }
 
+            // Reporte general del inventario
+            Map<String, Object> report = new HashMap<>();
+            report.put("total_productos", 0);
+            report.put("valor_total_inventario", 0.0);
+            report.put("total_unidades", 0);
+            report.put("productos_stock_bajo", 0);
+            report.put("productos_sin_stock", 0);
+
             // Top 5 productos con más stock
-            String topStockSql = "SELECT nombre, stock, precio, (stock * precio) as valor_total " +
-                                "FROM productos WHERE estado = 'ACTIVO' " +
-                                "ORDER BY stock DESC LIMIT 5";
             List<Map<String, Object>> topStock = new ArrayList<>();
-            try (PreparedStatement stmt = conn.prepareStatement(topStockSql);
-                 ResultSet rs = stmt.executeQuery()) {
+
+            try (PreparedStatement stmt = conn.prepareStatement(live ? REPORT_SQL : InventorySummary.REPORT_SQL);
+                 ResultSet rs = StageTimer.executeQuery(stmt)) {
+                // Los totales vienen repetidos en cada fila; basta la primera
+                boolean first = true;
+                long mapStarted = System.nanoTime();
                 while (rs.next()) {
-                    Map<String, Object> item = new HashMap<>();
-                    item.put("nombre", rs.getString("nombre"));
-                    item.put("stock", rs.getInt("stock"));
-                    item.put("precio", rs.getDouble("precio"));
-                    item.put("valor_total", rs.getDouble("valor_total"));
-                    topStock.add(item);
+                    if (first) {
+                        first = false;
+                        report.put("total_productos", rs.getInt("total_productos"));
+                        report.put("valor_total_inventario", rs.getDouble("valor_total_inventario"));
+                        report.put("total_unidades", rs.getInt("total_unidades"));
+                        report.put("productos_stock_bajo", rs.getInt("productos_stock_bajo"));
+                        report.put("productos_sin_stock", rs.getInt("productos_sin_stock"));
+                    }
+                    if (rs.getBoolean("activo")) {
+                        Map<String, Object> item = new HashMap<>();
+                        item.put("nombre", rs.getString("nombre"));
+                        item.put("stock", rs.getInt("stock"));
+                        item.put("precio", rs.getDouble("precio"));
+                        item.put("valor_total", rs.getDouble("valor_total"));
+                        topStock.add(item);
+                    }
                 }
+                StageTimer.record(StageTimer.Stage.MAP, mapStarted);
             }
             report.put("top_productos_stock", topStock);
+            report.put("fuente", live ? "catalogo" : "resumen");
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -421,27 +613,21 @@ public class InventoryFunction {
             return createSuccessResponse(request, response);
 
         } catch (Exception e) {
-            context.getLogger().severe("Error generando reporte: " + e.getMessage());
+            Log.error(() -> "Error generando reporte: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al generar reporte: " + e.getMessage(), 500);
         }
     }
 
     private Connection getConnection() throws SQLException {
-        try {
-            DriverManager.setLoginTimeout(15);
-            System.out.println("Intentando conectar a: " + DB_URL);
-            return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-        } catch (SQLException e) {
-            System.err.println("Error conectando a PostgreSQL: " + e.getMessage());
-            throw new SQLException("Error conectando a PostgreSQL: " + e.getMessage(), e);
-        }
+        return ConnectionPool.getConnection();
     }
 
     private HttpResponseMessage createSuccessResponse(HttpRequestMessage<Optional<String>> request, Object data) {
-        return request.createResponseBuilder(HttpStatus.OK)
+        String body = Json.write(data);
+        return StageTimer.header(request.createResponseBuilder(HttpStatus.OK))
                 .header("Content-Type", "application/json")
                 .header("Access-Control-Allow-Origin", "*")
-                .body(data)
+                .body(body)
                 .build();
     }
 
@@ -452,10 +638,11 @@ public class InventoryFunction {
         error.put("timestamp", new Date());
         error.put("status", statusCode);
 
-        return request.createResponseBuilder(HttpStatus.valueOf(statusCode))
+        String body = Json.write(error);
+        return StageTimer.header(request.createResponseBuilder(HttpStatus.valueOf(statusCode)))
                 .header("Content-Type", "application/json")
                 .header("Access-Control-Allow-Origin", "*")
-                .body(error)
+                .body(body)
                 .build();
     }
 }
\ No newline at end of file
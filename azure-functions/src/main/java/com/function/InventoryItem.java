@@ -0,0 +1,107 @@
+package com.function;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Fila del listado de inventario: producto con los nombres de su categoría y bodega.
+ *
+ * {@link #fromRow} lee por posición según {@link #COLUMNS} (alias p, c, b de
+ * {@link #FROM}); se serializa con {@link Json.InventoryItemSerializer}.
+ *
+ * Con {@link ReferenceData} activo se leen solo las columnas del producto
+ * ({@link #PRODUCT_COLUMNS}) y {@link #withNames} completa los nombres desde
+ * memoria, sin los JOIN.
+ */
+public record InventoryItem(
+    int id,
+    String sku,
+    String nombre,
+    int stock,
+    int stockMinimo,
+    int stockMaximo,
+    double precio,
+    int categoriaId,
+    String categoriaNombre,
+    int bodegaId,
+    String bodegaNombre,
+    String estado
+) {
+
+    /** Columnas en el orden que espera {@link #fromRow}. */
+    public static final String COLUMNS =
+        "p.id, p.sku, p.nombre, p.stock, p.stock_minimo, p.stock_maximo, " +
+        "p.precio, p.categoria_id, c.nombre as categoria_nombre, p.bodega_id, b.nombre as bodega_nombre, p.estado";
+
+    public static final String FROM =
+        "FROM productos p " +
+        "LEFT JOIN categorias c ON p.categoria_id = c.id " +
+        "LEFT JOIN bodegas b ON p.bodega_id = b.id";
+
+    /** Columnas del producto en el orden que espera {@link #withNames}. */
+    public static final String PRODUCT_COLUMNS =
+        "p.id, p.sku, p.nombre, p.stock, p.stock_minimo, p.stock_maximo, " +
+        "p.precio, p.categoria_id, p.bodega_id, p.estado";
+
+    public static final String PRODUCT_FROM = "FROM productos p";
+
+    public static InventoryItem fromRow(ResultSet rs) throws SQLException {
+        return new InventoryItem(
+            rs.getInt(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getInt(4),
+            rs.getInt(5),
+            rs.getInt(6),
+            rs.getDouble(7),
+            rs.getInt(8),
+            rs.getString(9),
+            rs.getInt(10),
+            rs.getString(11),
+            rs.getString(12)
+        );
+    }
+
+    /**
+     * Lee {@link #PRODUCT_COLUMNS} y toma los nombres de las tablas en memoria;
+     * igual que el LEFT JOIN, sin categoría o bodega el nombre queda null.
+     */
+    public static RowMapper<InventoryItem> withNames(ReferenceData.Table<Categoria> categorias,
+                                                     ReferenceData.Table<Bodega> bodegas) {
+        return rs -> {
+            int categoriaId = rs.getInt(8);
+            int bodegaId = rs.getInt(9);
+            Categoria categoria = categorias.get(categoriaId);
+            Bodega bodega = bodegas.get(bodegaId);
+            return new InventoryItem(
+                rs.getInt(1),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getInt(4),
+                rs.getInt(5),
+                rs.getInt(6),
+                rs.getDouble(7),
+                categoriaId,
+                categoria != null ? categoria.nombre() : null,
+                bodegaId,
+                bodega != null ? bodega.nombre() : null,
+                rs.getString(10)
+            );
+        };
+    }
+
+    /**
+     * Estado del stock respecto a sus umbrales: SIN_STOCK, STOCK_BAJO, STOCK_ALTO o STOCK_NORMAL.
+     */
+    public String stockStatus() {
+        if (stock <= 0) {
+            return "SIN_STOCK";
+        } else if (stock <= stockMinimo) {
+            return "STOCK_BAJO";
+        } else if (stock >= stockMaximo) {
+            return "STOCK_ALTO";
+        } else {
+            return "STOCK_NORMAL";
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.function;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Movimiento de inventario validado a partir del JSON recibido.
+ *
+ * Tipos soportados:
+ * ENTRADA - Suma {@code cantidad} al stock
+ * SALIDA - Resta {@code cantidad} al stock (se rechaza si queda negativo)
+ * AJUSTE - Fija el stock en {@code cantidad}
+ * TRANSFERENCIA - Mueve el producto completo a {@code bodega_destino_id}; el stock no cambia
+ */
+public final class InventoryMovement {
+
+    public static final String ENTRADA = "ENTRADA";
+    public static final String SALIDA = "SALIDA";
+    public static final String AJUSTE = "AJUSTE";
+    public static final String TRANSFERENCIA = "TRANSFERENCIA";
+
+    private final int productoId;
+    private final String tipo;
+    private final int cantidad;
+    private final Integer bodegaDestinoId;
+    private final String motivo;
+    private final String referencia;
+    private final String usuario;
+
+    public InventoryMovement(int productoId, String tipo, int cantidad, Integer bodegaDestinoId,
+                             String motivo, String referencia, String usuario) {
+        this.productoId = productoId;
+        this.tipo = tipo;
+        this.cantidad = cantidad;
+        this.bodegaDestinoId = bodegaDestinoId;
+        this.motivo = motivo;
+        this.referencia = referencia;
+        this.usuario = usuario;
+    }
+
+    /**
+     * Construye y valida un movimiento desde el cuerpo del request.
+     *
+     * @throws IllegalArgumentException si falta un campo o el tipo no es válido
+     */
+    public static InventoryMovement fromMap(Map<String, Object> data) {
+        Object productoId = data.get("producto_id");
+        if (!(productoId instanceof Number)) {
+            throw new IllegalArgumentException("producto_id requerido");
+        }
+
+        Object tipoValue = data.get("tipo_movimiento");
+        if (!(tipoValue instanceof String)) {
+            throw new IllegalArgumentException("tipo_movimiento requerido");
+        }
+        String tipo = ((String) tipoValue).toUpperCase(Locale.ROOT);
+
+        Object cantidadValue = data.get("cantidad");
+        Object bodegaDestinoValue = data.get("bodega_destino_id");
+        int cantidad = cantidadValue instanceof Number ? ((Number) cantidadValue).intValue() : 0;
+        Integer bodegaDestinoId = bodegaDestinoValue instanceof Number ? ((Number) bodegaDestinoValue).intValue() : null;
+
+        switch (tipo) {
+            case ENTRADA:
+            case SALIDA:
+                if (!(cantidadValue instanceof Number) || cantidad <= 0) {
+                    throw new IllegalArgumentException("cantidad debe ser mayor a 0");
+                }
+                break;
+            case AJUSTE:
+                if (!(cantidadValue instanceof Number) || cantidad < 0) {
+                    throw new IllegalArgumentException("cantidad no puede ser negativa");
+                }
+                break;
+            case TRANSFERENCIA:
+                if (bodegaDestinoId == null) {
+                    throw new IllegalArgumentException("bodega_destino_id requerido para TRANSFERENCIA");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Tipo de movimiento inválido: " + tipoValue);
+        }
+
+        return new InventoryMovement(
+            ((Number) productoId).intValue(),
+            tipo,
+            cantidad,
+            bodegaDestinoId,
+            (String) data.getOrDefault("motivo", ""),
+            (String) data.get("referencia"),
+            (String) data.getOrDefault("usuario", "Sistema")
+        );
+    }
+
+    /**
+     * Stock resultante de aplicar este movimiento sobre {@code stockActual}.
+     * Puede ser negativo; el llamador decide si lo rechaza.
+     */
+    public int aplicar(int stockActual) {
+        Integer absoluto = stockAbsoluto();
+        return absoluto != null ? absoluto : stockActual + delta();
+    }
+
+    /** Nuevo stock fijo (solo AJUSTE), o null si el movimiento es relativo. */
+    public Integer stockAbsoluto() {
+        return AJUSTE.equals(tipo) ? cantidad : null;
+    }
+
+    /** Variación relativa del stock (0 para AJUSTE y TRANSFERENCIA). */
+    public int delta() {
+        switch (tipo) {
+            case ENTRADA:
+                return cantidad;
+            case SALIDA:
+                return -cantidad;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Cantidad a registrar en el historial, o null para usar el stock trasladado
+     * (TRANSFERENCIA mueve todas las unidades del producto).
+     */
+    public Integer cantidadRegistrada() {
+        return TRANSFERENCIA.equals(tipo) ? null : cantidad;
+    }
+
+    public int getProductoId() { return productoId; }
+    public String getTipo() { return tipo; }
+    public int getCantidad() { return cantidad; }
+    public Integer getBodegaDestinoId() { return bodegaDestinoId; }
+    public String getMotivo() { return motivo; }
+    public String getReferencia() { return referencia; }
+    public String getUsuario() { return usuario; }
+}
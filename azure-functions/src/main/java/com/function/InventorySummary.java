@@ -0,0 +1,137 @@
+package com.function;
+
+import java.sql.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Resumen precalculado del reporte de inventario.
+ *
+ * Un trigger sobre productos calcula el efecto de cada INSERT, UPDATE o DELETE
+ * en los totales del reporte y lo agrega como una fila en
+ * inventario_resumen_delta. Así se cubren todos los caminos que mueven stock:
+ * movimiento individual, lote, escritura diferida, ajuste y edición del producto.
+ * Los escritores solo insertan: no comparten ninguna fila que bloquear, así que
+ * el resumen no agrega contención ni riesgo de deadlock entre transacciones que
+ * tocan productos distintos.
+ *
+ * Un hilo de fondo consolida cada INVENTORY_REPORT_SUMMARY_FOLD_MS los deltas
+ * pendientes en la fila base de inventario_resumen, en una sola sentencia. El
+ * reporte solo lee: suma a la fila base los deltas que aún no se consolidaron
+ * (a lo más los de un intervalo) y toma el top 5 desde el índice parcial de
+ * productos activos por stock, así que reportes simultáneos no se bloquean
+ * entre sí y el costo no depende del tamaño del catálogo.
+ *
+ * Las tablas, el índice y el trigger los crea la migración
+ * db/postgres/002-inventario-resumen.sql; las functions no ejecutan DDL. Al
+ * apagar el modo hay que quitarlos con 002-inventario-resumen-down.sql: sin
+ * nadie que consolide, el trigger solo agrega filas.
+ *
+ * Requiere PostgreSQL (el trigger es PL/pgSQL).
+ *
+ * Configuración (ver {@link Settings}):
+ * INVENTORY_REPORT_SUMMARY_ENABLED - El reporte lee el resumen en vez de recorrer el catálogo (default false)
+ * INVENTORY_REPORT_SUMMARY_FOLD_MS - Intervalo de consolidación de los deltas (default 1000)
+ */
+public final class InventorySummary {
+
+    private static final Logger LOGGER = Logger.getLogger(InventorySummary.class.getName());
+
+    public static final boolean ENABLED = Settings.getBoolean("INVENTORY_REPORT_SUMMARY_ENABLED", false);
+
+    /**
+     * Retorna las mismas columnas que el reporte en vivo: los totales
+     * (fila base más deltas pendientes) repetidos en cada fila y hasta 5 filas
+     * del top de stock ({@code activo} falso si no hay).
+     */
+    static final String REPORT_SQL =
+        "WITH suma AS (" +
+        "    SELECT COALESCE(SUM(total_productos), 0) AS total_productos," +
+        "           COALESCE(SUM(valor_total_inventario), 0) AS valor_total_inventario," +
+        "           COALESCE(SUM(total_unidades), 0) AS total_unidades," +
+        "           COALESCE(SUM(productos_stock_bajo), 0) AS productos_stock_bajo," +
+        "           COALESCE(SUM(productos_sin_stock), 0) AS productos_sin_stock" +
+        "    FROM inventario_resumen_delta" +
+        "), t AS (" +
+        "    SELECT r.total_productos + s.total_productos AS total_productos," +
+        "           r.valor_total_inventario + s.valor_total_inventario AS valor_total_inventario," +
+        "           r.total_unidades + s.total_unidades AS total_unidades," +
+        "           r.productos_stock_bajo + s.productos_stock_bajo AS productos_stock_bajo," +
+        "           r.productos_sin_stock + s.productos_sin_stock AS productos_sin_stock" +
+        "    FROM inventario_resumen r, suma s" +
+        "    WHERE r.id = 1" +
+        ") " +
+        "SELECT top.nombre, top.stock, top.precio, top.valor_total, top.id IS NOT NULL AS activo, " +
+        "       t.total_productos, t.valor_total_inventario, t.total_unidades, t.productos_stock_bajo, t.productos_sin_stock " +
+        "FROM t " +
+        "LEFT JOIN (" +
+        "    SELECT id, nombre, stock, precio, stock * precio AS valor_total" +
+        "    FROM productos WHERE estado = 'ACTIVO'" +
+        "    ORDER BY stock DESC, id LIMIT 5" +
+        ") top ON TRUE " +
+        "ORDER BY top.stock DESC, top.id";
+
+    // Borrar los deltas y sumarlos a la fila base en la misma sentencia: un
+    // reporte concurrente ve los deltas o la fila ya consolidada, nunca ambos
+    private static final String FOLD_SQL =
+        "WITH pendientes AS (" +
+        "    DELETE FROM inventario_resumen_delta RETURNING *" +
+        "), suma AS (" +
+        "    SELECT COUNT(*) AS filas," +
+        "           COALESCE(SUM(total_productos), 0) AS total_productos," +
+        "           COALESCE(SUM(valor_total_inventario), 0) AS valor_total_inventario," +
+        "           COALESCE(SUM(total_unidades), 0) AS total_unidades," +
+        "           COALESCE(SUM(productos_stock_bajo), 0) AS productos_stock_bajo," +
+        "           COALESCE(SUM(productos_sin_stock), 0) AS productos_sin_stock" +
+        "    FROM pendientes" +
+        ") " +
+        "UPDATE inventario_resumen r " +
+        "SET total_productos = r.total_productos + s.total_productos," +
+        "    valor_total_inventario = r.valor_total_inventario + s.valor_total_inventario," +
+        "    total_unidades = r.total_unidades + s.total_unidades," +
+        "    productos_stock_bajo = r.productos_stock_bajo + s.productos_stock_bajo," +
+        "    productos_sin_stock = r.productos_sin_stock + s.productos_sin_stock," +
+        "    actualizado_en = CURRENT_TIMESTAMP " +
+        "FROM suma s " +
+        "WHERE r.id = 1 AND s.filas > 0";
+
+    private static volatile boolean started;
+
+    private InventorySummary() {
+    }
+
+    /**
+     * Arranca la consolidación de fondo de esta instancia si aún no corre.
+     */
+    public static void start() {
+        if (started) {
+            return;
+        }
+        synchronized (InventorySummary.class) {
+            if (started) {
+                return;
+            }
+            long foldMs = Settings.getLong("INVENTORY_REPORT_SUMMARY_FOLD_MS", 1000);
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "inventory-summary");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(InventorySummary::foldSafely, 0, foldMs, TimeUnit.MILLISECONDS);
+            started = true;
+        }
+    }
+
+    private static void foldSafely() {
+        try (Connection conn = ConnectionPool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(FOLD_SQL);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error consolidando el resumen de inventario (aplicar " +
+                "db/postgres/002-inventario-resumen.sql): " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.function;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * ObjectMapper compartido por todas las funciones.
+ *
+ * Las respuestas se serializan aquí (y no en el worker) para usar los
+ * serializadores de {@link Producto}, {@link Bodega}, {@link Categoria},
+ * {@link InventoryItem}, {@link StockAlert} y {@link StockAlertEvent}: escriben los campos en orden fijo
+ * con nombres pre-codificados, sin reflexión. Los timestamps salen en
+ * milisegundos epoch.
+ *
+ * ObjectMapper es thread-safe una vez configurado; no se debe reconfigurar.
+ */
+public final class Json {
+
+    public static final ObjectMapper MAPPER = new ObjectMapper().registerModule(rowModule());
+
+    private Json() {
+    }
+
+    public static String write(Object value) {
+        long started = System.nanoTime();
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Error serializando respuesta: " + e.getMessage(), e);
+        } finally {
+            StageTimer.record(StageTimer.Stage.SERIALIZE, started);
+        }
+    }
+
+    private static SimpleModule rowModule() {
+        SimpleModule module = new SimpleModule("inventory-rows");
+        module.addSerializer(Producto.class, new ProductoSerializer());
+        module.addSerializer(Bodega.class, new BodegaSerializer());
+        module.addSerializer(Categoria.class, new CategoriaSerializer());
+        module.addSerializer(InventoryItem.class, new InventoryItemSerializer());
+        module.addSerializer(StockAlert.class, new StockAlertSerializer());
+        module.addSerializer(StockAlertEvent.class, new StockAlertEventSerializer());
+        return module;
+    }
+
+    // Nombres de campo codificados una sola vez
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString SKU = new SerializedString("sku");
+    private static final SerializableString NOMBRE = new SerializedString("nombre");
+    private static final SerializableString DESCRIPCION = new SerializedString("descripcion");
+    private static final SerializableString STOCK = new SerializedString("stock");
+    private static final SerializableString STOCK_MINIMO = new SerializedString("stock_minimo");
+    private static final SerializableString STOCK_MAXIMO = new SerializedString("stock_maximo");
+    private static final SerializableString PRECIO = new SerializedString("precio");
+    private static final SerializableString CATEGORIA_ID = new SerializedString("categoria_id");
+    private static final SerializableString CATEGORIA_NOMBRE = new SerializedString("categoria_nombre");
+    private static final SerializableString BODEGA_ID = new SerializedString("bodega_id");
+    private static final SerializableString BODEGA_NOMBRE = new SerializedString("bodega_nombre");
+    private static final SerializableString ESTADO = new SerializedString("estado");
+    private static final SerializableString UNIDAD_MEDIDA = new SerializedString("unidad_medida");
+    private static final SerializableString PESO = new SerializedString("peso");
+    private static final SerializableString DIMENSIONES = new SerializedString("dimensiones");
+    private static final SerializableString DIRECCION = new SerializedString("direccion");
+    private static final SerializableString TELEFONO = new SerializedString("telefono");
+    private static final SerializableString EMAIL = new SerializedString("email");
+    private static final SerializableString RESPONSABLE = new SerializedString("responsable");
+    private static final SerializableString CAPACIDAD_MAX = new SerializedString("capacidad_max");
+    private static final SerializableString STOCK_STATUS = new SerializedString("stock_status");
+    private static final SerializableString CATEGORIA = new SerializedString("categoria");
+    private static final SerializableString BODEGA = new SerializedString("bodega");
+    private static final SerializableString TIPO_ALERTA = new SerializedString("tipo_alerta");
+    private static final SerializableString SEVERIDAD = new SerializedString("severidad");
+    private static final SerializableString RATIO = new SerializedString("ratio");
+    private static final SerializableString SEQ = new SerializedString("seq");
+    private static final SerializableString PRODUCTO_ID = new SerializedString("producto_id");
+    private static final SerializableString ESTADO_ANTERIOR = new SerializedString("estado_anterior");
+    private static final SerializableString ESTADO_NUEVO = new SerializedString("estado_nuevo");
+    private static final SerializableString CREADO_EN = new SerializedString("creado_en");
+    private static final SerializableString MODIFICADO_EN = new SerializedString("modificado_en");
+
+    static final class ProductoSerializer extends StdSerializer<Producto> {
+        ProductoSerializer() {
+            super(Producto.class);
+        }
+
+        @Override
+        public void serialize(Producto p, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(p);
+            number(gen, ID, p.id());
+            string(gen, SKU, p.sku());
+            string(gen, NOMBRE, p.nombre());
+            string(gen, DESCRIPCION, p.descripcion());
+            number(gen, STOCK, p.stock());
+            number(gen, STOCK_MINIMO, p.stockMinimo());
+            number(gen, STOCK_MAXIMO, p.stockMaximo());
+            number(gen, PRECIO, p.precio());
+            number(gen, CATEGORIA_ID, p.categoriaId());
+            number(gen, BODEGA_ID, p.bodegaId());
+            string(gen, ESTADO, p.estado());
+            string(gen, UNIDAD_MEDIDA, p.unidadMedida());
+            number(gen, PESO, p.peso());
+            string(gen, DIMENSIONES, p.dimensiones());
+            timestamp(gen, CREADO_EN, p.creadoEn());
+            timestamp(gen, MODIFICADO_EN, p.modificadoEn());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class BodegaSerializer extends StdSerializer<Bodega> {
+        BodegaSerializer() {
+            super(Bodega.class);
+        }
+
+        @Override
+        public void serialize(Bodega b, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(b);
+            number(gen, ID, b.id());
+            string(gen, NOMBRE, b.nombre());
+            string(gen, DIRECCION, b.direccion());
+            string(gen, TELEFONO, b.telefono());
+            string(gen, EMAIL, b.email());
+            string(gen, RESPONSABLE, b.responsable());
+            string(gen, ESTADO, b.estado());
+            number(gen, CAPACIDAD_MAX, b.capacidadMax());
+            timestamp(gen, CREADO_EN, b.creadoEn());
+            timestamp(gen, MODIFICADO_EN, b.modificadoEn());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class CategoriaSerializer extends StdSerializer<Categoria> {
+        CategoriaSerializer() {
+            super(Categoria.class);
+        }
+
+        @Override
+        public void serialize(Categoria c, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(c);
+            number(gen, ID, c.id());
+            string(gen, NOMBRE, c.nombre());
+            string(gen, DESCRIPCION, c.descripcion());
+            string(gen, ESTADO, c.estado());
+            timestamp(gen, CREADO_EN, c.creadoEn());
+            timestamp(gen, MODIFICADO_EN, c.modificadoEn());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class InventoryItemSerializer extends StdSerializer<InventoryItem> {
+        InventoryItemSerializer() {
+            super(InventoryItem.class);
+        }
+
+        @Override
+        public void serialize(InventoryItem i, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(i);
+            number(gen, ID, i.id());
+            string(gen, SKU, i.sku());
+            string(gen, NOMBRE, i.nombre());
+            number(gen, STOCK, i.stock());
+            number(gen, STOCK_MINIMO, i.stockMinimo());
+            number(gen, STOCK_MAXIMO, i.stockMaximo());
+            number(gen, PRECIO, i.precio());
+            number(gen, CATEGORIA_ID, i.categoriaId());
+            string(gen, CATEGORIA_NOMBRE, i.categoriaNombre());
+            number(gen, BODEGA_ID, i.bodegaId());
+            string(gen, BODEGA_NOMBRE, i.bodegaNombre());
+            string(gen, ESTADO, i.estado());
+            string(gen, STOCK_STATUS, i.stockStatus());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class StockAlertSerializer extends StdSerializer<StockAlert> {
+        StockAlertSerializer() {
+            super(StockAlert.class);
+        }
+
+        @Override
+        public void serialize(StockAlert a, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(a);
+            number(gen, ID, a.id());
+            string(gen, SKU, a.sku());
+            string(gen, NOMBRE, a.nombre());
+            number(gen, STOCK, a.stock());
+            number(gen, STOCK_MINIMO, a.stockMinimo());
+            number(gen, STOCK_MAXIMO, a.stockMaximo());
+            string(gen, CATEGORIA, a.categoria());
+            string(gen, BODEGA, a.bodega());
+            string(gen, TIPO_ALERTA, a.tipoAlerta());
+            string(gen, SEVERIDAD, a.severidad());
+            number(gen, RATIO, a.ratio());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class StockAlertEventSerializer extends StdSerializer<StockAlertEvent> {
+        StockAlertEventSerializer() {
+            super(StockAlertEvent.class);
+        }
+
+        @Override
+        public void serialize(StockAlertEvent e, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(e);
+            number(gen, SEQ, e.seq());
+            number(gen, PRODUCTO_ID, e.productoId());
+            string(gen, SKU, e.sku());
+            string(gen, NOMBRE, e.nombre());
+            string(gen, ESTADO_ANTERIOR, e.estadoAnterior());
+            string(gen, ESTADO_NUEVO, e.estadoNuevo());
+            number(gen, STOCK, e.stock());
+            number(gen, STOCK_MINIMO, e.stockMinimo());
+            number(gen, STOCK_MAXIMO, e.stockMaximo());
+            timestamp(gen, CREADO_EN, e.creadoEn());
+            gen.writeEndObject();
+        }
+    }
+
+    private static void number(JsonGenerator gen, SerializableString name, int value) throws IOException {
+        gen.writeFieldName(name);
+        gen.writeNumber(value);
+    }
+
+    private static void number(JsonGenerator gen, SerializableString name, long value) throws IOException {
+        gen.writeFieldName(name);
+        gen.writeNumber(value);
+    }
+
+    private static void number(JsonGenerator gen, SerializableString name, double value) throws IOException {
+        gen.writeFieldName(name);
+        gen.writeNumber(value);
+    }
+
+    private static void string(JsonGenerator gen, SerializableString name, String value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(value);
+        }
+    }
+
+    private static void timestamp(JsonGenerator gen, SerializableString name, Timestamp value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value.getTime());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.function;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.ToIntFunction;
+import graphql.relay.Connection;
+import graphql.relay.DefaultConnection;
+import graphql.relay.DefaultConnectionCursor;
+import graphql.relay.DefaultEdge;
+import graphql.relay.DefaultPageInfo;
+import graphql.relay.Edge;
+
+/**
+ * Paginación por keyset sobre la columna id.
+ *
+ * En vez de OFFSET, cada página continúa desde el último id entregado
+ * ({@code WHERE id > after_id ORDER BY id LIMIT limit}), así que el costo no
+ * crece con la profundidad de la página y usa directamente el índice de la PK.
+ * Se pide una fila extra para saber si hay más páginas sin un COUNT aparte.
+ *
+ * REST: parámetros {@code after_id} y {@code limit}; la respuesta agrega
+ * {@code has_more} y {@code next_after_id}.
+ * GraphQL: conexiones Relay con {@code first} y {@code after} (cursor opaco).
+ *
+ * Sin {@code limit} (o {@code first}) la página no tiene tope y trae todo lo
+ * que sigue al cursor, igual que las listas sin paginar, en todas las rutas:
+ * REST, GraphQL y alertas. Un tope por defecto solo se aplica si se configura
+ * PAGINATION_DEFAULT_LIMIT, y entonces el corte se indica con has_more.
+ *
+ * Configuración (ver {@link Settings}):
+ * PAGINATION_DEFAULT_LIMIT - Tamaño de página si no se indica (default 0, sin tope)
+ * PAGINATION_MAX_LIMIT - Tamaño máximo de un limit explícito (default 1000)
+ */
+public final class KeysetPage {
+
+    public static final int DEFAULT_LIMIT = Settings.getInt("PAGINATION_DEFAULT_LIMIT", 0);
+    public static final int MAX_LIMIT = Settings.getInt("PAGINATION_MAX_LIMIT", 1000);
+
+    // Límite de una página sin tope; deja lugar a la fila extra sin desbordar
+    static final int UNBOUNDED = Integer.MAX_VALUE - 1;
+
+    private static final String CURSOR_PREFIX = "id:";
+
+    private final int afterId;
+    private final int limit;
+
+    private KeysetPage(int afterId, int limit) {
+        this.afterId = afterId;
+        this.limit = limit;
+    }
+
+    /**
+     * @throws IllegalArgumentException si after_id o limit no son enteros válidos
+     */
+    public static KeysetPage fromQuery(Map<String, String> params) {
+        return of(parseInt(params.get("after_id"), "after_id"), parseInt(params.get("limit"), "limit"));
+    }
+
+    /**
+     * @throws IllegalArgumentException si el cursor no es válido
+     */
+    public static KeysetPage fromConnectionArgs(Integer first, String after) {
+        return of(after != null ? decodeCursor(after) : null, first);
+    }
+
+    public static KeysetPage of(Integer afterId, Integer limit) {
+        if (afterId != null && afterId < 0) {
+            throw new IllegalArgumentException("after_id no puede ser negativo");
+        }
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("limit debe ser mayor a 0");
+        }
+        int size;
+        if (limit != null) {
+            size = Math.min(limit, MAX_LIMIT);
+        } else {
+            size = DEFAULT_LIMIT > 0 ? DEFAULT_LIMIT : UNBOUNDED;
+        }
+        return new KeysetPage(afterId != null ? afterId : 0, size);
+    }
+
+    public int getAfterId() {
+        return afterId;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Límite para la respuesta: null si la página no tiene tope.
+     */
+    public Integer responseLimit() {
+        return limit == UNBOUNDED ? null : limit;
+    }
+
+    /**
+     * Condición y orden para la columna indicada, p. ej. {@code "p.id"}.
+     * Se agrega después de WHERE/AND y se completa con {@link #bind}.
+     */
+    public String clause(String idColumn) {
+        return idColumn + " > ? ORDER BY " + idColumn + " LIMIT ?";
+    }
+
+    /**
+     * Asigna los parámetros de {@link #clause} desde {@code index} y retorna el siguiente índice libre.
+     */
+    public int bind(PreparedStatement stmt, int index) throws SQLException {
+        stmt.setInt(index, afterId);
+        stmt.setInt(index + 1, limit + 1);
+        return index + 2;
+    }
+
+    /**
+     * Descarta la fila extra de {@code rows} y retorna si hay más páginas.
+     */
+    public boolean trim(List<?> rows) {
+        if (rows.size() > limit) {
+            rows.subList(limit, rows.size()).clear();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Recorta {@code rows} y agrega los datos de paginación a la respuesta REST.
+     */
+    public <T> void describe(Map<String, Object> response, List<T> rows, ToIntFunction<? super T> idOf) {
+        boolean hasMore = trim(rows);
+        response.put("limit", responseLimit());
+        response.put("has_more", hasMore);
+        response.put("next_after_id", hasMore ? idOf.applyAsInt(rows.get(rows.size() - 1)) : null);
+    }
+
+    /**
+     * Recorta {@code rows} y las envuelve en una conexión Relay.
+     */
+    public Connection<Map<String, Object>> toConnection(List<Map<String, Object>> rows) {
+        boolean hasMore = trim(rows);
+        List<Edge<Map<String, Object>>> edges = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            edges.add(new DefaultEdge<>(row, new DefaultConnectionCursor(encodeCursor((Integer) row.get("id")))));
+        }
+        DefaultPageInfo pageInfo = new DefaultPageInfo(
+            edges.isEmpty() ? null : edges.get(0).getCursor(),
+            edges.isEmpty() ? null : edges.get(edges.size() - 1).getCursor(),
+            afterId > 0,
+            hasMore);
+        return new DefaultConnection<>(edges, pageInfo);
+    }
+
+    static String encodeCursor(int id) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((CURSOR_PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static int decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.startsWith(CURSOR_PREFIX)) {
+                return Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+            }
+        } catch (IllegalArgumentException e) {
+            // cae al error de abajo
+        }
+        throw new IllegalArgumentException("Cursor inválido: " + cursor);
+    }
+
+    private static Integer parseInt(String value, String name) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " inválido: " + value);
+        }
+    }
+}
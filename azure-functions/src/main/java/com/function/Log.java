@@ -0,0 +1,197 @@
+package com.function;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.microsoft.azure.functions.ExecutionContext;
+import com.microsoft.azure.functions.HttpRequestMessage;
+
+/**
+ * Logging estructurado de las funciones, acotado para los caminos calientes.
+ *
+ * - Cada línea es un JSON con la categoría, la función, el correlation id y
+ *   el invocation id, además del mensaje.
+ * - El mensaje se pasa como Supplier: si la línea no se va a escribir no se
+ *   arma el String.
+ * - Muestreo por categoría: LOG_SAMPLE_{CATEGORIA} (por ejemplo
+ *   LOG_SAMPLE_GRAPHQL=10) o LOG_SAMPLE_RATE escribe 1 de cada N requests; 1
+ *   escribe todos y 0 ninguno. La decisión sale del correlation id, así que un
+ *   request queda completo o no aparece, y el BFF muestrea los mismos requests
+ *   con la misma tasa. Los errores no se muestrean.
+ * - Las líneas INFO se encolan y un hilo aparte arma el JSON y lo escribe en
+ *   el logger de la clase (el worker lo reenvía al host): el de la invocación
+ *   puede haberse cerrado cuando el hilo llega a la línea, y el JSON ya lleva
+ *   el invocation id. Si la cola (LOG_QUEUE_SIZE) está llena la línea se
+ *   descarta y se cuenta en lugar de frenar el request.
+ * - Los errores no pasan por la cola: se escriben en el momento, en el hilo y
+ *   con el logger de la invocación, para que no se pierdan ni se atrasen.
+ *
+ * El correlation id viene en el header X-Correlation-Id (lo manda el BFF); si
+ * no está se usa el invocation id. Cada función abre el contexto al entrar a
+ * {@code run} con {@link #begin} y lo cierra con {@link #end}.
+ *
+ * Configuración (ver {@link Settings}):
+ * LOG_SAMPLE_RATE     - 1 de cada N requests por categoría (default 100)
+ * LOG_SAMPLE_{CAT}    - Tasa de una categoría (REQUEST, GRAPHQL, WRITE)
+ * LOG_QUEUE_SIZE      - Líneas pendientes de escribir (default 1024)
+ * LOG_MAX_MESSAGE     - Largo máximo del mensaje; el resto se corta (default 1000)
+ */
+public final class Log {
+
+    public static final String CORRELATION_HEADER = "X-Correlation-Id";
+
+    public static final String REQUEST = "request";
+    public static final String GRAPHQL = "graphql";
+    public static final String WRITE = "write";
+    private static final String ERROR = "error";
+
+    private static final Logger LOGGER = Logger.getLogger(Log.class.getName());
+
+    private static final int DEFAULT_RATE = Settings.getInt("LOG_SAMPLE_RATE", 100);
+    private static final int QUEUE_SIZE = Settings.getInt("LOG_QUEUE_SIZE", 1024);
+    private static final int MAX_MESSAGE = Settings.getInt("LOG_MAX_MESSAGE", 1000);
+    private static final int MAX_CORRELATION_ID = 64;
+
+    private static final ThreadLocal<Invocation> CURRENT = new ThreadLocal<>();
+    private static final Map<String, Integer> RATES = new ConcurrentHashMap<>();
+    private static final BlockingQueue<Line> QUEUE = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private static final AtomicLong WRITTEN = new AtomicLong();
+    private static final AtomicLong SAMPLED_OUT = new AtomicLong();
+    private static final AtomicLong DROPPED = new AtomicLong();
+
+    static {
+        Thread writer = new Thread(Log::drain, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private record Invocation(String function, String correlationId, String invocationId, Logger logger) {
+    }
+
+    private record Line(Invocation invocation, Level level, String category, String message, Throwable error) {
+    }
+
+    private Log() {
+    }
+
+    public static void begin(String function, HttpRequestMessage<?> request, ExecutionContext context) {
+        String invocationId = context.getInvocationId();
+        String correlationId = correlationId(ETags.header(request.getHeaders(), CORRELATION_HEADER));
+        CURRENT.set(new Invocation(function, correlationId != null ? correlationId : invocationId,
+            invocationId, context.getLogger()));
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Escribe {@code message} si el request actual entra en la muestra de {@code category}.
+     */
+    public static void info(String category, Supplier<String> message) {
+        Invocation invocation = CURRENT.get();
+        if (invocation == null || !invocation.logger().isLoggable(Level.INFO)) {
+            return;
+        }
+        if (!sampled(category, invocation.correlationId())) {
+            SAMPLED_OUT.incrementAndGet();
+            return;
+        }
+        enqueue(new Line(invocation, Level.INFO, category, message.get(), null));
+    }
+
+    /**
+     * Escribe siempre, sin muestreo y sin pasar por la cola.
+     */
+    public static void error(Supplier<String> message, Throwable error) {
+        Invocation invocation = CURRENT.get();
+        if (invocation == null) {
+            return;
+        }
+        write(new Line(invocation, Level.SEVERE, ERROR, message.get(), error), invocation.logger());
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("written", WRITTEN.get());
+        stats.put("sampled_out", SAMPLED_OUT.get());
+        stats.put("dropped", DROPPED.get());
+        stats.put("queued", QUEUE.size());
+        stats.put("queue_size", QUEUE_SIZE);
+        stats.put("default_sample_rate", DEFAULT_RATE);
+        stats.put("sample_rates", new TreeMap<>(RATES));
+        return stats;
+    }
+
+    // Mismo criterio que el BFF: hash del correlation id módulo la tasa
+    private static boolean sampled(String category, String correlationId) {
+        int rate = RATES.computeIfAbsent(category,
+            c -> Settings.getInt("LOG_SAMPLE_" + c.toUpperCase(Locale.ROOT), DEFAULT_RATE));
+        if (rate <= 1) {
+            return rate == 1;
+        }
+        return Math.floorMod(correlationId.hashCode(), rate) == 0;
+    }
+
+    private static void enqueue(Line line) {
+        if (!QUEUE.offer(line)) {
+            DROPPED.incrementAndGet();
+        }
+    }
+
+    private static void drain() {
+        while (true) {
+            try {
+                write(QUEUE.take(), LOGGER);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Una línea que no se pudo escribir no detiene al resto
+                DROPPED.incrementAndGet();
+            }
+        }
+    }
+
+    private static void write(Line line, Logger logger) {
+        Invocation invocation = line.invocation();
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("level", line.level().getName());
+        json.put("category", line.category());
+        json.put("function", invocation.function());
+        json.put("correlationId", invocation.correlationId());
+        json.put("invocationId", invocation.invocationId());
+        json.put("msg", truncate(line.message()));
+        if (line.error() != null) {
+            json.put("error", line.error().toString());
+        }
+        logger.log(line.level(), Json.write(json));
+        WRITTEN.incrementAndGet();
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_MESSAGE) {
+            return message;
+        }
+        return message.substring(0, MAX_MESSAGE) + "... (" + message.length() + " caracteres)";
+    }
+
+    // Solo ids cortos y sin caracteres de control, para no inyectar líneas en el log
+    private static String correlationId(String header) {
+        if (header == null || header.isEmpty() || header.length() > MAX_CORRELATION_ID) {
+            return null;
+        }
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.')) {
+                return null;
+            }
+        }
+        return header;
+    }
+}
@@ -0,0 +1,185 @@
+package com.function;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Aplica listas grandes de movimientos de inventario con JDBC batch.
+ *
+ * Los movimientos se ordenan por producto_id (manteniendo el orden original
+ * dentro de cada producto) y se procesan en bloques; cada bloque es una
+ * transacción que:
+ * 1. Bloquea todos sus productos con un solo SELECT ... ORDER BY id FOR UPDATE.
+ *    Como todas las transacciones bloquean en orden ascendente no hay deadlocks.
+ * 2. Calcula el stock resultante en memoria, rechazando por ítem las salidas sin stock.
+ * 3. Envía un UPDATE por producto y un INSERT por movimiento con addBatch/executeBatch;
+ *    el id generado de cada INSERT vuelve como movimiento_id en el resultado del ítem.
+ *
+ * Bloqueo, UPDATE e INSERT se miden como etapas lock, update e insert de {@link StageTimer}.
+ */
+public final class MovementBatchProcessor {
+
+    private static final String LOCK_SQL =
+        "SELECT id, stock, bodega_id FROM productos WHERE id = ANY(?) ORDER BY id FOR UPDATE";
+    private static final String UPDATE_SQL =
+        "UPDATE productos SET stock = ?, bodega_id = ?, modificado_en = CURRENT_TIMESTAMP WHERE id = ?";
+    private static final String INSERT_SQL =
+        "INSERT INTO movimientos_inventario (producto_id, bodega_id, tipo_movimiento, cantidad, stock_anterior, stock_nuevo, motivo, referencia, usuario) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final int chunkSize;
+
+    public MovementBatchProcessor(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Movimiento de entrada junto a su posición en el request original.
+     */
+    public static final class Item {
+        final int index;
+        final InventoryMovement movement;
+
+        public Item(int index, InventoryMovement movement) {
+            this.index = index;
+            this.movement = movement;
+        }
+    }
+
+    /**
+     * Procesa los movimientos y retorna un resultado por ítem, indexado por su
+     * posición original.
+     */
+    public Map<Integer, Map<String, Object>> process(Connection conn, List<Item> items) throws SQLException {
+        List<Item> sorted = new ArrayList<>(items);
+        // List.sort es estable: los movimientos del mismo producto conservan su orden
+        sorted.sort(Comparator.comparingInt(item -> item.movement.getProductoId()));
+
+        Map<Integer, Map<String, Object>> results = new HashMap<>();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            for (int from = 0; from < sorted.size(); from += chunkSize) {
+                List<Item> chunk = sorted.subList(from, Math.min(from + chunkSize, sorted.size()));
+                try {
+                    results.putAll(processChunk(conn, chunk));
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    for (Item item : chunk) {
+                        results.put(item.index, errorResult(item, "Error aplicando bloque: " + e.getMessage()));
+                    }
+                }
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return results;
+    }
+
+    private Map<Integer, Map<String, Object>> processChunk(Connection conn, List<Item> chunk) throws SQLException {
+        // Estado actual de cada producto del bloque: {stock, bodega_id}
+        Map<Integer, int[]> state = lockProducts(conn, chunk);
+        Map<Integer, int[]> touched = new LinkedHashMap<>();
+        Map<Integer, Map<String, Object>> results = new HashMap<>();
+        // Resultados en el orden de addBatch, que es el de las claves generadas
+        List<Map<String, Object>> inserted = new ArrayList<>();
+
+        try (PreparedStatement insert = conn.prepareStatement(INSERT_SQL, new String[] {"id"})) {
+            for (Item item : chunk) {
+                InventoryMovement movement = item.movement;
+                int[] current = state.get(movement.getProductoId());
+                if (current == null) {
+                    results.put(item.index, errorResult(item, "Producto no encontrado"));
+                    continue;
+                }
+
+                int stockAnterior = current[0];
+                int stockNuevo = movement.aplicar(stockAnterior);
+                if (stockNuevo < 0) {
+                    results.put(item.index, errorResult(item, "Stock insuficiente"));
+                    continue;
+                }
+                if (movement.getBodegaDestinoId() != null) {
+                    current[1] = movement.getBodegaDestinoId();
+                }
+                current[0] = stockNuevo;
+                touched.put(movement.getProductoId(), current);
+
+                insert.setInt(1, movement.getProductoId());
+                insert.setInt(2, current[1]);
+                insert.setString(3, movement.getTipo());
+                insert.setInt(4, movement.cantidadRegistrada() != null ? movement.cantidadRegistrada() : stockNuevo);
+                insert.setInt(5, stockAnterior);
+                insert.setInt(6, stockNuevo);
+                insert.setString(7, movement.getMotivo());
+                insert.setString(8, movement.getReferencia());
+                insert.setString(9, movement.getUsuario());
+                insert.addBatch();
+
+                Map<String, Object> result = new HashMap<>();
+                result.put("indice", item.index);
+                result.put("producto_id", movement.getProductoId());
+                result.put("tipo_movimiento", movement.getTipo());
+                result.put("success", true);
+                result.put("stock_anterior", stockAnterior);
+                result.put("stock_nuevo", stockNuevo);
+                results.put(item.index, result);
+                inserted.add(result);
+            }
+
+            // Un solo UPDATE por producto con el stock final del bloque
+            try (PreparedStatement update = conn.prepareStatement(UPDATE_SQL)) {
+                for (Map.Entry<Integer, int[]> entry : touched.entrySet()) {
+                    update.setInt(1, entry.getValue()[0]);
+                    update.setInt(2, entry.getValue()[1]);
+                    update.setInt(3, entry.getKey());
+                    update.addBatch();
+                }
+                if (!touched.isEmpty()) {
+                    StageTimer.executeBatch(update, StageTimer.Stage.UPDATE);
+                    StageTimer.executeBatch(insert, StageTimer.Stage.INSERT);
+                    try (ResultSet keys = insert.getGeneratedKeys()) {
+                        for (Map<String, Object> result : inserted) {
+                            result.put("movimiento_id", keys.next() ? keys.getLong(1) : null);
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private Map<Integer, int[]> lockProducts(Connection conn, List<Item> chunk) throws SQLException {
+        Set<Integer> ids = new TreeSet<>();
+        for (Item item : chunk) {
+            ids.add(item.movement.getProductoId());
+        }
+
+        Map<Integer, int[]> state = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(LOCK_SQL)) {
+            stmt.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            long started = System.nanoTime();
+            try (ResultSet rs = stmt.executeQuery()) {
+                StageTimer.record(StageTimer.Stage.LOCK, started);
+                while (rs.next()) {
+                    state.put(rs.getInt("id"), new int[] {rs.getInt("stock"), rs.getInt("bodega_id")});
+                }
+            }
+        }
+        return state;
+    }
+
+    static Map<String, Object> errorResult(Item item, String error) {
+        return errorResult(item.index, item.movement != null ? item.movement.getProductoId() : null, error);
+    }
+
+    static Map<String, Object> errorResult(int index, Integer productoId, String error) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("indice", index);
+        result.put("producto_id", productoId);
+        result.put("success", false);
+        result.put("error", error);
+        return result;
+    }
+}
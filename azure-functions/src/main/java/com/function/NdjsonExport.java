@@ -0,0 +1,177 @@
+package com.function;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+
+/**
+ * Exporta el resultado de una consulta como NDJSON (un objeto JSON por línea).
+ *
+ * Las filas se leen con un cursor del lado del servidor (fetch size con
+ * autocommit desactivado, que es lo que el driver de PostgreSQL necesita para
+ * no traer todo el resultado de una vez) y se escriben directamente con un
+ * {@link JsonGenerator}, sin armar un Map por fila ni una lista intermedia.
+ *
+ * Los nombres de campo son las etiquetas de las columnas y los timestamps se
+ * escriben en milisegundos epoch, igual que en las respuestas JSON normales.
+ *
+ * El worker de Functions necesita el cuerpo como un byte[] del largo exacto.
+ * {@link #export} reserva de entrada el tamaño de la exportación anterior más
+ * un margen, así que el buffer no se redimensiona, y entrega su arreglo
+ * interno: la única copia es el recorte final, y ni eso si el tamaño calza.
+ */
+public final class NdjsonExport {
+
+    public static final String CONTENT_TYPE = "application/x-ndjson";
+
+    // El stream de salida es del llamador; el generador no debe cerrarlo
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+        .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+        .build();
+
+    private static final int INITIAL_SIZE = 64 * 1024;
+
+    // Tamaño de la última exportación, para reservar el buffer de la siguiente
+    private static final AtomicInteger LAST_SIZE = new AtomicInteger(INITIAL_SIZE);
+
+    private NdjsonExport() {
+    }
+
+    /**
+     * Ejecuta {@code sql} y retorna el NDJSON completo.
+     */
+    public static byte[] export(Connection conn, String sql, int fetchSize) throws SQLException, IOException {
+        int last = LAST_SIZE.get();
+        Buffer out = new Buffer((int) Math.min(Integer.MAX_VALUE - 8, last + last / 8L));
+        write(conn, sql, fetchSize, out);
+        LAST_SIZE.set(Math.max(out.size(), INITIAL_SIZE));
+        return out.body();
+    }
+
+    /**
+     * Ejecuta {@code sql} y escribe cada fila en {@code out}. Retorna la cantidad de filas.
+     */
+    public static int write(Connection conn, String sql, int fetchSize, OutputStream out) throws SQLException, IOException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        int rows = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            stmt.setFetchSize(fetchSize);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                int columns = metaData.getColumnCount();
+                String[] names = new String[columns + 1];
+                int[] types = new int[columns + 1];
+                for (int i = 1; i <= columns; i++) {
+                    names[i] = metaData.getColumnLabel(i);
+                    types[i] = metaData.getColumnType(i);
+                }
+
+                while (rs.next()) {
+                    generator.writeStartObject();
+                    for (int i = 1; i <= columns; i++) {
+                        generator.writeFieldName(names[i]);
+                        writeValue(generator, rs, i, types[i]);
+                    }
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                    rows++;
+                }
+            }
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return rows;
+    }
+
+    private static void writeValue(JsonGenerator generator, ResultSet rs, int column, int type) throws SQLException, IOException {
+        switch (type) {
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT: {
+                int value = rs.getInt(column);
+                if (rs.wasNull()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(value);
+                }
+                break;
+            }
+            case Types.BIGINT: {
+                long value = rs.getLong(column);
+                if (rs.wasNull()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(value);
+                }
+                break;
+            }
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL: {
+                double value = rs.getDouble(column);
+                if (rs.wasNull()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(value);
+                }
+                break;
+            }
+            case Types.BOOLEAN:
+            case Types.BIT: {
+                boolean value = rs.getBoolean(column);
+                if (rs.wasNull()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeBoolean(value);
+                }
+                break;
+            }
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE: {
+                Timestamp value = rs.getTimestamp(column);
+                if (value == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(value.getTime());
+                }
+                break;
+            }
+            default: {
+                String value = rs.getString(column);
+                if (value == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeString(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Buffer que entrega su arreglo interno si quedó justo; si no, lo recorta
+     * con una sola copia.
+     */
+    static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer(int size) {
+            super(size);
+        }
+
+        byte[] body() {
+            return count == buf.length ? buf : Arrays.copyOf(buf, count);
+        }
+    }
+}
@@ -15,36 +15,49 @@ import graphql.schema.idl.TypeDefinitionRegistry;
 import graphql.ExecutionResult;
 import graphql.ExecutionInput;
 import graphql.schema.DataFetcher;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import org.dataloader.DataLoader;
+import java.util.concurrent.CompletableFuture;
 import static graphql.schema.idl.RuntimeWiring.newRuntimeWiring;
 
 /**
  * Azure Functions para CRUD de Productos con soporte REST y GraphQL
  *
  * Endpoints REST:
- * GET /api/ProductFunction - Listar todos los productos
+ * GET /api/ProductFunction?after_id={id}&limit={n} - Listar productos paginados por id
  * GET /api/ProductFunction?id={id} - Obtener producto por ID
  * POST /api/ProductFunction - Crear nuevo producto
  * PUT /api/ProductFunction?id={id} - Actualizar producto
  * DELETE /api/ProductFunction?id={id} - Eliminar producto
  *
+ * GET /api/ProductFunction/export - Exportar el catálogo completo como NDJSON
+ *
  * Endpoint GraphQL:
  * POST /api/ProductFunction/graphql - Endpoint GraphQL
  */
 public class ProductFunction {
 
-    // Configuración de base de datos
-    private static final String DB_URL = System.getenv("POSTGRES_URL") != null ?
-        System.getenv("POSTGRES_URL") : "jdbc:postgresql://104.208.158.85:5432/duoc?sslmode=require";
-    private static final String DB_USER = System.getenv("POSTGRES_USER") != null ?
-        System.getenv("POSTGRES_USER") : "duoc";
-    private static final String DB_PASSWORD = System.getenv("POSTGRES_PASSWORD") != null ?
-        System.getenv("POSTGRES_PASSWORD") : "duoc1234";
+    // Documentos parseados/validados compartidos entre invocaciones (LRU + APQ)
+    private static final GraphQLDocumentCache DOCUMENT_CACHE =
+        new GraphQLDocumentCache(Settings.getInt("GRAPHQL_DOCUMENT_CACHE_SIZE", 500));
+
+    private static final int EXPORT_FETCH_SIZE = Settings.getInt("EXPORT_FETCH_SIZE", 1000);
+
+    // Columnas públicas del producto; version solo entra en los ETags
+    private static final String EXPORT_COLUMNS = "id, sku, nombre, descripcion, stock, stock_minimo, stock_maximo, " +
+        "precio, categoria_id, bodega_id, estado, unidad_medida, peso, dimensiones, creado_en, modificado_en";
+
+    private final ObjectMapper objectMapper = Json.MAPPER;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final GraphQL graphQL;
+    // Holder idiom: el schema es inmutable y se construye una sola vez por JVM, en
+    // la primera query GraphQL o al arrancar (ver Startup). Los data fetchers no
+    // guardan estado, así que pueden quedar ligados a esta instancia.
+    private static final class Schema {
+        private static final GraphQL GRAPHQL = new ProductFunction().createGraphQL();
+    }
 
-    public ProductFunction() {
-        this.graphQL = createGraphQL();
+    static GraphQL graphQL() {
+        return Schema.GRAPHQL;
     }
 
     @FunctionName("ProductFunction")
@@ -57,12 +70,26 @@ public class ProductFunction {
             @BindingName("action") String action,
             final ExecutionContext context) {
 
-        context.getLogger().info("ProductFunction procesando request: " + request.getHttpMethod() + " - Action: " + action);
+        StageTimer.begin("ProductFunction");
+        Log.begin("ProductFunction", request, context);
+        try {
+            return dispatch(request, action, context);
+        } finally {
+            StageTimer.end();
+            Log.end();
+        }
+    }
+
+    private HttpResponseMessage dispatch(HttpRequestMessage<Optional<String>> request, String action, ExecutionContext context) {
+        Log.info(Log.REQUEST, () -> "ProductFunction procesando request: " + request.getHttpMethod() + " - Action: " + action);
 
         // Si la acción es "graphql", procesar como GraphQL
         if ("graphql".equalsIgnoreCase(action)) {
             return handleGraphQL(request, context);
         }
+        if ("export".equalsIgnoreCase(action)) {
+            return handleExport(request, context);
+        }
 
         // Procesar como REST API
         try {
@@ -79,7 +106,7 @@ public class ProductFunction {
                     return createErrorResponse(request, "Método no soportado", 405);
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en ProductFunction: " + e.getMessage());
+            Log.error(() -> "Error en ProductFunction: " + e.getMessage(), e);
             return createErrorResponse(request, "Error interno: " + e.getMessage(), 500);
         }
     }
@@ -88,6 +115,7 @@ public class ProductFunction {
 
     private HttpResponseMessage handleGet(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
         String idParam = request.getQueryParameters().get("id");
+        String idsParam = request.getQueryParameters().get("ids");
         String categoriaParam = request.getQueryParameters().get("categoria");
         String bodegaParam = request.getQueryParameters().get("bodega");
         String testParam = request.getQueryParameters().get("test");
@@ -104,7 +132,9 @@ public class ProductFunction {
         }
 
         try (Connection conn = getConnection()) {
-            if (idParam != null) {
+            if (idsParam != null) {
+                return getProductsByIds(conn, idsParam, request, context);
+            } else if (idParam != null) {
                 return getProductById(conn, idParam, request, context);
             } else if (categoriaParam != null) {
                 return getProductsByCategory(conn, categoriaParam, request, context);
@@ -114,15 +144,40 @@ public class ProductFunction {
                 return getAllProducts(conn, request, context);
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en GET: " + e.getMessage());
+            Log.error(() -> "Error en GET: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al obtener productos: " + e.getMessage(), 500);
         }
     }
 
+    /**
+     * Exporta todos los productos como NDJSON para sincronizaciones completas.
+     * La memoria usada es la del texto generado, no un objeto por fila.
+     */
+    private HttpResponseMessage handleExport(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
+        if (request.getHttpMethod() != HttpMethod.GET) {
+            return createErrorResponse(request, "Método no permitido para exportación", 405);
+        }
+
+        String sql = "SELECT " + EXPORT_COLUMNS + " FROM productos ORDER BY id";
+
+        try (Connection conn = getConnection()) {
+            byte[] body = NdjsonExport.export(conn, sql, EXPORT_FETCH_SIZE);
+
+            return StageTimer.header(request.createResponseBuilder(HttpStatus.OK))
+                    .header("Content-Type", NdjsonExport.CONTENT_TYPE)
+                    .header("Access-Control-Allow-Origin", "*")
+                    .body(body)
+                    .build();
+        } catch (Exception e) {
+            Log.error(() -> "Error exportando productos: " + e.getMessage(), e);
+            return createErrorResponse(request, "Error al exportar productos: " + e.getMessage(), 500);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private HttpResponseMessage handlePost(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
         String body = request.getBody().orElse("{}");
-        context.getLogger().info("Creando producto con datos: " + body);
+        Log.info(Log.WRITE, () -> "Creando producto con datos: " + body);
 
         try {
             Map<String, Object> productData = objectMapper.readValue(body, Map.class);
@@ -145,9 +200,10 @@ public class ProductFunction {
                     stmt.setDouble(12, ((Number) productData.getOrDefault("peso", 1.0)).doubleValue());
                     stmt.setString(13, (String) productData.getOrDefault("dimensiones", "10x10x10 cm"));
 
-                    try (ResultSet rs = stmt.executeQuery()) {
+                    try (ResultSet rs = StageTimer.executeQuery(stmt)) {
                         if (rs.next()) {
                             int newId = rs.getInt("id");
+                            StockAlertIndex.markChanged(newId);
 
                             Map<String, Object> response = new HashMap<>();
                             response.put("success", true);
@@ -161,14 +217,14 @@ public class ProductFunction {
                 }
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en POST: " + e.getMessage());
+            Log.error(() -> "Error en POST: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al crear producto: " + e.getMessage(), 500);
         }
 
         return createErrorResponse(request, "Error al crear producto", 500);
     }
 
-    @SuppressWarnings("unchecked")
+    @SuppressWarnings({"unchecked", "try"})
     private HttpResponseMessage handlePut(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
         String idParam = request.getQueryParameters().get("id");
         if (idParam == null) {
@@ -181,7 +237,9 @@ public class ProductFunction {
             Map<String, Object> productData = objectMapper.readValue(body, Map.class);
             int id = Integer.parseInt(idParam);
 
-            try (Connection conn = getConnection()) {
+            // El UPDATE pisa el stock: el acumulador persiste lo pendiente y no reserva hasta el commit
+            try (StockAggregator.Fence fence = StockAggregator.fence(List.of(id));
+                 Connection conn = getConnection()) {
                 String sql = "UPDATE productos SET nombre = ?, descripcion = ?, stock = ?, precio = ?, modificado_en = CURRENT_TIMESTAMP WHERE id = ?";
 
                 try (PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -191,9 +249,11 @@ public class ProductFunction {
                     stmt.setDouble(4, ((Number) productData.getOrDefault("precio", 9990.0)).doubleValue());
                     stmt.setInt(5, id);
 
-                    int affectedRows = stmt.executeUpdate();
+                    int affectedRows = StageTimer.executeUpdate(stmt);
 
                     if (affectedRows > 0) {
+                        StockAlertIndex.markChanged(id);
+
                         Map<String, Object> response = new HashMap<>();
                         response.put("success", true);
                         response.put("data", Map.of("id", id, "message", "Producto actualizado exitosamente"));
@@ -207,27 +267,37 @@ public class ProductFunction {
                 }
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en PUT: " + e.getMessage());
+            Log.error(() -> "Error en PUT: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al actualizar producto: " + e.getMessage(), 500);
         }
     }
 
+    @SuppressWarnings("try")
     private HttpResponseMessage handleDelete(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
         String idParam = request.getQueryParameters().get("id");
         if (idParam == null) {
             return createErrorResponse(request, "ID requerido para eliminar", 400);
         }
 
-        try (Connection conn = getConnection()) {
-            int id = Integer.parseInt(idParam);
+        int id;
+        try {
+            id = Integer.parseInt(idParam);
+        } catch (NumberFormatException e) {
+            return createErrorResponse(request, "ID inválido", 400);
+        }
+
+        try (StockAggregator.Fence fence = StockAggregator.fence(List.of(id));
+             Connection conn = getConnection()) {
             String sql = "DELETE FROM productos WHERE id = ?";
 
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setInt(1, id);
 
-                int affectedRows = stmt.executeUpdate();
+                int affectedRows = StageTimer.executeUpdate(stmt);
 
                 if (affectedRows > 0) {
+                    StockAlertIndex.markChanged(id);
+
                     Map<String, Object> response = new HashMap<>();
                     response.put("success", true);
                     response.put("data", Map.of("id", id, "message", "Producto eliminado exitosamente"));
@@ -240,7 +310,7 @@ public class ProductFunction {
                 }
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en DELETE: " + e.getMessage());
+            Log.error(() -> "Error en DELETE: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al eliminar producto: " + e.getMessage(), 500);
         }
     }
@@ -259,24 +329,33 @@ public class ProductFunction {
         }
 
         String body = request.getBody().orElse("{}");
-        context.getLogger().info("GraphQL Query recibido: " + body);
+        Log.info(Log.GRAPHQL, () -> "GraphQL query recibida: " + body);
 
         try {
             Map<String, Object> requestMap = objectMapper.readValue(body, Map.class);
             String query = (String) requestMap.get("query");
             Map<String, Object> variables = (Map<String, Object>) requestMap.get("variables");
+            Map<String, Object> extensions = (Map<String, Object>) requestMap.get("extensions");
 
             if (query == null || query.isEmpty()) {
-                return createErrorResponse(request, "Query GraphQL requerido", 400);
+                // Persisted query: el cliente envía solo el hash en extensions.persistedQuery
+                if (extensions == null || !extensions.containsKey("persistedQuery")) {
+                    return createErrorResponse(request, "Query GraphQL requerido", 400);
+                }
+                query = PersistedQuerySupport.PERSISTED_QUERY_MARKER;
             }
 
             // CONSTRUIR LA EJECUCIÓN CON VARIABLES
             ExecutionInput executionInput = ExecutionInput.newExecutionInput()
                 .query(query)
                 .variables(variables != null ? variables : Collections.emptyMap())
+                .extensions(extensions != null ? extensions : Collections.emptyMap())
+                .dataLoaderRegistry(GraphQLDataLoaders.newRegistry())
                 .build();
 
-            ExecutionResult executionResult = graphQL.execute(executionInput);
+            long started = System.nanoTime();
+            ExecutionResult executionResult = graphQL().execute(executionInput);
+            StageTimer.record(StageTimer.Stage.GRAPHQL, started);
 
             Map<String, Object> response = new HashMap<>();
             response.put("data", executionResult.getData());
@@ -288,7 +367,7 @@ public class ProductFunction {
             return createSuccessResponse(request, response);
 
         } catch (Exception e) {
-            context.getLogger().severe("Error procesando GraphQL: " + e.getMessage());
+            Log.error(() -> "Error procesando GraphQL: " + e.getMessage(), e);
             return createErrorResponse(request, "Error procesando query GraphQL: " + e.getMessage(), 500);
         }
     }
@@ -307,10 +386,46 @@ public class ProductFunction {
                 categoria_id: Int!
                 bodega_id: Int!
                 estado: String!
+                warehouse: Warehouse
+                category: Category
+            }
+
+            type Warehouse {
+                id: Int!
+                nombre: String!
+                direccion: String
+                responsable: String
+                estado: String!
+                capacidad_max: Int!
+            }
+
+            type Category {
+                id: Int!
+                nombre: String!
+                descripcion: String
+                estado: String!
+            }
+
+            type ProductEdge {
+                cursor: String!
+                node: Product!
+            }
+
+            type ProductConnection {
+                edges: [ProductEdge!]!
+                pageInfo: PageInfo!
+            }
+
+            type PageInfo {
+                hasNextPage: Boolean!
+                hasPreviousPage: Boolean!
+                startCursor: String
+                endCursor: String
             }
 
             type Query {
                 products: [Product]
+                productsConnection(first: Int, after: String): ProductConnection!
                 product(id: Int!): Product
                 productsByCategory(categoryId: Int!): [Product]
                 productsByWarehouse(warehouseId: Int!): [Product]
@@ -329,10 +444,15 @@ public class ProductFunction {
         RuntimeWiring runtimeWiring = newRuntimeWiring()
             .type("Query", builder -> builder
                 .dataFetcher("products", getAllProductsGraphQLFetcher())
+                .dataFetcher("productsConnection", getProductsConnectionGraphQLFetcher())
                 .dataFetcher("product", getProductByIdGraphQLFetcher())
                 .dataFetcher("productsByCategory", getProductsByCategoryGraphQLFetcher())
                 .dataFetcher("productsByWarehouse", getProductsByWarehouseGraphQLFetcher())
             )
+            .type("Product", builder -> builder
+                .dataFetcher("warehouse", batchedReferenceFetcher(GraphQLDataLoaders.BODEGAS, "bodega_id"))
+                .dataFetcher("category", batchedReferenceFetcher(GraphQLDataLoaders.CATEGORIAS, "categoria_id"))
+            )
             .type("Mutation", builder -> builder
                 .dataFetcher("createProduct", createProductGraphQLFetcher())
                 .dataFetcher("updateProduct", updateProductGraphQLFetcher())
@@ -343,7 +463,42 @@ public class ProductFunction {
         SchemaGenerator schemaGenerator = new SchemaGenerator();
         GraphQLSchema graphQLSchema = schemaGenerator.makeExecutableSchema(typeDefinitionRegistry, runtimeWiring);
 
-        return GraphQL.newGraphQL(graphQLSchema).build();
+        return GraphQL.newGraphQL(graphQLSchema)
+            .preparsedDocumentProvider(DOCUMENT_CACHE)
+            .build();
+    }
+
+    private DataFetcher<graphql.relay.Connection<Map<String, Object>>> getProductsConnectionGraphQLFetcher() {
+        return dataFetchingEnvironment -> {
+            KeysetPage page = KeysetPage.fromConnectionArgs(
+                dataFetchingEnvironment.getArgument("first"), dataFetchingEnvironment.getArgument("after"));
+            try (Connection conn = getConnection()) {
+                return page.toConnection(queryProductsPage(conn, page, this::mapResultSetToProduct));
+            }
+        };
+    }
+
+    /**
+     * Lee una página de productos más la fila extra que usa {@link KeysetPage#trim}.
+     * REST usa {@link Producto#fromRow}; GraphQL necesita filas como Map.
+     */
+    private <T> List<T> queryProductsPage(Connection conn, KeysetPage page, RowMapper<T> mapper) throws SQLException {
+        String sql = "SELECT " + Producto.COLUMNS + " FROM productos WHERE " + page.clause("id");
+
+        List<T> products = new ArrayList<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            page.bind(stmt, 1);
+
+            try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                long mapStarted = System.nanoTime();
+                while (rs.next()) {
+                    products.add(mapper.map(rs));
+                }
+                StageTimer.record(StageTimer.Stage.MAP, mapStarted);
+            }
+        }
+        return products;
     }
 
     private DataFetcher<List<Map<String, Object>>> getAllProductsGraphQLFetcher() {
@@ -354,11 +509,13 @@ public class ProductFunction {
                 String sql = "SELECT * FROM productos ORDER BY id";
 
                 try (PreparedStatement stmt = conn.prepareStatement(sql);
-                     ResultSet rs = stmt.executeQuery()) {
+                     ResultSet rs = StageTimer.executeQuery(stmt)) {
 
+                    long mapStarted = System.nanoTime();
                     while (rs.next()) {
                         products.add(mapResultSetToProduct(rs));
                     }
+                    StageTimer.record(StageTimer.Stage.MAP, mapStarted);
                 }
             }
 
@@ -366,25 +523,27 @@ public class ProductFunction {
         };
     }
 
-    private DataFetcher<Map<String, Object>> getProductByIdGraphQLFetcher() {
+    private DataFetcher<CompletableFuture<Map<String, Object>>> getProductByIdGraphQLFetcher() {
         return dataFetchingEnvironment -> {
             Integer id = dataFetchingEnvironment.getArgument("id");
+            DataLoader<Integer, Map<String, Object>> loader = dataFetchingEnvironment.getDataLoader(GraphQLDataLoaders.PRODUCTOS);
+            return loader.load(id);
+        };
+    }
 
-            try (Connection conn = getConnection()) {
-                String sql = "SELECT * FROM productos WHERE id = ?";
-
-                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                    stmt.setInt(1, id);
-
-                    try (ResultSet rs = stmt.executeQuery()) {
-                        if (rs.next()) {
-                            return mapResultSetToProduct(rs);
-                        }
-                    }
-                }
+    /**
+     * Resuelve una referencia por ID (bodega_id, categoria_id) a través del
+     * DataLoader de la ejecución, agrupando todas las filas en una consulta.
+     */
+    private DataFetcher<CompletableFuture<Map<String, Object>>> batchedReferenceFetcher(String loaderName, String idField) {
+        return dataFetchingEnvironment -> {
+            Map<String, Object> product = dataFetchingEnvironment.getSource();
+            Object id = product.get(idField);
+            if (id == null) {
+                return CompletableFuture.completedFuture(null);
             }
-
-            return null;
+            DataLoader<Integer, Map<String, Object>> loader = dataFetchingEnvironment.getDataLoader(loaderName);
+            return loader.load(((Number) id).intValue());
         };
     }
 
@@ -399,10 +558,12 @@ public class ProductFunction {
                 try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                     stmt.setInt(1, categoryId);
 
-                    try (ResultSet rs = stmt.executeQuery()) {
+                    try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                        long mapStarted = System.nanoTime();
                         while (rs.next()) {
                             products.add(mapResultSetToProduct(rs));
                         }
+                        StageTimer.record(StageTimer.Stage.MAP, mapStarted);
                     }
                 }
             }
@@ -422,10 +583,12 @@ public class ProductFunction {
                 try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                     stmt.setInt(1, warehouseId);
 
-                    try (ResultSet rs = stmt.executeQuery()) {
+                    try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                        long mapStarted = System.nanoTime();
                         while (rs.next()) {
                             products.add(mapResultSetToProduct(rs));
                         }
+                        StageTimer.record(StageTimer.Stage.MAP, mapStarted);
                     }
                 }
             }
@@ -455,8 +618,9 @@ public class ProductFunction {
                     stmt.setInt(8, 1); // bodega_id por defecto
                     stmt.setString(9, "ACTIVO");
 
-                    try (ResultSet rs = stmt.executeQuery()) {
+                    try (ResultSet rs = StageTimer.executeQuery(stmt)) {
                         if (rs.next()) {
+                            StockAlertIndex.markChanged(rs.getInt("id"));
                             return mapResultSetToProduct(rs);
                         }
                     }
@@ -469,6 +633,7 @@ public class ProductFunction {
         };
     }
 
+    @SuppressWarnings("try")
     private DataFetcher<Map<String, Object>> updateProductGraphQLFetcher() {
         return dataFetchingEnvironment -> {
             Integer id = dataFetchingEnvironment.getArgument("id");
@@ -476,7 +641,9 @@ public class ProductFunction {
             Integer stock = dataFetchingEnvironment.getArgument("stock");
             Double precio = dataFetchingEnvironment.getArgument("precio");
 
-            try (Connection conn = getConnection()) {
+            // Solo si cambia el stock hay que coordinar con el acumulador
+            try (StockAggregator.Fence fence = StockAggregator.fence(stock != null ? List.of(id) : List.of());
+                 Connection conn = getConnection()) {
                 StringBuilder sql = new StringBuilder("UPDATE productos SET modificado_en = CURRENT_TIMESTAMP");
                 List<Object> params = new ArrayList<>();
 
@@ -501,8 +668,9 @@ public class ProductFunction {
                         stmt.setObject(i + 1, params.get(i));
                     }
 
-                    try (ResultSet rs = stmt.executeQuery()) {
+                    try (ResultSet rs = StageTimer.executeQuery(stmt)) {
                         if (rs.next()) {
+                            StockAlertIndex.markChanged(id);
                             return mapResultSetToProduct(rs);
                         }
                     }
@@ -515,16 +683,21 @@ public class ProductFunction {
         };
     }
 
+    @SuppressWarnings("try")
     private DataFetcher<Boolean> deleteProductGraphQLFetcher() {
         return dataFetchingEnvironment -> {
             Integer id = dataFetchingEnvironment.getArgument("id");
 
-            try (Connection conn = getConnection()) {
+            try (StockAggregator.Fence fence = StockAggregator.fence(List.of(id));
+                 Connection conn = getConnection()) {
                 String sql = "DELETE FROM productos WHERE id = ?";
 
                 try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                     stmt.setInt(1, id);
-                    int affectedRows = stmt.executeUpdate();
+                    int affectedRows = StageTimer.executeUpdate(stmt);
+                    if (affectedRows > 0) {
+                        StockAlertIndex.markChanged(id);
+                    }
                     return affectedRows > 0;
                 }
             } catch (SQLException e) {
@@ -540,6 +713,7 @@ public class ProductFunction {
         info.put("description", "GraphQL endpoint para productos");
         info.put("queries", Arrays.asList(
             "products - Listar todos los productos",
+            "productsConnection(first: Int, after: String) - Productos paginados (conexión Relay)",
             "product(id: Int!) - Obtener producto por ID",
             "productsByCategory(categoryId: Int!) - Productos por categoría",
             "productsByWarehouse(warehouseId: Int!) - Productos por bodega"
@@ -549,7 +723,13 @@ public class ProductFunction {
             "updateProduct(id: Int!, nombre: String, stock: Int, precio: Float) - Actualizar producto",
             "deleteProduct(id: Int!) - Eliminar producto"
         ));
-        info.put("example_query", "{ products { id sku nombre stock precio } }");
+        info.put("persisted_queries", "Enviar extensions.persistedQuery.sha256Hash (SHA-256 hex de la query) sin 'query' una vez que el documento esté en cache");
+        info.put("document_cache", DOCUMENT_CACHE.getStats());
+        info.put("nested_fields", Arrays.asList(
+            "Product.warehouse - Bodega del producto (carga agrupada)",
+            "Product.category - Categoría del producto (carga agrupada)"
+        ));
+        info.put("example_query", "{ products { id sku nombre stock precio warehouse { nombre } category { nombre } } }");
 
         return createSuccessResponse(request, info);
     }
@@ -557,10 +737,21 @@ public class ProductFunction {
     // ==================== MÉTODOS AUXILIARES ====================
 
     private HttpResponseMessage createSuccessResponse(HttpRequestMessage<Optional<String>> request, Object data) {
-        return request.createResponseBuilder(HttpStatus.OK)
+        String body = Json.write(data);
+        return StageTimer.header(request.createResponseBuilder(HttpStatus.OK))
                 .header("Content-Type", "application/json")
                 .header("Access-Control-Allow-Origin", "*")
-                .body(data)
+                .body(body)
+                .build();
+    }
+
+    private HttpResponseMessage createSuccessResponse(HttpRequestMessage<Optional<String>> request, Object data, String etag) {
+        String body = Json.write(data);
+        return StageTimer.header(request.createResponseBuilder(HttpStatus.OK))
+                .header("Content-Type", "application/json")
+                .header("Access-Control-Allow-Origin", "*")
+                .header("ETag", etag)
+                .body(body)
                 .build();
     }
 
@@ -571,59 +762,87 @@ public class ProductFunction {
         error.put("timestamp", new Date());
         error.put("status", statusCode);
 
-        return request.createResponseBuilder(HttpStatus.valueOf(statusCode))
+        String body = Json.write(error);
+        return StageTimer.header(request.createResponseBuilder(HttpStatus.valueOf(statusCode)))
                 .header("Content-Type", "application/json")
                 .header("Access-Control-Allow-Origin", "*")
-                .body(error)
+                .body(body)
                 .build();
     }
 
     private Connection getConnection() throws SQLException {
-        try {
-            DriverManager.setLoginTimeout(15);
-            System.out.println("Intentando conectar a: " + DB_URL);
-            return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-        } catch (SQLException e) {
-            System.err.println("Error conectando a PostgreSQL: " + e.getMessage());
-            throw new SQLException("Error conectando a PostgreSQL: " + e.getMessage(), e);
-        }
+        return ConnectionPool.getConnection();
     }
 
     private HttpResponseMessage getAllProducts(Connection conn, HttpRequestMessage<Optional<String>> request, ExecutionContext context) throws SQLException {
-        String sql = "SELECT id, sku, nombre, descripcion, stock, stock_minimo, stock_maximo, precio, categoria_id, bodega_id, estado, unidad_medida, peso, dimensiones, creado_en, modificado_en FROM productos ORDER BY id";
+        KeysetPage page;
+        try {
+            page = KeysetPage.fromQuery(request.getQueryParameters());
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(request, e.getMessage(), 400);
+        }
 
-        List<Map<String, Object>> products = new ArrayList<>();
+        List<Producto> products = queryProductsPage(conn, page, Producto::fromRow);
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        page.describe(response, products, Producto::id);
 
-            while (rs.next()) {
-                Map<String, Object> product = mapResultSetToProduct(rs);
-                products.add(product);
-            }
+        String etag = ETags.forRows(products, (Boolean) response.get("has_more"), Producto::id, Producto::version);
+        if (ETags.matches(request, etag)) {
+            return ETags.notModified(request, etag);
+        }
+        response.put("data", products);
+        response.put("total", products.size());
+        response.put("message", "Productos obtenidos exitosamente");
+        response.put("timestamp", new Date());
+
+        return createSuccessResponse(request, response, etag);
+    }
+
+    private HttpResponseMessage getProductsByIds(Connection conn, String idsParam, HttpRequestMessage<Optional<String>> request, ExecutionContext context) throws SQLException {
+        List<Integer> ids;
+        try {
+            ids = IdList.parse(idsParam);
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(request, e.getMessage(), 400);
+        }
+
+        List<Producto> products = IdList.load(conn, "productos", Producto.COLUMNS, ids, Producto::fromRow, Producto::id);
+
+        String etag = ETags.forRows(products, false, Producto::id, Producto::version);
+        if (ETags.matches(request, etag)) {
+            return ETags.notModified(request, etag);
         }
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
         response.put("data", products);
         response.put("total", products.size());
-        response.put("message", "Productos obtenidos exitosamente");
+        response.put("no_encontrados", IdList.missing(ids, products, Producto::id));
+        response.put("etags", IdList.etags(products, Producto::id, Producto::version));
+        response.put("message", "Productos obtenidos por ids exitosamente");
         response.put("timestamp", new Date());
 
-        return createSuccessResponse(request, response);
+        return createSuccessResponse(request, response, etag);
     }
 
     private HttpResponseMessage getProductById(Connection conn, String idParam, HttpRequestMessage<Optional<String>> request, ExecutionContext context) throws SQLException {
         try {
             int id = Integer.parseInt(idParam);
-            String sql = "SELECT id, sku, nombre, descripcion, stock, stock_minimo, stock_maximo, precio, categoria_id, bodega_id, estado, unidad_medida, peso, dimensiones, creado_en, modificado_en FROM productos WHERE id = ?";
+            String sql = "SELECT " + Producto.COLUMNS + " FROM productos WHERE id = ?";
 
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setInt(1, id);
 
-                try (ResultSet rs = stmt.executeQuery()) {
+                try (ResultSet rs = StageTimer.executeQuery(stmt)) {
                     if (rs.next()) {
-                        Map<String, Object> product = mapResultSetToProduct(rs);
+                        Producto product = Producto.fromRow(rs);
+
+                        String etag = ETags.forRow(product.id(), product.version());
+                        if (ETags.matches(request, etag)) {
+                            return ETags.notModified(request, etag);
+                        }
 
                         Map<String, Object> response = new HashMap<>();
                         response.put("success", true);
@@ -631,7 +850,7 @@ public class ProductFunction {
                         response.put("message", "Producto encontrado exitosamente");
                         response.put("timestamp", new Date());
 
-                        return createSuccessResponse(request, response);
+                        return createSuccessResponse(request, response, etag);
                     } else {
                         return createErrorResponse(request, "Producto no encontrado", 404);
                     }
@@ -645,21 +864,27 @@ public class ProductFunction {
     private HttpResponseMessage getProductsByCategory(Connection conn, String categoriaParam, HttpRequestMessage<Optional<String>> request, ExecutionContext context) throws SQLException {
         try {
             int categoriaId = Integer.parseInt(categoriaParam);
-            String sql = "SELECT id, sku, nombre, descripcion, stock, stock_minimo, stock_maximo, precio, categoria_id, bodega_id, estado, unidad_medida, peso, dimensiones, creado_en, modificado_en FROM productos WHERE categoria_id = ? ORDER BY id";
+            String sql = "SELECT " + Producto.COLUMNS + " FROM productos WHERE categoria_id = ? ORDER BY id";
 
-            List<Map<String, Object>> products = new ArrayList<>();
+            List<Producto> products = new ArrayList<>();
 
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setInt(1, categoriaId);
 
-                try (ResultSet rs = stmt.executeQuery()) {
+                try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                    long mapStarted = System.nanoTime();
                     while (rs.next()) {
-                        Map<String, Object> product = mapResultSetToProduct(rs);
-                        products.add(product);
+                        products.add(Producto.fromRow(rs));
                     }
+                    StageTimer.record(StageTimer.Stage.MAP, mapStarted);
                 }
             }
 
+            String etag = ETags.forRows(products, false, Producto::id, Producto::version);
+            if (ETags.matches(request, etag)) {
+                return ETags.notModified(request, etag);
+            }
+
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", products);
@@ -668,7 +893,7 @@ public class ProductFunction {
             response.put("message", "Productos obtenidos por categoria exitosamente");
             response.put("timestamp", new Date());
 
-            return createSuccessResponse(request, response);
+            return createSuccessResponse(request, response, etag);
         } catch (NumberFormatException e) {
             return createErrorResponse(request, "ID de categoría inválido", 400);
         }
@@ -677,21 +902,27 @@ public class ProductFunction {
     private HttpResponseMessage getProductsByWarehouse(Connection conn, String bodegaParam, HttpRequestMessage<Optional<String>> request, ExecutionContext context) throws SQLException {
         try {
             int bodegaId = Integer.parseInt(bodegaParam);
-            String sql = "SELECT id, sku, nombre, descripcion, stock, stock_minimo, stock_maximo, precio, categoria_id, bodega_id, estado, unidad_medida, peso, dimensiones, creado_en, modificado_en FROM productos WHERE bodega_id = ? ORDER BY id";
+            String sql = "SELECT " + Producto.COLUMNS + " FROM productos WHERE bodega_id = ? ORDER BY id";
 
-            List<Map<String, Object>> products = new ArrayList<>();
+            List<Producto> products = new ArrayList<>();
 
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setInt(1, bodegaId);
 
-                try (ResultSet rs = stmt.executeQuery()) {
+                try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                    long mapStarted = System.nanoTime();
                     while (rs.next()) {
-                        Map<String, Object> product = mapResultSetToProduct(rs);
-                        products.add(product);
+                        products.add(Producto.fromRow(rs));
                     }
+                    StageTimer.record(StageTimer.Stage.MAP, mapStarted);
                 }
             }
 
+            String etag = ETags.forRows(products, false, Producto::id, Producto::version);
+            if (ETags.matches(request, etag)) {
+                return ETags.notModified(request, etag);
+            }
+
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", products);
@@ -700,7 +931,7 @@ public class ProductFunction {
             response.put("message", "Productos obtenidos por bodega exitosamente");
             response.put("timestamp", new Date());
 
-            return createSuccessResponse(request, response);
+            return createSuccessResponse(request, response, etag);
         } catch (NumberFormatException e) {
             return createErrorResponse(request, "ID de bodega inválido", 400);
         }
@@ -0,0 +1,84 @@
+package com.function;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fila de la tabla productos para las rutas REST y los DataLoaders de GraphQL
+ * ({@link #toMap}).
+ *
+ * {@link #fromRow} lee por posición según {@link #COLUMNS}, sin buscar columnas
+ * por nombre en cada fila; se serializa con {@link Json.ProductoSerializer}.
+ *
+ * {@code version} (ver {@link CatalogVersion}) no se serializa: solo entra en los ETags.
+ */
+public record Producto(
+    int id,
+    String sku,
+    String nombre,
+    String descripcion,
+    int stock,
+    int stockMinimo,
+    int stockMaximo,
+    double precio,
+    int categoriaId,
+    int bodegaId,
+    String estado,
+    String unidadMedida,
+    double peso,
+    String dimensiones,
+    Timestamp creadoEn,
+    Timestamp modificadoEn,
+    long version
+) {
+
+    /** Columnas en el orden que espera {@link #fromRow}. */
+    public static final String COLUMNS = "id, sku, nombre, descripcion, stock, stock_minimo, stock_maximo, precio, categoria_id, bodega_id, estado, unidad_medida, peso, dimensiones, creado_en, modificado_en, version";
+
+    public static Producto fromRow(ResultSet rs) throws SQLException {
+        return new Producto(
+            rs.getInt(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getString(4),
+            rs.getInt(5),
+            rs.getInt(6),
+            rs.getInt(7),
+            rs.getDouble(8),
+            rs.getInt(9),
+            rs.getInt(10),
+            rs.getString(11),
+            rs.getString(12),
+            rs.getDouble(13),
+            rs.getString(14),
+            rs.getTimestamp(15),
+            rs.getTimestamp(16),
+            rs.getLong(17)
+        );
+    }
+
+    /** Fila como Map con los nombres de columna, que es lo que resuelve GraphQL. */
+    public Map<String, Object> toMap() {
+        Map<String, Object> product = new HashMap<>();
+        product.put("id", id);
+        product.put("sku", sku);
+        product.put("nombre", nombre);
+        product.put("descripcion", descripcion);
+        product.put("stock", stock);
+        product.put("stock_minimo", stockMinimo);
+        product.put("stock_maximo", stockMaximo);
+        product.put("precio", precio);
+        product.put("categoria_id", categoriaId);
+        product.put("bodega_id", bodegaId);
+        product.put("estado", estado);
+        product.put("unidad_medida", unidadMedida);
+        product.put("peso", peso);
+        product.put("dimensiones", dimensiones);
+        product.put("creado_en", creadoEn);
+        product.put("modificado_en", modificadoEn);
+        return product;
+    }
+}
@@ -0,0 +1,247 @@
+package com.function;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caché en memoria de los datos de referencia (categorías y bodegas), compartida
+ * por todas las invocaciones de la instancia mientras siga tibia.
+ *
+ * Cambian pocas veces al día, así que los listados y el nombre de categoría y
+ * bodega del listado de inventario se sirven desde aquí en vez de la BD. Se
+ * mantiene así:
+ * - Un hilo de fondo compara cada REFERENCE_CACHE_REFRESH_MS la cantidad de
+ *   filas y la suma de la columna version de cada tabla con las de la copia
+ *   en memoria (una consulta de agregados) y solo si difieren recarga esa
+ *   tabla. Cada escritura sube la version de la fila (ver
+ *   {@link CatalogVersion}) y un borrado cambia la cantidad, así que los
+ *   cambios de otras instancias se ven a lo más tras ese intervalo, aunque
+ *   sus transacciones confirmen fuera de orden.
+ * - Las escrituras hechas en esta instancia llaman a {@link #markChanged} y la
+ *   siguiente lectura recarga la tabla antes de responder.
+ *
+ * Configuración (ver {@link Settings}):
+ * REFERENCE_CACHE_ENABLED - Sirve categorías y bodegas desde memoria (default true)
+ * REFERENCE_CACHE_REFRESH_MS - Intervalo de la comprobación de versión (default 5000)
+ */
+public final class ReferenceData {
+
+    private static final Logger LOGGER = Logger.getLogger(ReferenceData.class.getName());
+
+    public static final boolean ENABLED = Settings.getBoolean("REFERENCE_CACHE_ENABLED", true);
+
+    public static final String CATEGORIAS = "categorias";
+    public static final String BODEGAS = "bodegas";
+
+    private static final String VERSION_SQL =
+        "SELECT (SELECT COUNT(*) FROM categorias), (SELECT COALESCE(SUM(version), 0) FROM categorias), " +
+        "(SELECT COUNT(*) FROM bodegas), (SELECT COALESCE(SUM(version), 0) FROM bodegas)";
+
+    private static final String CATEGORIAS_SQL = "SELECT " + Categoria.COLUMNS + " FROM categorias ORDER BY id";
+    private static final String BODEGAS_SQL = "SELECT " + Bodega.COLUMNS + " FROM bodegas ORDER BY id";
+
+    private static volatile ReferenceData instance;
+
+    private final long refreshMs;
+    private final AtomicLong versionChecks = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    private volatile Table<Categoria> categorias;
+    private volatile Table<Bodega> bodegas;
+    private volatile boolean categoriasChanged;
+    private volatile boolean bodegasChanged;
+
+    private ReferenceData(long refreshMs) {
+        this.refreshMs = refreshMs;
+    }
+
+    /**
+     * Copia en memoria de una tabla, ordenada por id.
+     */
+    public static final class Table<T> {
+
+        private final List<T> rows;
+        private final int[] ids;
+        private final Map<Integer, T> byId;
+        private final long count;
+        private final long versionSum;
+
+        private Table(List<T> rows, ToIntFunction<T> idOf, long versionSum) {
+            this.rows = List.copyOf(rows);
+            this.ids = new int[rows.size()];
+            this.byId = new HashMap<>(rows.size() * 2);
+            for (int i = 0; i < rows.size(); i++) {
+                T row = rows.get(i);
+                ids[i] = idOf.applyAsInt(row);
+                byId.put(ids[i], row);
+            }
+            this.count = rows.size();
+            this.versionSum = versionSum;
+        }
+
+        public T get(int id) {
+            return byId.get(id);
+        }
+
+        /**
+         * Filas con id mayor a after_id, hasta limit + 1 para que
+         * {@link KeysetPage#describe} sepa si hay más páginas.
+         */
+        public List<T> page(KeysetPage page) {
+            int from = Arrays.binarySearch(ids, page.getAfterId());
+            from = from >= 0 ? from + 1 : -from - 1;
+            int to = (int) Math.min(rows.size(), (long) from + page.getLimit() + 1);
+            return new ArrayList<>(rows.subList(from, to));
+        }
+
+        public int size() {
+            return rows.size();
+        }
+
+        boolean matches(long count, long versionSum) {
+            return this.count == count && this.versionSum == versionSum;
+        }
+    }
+
+    /**
+     * Caché de la instancia; la primera llamada hace la carga inicial.
+     */
+    public static ReferenceData getInstance() throws SQLException {
+        ReferenceData current = instance;
+        if (current == null) {
+            synchronized (ReferenceData.class) {
+                current = instance;
+                if (current == null) {
+                    current = start();
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Marca una tabla ({@link #CATEGORIAS} o {@link #BODEGAS}) como modificada
+     * por esta instancia. Si la caché aún no se usó no hace nada.
+     */
+    public static void markChanged(String table) {
+        ReferenceData current = instance;
+        if (current == null) {
+            return;
+        }
+        if (CATEGORIAS.equals(table)) {
+            current.categoriasChanged = true;
+        } else if (BODEGAS.equals(table)) {
+            current.bodegasChanged = true;
+        }
+    }
+
+    public Table<Categoria> categorias(Connection conn) throws SQLException {
+        if (categoriasChanged) {
+            reloadCategorias(conn);
+        }
+        return categorias;
+    }
+
+    public Table<Bodega> bodegas(Connection conn) throws SQLException {
+        if (bodegasChanged) {
+            reloadBodegas(conn);
+        }
+        return bodegas;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", ENABLED);
+        stats.put("categorias", categorias.size());
+        stats.put("bodegas", bodegas.size());
+        stats.put("refresh_ms", refreshMs);
+        stats.put("version_checks", versionChecks.get());
+        stats.put("reloads", reloads.get());
+        return stats;
+    }
+
+    private static ReferenceData start() throws SQLException {
+        ReferenceData data = new ReferenceData(Settings.getLong("REFERENCE_CACHE_REFRESH_MS", 5000));
+        try (Connection conn = ConnectionPool.getConnection()) {
+            data.reloadCategorias(conn);
+            data.reloadBodegas(conn);
+        }
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reference-data");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(data::refreshSafely, data.refreshMs, data.refreshMs, TimeUnit.MILLISECONDS);
+        return data;
+    }
+
+    private void refreshSafely() {
+        try (Connection conn = ConnectionPool.getConnection()) {
+            versionChecks.incrementAndGet();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(VERSION_SQL)) {
+                rs.next();
+                if (!categorias.matches(rs.getLong(1), rs.getLong(2))) {
+                    categoriasChanged = true;
+                }
+                if (!bodegas.matches(rs.getLong(3), rs.getLong(4))) {
+                    bodegasChanged = true;
+                }
+            }
+            if (categoriasChanged) {
+                reloadCategorias(conn);
+            }
+            if (bodegasChanged) {
+                reloadBodegas(conn);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error actualizando datos de referencia: " + e.getMessage(), e);
+        }
+    }
+
+    // La marca se baja antes de leer, así un cambio durante la lectura vuelve a marcarla
+    private synchronized void reloadCategorias(Connection conn) throws SQLException {
+        categoriasChanged = false;
+        try {
+            categorias = load(conn, CATEGORIAS_SQL, Categoria::fromRow, Categoria::id, Categoria::version);
+        } catch (SQLException e) {
+            categoriasChanged = true;
+            throw e;
+        }
+    }
+
+    private synchronized void reloadBodegas(Connection conn) throws SQLException {
+        bodegasChanged = false;
+        try {
+            bodegas = load(conn, BODEGAS_SQL, Bodega::fromRow, Bodega::id, Bodega::version);
+        } catch (SQLException e) {
+            bodegasChanged = true;
+            throw e;
+        }
+    }
+
+    private <T> Table<T> load(Connection conn, String sql, RowMapper<T> mapper, ToIntFunction<T> idOf,
+                              ToLongFunction<T> versionOf) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        long versionSum = 0;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                T row = mapper.map(rs);
+                rows.add(row);
+                versionSum += versionOf.applyAsLong(row);
+            }
+        }
+        reloads.incrementAndGet();
+        return new Table<>(rows, idOf, versionSum);
+    }
+}
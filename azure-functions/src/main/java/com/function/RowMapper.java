@@ -0,0 +1,12 @@
+package com.function;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Convierte la fila actual de un {@link ResultSet} en un objeto.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,45 @@
+package com.function;
+
+/**
+ * Lectura de configuración de las funciones.
+ *
+ * Cada valor se busca primero como propiedad de sistema (útil en pruebas y
+ * benchmarks) y luego como variable de entorno (App Settings en Azure).
+ */
+public final class Settings {
+
+    private Settings() {
+    }
+
+    public static String get(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            value = System.getenv(name);
+        }
+        return value != null ? value : defaultValue;
+    }
+
+    public static int getInt(String name, int defaultValue) {
+        return (int) getLong(name, defaultValue);
+    }
+
+    public static long getLong(String name, long defaultValue) {
+        String value = get(name, null);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String name, boolean defaultValue) {
+        String value = get(name, null);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value.trim());
+    }
+}
@@ -0,0 +1,214 @@
+package com.function;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Tiempos por etapa de una invocación: conexión, consulta (o bloqueo,
+ * actualización e inserción en los lotes), mapeo de filas, ejecución GraphQL
+ * y serialización.
+ *
+ * Cada función abre el timer al entrar a {@code run} con {@link #begin} y lo
+ * cierra con {@link #end}; mientras tanto vive en un ThreadLocal, porque el
+ * worker atiende cada invocación en un solo hilo. Las etapas se miden con
+ * System.nanoTime y se acumulan en un arreglo, sin reservar memoria por
+ * medición.
+ *
+ * Las respuestas llevan los tiempos en el header Server-Timing
+ * ({@link #header}). Al cerrar, cada etapa se registra en un
+ * {@link Recorder} de HdrHistogram por función y etapa; la ruta
+ * /api/diagnostics/latency los publica con {@link #getStats}.
+ */
+public final class StageTimer {
+
+    public static final String HEADER = "Server-Timing";
+
+    public enum Stage {
+        CONNECT("connect"),
+        QUERY("query"),
+        // Fases del lote de movimientos (MovementBatchProcessor)
+        LOCK("lock"),
+        UPDATE("update"),
+        INSERT("insert"),
+        MAP("map"),
+        GRAPHQL("graphql"),
+        SERIALIZE("serialize");
+
+        private final String metric;
+
+        Stage(String metric) {
+            this.metric = metric;
+        }
+    }
+
+    private static final String TOTAL = "total";
+    private static final Stage[] STAGES = Stage.values();
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private static final ThreadLocal<StageTimer> CURRENT = new ThreadLocal<>();
+    private static final Map<String, Latency> LATENCIES = new ConcurrentHashMap<>();
+
+    private final String function;
+    private final long startNanos;
+    private final long[] nanos = new long[STAGES.length];
+
+    private StageTimer(String function) {
+        this.function = function;
+        this.startNanos = System.nanoTime();
+    }
+
+    // Recorder para las escrituras concurrentes; el acumulado solo se toca al leer
+    private static final class Latency {
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        private final Histogram accumulated = new Histogram(SIGNIFICANT_DIGITS);
+        private Histogram interval;
+
+        synchronized Histogram snapshot(boolean reset) {
+            interval = recorder.getIntervalHistogram(interval);
+            accumulated.add(interval);
+            Histogram copy = accumulated.copy();
+            if (reset) {
+                accumulated.reset();
+            }
+            return copy;
+        }
+    }
+
+    public static void begin(String function) {
+        CURRENT.set(new StageTimer(function));
+    }
+
+    /**
+     * Suma a {@code stage} el tiempo desde {@code startNanos} (un System.nanoTime
+     * tomado al empezar la etapa). Sin timer activo no hace nada.
+     */
+    public static void record(Stage stage, long startNanos) {
+        StageTimer timer = CURRENT.get();
+        if (timer != null) {
+            timer.nanos[stage.ordinal()] += System.nanoTime() - startNanos;
+        }
+    }
+
+    public static ResultSet executeQuery(PreparedStatement stmt) throws SQLException {
+        long started = System.nanoTime();
+        try {
+            return stmt.executeQuery();
+        } finally {
+            record(Stage.QUERY, started);
+        }
+    }
+
+    public static int executeUpdate(PreparedStatement stmt) throws SQLException {
+        long started = System.nanoTime();
+        try {
+            return stmt.executeUpdate();
+        } finally {
+            record(Stage.QUERY, started);
+        }
+    }
+
+    public static int[] executeBatch(PreparedStatement stmt, Stage stage) throws SQLException {
+        long started = System.nanoTime();
+        try {
+            return stmt.executeBatch();
+        } finally {
+            record(stage, started);
+        }
+    }
+
+    /**
+     * Agrega el header Server-Timing con las etapas medidas hasta ahora.
+     */
+    public static HttpResponseMessage.Builder header(HttpResponseMessage.Builder builder) {
+        StageTimer timer = CURRENT.get();
+        return timer != null ? builder.header(HEADER, timer.serverTiming()) : builder;
+    }
+
+    /**
+     * Cierra el timer de la invocación y registra sus etapas en los histogramas.
+     */
+    public static void end() {
+        StageTimer timer = CURRENT.get();
+        if (timer == null) {
+            return;
+        }
+        CURRENT.remove();
+        long total = System.nanoTime() - timer.startNanos;
+        for (Stage stage : STAGES) {
+            long value = timer.nanos[stage.ordinal()];
+            if (value > 0) {
+                latency(timer.function, stage.metric).recorder.recordValue(value);
+            }
+        }
+        latency(timer.function, TOTAL).recorder.recordValue(total);
+    }
+
+    /**
+     * Percentiles en ms por función y etapa desde el arranque o el último
+     * {@code reset}.
+     */
+    public static Map<String, Object> getStats(boolean reset) {
+        Map<String, Object> functions = new TreeMap<>();
+        for (Map.Entry<String, Latency> entry : new TreeMap<>(LATENCIES).entrySet()) {
+            String[] key = entry.getKey().split("/", 2);
+            Histogram histogram = entry.getValue().snapshot(reset);
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", histogram.getTotalCount());
+            stats.put("mean_ms", millis(histogram.getMean()));
+            stats.put("p50_ms", millis(histogram.getValueAtPercentile(50)));
+            stats.put("p90_ms", millis(histogram.getValueAtPercentile(90)));
+            stats.put("p99_ms", millis(histogram.getValueAtPercentile(99)));
+            stats.put("p999_ms", millis(histogram.getValueAtPercentile(99.9)));
+            stats.put("max_ms", millis(histogram.getMaxValue()));
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> stages = (Map<String, Object>) functions.computeIfAbsent(key[0], k -> new LinkedHashMap<>());
+            stages.put(key[1], stats);
+        }
+        return functions;
+    }
+
+    private String serverTiming() {
+        StringBuilder header = new StringBuilder(96);
+        for (Stage stage : STAGES) {
+            long value = nanos[stage.ordinal()];
+            if (value > 0) {
+                appendMetric(header, stage.metric, value);
+            }
+        }
+        appendMetric(header, TOTAL, System.nanoTime() - startNanos);
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String metric, long nanos) {
+        if (header.length() > 0) {
+            header.append(", ");
+        }
+        // Milisegundos con tres decimales, sin pasar por String.format
+        long micros = nanos / 1000;
+        header.append(metric).append(";dur=").append(micros / 1000).append('.');
+        long fraction = micros % 1000;
+        if (fraction < 100) {
+            header.append('0');
+        }
+        if (fraction < 10) {
+            header.append('0');
+        }
+        header.append(fraction);
+    }
+
+    private static Latency latency(String function, String metric) {
+        return LATENCIES.computeIfAbsent(function + "/" + metric, k -> new Latency());
+    }
+
+    private static double millis(double nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+}
@@ -0,0 +1,108 @@
+package com.function;
+
+import java.sql.Connection;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Camino de arranque: hace una sola vez por JVM el trabajo que de otro modo
+ * pagaría el primer request de una instancia nueva.
+ *
+ * - Construye los schemas GraphQL (inmutables) de {@link ProductFunction} y
+ *   {@link WarehouseFunction} y ejecuta una query trivial en cada uno.
+ * - Inicializa {@link Json#MAPPER} con una lectura y una escritura.
+ * - Llena el pool hasta DB_POOL_MIN_IDLE ({@link ConnectionPool#prefill}) y
+ *   revisa que la migración de {@link CatalogVersion} esté aplicada.
+ * - Carga la caché de datos de referencia y arranca la consolidación del
+ *   resumen de inventario si están activas, y el borrado de eventos de alerta
+ *   vencidos ({@link StockAlertOutbox}).
+ *
+ * Lo llama {@link WarmupFunction} cuando el host agrega una instancia y
+ * {@link #main} en la corrida de entrenamiento del archivo AppCDS (perfil
+ * appcds del pom). Si la BD no responde se registra y se sigue: el resto del
+ * arranque no depende de ella.
+ *
+ * Configuración (ver {@link Settings}):
+ * STARTUP_PREFILL_POOL - Abrir las conexiones del pool al arrancar (default true)
+ */
+public final class Startup {
+
+    private static final Logger LOGGER = Logger.getLogger(Startup.class.getName());
+
+    private static final boolean PREFILL_POOL = Settings.getBoolean("STARTUP_PREFILL_POOL", true);
+
+    private static volatile Map<String, Object> lastRun;
+
+    private Startup() {
+    }
+
+    /**
+     * Ejecuta el arranque y devuelve la duración en ms de cada paso.
+     * Se puede llamar más de una vez; lo ya inicializado no se vuelve a construir.
+     */
+    public static synchronized Map<String, Object> warmUp() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long start = System.nanoTime();
+
+        long step = System.nanoTime();
+        ProductFunction.graphQL().execute("{ __typename }");
+        WarehouseFunction.graphQL().execute("{ __typename }");
+        stats.put("graphql_ms", elapsedMs(step));
+
+        step = System.nanoTime();
+        try {
+            Json.MAPPER.readValue("{\"query\":\"{ __typename }\",\"variables\":{}}", Map.class);
+        } catch (Exception e) {
+            throw new IllegalStateException("Error inicializando Json: " + e.getMessage(), e);
+        }
+        Json.write(Map.of("success", true, "data", List.of(), "timestamp", new Date()));
+        stats.put("json_ms", elapsedMs(step));
+
+        if (PREFILL_POOL) {
+            step = System.nanoTime();
+            try {
+                stats.put("pool_connections", ConnectionPool.prefill());
+                try (Connection conn = ConnectionPool.getConnection()) {
+                    stats.put("catalog_version", CatalogVersion.check(conn));
+                }
+                if (ReferenceData.ENABLED) {
+                    ReferenceData.getInstance();
+                }
+                if (InventorySummary.ENABLED) {
+                    InventorySummary.start();
+                }
+                StockAlertOutbox.startPruning();
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "No se pudo preparar la BD al arrancar: " + e.getMessage());
+                stats.put("pool_error", e.getMessage());
+            }
+            stats.put("pool_ms", elapsedMs(step));
+        }
+
+        stats.put("total_ms", elapsedMs(start));
+        stats.put("finished_at", new Date());
+        lastRun = stats;
+        return stats;
+    }
+
+    /**
+     * Resultado del último arranque, o null si no se ejecutó en esta JVM.
+     */
+    public static Map<String, Object> getStats() {
+        return lastRun;
+    }
+
+    /**
+     * Corrida de entrenamiento para AppCDS: ejecutar con
+     * {@code -XX:ArchiveClassesAtExit=<archivo>.jsa} y el mismo classpath que
+     * tendrán las funciones.
+     */
+    public static void main(String[] args) {
+        System.out.println(Json.write(warmUp()));
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
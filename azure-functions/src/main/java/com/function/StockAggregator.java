@@ -0,0 +1,560 @@
+package com.function;
+
+import java.sql.*;
+import java.util.*;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Acumulador de stock en memoria con escritura diferida (write-behind) a PostgreSQL.
+ *
+ * Pensado para SKUs de alta frecuencia donde cada SALIDA compite por el mismo
+ * lock de fila. Con el modo activo, ENTRADA y SALIDA no tocan la BD en el request:
+ * - Cada producto tiene un slot con su stock disponible en un {@link AtomicInteger}.
+ *   La reserva es un ciclo CAS que rechaza la SALIDA si el stock quedaría negativo,
+ *   así que no hay sobregiro aunque no se tome ningún lock.
+ * - Los movimientos aceptados quedan en una cola por slot y un hilo de fondo los
+ *   vacía cada INVENTORY_WRITE_BEHIND_WINDOW_MS: una transacción por producto con
+ *   un UPDATE {@code stock = stock + delta} (que no deja el stock negativo) y un
+ *   INSERT por movimiento.
+ *
+ * La ventana de durabilidad es el intervalo de flush: un movimiento aceptado puede
+ * perderse si la instancia muere antes del siguiente flush. Si el flush de un
+ * producto falla por la conexión, sus movimientos vuelven a la cola y se
+ * reintentan; si la BD los rechaza (el producto ya no existe, el stock quedaría
+ * negativo, una restricción), pasan a la lista de descartados que muestra
+ * {@link #getStats} y el slot se descarta para recargarse desde la BD. Un
+ * producto que falla no frena el flush de los demás.
+ *
+ * El stock en memoria solo es exacto si esta instancia es la única que escribe el
+ * producto. Las rutas que escriben directo en la BD deben hacerlo dentro de
+ * {@link #fence}: persiste lo pendiente del producto y no acepta reservas hasta
+ * que la escritura termina. Los slots sin uso se descartan tras
+ * INVENTORY_WRITE_BEHIND_IDLE_MS. Con varias instancias la Function App debe
+ * escalar a una sola o no usar este modo.
+ *
+ * Configuración (ver {@link Settings}):
+ * INVENTORY_WRITE_BEHIND_ENABLED - Activa el modo (default false)
+ * INVENTORY_WRITE_BEHIND_WINDOW_MS - Intervalo entre flushes (default 200)
+ * INVENTORY_WRITE_BEHIND_IDLE_MS - Tiempo sin uso antes de descartar un slot (default 30000)
+ */
+public final class StockAggregator {
+
+    private static final Logger LOGGER = Logger.getLogger(StockAggregator.class.getName());
+
+    public static final boolean ENABLED = Settings.getBoolean("INVENTORY_WRITE_BEHIND_ENABLED", false);
+
+    private static final String LOAD_SQL = "SELECT stock, bodega_id FROM productos WHERE id = ?";
+    private static final String UPDATE_SQL =
+        "UPDATE productos SET stock = stock + ?, modificado_en = CURRENT_TIMESTAMP WHERE id = ? AND stock + ? >= 0";
+    private static final String INSERT_SQL =
+        "INSERT INTO movimientos_inventario (producto_id, bodega_id, tipo_movimiento, cantidad, stock_anterior, stock_nuevo, motivo, referencia, usuario) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Marca de slot cerrado: ningún stock real puede valer esto
+    private static final int CLOSED = Integer.MIN_VALUE;
+    private static final int DEAD_LETTER_KEEP = 100;
+
+    private static final Fence NO_FENCE = () -> { };
+
+    private final long windowMs;
+    private final long idleMs;
+    private final ConcurrentHashMap<Integer, Slot> slots = new ConcurrentHashMap<>();
+    // Productos con una escritura directa en curso
+    private final ConcurrentHashMap<Integer, Barrier> fenced = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<Map<String, Object>> deadLetters = new ConcurrentLinkedDeque<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private volatile long lastFlushMs;
+
+    private StockAggregator(long windowMs, long idleMs) {
+        this.windowMs = windowMs;
+        this.idleMs = idleMs;
+    }
+
+    // Holder idiom: el hilo de flush solo arranca si alguien usa el acumulador
+    private static final class Holder {
+        private static final StockAggregator INSTANCE = start();
+    }
+
+    public static StockAggregator getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Escritura directa en curso sobre productos del acumulador; se cierra
+     * después del commit.
+     */
+    public interface Fence extends AutoCloseable {
+        @Override
+        void close() throws SQLException;
+    }
+
+    /**
+     * Prepara una escritura directa en la BD de {@code productoIds}: persiste y
+     * descarta sus slots y, hasta cerrar el resultado, las reservas de esos
+     * productos esperan. Sin el modo activo no hace nada.
+     *
+     * <pre>
+     * try (StockAggregator.Fence fence = StockAggregator.fence(ids);
+     *      Connection conn = ConnectionPool.getConnection()) { ... }
+     * </pre>
+     */
+    public static Fence fence(Collection<Integer> productoIds) throws SQLException {
+        return ENABLED ? getInstance().open(productoIds) : NO_FENCE;
+    }
+
+    private static StockAggregator start() {
+        StockAggregator aggregator = new StockAggregator(
+            Settings.getLong("INVENTORY_WRITE_BEHIND_WINDOW_MS", 200),
+            Settings.getLong("INVENTORY_WRITE_BEHIND_IDLE_MS", 30000));
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(aggregator::flushSafely, aggregator.windowMs, aggregator.windowMs, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(aggregator::flushSafely, "stock-write-behind-shutdown"));
+        return aggregator;
+    }
+
+    /**
+     * Escrituras directas en curso sobre un producto; {@code lifted} se
+     * completa cuando se cierra la última.
+     */
+    private record Barrier(int count, CompletableFuture<Void> lifted) {
+    }
+
+    /**
+     * Estado de un producto. {@code inFlight} cuenta las reservas entre el CAS y
+     * el encolado, para que {@link #close} no descarte el slot con un movimiento a medio camino.
+     *
+     * Mientras el slot está cerrado (stock en CLOSED) las reservas esperan en
+     * {@code reopened}, que se completa cuando sale del mapa o se reabre. El
+     * cierre y la reapertura se hacen con el monitor del slot tomado.
+     */
+    private static final class Slot {
+        final int productoId;
+        final int bodegaId;
+        final AtomicInteger stock;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final ConcurrentLinkedQueue<Pending> pending = new ConcurrentLinkedQueue<>();
+        volatile long lastUsed = System.currentTimeMillis();
+        private CompletableFuture<Void> reopened = CompletableFuture.completedFuture(null);
+
+        Slot(int productoId, int stock, int bodegaId) {
+            this.productoId = productoId;
+            this.stock = new AtomicInteger(stock);
+            this.bodegaId = bodegaId;
+        }
+
+        /**
+         * Cierra el slot y retorna el stock que tenía, o CLOSED si ya estaba
+         * cerrado; en ese caso quien lo cerró es quien debe llamar a {@link #open}.
+         */
+        synchronized int shut() {
+            if (stock.get() != CLOSED) {
+                reopened = new CompletableFuture<>();
+            }
+            return stock.getAndSet(CLOSED);
+        }
+
+        /**
+         * Despierta a las reservas en espera; con {@code stock} distinto de
+         * CLOSED el slot vuelve a aceptarlas, si no es porque salió del mapa.
+         */
+        synchronized void open(int stock) {
+            if (stock != CLOSED) {
+                this.stock.compareAndSet(CLOSED, stock);
+            }
+            reopened.complete(null);
+        }
+
+        // Espera sin ocupar el hilo a que el cierre en curso termine
+        void awaitOpen() {
+            CompletableFuture<Void> waiting;
+            synchronized (this) {
+                if (stock.get() != CLOSED) {
+                    return;
+                }
+                waiting = reopened;
+            }
+            waiting.join();
+        }
+    }
+
+    private static final class Pending {
+        final InventoryMovement movement;
+        final int stockAnterior;
+        final int stockNuevo;
+
+        Pending(InventoryMovement movement, int stockAnterior, int stockNuevo) {
+            this.movement = movement;
+            this.stockAnterior = stockAnterior;
+            this.stockNuevo = stockNuevo;
+        }
+    }
+
+    /**
+     * Reserva un movimiento ENTRADA o SALIDA. Retorna null si el producto no
+     * existe; si el stock no alcanza, el resultado trae stock_nuevo en null.
+     */
+    public Map<String, Object> reserve(InventoryMovement movement) throws SQLException {
+        if (movement.stockAbsoluto() != null || movement.getBodegaDestinoId() != null) {
+            throw new IllegalArgumentException("Solo ENTRADA y SALIDA admiten escritura diferida");
+        }
+
+        while (true) {
+            awaitUnfenced(movement.getProductoId());
+            Slot slot = slots.get(movement.getProductoId());
+            if (slot == null) {
+                slot = load(movement.getProductoId());
+                if (slot == null) {
+                    return null;
+                }
+                Slot existing = slots.putIfAbsent(slot.productoId, slot);
+                if (existing != null) {
+                    slot = existing;
+                }
+            }
+
+            // Si el slot se está cerrando, esperar sin contar como reserva en curso
+            // (si no, close() nunca vería inFlight en 0) hasta que salga del mapa o se reabra
+            if (slot.stock.get() == CLOSED) {
+                slot.awaitOpen();
+                continue;
+            }
+
+            slot.inFlight.incrementAndGet();
+            try {
+                int actual = slot.stock.get();
+                // La barrera se revisa con la reserva ya contada: un slot que open()
+                // no llegó a ver lo descarta al cerrar la barrera
+                if (actual == CLOSED || fenced.containsKey(slot.productoId)) {
+                    continue;
+                }
+                int nuevo = movement.aplicar(actual);
+                if (nuevo < 0) {
+                    rejected.incrementAndGet();
+                    return result(slot, actual, null);
+                }
+                if (!slot.stock.compareAndSet(actual, nuevo)) {
+                    continue;
+                }
+                slot.pending.add(new Pending(movement, actual, nuevo));
+                slot.lastUsed = System.currentTimeMillis();
+                accepted.incrementAndGet();
+                return result(slot, actual, nuevo);
+            } finally {
+                slot.inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private Fence open(Collection<Integer> productoIds) throws SQLException {
+        List<Integer> ids = List.copyOf(new TreeSet<>(productoIds));
+        for (Integer id : ids) {
+            fenced.merge(id, new Barrier(1, new CompletableFuture<>()),
+                (current, added) -> new Barrier(current.count() + 1, current.lifted()));
+        }
+        try {
+            close(slotsOf(ids));
+        } catch (SQLException | RuntimeException e) {
+            unfence(ids);
+            throw e;
+        }
+        return () -> {
+            try {
+                // Un slot cargado mientras la barrera estaba puesta puede traer el stock
+                // previo a la escritura; no tiene reservas (no se aceptan) y se descarta
+                close(slotsOf(ids));
+            } finally {
+                unfence(ids);
+            }
+        };
+    }
+
+    private List<Slot> slotsOf(Collection<Integer> productoIds) {
+        List<Slot> targets = new ArrayList<>();
+        for (Integer id : productoIds) {
+            Slot slot = slots.get(id);
+            if (slot != null) {
+                targets.add(slot);
+            }
+        }
+        return targets;
+    }
+
+    private void unfence(List<Integer> ids) {
+        for (Integer id : ids) {
+            Barrier[] lifted = new Barrier[1];
+            fenced.computeIfPresent(id, (k, barrier) -> {
+                if (barrier.count() > 1) {
+                    return new Barrier(barrier.count() - 1, barrier.lifted());
+                }
+                lifted[0] = barrier;
+                return null;
+            });
+            if (lifted[0] != null) {
+                lifted[0].lifted().complete(null);
+            }
+        }
+    }
+
+    private void awaitUnfenced(int productoId) {
+        Barrier barrier;
+        while ((barrier = fenced.get(productoId)) != null) {
+            barrier.lifted().join();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        int pending = 0;
+        for (Slot slot : slots.values()) {
+            pending += slot.pending.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", ENABLED);
+        stats.put("window_ms", windowMs);
+        stats.put("products", slots.size());
+        stats.put("pending_movements", pending);
+        stats.put("accepted", accepted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("flushed", flushed.get());
+        stats.put("flush_failures", flushFailures.get());
+        stats.put("dead_lettered", deadLettered.get());
+        stats.put("dead_letters", new ArrayList<>(deadLetters));
+        stats.put("last_flush_ms", lastFlushMs);
+        return stats;
+    }
+
+    private void flushSafely() {
+        try {
+            flush(new ArrayList<>(slots.values()));
+
+            long idleBefore = System.currentTimeMillis() - idleMs;
+            List<Slot> idle = new ArrayList<>();
+            for (Slot slot : slots.values()) {
+                if (slot.lastUsed < idleBefore && slot.pending.isEmpty()) {
+                    idle.add(slot);
+                }
+            }
+            close(idle);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error en escritura diferida de stock: " + e.getMessage(), e);
+        }
+    }
+
+    private void close(List<Slot> targets) throws SQLException {
+        if (targets.isEmpty()) {
+            return;
+        }
+        int[] stocks = new int[targets.size()];
+        for (int i = 0; i < targets.size(); i++) {
+            Slot slot = targets.get(i);
+            stocks[i] = slot.shut();
+            while (slot.inFlight.get() > 0) {
+                Thread.onSpinWait();
+            }
+        }
+        try {
+            flush(targets);
+        } catch (SQLException | RuntimeException e) {
+            // Reabrir los slots que siguen en el mapa para que las reservas no queden esperando
+            for (int i = 0; i < targets.size(); i++) {
+                Slot slot = targets.get(i);
+                if (stocks[i] != CLOSED) {
+                    slot.open(slots.get(slot.productoId) == slot ? stocks[i] : CLOSED);
+                }
+            }
+            throw e;
+        }
+        for (int i = 0; i < targets.size(); i++) {
+            Slot slot = targets.get(i);
+            slots.remove(slot.productoId, slot);
+            if (stocks[i] != CLOSED) {
+                slot.open(CLOSED);
+            }
+        }
+    }
+
+    /**
+     * Vacía las colas de los slots, una transacción por producto. Los
+     * movimientos de un producto que falla por la conexión vuelven a su cola y
+     * el error se propaga al terminar con el resto; los que la BD rechaza pasan
+     * a los descartados.
+     */
+    private void flush(List<Slot> targets) throws SQLException {
+        flushLock.lock();
+        try {
+            // Orden ascendente por producto, igual que el endpoint batch, para no generar deadlocks
+            List<Slot> ordered = new ArrayList<>(targets);
+            ordered.sort(Comparator.comparingInt(slot -> slot.productoId));
+
+            long start = System.currentTimeMillis();
+            List<Integer> written = new ArrayList<>();
+            SQLException failure = null;
+            for (Slot slot : ordered) {
+                List<Pending> batch = drain(slot);
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                try {
+                    if (write(slot, batch)) {
+                        written.add(slot.productoId);
+                        flushed.addAndGet(batch.size());
+                    } else {
+                        deadLetter(slot, batch, "Producto inexistente o stock insuficiente en la BD");
+                    }
+                } catch (SQLException e) {
+                    if (rejected(e)) {
+                        deadLetter(slot, batch, e.getMessage());
+                    } else {
+                        flushFailures.incrementAndGet();
+                        slot.pending.addAll(batch);
+                        if (failure == null) {
+                            failure = e;
+                        }
+                    }
+                }
+            }
+            if (!written.isEmpty()) {
+                lastFlushMs = System.currentTimeMillis() - start;
+                StockAlertIndex.markChanged(written);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private static List<Pending> drain(Slot slot) {
+        List<Pending> batch = new ArrayList<>();
+        Pending next;
+        while ((next = slot.pending.poll()) != null) {
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    // Clases 22 (dato inválido) y 23 (restricción): reintentar no cambia el resultado
+    private static boolean rejected(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
+
+    /**
+     * Descarta los movimientos que la BD no acepta y el slot, que ya no refleja
+     * el stock real; la próxima reserva del producto lo recarga.
+     */
+    private void deadLetter(Slot slot, List<Pending> batch, String reason) {
+        int previous = slot.shut();
+        if (previous != CLOSED) {
+            while (slot.inFlight.get() > 0) {
+                Thread.onSpinWait();
+            }
+        }
+        List<Pending> all = new ArrayList<>(batch);
+        all.addAll(drain(slot));
+        slots.remove(slot.productoId, slot);
+        if (previous != CLOSED) {
+            slot.open(CLOSED);
+        }
+
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("producto_id", slot.productoId);
+        entry.put("movimientos", all.size());
+        entry.put("delta", all.stream().mapToInt(pending -> pending.movement.delta()).sum());
+        entry.put("motivo", reason);
+        entry.put("fecha", new Date());
+        deadLetters.addFirst(entry);
+        while (deadLetters.size() > DEAD_LETTER_KEEP) {
+            deadLetters.pollLast();
+        }
+        deadLettered.addAndGet(all.size());
+        LOGGER.warning("Movimientos descartados del producto " + slot.productoId + ": " + reason);
+    }
+
+    /**
+     * Escribe los movimientos de un producto. Retorna false (sin escribir nada)
+     * si el producto no existe o el stock quedaría negativo.
+     */
+    private boolean write(Slot slot, List<Pending> batch) throws SQLException {
+        try (Connection conn = ConnectionPool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement update = conn.prepareStatement(UPDATE_SQL);
+                 PreparedStatement insert = conn.prepareStatement(INSERT_SQL)) {
+                int delta = 0;
+                for (Pending pending : batch) {
+                    InventoryMovement movement = pending.movement;
+                    delta += movement.delta();
+
+                    insert.setInt(1, slot.productoId);
+                    insert.setInt(2, slot.bodegaId);
+                    insert.setString(3, movement.getTipo());
+                    insert.setInt(4, movement.getCantidad());
+                    insert.setInt(5, pending.stockAnterior);
+                    insert.setInt(6, pending.stockNuevo);
+                    insert.setString(7, movement.getMotivo());
+                    insert.setString(8, movement.getReferencia());
+                    insert.setString(9, movement.getUsuario());
+                    insert.addBatch();
+                }
+                update.setInt(1, delta);
+                update.setInt(2, slot.productoId);
+                update.setInt(3, delta);
+                if (update.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
+                insert.executeBatch();
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private Slot load(int productoId) throws SQLException {
+        try (Connection conn = ConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(LOAD_SQL)) {
+            stmt.setInt(1, productoId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? new Slot(productoId, rs.getInt("stock"), rs.getInt("bodega_id")) : null;
+            }
+        }
+    }
+
+    private static Map<String, Object> result(Slot slot, int stockAnterior, Integer stockNuevo) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("stock_actual", stockAnterior);
+        result.put("stock_anterior", stockNuevo != null ? stockAnterior : null);
+        result.put("stock_nuevo", stockNuevo);
+        result.put("bodega_id", slot.bodegaId);
+        result.put("bodega_anterior", null);
+        result.put("movimiento_id", null);
+        return result;
+    }
+}
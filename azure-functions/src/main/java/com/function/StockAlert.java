@@ -0,0 +1,95 @@
+package com.function;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Producto en alerta de stock: sin stock, bajo el mínimo o sobre el máximo.
+ *
+ * {@link #fromRow} lee por posición según {@link #COLUMNS} (alias p, c, b de
+ * {@link #FROM}); se serializa con {@link Json.StockAlertSerializer}.
+ */
+public record StockAlert(
+    int id,
+    String sku,
+    String nombre,
+    int stock,
+    int stockMinimo,
+    int stockMaximo,
+    String categoria,
+    String bodega
+) {
+
+    public static final String SIN_STOCK = "SIN_STOCK";
+    public static final String STOCK_BAJO = "STOCK_BAJO";
+    public static final String STOCK_EXCESIVO = "STOCK_EXCESIVO";
+
+    /** Severidades en orden de prioridad; el índice es el rango usado al ordenar. */
+    public static final String[] SEVERIDADES = {"CRITICA", "ALTA", "MEDIA"};
+
+    /** Columnas en el orden que espera {@link #fromRow}. */
+    public static final String COLUMNS =
+        "p.id, p.sku, p.nombre, p.stock, p.stock_minimo, p.stock_maximo, c.nombre as categoria_nombre, b.nombre as bodega_nombre";
+
+    public static final String FROM =
+        "FROM productos p " +
+        "LEFT JOIN categorias c ON p.categoria_id = c.id " +
+        "LEFT JOIN bodegas b ON p.bodega_id = b.id";
+
+    /**
+     * Condición de alerta. Debe coincidir con el predicado del índice parcial
+     * (ver {@link StockAlertIndex}) para que PostgreSQL lo use.
+     */
+    public static final String CONDITION = "(p.stock <= p.stock_minimo OR p.stock >= p.stock_maximo)";
+
+    public static StockAlert fromRow(ResultSet rs) throws SQLException {
+        return new StockAlert(
+            rs.getInt(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getInt(4),
+            rs.getInt(5),
+            rs.getInt(6),
+            rs.getString(7),
+            rs.getString(8)
+        );
+    }
+
+    public String tipoAlerta() {
+        if (stock <= 0) {
+            return SIN_STOCK;
+        } else if (stock <= stockMinimo) {
+            return STOCK_BAJO;
+        } else {
+            return STOCK_EXCESIVO;
+        }
+    }
+
+    /**
+     * 0 = CRITICA (sin stock), 1 = ALTA (bajo el mínimo), 2 = MEDIA (sobre el máximo).
+     */
+    public int rango() {
+        if (stock <= 0) {
+            return 0;
+        } else if (stock <= stockMinimo) {
+            return 1;
+        } else {
+            return 2;
+        }
+    }
+
+    public String severidad() {
+        return SEVERIDADES[rango()];
+    }
+
+    /**
+     * Desvío relativo respecto del umbral cruzado: lo que falta para el mínimo
+     * o lo que sobra sobre el máximo, como fracción del umbral. Mayor es peor.
+     */
+    public double ratio() {
+        if (rango() == 2) {
+            return (double) (stock - stockMaximo) / Math.max(stockMaximo, 1);
+        }
+        return (double) (stockMinimo - stock) / Math.max(stockMinimo, 1);
+    }
+}
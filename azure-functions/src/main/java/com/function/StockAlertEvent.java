@@ -0,0 +1,50 @@
+package com.function;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Cambio de estado de alerta de un producto, leído de la tabla
+ * alertas_stock_eventos (ver {@link StockAlertOutbox}).
+ *
+ * Los estados son {@link #OK} o los tipos de {@link StockAlert#tipoAlerta()}.
+ * {@link #fromRow} lee por posición según {@link #COLUMNS}; se serializa con
+ * {@link Json.StockAlertEventSerializer}.
+ */
+public record StockAlertEvent(
+    long seq,
+    long txid,
+    int productoId,
+    String sku,
+    String nombre,
+    String estadoAnterior,
+    String estadoNuevo,
+    int stock,
+    int stockMinimo,
+    int stockMaximo,
+    Timestamp creadoEn
+) {
+
+    public static final String OK = "OK";
+
+    /** Columnas en el orden que espera {@link #fromRow}. */
+    public static final String COLUMNS =
+        "seq, txid, producto_id, sku, nombre, estado_anterior, estado_nuevo, stock, stock_minimo, stock_maximo, creado_en";
+
+    public static StockAlertEvent fromRow(ResultSet rs) throws SQLException {
+        return new StockAlertEvent(
+            rs.getLong(1),
+            rs.getLong(2),
+            rs.getInt(3),
+            rs.getString(4),
+            rs.getString(5),
+            rs.getString(6),
+            rs.getString(7),
+            rs.getInt(8),
+            rs.getInt(9),
+            rs.getInt(10),
+            rs.getTimestamp(11)
+        );
+    }
+}
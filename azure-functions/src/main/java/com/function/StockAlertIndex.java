@@ -0,0 +1,348 @@
+package com.function;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Índice en memoria de las alertas de stock, ordenado por severidad y desvío.
+ *
+ * Las alertas viven en un {@link ConcurrentSkipListMap} con clave
+ * (rango de severidad, ratio de desvío descendente, id), así que una página es
+ * un recorrido desde el cursor sin tocar la BD. Se mantiene así:
+ * - Carga inicial y recargas completas leen solo las filas en alerta, servidas
+ *   por un índice parcial con el mismo predicado que {@link StockAlert#CONDITION}
+ *   (migración db/postgres/004-productos-alerta-stock.sql; sin él la carga
+ *   recorre la tabla, pero funciona igual).
+ * - Las rutas que cambian stock o umbrales en esta instancia llaman a
+ *   {@link #markChanged}; un hilo de fondo relee esos productos por id cada
+ *   INVENTORY_ALERTS_REFRESH_MS y los agrega, mueve o quita del índice.
+ * - Los cambios hechos por otras instancias se recogen en la recarga completa
+ *   cada INVENTORY_ALERTS_FULL_REFRESH_MS.
+ *
+ * Todas las escrituras del índice ocurren en el hilo de fondo (o en la carga
+ * inicial, antes de publicarlo), así que no compiten entre sí; las lecturas
+ * son concurrentes y ven el índice a lo más con el retraso de esos intervalos.
+ *
+ * Configuración (ver {@link Settings}):
+ * INVENTORY_ALERTS_INDEX_ENABLED - Sirve las alertas desde memoria (default true)
+ * INVENTORY_ALERTS_REFRESH_MS - Intervalo para releer productos modificados (default 500)
+ * INVENTORY_ALERTS_FULL_REFRESH_MS - Intervalo de recarga completa (default 30000)
+ */
+public final class StockAlertIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(StockAlertIndex.class.getName());
+
+    public static final boolean ENABLED = Settings.getBoolean("INVENTORY_ALERTS_INDEX_ENABLED", true);
+
+    private static final String LOAD_SQL =
+        "SELECT " + StockAlert.COLUMNS + " " + StockAlert.FROM + " WHERE " + StockAlert.CONDITION;
+    private static final String RELOAD_SQL = LOAD_SQL + " AND p.id = ANY(?)";
+
+    private static final String CURSOR_SEPARATOR = ":";
+
+    private static volatile StockAlertIndex instance;
+
+    private final long refreshMs;
+    private final long fullRefreshMs;
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicLong fullLoads = new AtomicLong();
+    private final AtomicLong partialLoads = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private volatile long lastFullLoad;
+    private volatile long lastLoadMs;
+
+    private StockAlertIndex(long refreshMs, long fullRefreshMs) {
+        this.refreshMs = refreshMs;
+        this.fullRefreshMs = fullRefreshMs;
+    }
+
+    /**
+     * Índice de la instancia; la primera llamada hace la carga inicial.
+     */
+    public static StockAlertIndex getInstance() throws SQLException {
+        StockAlertIndex current = instance;
+        if (current == null) {
+            synchronized (StockAlertIndex.class) {
+                current = instance;
+                if (current == null) {
+                    current = start();
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Marca productos cuyo stock o umbrales cambiaron. Si el índice aún no se
+     * usó en esta instancia no hace nada: la carga inicial leerá el estado actual.
+     */
+    public static void markChanged(Collection<Integer> productoIds) {
+        StockAlertIndex current = instance;
+        if (current != null) {
+            current.dirty.addAll(productoIds);
+        }
+    }
+
+    public static void markChanged(int productoId) {
+        StockAlertIndex current = instance;
+        if (current != null) {
+            current.dirty.add(productoId);
+        }
+    }
+
+    /**
+     * Calcula la página directamente desde la BD, sin índice en memoria.
+     */
+    public static Page query(Connection conn, Integer rango, String after, int limit) throws SQLException {
+        return load(conn).page(rango, after, limit);
+    }
+
+    public Page page(Integer rango, String after, int limit) {
+        return snapshot.page(rango, after, limit);
+    }
+
+    public Map<String, Object> getStats() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", ENABLED);
+        stats.put("alerts", current.ordered.size());
+        stats.put("por_severidad", current.countsBySeverity());
+        stats.put("pending_products", dirty.size());
+        stats.put("refresh_ms", refreshMs);
+        stats.put("full_refresh_ms", fullRefreshMs);
+        stats.put("full_loads", fullLoads.get());
+        stats.put("partial_loads", partialLoads.get());
+        stats.put("last_load_ms", lastLoadMs);
+        return stats;
+    }
+
+    private static StockAlertIndex start() throws SQLException {
+        StockAlertIndex index = new StockAlertIndex(
+            Settings.getLong("INVENTORY_ALERTS_REFRESH_MS", 500),
+            Settings.getLong("INVENTORY_ALERTS_FULL_REFRESH_MS", 30000));
+
+        try (Connection conn = ConnectionPool.getConnection()) {
+            index.fullLoad(conn);
+        }
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-alert-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(index::refreshSafely, index.refreshMs, index.refreshMs, TimeUnit.MILLISECONDS);
+        return index;
+    }
+
+    private void refreshSafely() {
+        List<Integer> ids = new ArrayList<>();
+        try {
+            // Las marcas tomadas antes de la consulta quedan cubiertas por ella
+            for (Iterator<Integer> it = dirty.iterator(); it.hasNext(); ) {
+                ids.add(it.next());
+                it.remove();
+            }
+            boolean full = System.currentTimeMillis() - lastFullLoad >= fullRefreshMs;
+            if (!full && ids.isEmpty()) {
+                return;
+            }
+            try (Connection conn = ConnectionPool.getConnection()) {
+                if (full) {
+                    fullLoad(conn);
+                } else {
+                    reload(conn, ids);
+                }
+            }
+        } catch (Exception e) {
+            dirty.addAll(ids);
+            LOGGER.log(Level.WARNING, "Error actualizando índice de alertas: " + e.getMessage(), e);
+        }
+    }
+
+    private void fullLoad(Connection conn) throws SQLException {
+        long start = System.currentTimeMillis();
+        snapshot = load(conn);
+        lastFullLoad = System.currentTimeMillis();
+        lastLoadMs = lastFullLoad - start;
+        fullLoads.incrementAndGet();
+    }
+
+    private void reload(Connection conn, List<Integer> ids) throws SQLException {
+        long start = System.currentTimeMillis();
+        Set<Integer> missing = new HashSet<>(ids);
+        Snapshot current = snapshot;
+        try (PreparedStatement stmt = conn.prepareStatement(RELOAD_SQL)) {
+            stmt.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    StockAlert alert = StockAlert.fromRow(rs);
+                    current.put(alert);
+                    missing.remove(alert.id());
+                }
+            }
+        }
+        // Los que no volvieron ya no están en alerta (o no existen)
+        for (Integer id : missing) {
+            current.remove(id);
+        }
+        lastLoadMs = System.currentTimeMillis() - start;
+        partialLoads.incrementAndGet();
+    }
+
+    private static Snapshot load(Connection conn) throws SQLException {
+        Snapshot loaded = new Snapshot();
+        try (PreparedStatement stmt = conn.prepareStatement(LOAD_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                loaded.put(StockAlert.fromRow(rs));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Página de alertas. {@code total} es la cantidad de alertas del filtro, no de la página.
+     */
+    public record Page(List<StockAlert> alertas, int total, Map<String, Integer> porSeveridad,
+                       boolean hasMore, String nextCursor) {
+    }
+
+    /**
+     * Orden de las alertas: más severas primero y, dentro de cada severidad,
+     * mayor desvío primero; el id desempata.
+     */
+    record Key(int rango, double ratio, int id) implements Comparable<Key> {
+
+        static Key of(StockAlert alert) {
+            return new Key(alert.rango(), alert.ratio(), alert.id());
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int cmp = Integer.compare(rango, other.rango);
+            if (cmp == 0) {
+                cmp = Double.compare(other.ratio, ratio);
+            }
+            if (cmp == 0) {
+                cmp = Integer.compare(id, other.id);
+            }
+            return cmp;
+        }
+
+        String encode() {
+            String raw = rango + CURSOR_SEPARATOR + ratio + CURSOR_SEPARATOR + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @throws IllegalArgumentException si el cursor no es válido
+         */
+        static Key decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(CURSOR_SEPARATOR);
+                if (parts.length == 3) {
+                    return new Key(Integer.parseInt(parts[0]), Double.parseDouble(parts[1]), Integer.parseInt(parts[2]));
+                }
+            } catch (IllegalArgumentException e) {
+                // cae al error de abajo
+            }
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+    }
+
+    private static final class Snapshot {
+        final ConcurrentSkipListMap<Key, StockAlert> ordered = new ConcurrentSkipListMap<>();
+        final ConcurrentHashMap<Integer, Key> keys = new ConcurrentHashMap<>();
+        final AtomicIntegerArray counts = new AtomicIntegerArray(StockAlert.SEVERIDADES.length);
+
+        /**
+         * Agrega la alerta o la mueve a su nueva posición. Primero entra la
+         * clave nueva, después keys apunta a ella y recién entonces se quita la
+         * vieja; una lectura que alcanza a ver las dos se queda con la que
+         * indica keys (ver {@link #current}).
+         */
+        void put(StockAlert alert) {
+            Key key = Key.of(alert);
+            Key previous = keys.get(alert.id());
+            ordered.put(key, alert);
+            if (key.equals(previous)) {
+                return;
+            }
+            keys.put(alert.id(), key);
+            counts.incrementAndGet(key.rango());
+            if (previous != null) {
+                ordered.remove(previous);
+                counts.decrementAndGet(previous.rango());
+            }
+        }
+
+        void remove(int id) {
+            Key previous = keys.remove(id);
+            if (previous != null) {
+                ordered.remove(previous);
+                counts.decrementAndGet(previous.rango());
+            }
+        }
+
+        // Descarta la clave vieja de una alerta que put está moviendo
+        boolean current(Map.Entry<Key, StockAlert> entry) {
+            return entry.getKey().equals(keys.get(entry.getKey().id()));
+        }
+
+        Map<String, Integer> countsBySeverity() {
+            Map<String, Integer> bySeverity = new LinkedHashMap<>();
+            for (int i = 0; i < StockAlert.SEVERIDADES.length; i++) {
+                bySeverity.put(StockAlert.SEVERIDADES[i], counts.get(i));
+            }
+            return bySeverity;
+        }
+
+        /**
+         * @param rango severidad a filtrar, o null para todas
+         * @param after cursor de la página anterior, o null para empezar
+         */
+        Page page(Integer rango, String after, int limit) {
+            NavigableMap<Key, StockAlert> view = ordered;
+            if (rango != null) {
+                view = view.subMap(new Key(rango, Double.POSITIVE_INFINITY, Integer.MIN_VALUE), true,
+                                   new Key(rango + 1, Double.POSITIVE_INFINITY, Integer.MIN_VALUE), false);
+            }
+            if (after != null) {
+                view = view.tailMap(Key.decode(after), false);
+            }
+
+            List<StockAlert> alertas = new ArrayList<>(Math.min(limit, 64));
+            Key last = null;
+            boolean hasMore = false;
+            for (Map.Entry<Key, StockAlert> entry : view.entrySet()) {
+                if (!current(entry)) {
+                    continue;
+                }
+                if (alertas.size() == limit) {
+                    hasMore = true;
+                    break;
+                }
+                alertas.add(entry.getValue());
+                last = entry.getKey();
+            }
+
+            Map<String, Integer> bySeverity = countsBySeverity();
+            int total = rango != null
+                ? bySeverity.get(StockAlert.SEVERIDADES[rango])
+                : bySeverity.values().stream().mapToInt(Integer::intValue).sum();
+            return new Page(alertas, total, bySeverity, hasMore, hasMore ? last.encode() : null);
+        }
+    }
+}
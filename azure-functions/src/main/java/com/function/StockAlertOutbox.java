@@ -0,0 +1,174 @@
+package com.function;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Outbox de transiciones de alerta de stock (OK, STOCK_BAJO, SIN_STOCK,
+ * STOCK_EXCESIVO) para quien quiera seguirlas sin recorrer el catálogo, como
+ * el stream SSE del BFF.
+ *
+ * Un trigger sobre productos compara el estado de alerta antes y después de
+ * cada cambio y, solo si cambió, agrega una fila a alertas_stock_eventos en la
+ * misma transacción que movió el stock. Cubre todos los caminos de escritura y
+ * todas las instancias, y un movimiento que no cambia el estado no escribe nada.
+ *
+ * Los lectores avanzan con un cursor (txid, seq) y solo ven filas de
+ * transacciones anteriores al xmin del snapshot actual, es decir, ya
+ * terminadas: una transacción que sigue abierta no puede quedar detrás del
+ * cursor y perderse. Dentro de cada página las filas se entregan por seq, que
+ * para un mismo producto sigue el orden real (el UPDATE bloquea la fila).
+ *
+ * La tabla, las funciones y el trigger los crea la migración
+ * db/postgres/003-alertas-stock-eventos.sql; las functions no ejecutan DDL.
+ * Un hilo de fondo, que arranca con {@link Startup} o con la primera lectura,
+ * borra cada minuto los eventos vencidos aunque nadie lea. Requiere PostgreSQL.
+ *
+ * Configuración (ver {@link Settings}):
+ * INVENTORY_ALERT_EVENTS_RETENTION_HOURS - Horas que se guardan los eventos (default 24)
+ */
+public final class StockAlertOutbox {
+
+    private static final Logger LOGGER = Logger.getLogger(StockAlertOutbox.class.getName());
+
+    private static final int RETENTION_HOURS = Settings.getInt("INVENTORY_ALERT_EVENTS_RETENTION_HOURS", 24);
+    private static final long PRUNE_INTERVAL_MS = 60_000;
+
+    private static final String READ_SQL =
+        "SELECT " + StockAlertEvent.COLUMNS + " FROM alertas_stock_eventos " +
+        "WHERE (txid, seq) > (?, ?) AND txid < txid_snapshot_xmin(txid_current_snapshot()) " +
+        "ORDER BY txid, seq LIMIT ?";
+
+    private static final String HORIZON_SQL = "SELECT txid_snapshot_xmin(txid_current_snapshot())";
+
+    private static final String EXISTS_SQL = "SELECT to_regclass('alertas_stock_eventos') IS NOT NULL";
+
+    private static final String PRUNE_SQL =
+        "DELETE FROM alertas_stock_eventos WHERE creado_en < CURRENT_TIMESTAMP - make_interval(hours => ?)";
+
+    private static final String CURSOR_SEPARATOR = ":";
+
+    private static volatile boolean pruning;
+
+    private StockAlertOutbox() {
+    }
+
+    /**
+     * Página de eventos. Sin cursor no trae eventos: solo el cursor de la
+     * posición actual, para empezar a seguir los cambios desde ahora.
+     */
+    public record Page(List<StockAlertEvent> eventos, boolean hasMore, String nextCursor) {
+    }
+
+    /**
+     * @param after cursor de la página anterior, o null para obtener la posición actual
+     * @throws IllegalArgumentException si el cursor no es válido
+     */
+    public static Page read(Connection conn, String after, int limit) throws SQLException {
+        long[] cursor = after != null ? decodeCursor(after) : null;
+        startPruning();
+
+        if (cursor == null) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(HORIZON_SQL)) {
+                rs.next();
+                // Todo lo que aún no es visible tiene txid >= xmin
+                return new Page(List.of(), false, encodeCursor(rs.getLong(1) - 1, Long.MAX_VALUE));
+            }
+        }
+
+        List<StockAlertEvent> eventos = new ArrayList<>(Math.min(limit + 1, 256));
+        try (PreparedStatement stmt = conn.prepareStatement(READ_SQL)) {
+            stmt.setLong(1, cursor[0]);
+            stmt.setLong(2, cursor[1]);
+            stmt.setInt(3, limit + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    eventos.add(StockAlertEvent.fromRow(rs));
+                }
+            }
+        }
+
+        boolean hasMore = eventos.size() > limit;
+        if (hasMore) {
+            eventos.remove(limit);
+        }
+        String nextCursor = after;
+        if (!eventos.isEmpty()) {
+            StockAlertEvent last = eventos.get(eventos.size() - 1);
+            nextCursor = encodeCursor(last.txid(), last.seq());
+            eventos.sort(Comparator.comparingLong(StockAlertEvent::seq));
+        }
+        return new Page(eventos, hasMore, nextCursor);
+    }
+
+    /**
+     * Arranca el borrado de eventos vencidos de esta instancia si aún no corre.
+     */
+    public static void startPruning() {
+        if (pruning) {
+            return;
+        }
+        synchronized (StockAlertOutbox.class) {
+            if (pruning) {
+                return;
+            }
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "stock-alert-outbox");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(StockAlertOutbox::pruneSafely, 0, PRUNE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            pruning = true;
+        }
+    }
+
+    // Cada instancia borra por su cuenta; borrar de más no rompe a nadie
+    private static void pruneSafely() {
+        try (Connection conn = ConnectionPool.getConnection()) {
+            if (!"PostgreSQL".equals(conn.getMetaData().getDatabaseProductName())) {
+                return;
+            }
+            // Sin la migración aplicada no hay nada que borrar
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(EXISTS_SQL)) {
+                if (!rs.next() || !rs.getBoolean(1)) {
+                    return;
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(PRUNE_SQL)) {
+                stmt.setInt(1, RETENTION_HOURS);
+                int deleted = stmt.executeUpdate();
+                if (deleted > 0) {
+                    LOGGER.fine("Eventos de alerta vencidos borrados: " + deleted);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error borrando eventos de alerta vencidos: " + e.getMessage());
+        }
+    }
+
+    private static String encodeCursor(long txid, long seq) {
+        String raw = txid + CURSOR_SEPARATOR + seq;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long[] decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                .split(CURSOR_SEPARATOR);
+            if (parts.length == 2) {
+                return new long[] {Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+            }
+        } catch (IllegalArgumentException e) {
+            // cae al error de abajo
+        }
+        throw new IllegalArgumentException("Cursor inválido: " + cursor);
+    }
+}
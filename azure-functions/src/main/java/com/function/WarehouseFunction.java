@@ -15,13 +15,16 @@ import graphql.schema.idl.TypeDefinitionRegistry;
 import graphql.ExecutionResult;
 import graphql.ExecutionInput;
 import graphql.schema.DataFetcher;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import org.dataloader.DataLoader;
+import java.util.concurrent.CompletableFuture;
 import static graphql.schema.idl.RuntimeWiring.newRuntimeWiring;
 
 /**
  * Azure Functions para CRUD de Bodegas con soporte REST y GraphQL
  *
  * Endpoints REST:
- * GET /api/WarehouseFunction - Listar todas las bodegas
+ * GET /api/WarehouseFunction?after_id={id}&limit={n} - Listar bodegas paginadas por id
  * GET /api/WarehouseFunction?id={id} - Obtener bodega por ID
  * POST /api/WarehouseFunction - Crear nueva bodega
  * PUT /api/WarehouseFunction?id={id} - Actualizar bodega
@@ -32,19 +35,21 @@ import static graphql.schema.idl.RuntimeWiring.newRuntimeWiring;
  */
 public class WarehouseFunction {
 
-    // Configuración de base de datos
-    private static final String DB_URL = System.getenv("POSTGRES_URL") != null ?
-        System.getenv("POSTGRES_URL") : "jdbc:postgresql://104.208.158.85:5432/duoc?sslmode=require";
-    private static final String DB_USER = System.getenv("POSTGRES_USER") != null ?
-        System.getenv("POSTGRES_USER") : "duoc";
-    private static final String DB_PASSWORD = System.getenv("POSTGRES_PASSWORD") != null ?
-        System.getenv("POSTGRES_PASSWORD") : "duoc1234";
+    // Documentos parseados/validados compartidos entre invocaciones (LRU + APQ)
+    private static final GraphQLDocumentCache DOCUMENT_CACHE =
+        new GraphQLDocumentCache(Settings.getInt("GRAPHQL_DOCUMENT_CACHE_SIZE", 500));
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final GraphQL graphQL;
+    private final ObjectMapper objectMapper = Json.MAPPER;
 
-    public WarehouseFunction() {
-        this.graphQL = createGraphQL();
+    // Holder idiom: el schema es inmutable y se construye una sola vez por JVM, en
+    // la primera query GraphQL o al arrancar (ver Startup). Los data fetchers no
+    // guardan estado, así que pueden quedar ligados a esta instancia.
+    private static final class Schema {
+        private static final GraphQL GRAPHQL = new WarehouseFunction().createGraphQL();
+    }
+
+    static GraphQL graphQL() {
+        return Schema.GRAPHQL;
     }
 
     @FunctionName("WarehouseFunction")
@@ -57,7 +62,18 @@ public class WarehouseFunction {
             @BindingName("action") String action,
             final ExecutionContext context) {
 
-        context.getLogger().info("WarehouseFunction procesando request: " + request.getHttpMethod() + " - Action: " + action);
+        StageTimer.begin("WarehouseFunction");
+        Log.begin("WarehouseFunction", request, context);
+        try {
+            return dispatch(request, action, context);
+        } finally {
+            StageTimer.end();
+            Log.end();
+        }
+    }
+
+    private HttpResponseMessage dispatch(HttpRequestMessage<Optional<String>> request, String action, ExecutionContext context) {
+        Log.info(Log.REQUEST, () -> "WarehouseFunction procesando request: " + request.getHttpMethod() + " - Action: " + action);
 
         // Si la acción es "graphql", procesar como GraphQL
         if ("graphql".equalsIgnoreCase(action)) {
@@ -79,7 +95,7 @@ public class WarehouseFunction {
                     return createErrorResponse(request, "Método no soportado", 405);
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en WarehouseFunction: " + e.getMessage());
+            Log.error(() -> "Error en WarehouseFunction: " + e.getMessage(), e);
             return createErrorResponse(request, "Error interno: " + e.getMessage(), 500);
         }
     }
@@ -88,6 +104,7 @@ public class WarehouseFunction {
 
     private HttpResponseMessage handleGet(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
         String idParam = request.getQueryParameters().get("id");
+        String idsParam = request.getQueryParameters().get("ids");
         String testParam = request.getQueryParameters().get("test");
 
         // Endpoint de prueba sin BD
@@ -102,62 +119,103 @@ public class WarehouseFunction {
         }
 
         try (Connection conn = getConnection()) {
-            if (idParam != null) {
+            if (idsParam != null) {
+                return getWarehousesByIds(conn, idsParam, request, context);
+            } else if (idParam != null) {
                 return getWarehouseById(conn, idParam, request, context);
             } else {
                 return getAllWarehouses(conn, request, context);
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en GET: " + e.getMessage());
+            Log.error(() -> "Error en GET: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al obtener bodegas: " + e.getMessage(), 500);
         }
     }
 
     private HttpResponseMessage getAllWarehouses(Connection conn, HttpRequestMessage<Optional<String>> request, ExecutionContext context) throws SQLException {
-        String sql = "SELECT id, nombre, direccion, telefono, email, responsable, estado, capacidad_max, creado_en, modificado_en FROM bodegas ORDER BY id";
+        KeysetPage page;
+        try {
+            page = KeysetPage.fromQuery(request.getQueryParameters());
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(request, e.getMessage(), 400);
+        }
 
-        List<Map<String, Object>> warehouses = new ArrayList<>();
+        List<Bodega> warehouses;
+        if (ReferenceData.ENABLED) {
+            warehouses = ReferenceData.getInstance().bodegas(conn).page(page);
+        } else {
+            warehouses = new ArrayList<>();
+            String sql = "SELECT " + Bodega.COLUMNS + " FROM bodegas WHERE " + page.clause("id");
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                page.bind(stmt, 1);
 
-            while (rs.next()) {
-                warehouses.add(mapResultSetToWarehouse(rs));
+                try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                    long mapStarted = System.nanoTime();
+                    while (rs.next()) {
+                        warehouses.add(Bodega.fromRow(rs));
+                    }
+                    StageTimer.record(StageTimer.Stage.MAP, mapStarted);
+                }
             }
         }
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
+        page.describe(response, warehouses, Bodega::id);
+
+        String etag = ETags.forRows(warehouses, (Boolean) response.get("has_more"), Bodega::id, Bodega::version);
+        if (ETags.matches(request, etag)) {
+            return ETags.notModified(request, etag);
+        }
         response.put("data", warehouses);
         response.put("total", warehouses.size());
         response.put("message", "Bodegas obtenidas exitosamente");
         response.put("timestamp", new Date());
 
-        return createSuccessResponse(request, response);
+        return createSuccessResponse(request, response, etag);
+    }
+
+    private HttpResponseMessage getWarehousesByIds(Connection conn, String idsParam, HttpRequestMessage<Optional<String>> request, ExecutionContext context) throws SQLException {
+        List<Integer> ids;
+        try {
+            ids = IdList.parse(idsParam);
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(request, e.getMessage(), 400);
+        }
+
+        List<Bodega> warehouses = IdList.load(conn, "bodegas", Bodega.COLUMNS, ids, Bodega::fromRow, Bodega::id);
+
+        String etag = ETags.forRows(warehouses, false, Bodega::id, Bodega::version);
+        if (ETags.matches(request, etag)) {
+            return ETags.notModified(request, etag);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", warehouses);
+        response.put("total", warehouses.size());
+        response.put("no_encontrados", IdList.missing(ids, warehouses, Bodega::id));
+        response.put("etags", IdList.etags(warehouses, Bodega::id, Bodega::version));
+        response.put("message", "Bodegas obtenidas por ids exitosamente");
+        response.put("timestamp", new Date());
+
+        return createSuccessResponse(request, response, etag);
     }
 
     private HttpResponseMessage getWarehouseById(Connection conn, String idParam, HttpRequestMessage<Optional<String>> request, ExecutionContext context) throws SQLException {
         try {
             int id = Integer.parseInt(idParam);
-            String sql = "SELECT id, nombre, direccion, telefono, email, responsable, estado, capacidad_max, creado_en, modificado_en FROM bodegas WHERE id = ?";
+            if (ReferenceData.ENABLED) {
+                return warehouseResponse(request, ReferenceData.getInstance().bodegas(conn).get(id));
+            }
+            String sql = "SELECT " + Bodega.COLUMNS + " FROM bodegas WHERE id = ?";
 
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setInt(1, id);
 
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        Map<String, Object> warehouse = mapResultSetToWarehouse(rs);
-
-                        Map<String, Object> response = new HashMap<>();
-                        response.put("success", true);
-                        response.put("data", warehouse);
-                        response.put("message", "Bodega encontrada exitosamente");
-                        response.put("timestamp", new Date());
-
-                        return createSuccessResponse(request, response);
-                    } else {
-                        return createErrorResponse(request, "Bodega no encontrada", 404);
-                    }
+                try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                    return warehouseResponse(request, rs.next() ? Bodega.fromRow(rs) : null);
                 }
             }
         } catch (NumberFormatException e) {
@@ -165,10 +223,29 @@ public class WarehouseFunction {
         }
     }
 
+    private HttpResponseMessage warehouseResponse(HttpRequestMessage<Optional<String>> request, Bodega warehouse) {
+        if (warehouse == null) {
+            return createErrorResponse(request, "Bodega no encontrada", 404);
+        }
+
+        String etag = ETags.forRow(warehouse.id(), warehouse.version());
+        if (ETags.matches(request, etag)) {
+            return ETags.notModified(request, etag);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", warehouse);
+        response.put("message", "Bodega encontrada exitosamente");
+        response.put("timestamp", new Date());
+
+        return createSuccessResponse(request, response, etag);
+    }
+
     @SuppressWarnings("unchecked")
     private HttpResponseMessage handlePost(HttpRequestMessage<Optional<String>> request, ExecutionContext context) {
         String body = request.getBody().orElse("{}");
-        context.getLogger().info("Creando bodega con datos: " + body);
+        Log.info(Log.WRITE, () -> "Creando bodega con datos: " + body);
 
         try {
             Map<String, Object> warehouseData = objectMapper.readValue(body, Map.class);
@@ -185,9 +262,10 @@ public class WarehouseFunction {
                     stmt.setString(6, (String) warehouseData.getOrDefault("estado", "ACTIVO"));
                     stmt.setInt(7, ((Number) warehouseData.getOrDefault("capacidad_max", 1000)).intValue());
 
-                    try (ResultSet rs = stmt.executeQuery()) {
+                    try (ResultSet rs = StageTimer.executeQuery(stmt)) {
                         if (rs.next()) {
                             int newId = rs.getInt("id");
+                            ReferenceData.markChanged(ReferenceData.BODEGAS);
 
                             Map<String, Object> response = new HashMap<>();
                             response.put("success", true);
@@ -201,7 +279,7 @@ public class WarehouseFunction {
                 }
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en POST: " + e.getMessage());
+            Log.error(() -> "Error en POST: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al crear bodega: " + e.getMessage(), 500);
         }
 
@@ -230,9 +308,11 @@ public class WarehouseFunction {
                     stmt.setString(3, (String) warehouseData.getOrDefault("estado", "ACTIVO"));
                     stmt.setInt(4, id);
 
-                    int affectedRows = stmt.executeUpdate();
+                    int affectedRows = StageTimer.executeUpdate(stmt);
 
                     if (affectedRows > 0) {
+                        ReferenceData.markChanged(ReferenceData.BODEGAS);
+
                         Map<String, Object> response = new HashMap<>();
                         response.put("success", true);
                         response.put("data", Map.of("id", id, "message", "Bodega actualizada exitosamente"));
@@ -246,7 +326,7 @@ public class WarehouseFunction {
                 }
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en PUT: " + e.getMessage());
+            Log.error(() -> "Error en PUT: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al actualizar bodega: " + e.getMessage(), 500);
         }
     }
@@ -264,9 +344,11 @@ public class WarehouseFunction {
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setInt(1, id);
 
-                int affectedRows = stmt.executeUpdate();
+                int affectedRows = StageTimer.executeUpdate(stmt);
 
                 if (affectedRows > 0) {
+                    ReferenceData.markChanged(ReferenceData.BODEGAS);
+
                     Map<String, Object> response = new HashMap<>();
                     response.put("success", true);
                     response.put("data", Map.of("id", id, "message", "Bodega eliminada exitosamente"));
@@ -279,7 +361,7 @@ public class WarehouseFunction {
                 }
             }
         } catch (Exception e) {
-            context.getLogger().severe("Error en DELETE: " + e.getMessage());
+            Log.error(() -> "Error en DELETE: " + e.getMessage(), e);
             return createErrorResponse(request, "Error al eliminar bodega: " + e.getMessage(), 500);
         }
     }
@@ -298,24 +380,33 @@ public class WarehouseFunction {
         }
 
         String body = request.getBody().orElse("{}");
-        context.getLogger().info("GraphQL Query recibido: " + body);
+        Log.info(Log.GRAPHQL, () -> "GraphQL query recibida: " + body);
 
         try {
             Map<String, Object> requestMap = objectMapper.readValue(body, Map.class);
             String query = (String) requestMap.get("query");
             Map<String, Object> variables = (Map<String, Object>) requestMap.get("variables");
+            Map<String, Object> extensions = (Map<String, Object>) requestMap.get("extensions");
 
             if (query == null || query.isEmpty()) {
-                return createErrorResponse(request, "Query GraphQL requerido", 400);
+                // Persisted query: el cliente envía solo el hash en extensions.persistedQuery
+                if (extensions == null || !extensions.containsKey("persistedQuery")) {
+                    return createErrorResponse(request, "Query GraphQL requerido", 400);
+                }
+                query = PersistedQuerySupport.PERSISTED_QUERY_MARKER;
             }
 
             // CONSTRUIR LA EJECUCIÓN CON VARIABLES
             ExecutionInput executionInput = ExecutionInput.newExecutionInput()
                 .query(query)
                 .variables(variables != null ? variables : Collections.emptyMap())
+                .extensions(extensions != null ? extensions : Collections.emptyMap())
+                .dataLoaderRegistry(GraphQLDataLoaders.newRegistry())
                 .build();
 
-            ExecutionResult executionResult = graphQL.execute(executionInput);
+            long started = System.nanoTime();
+            ExecutionResult executionResult = graphQL().execute(executionInput);
+            StageTimer.record(StageTimer.Stage.GRAPHQL, started);
 
             Map<String, Object> response = new HashMap<>();
             response.put("data", executionResult.getData());
@@ -327,7 +418,7 @@ public class WarehouseFunction {
             return createSuccessResponse(request, response);
 
         } catch (Exception e) {
-            context.getLogger().severe("Error procesando GraphQL: " + e.getMessage());
+            Log.error(() -> "Error procesando GraphQL: " + e.getMessage(), e);
             return createErrorResponse(request, "Error procesando query GraphQL: " + e.getMessage(), 500);
         }
     }
@@ -345,6 +436,21 @@ public class WarehouseFunction {
                 capacidad_max: Int!
                 productos_count: Int
                 ocupacion_porcentaje: Float
+                products: [Product]
+            }
+
+            type Product {
+                id: Int!
+                sku: String!
+                nombre: String!
+                descripcion: String
+                stock: Int!
+                stock_minimo: Int!
+                stock_maximo: Int!
+                precio: Float!
+                categoria_id: Int!
+                bodega_id: Int!
+                estado: String!
             }
 
             type WarehouseCapacity {
@@ -355,8 +461,26 @@ public class WarehouseFunction {
                 ocupacion_porcentaje: Float!
             }
 
+            type WarehouseEdge {
+                cursor: String!
+                node: Warehouse!
+            }
+
+            type WarehouseConnection {
+                edges: [WarehouseEdge!]!
+                pageInfo: PageInfo!
+            }
+
+            type PageInfo {
+                hasNextPage: Boolean!
+                hasPreviousPage: Boolean!
+                startCursor: String
+                endCursor: String
+            }
+
             type Query {
                 warehouses: [Warehouse]
+                warehousesConnection(first: Int, after: String): WarehouseConnection!
                 warehouse(id: Int!): Warehouse
                 warehousesByStatus(status: String!): [Warehouse]
                 warehouseCapacity(id: Int!): WarehouseCapacity
@@ -376,10 +500,14 @@ public class WarehouseFunction {
         RuntimeWiring runtimeWiring = newRuntimeWiring()
             .type("Query", builder -> builder
                 .dataFetcher("warehouses", getAllWarehousesGraphQLFetcher())
+                .dataFetcher("warehousesConnection", getWarehousesConnectionGraphQLFetcher())
                 .dataFetcher("warehouse", getWarehouseByIdGraphQLFetcher())
                 .dataFetcher("warehousesByStatus", getWarehousesByStatusGraphQLFetcher())
                 .dataFetcher("warehouseCapacity", getWarehouseCapacityGraphQLFetcher())
             )
+            .type("Warehouse", builder -> builder
+                .dataFetcher("products", getWarehouseProductsGraphQLFetcher())
+            )
             .type("Mutation", builder -> builder
                 .dataFetcher("createWarehouse", createWarehouseGraphQLFetcher())
                 .dataFetcher("updateWarehouse", updateWarehouseGraphQLFetcher())
@@ -391,45 +519,74 @@ public class WarehouseFunction {
         SchemaGenerator schemaGenerator = new SchemaGenerator();
         GraphQLSchema graphQLSchema = schemaGenerator.makeExecutableSchema(typeDefinitionRegistry, runtimeWiring);
 
-        return GraphQL.newGraphQL(graphQLSchema).build();
+        return GraphQL.newGraphQL(graphQLSchema)
+            .preparsedDocumentProvider(DOCUMENT_CACHE)
+            .build();
     }
 
     private DataFetcher<List<Map<String, Object>>> getAllWarehousesGraphQLFetcher() {
         return dataFetchingEnvironment -> {
-            List<Map<String, Object>> warehouses = new ArrayList<>();
+            try (Connection conn = getConnection()) {
+                return queryWarehousesWithStats(conn, null);
+            } catch (SQLException e) {
+                throw new RuntimeException("Error obteniendo bodegas: " + e.getMessage());
+            }
+        };
+    }
 
+    private DataFetcher<graphql.relay.Connection<Map<String, Object>>> getWarehousesConnectionGraphQLFetcher() {
+        return dataFetchingEnvironment -> {
+            KeysetPage page = KeysetPage.fromConnectionArgs(
+                dataFetchingEnvironment.getArgument("first"), dataFetchingEnvironment.getArgument("after"));
             try (Connection conn = getConnection()) {
-                String sql = """
-                    SELECT b.*,
-                           COUNT(p.id) as productos_count,
-                           COALESCE(SUM(p.stock), 0) as stock_total
-                    FROM bodegas b
-                    LEFT JOIN productos p ON b.id = p.bodega_id
-                    GROUP BY b.id
-                    ORDER BY b.id
-                """;
+                return page.toConnection(queryWarehousesWithStats(conn, page));
+            } catch (SQLException e) {
+                throw new RuntimeException("Error obteniendo bodegas: " + e.getMessage());
+            }
+        };
+    }
 
-                try (PreparedStatement stmt = conn.prepareStatement(sql);
-                     ResultSet rs = stmt.executeQuery()) {
+    /**
+     * Bodegas con conteo de productos y ocupación. Con {@code page} lee solo esa
+     * página (más la fila extra de {@link KeysetPage#trim}); sin ella, todas.
+     */
+    private List<Map<String, Object>> queryWarehousesWithStats(Connection conn, KeysetPage page) throws SQLException {
+        List<Map<String, Object>> warehouses = new ArrayList<>();
+        String sql = """
+            SELECT b.*,
+                   COUNT(p.id) as productos_count,
+                   COALESCE(SUM(p.stock), 0) as stock_total
+            FROM bodegas b
+            LEFT JOIN productos p ON b.id = p.bodega_id
+            WHERE %s
+            GROUP BY b.id
+            ORDER BY b.id
+            %s
+        """.formatted(page != null ? "b.id > ?" : "TRUE", page != null ? "LIMIT ?" : "");
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (page != null) {
+                stmt.setInt(1, page.getAfterId());
+                stmt.setInt(2, page.getLimit() + 1);
+            }
 
-                    while (rs.next()) {
-                        Map<String, Object> warehouse = mapResultSetToWarehouse(rs);
-                        warehouse.put("productos_count", rs.getInt("productos_count"));
+            try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                long mapStarted = System.nanoTime();
+                while (rs.next()) {
+                    Map<String, Object> warehouse = mapResultSetToWarehouse(rs);
+                    warehouse.put("productos_count", rs.getInt("productos_count"));
 
-                        int stockTotal = rs.getInt("stock_total");
-                        int capacidadMax = rs.getInt("capacidad_max");
-                        double ocupacion = capacidadMax > 0 ? (stockTotal * 100.0) / capacidadMax : 0;
-                        warehouse.put("ocupacion_porcentaje", ocupacion);
+                    int stockTotal = rs.getInt("stock_total");
+                    int capacidadMax = rs.getInt("capacidad_max");
+                    double ocupacion = capacidadMax > 0 ? (stockTotal * 100.0) / capacidadMax : 0;
+                    warehouse.put("ocupacion_porcentaje", ocupacion);
 
-                        warehouses.add(warehouse);
-                    }
+                    warehouses.add(warehouse);
                 }
-            } catch (SQLException e) {
-                throw new RuntimeException("Error obteniendo bodegas: " + e.getMessage());
+                StageTimer.record(StageTimer.Stage.MAP, mapStarted);
             }
-
-            return warehouses;
-        };
+        }
+        return warehouses;
     }
 
     private DataFetcher<Map<String, Object>> getWarehouseByIdGraphQLFetcher() {
@@ -450,7 +607,7 @@ public class WarehouseFunction {
                 try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                     stmt.setInt(1, id);
 
-                    try (ResultSet rs = stmt.executeQuery()) {
+                    try (ResultSet rs = StageTimer.executeQuery(stmt)) {
                         if (rs.next()) {
                             Map<String, Object> warehouse = mapResultSetToWarehouse(rs);
                             warehouse.put("productos_count", rs.getInt("productos_count"));
@@ -472,6 +629,18 @@ public class WarehouseFunction {
         };
     }
 
+    /**
+     * Productos de la bodega vía DataLoader: todas las bodegas de la respuesta
+     * se resuelven con una sola consulta por bodega_id.
+     */
+    private DataFetcher<CompletableFuture<List<Map<String, Object>>>> getWarehouseProductsGraphQLFetcher() {
+        return dataFetchingEnvironment -> {
+            Map<String, Object> warehouse = dataFetchingEnvironment.getSource();
+            DataLoader<Integer, List<Map<String, Object>>> loader = dataFetchingEnvironment.getDataLoader(GraphQLDataLoaders.PRODUCTOS_POR_BODEGA);
+            return loader.load(((Number) warehouse.get("id")).intValue());
+        };
+    }
+
     private DataFetcher<List<Map<String, Object>>> getWarehousesByStatusGraphQLFetcher() {
         return dataFetchingEnvironment -> {
             String status = dataFetchingEnvironment.getArgument("status");
@@ -483,10 +652,12 @@ public class WarehouseFunction {
                 try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                     stmt.setString(1, status);
 
-                    try (ResultSet rs = stmt.executeQuery()) {
+                    try (ResultSet rs = StageTimer.executeQuery(stmt)) {
+                        long mapStarted = System.nanoTime();
                         while (rs.next()) {
                             warehouses.add(mapResultSetToWarehouse(rs));
                         }
+                        StageTimer.record(StageTimer.Stage.MAP, mapStarted);
                     }
                 }
             } catch (SQLException e) {
@@ -514,7 +685,7 @@ public class WarehouseFunction {
                 try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                     stmt.setInt(1, id);
 
-                    try (ResultSet rs = stmt.executeQuery()) {
+                    try (ResultSet rs = StageTimer.executeQuery(stmt)) {
                         if (rs.next()) {
                             Map<String, Object> capacity = new HashMap<>();
                             capacity.put("warehouse_id", rs.getInt("id"));
@@ -557,8 +728,9 @@ public class WarehouseFunction {
                     stmt.setString(6, "ACTIVO");
                     stmt.setInt(7, capacidadMax);
 
-                    try (ResultSet rs = stmt.executeQuery()) {
+                    try (ResultSet rs = StageTimer.executeQuery(stmt)) {
                         if (rs.next()) {
+                            ReferenceData.markChanged(ReferenceData.BODEGAS);
                             return mapResultSetToWarehouse(rs);
                         }
                     }
@@ -603,8 +775,9 @@ public class WarehouseFunction {
                         stmt.setObject(i + 1, params.get(i));
                     }
 
-                    try (ResultSet rs = stmt.executeQuery()) {
+                    try (ResultSet rs = StageTimer.executeQuery(stmt)) {
                         if (rs.next()) {
+                            ReferenceData.markChanged(ReferenceData.BODEGAS);
                             return mapResultSetToWarehouse(rs);
                         }
                     }
@@ -626,7 +799,10 @@ public class WarehouseFunction {
 
                 try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                     stmt.setInt(1, id);
-                    int affectedRows = stmt.executeUpdate();
+                    int affectedRows = StageTimer.executeUpdate(stmt);
+                    if (affectedRows > 0) {
+                        ReferenceData.markChanged(ReferenceData.BODEGAS);
+                    }
                     return affectedRows > 0;
                 }
             } catch (SQLException e) {
@@ -647,8 +823,9 @@ public class WarehouseFunction {
                     stmt.setString(1, status);
                     stmt.setInt(2, id);
 
-                    try (ResultSet rs = stmt.executeQuery()) {
+                    try (ResultSet rs = StageTimer.executeQuery(stmt)) {
                         if (rs.next()) {
+                            ReferenceData.markChanged(ReferenceData.BODEGAS);
                             return mapResultSetToWarehouse(rs);
                         }
                     }
@@ -668,6 +845,7 @@ public class WarehouseFunction {
         info.put("description", "GraphQL endpoint para bodegas");
         info.put("queries", Arrays.asList(
             "warehouses - Listar todas las bodegas con métricas",
+            "warehousesConnection(first: Int, after: String) - Bodegas paginadas (conexión Relay)",
             "warehouse(id: Int!) - Obtener bodega por ID",
             "warehousesByStatus(status: String!) - Bodegas por estado",
             "warehouseCapacity(id: Int!) - Capacidad y ocupación de bodega"
@@ -678,6 +856,11 @@ public class WarehouseFunction {
             "deleteWarehouse(id: Int!) - Eliminar bodega",
             "changeWarehouseStatus(id: Int!, status: String!) - Cambiar estado"
         ));
+        info.put("persisted_queries", "Enviar extensions.persistedQuery.sha256Hash (SHA-256 hex de la query) sin 'query' una vez que el documento esté en cache");
+        info.put("document_cache", DOCUMENT_CACHE.getStats());
+        info.put("nested_fields", Arrays.asList(
+            "Warehouse.products - Productos de la bodega (carga agrupada)"
+        ));
         info.put("example_query", "{ warehouses { id nombre direccion estado capacidad_max ocupacion_porcentaje } }");
 
         return createSuccessResponse(request, info);
@@ -686,21 +869,25 @@ public class WarehouseFunction {
     // ==================== MÉTODOS AUXILIARES ====================
 
     private Connection getConnection() throws SQLException {
-        try {
-            DriverManager.setLoginTimeout(15);
-            System.out.println("Intentando conectar a: " + DB_URL);
-            return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-        } catch (SQLException e) {
-            System.err.println("Error conectando a PostgreSQL: " + e.getMessage());
-            throw new SQLException("Error conectando a PostgreSQL: " + e.getMessage(), e);
-        }
+        return ConnectionPool.getConnection();
     }
 
     private HttpResponseMessage createSuccessResponse(HttpRequestMessage<Optional<String>> request, Object data) {
-        return request.createResponseBuilder(HttpStatus.OK)
+        String body = Json.write(data);
+        return StageTimer.header(request.createResponseBuilder(HttpStatus.OK))
+                .header("Content-Type", "application/json")
+                .header("Access-Control-Allow-Origin", "*")
+                .body(body)
+                .build();
+    }
+
+    private HttpResponseMessage createSuccessResponse(HttpRequestMessage<Optional<String>> request, Object data, String etag) {
+        String body = Json.write(data);
+        return StageTimer.header(request.createResponseBuilder(HttpStatus.OK))
                 .header("Content-Type", "application/json")
                 .header("Access-Control-Allow-Origin", "*")
-                .body(data)
+                .header("ETag", etag)
+                .body(body)
                 .build();
     }
 
@@ -711,10 +898,11 @@ public class WarehouseFunction {
         error.put("timestamp", new Date());
         error.put("status", statusCode);
 
-        return request.createResponseBuilder(HttpStatus.valueOf(statusCode))
+        String body = Json.write(error);
+        return StageTimer.header(request.createResponseBuilder(HttpStatus.valueOf(statusCode)))
                 .header("Content-Type", "application/json")
                 .header("Access-Control-Allow-Origin", "*")
-                .body(error)
+                .body(body)
                 .build();
     }
 
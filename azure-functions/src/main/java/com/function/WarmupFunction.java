@@ -0,0 +1,22 @@
+package com.function;
+
+import com.microsoft.azure.functions.annotation.*;
+import com.microsoft.azure.functions.*;
+
+/**
+ * Azure Function de warmup: el host la ejecuta al agregar una instancia
+ * (planes Premium y Dedicated) antes de mandarle tráfico.
+ *
+ * Corre {@link Startup#warmUp} para que los schemas GraphQL, el ObjectMapper y
+ * las conexiones del pool ya estén listos en el primer request.
+ */
+public class WarmupFunction {
+
+    @FunctionName("Warmup")
+    public void run(
+            @WarmupTrigger(name = "warmupContext") Object warmupContext,
+            final ExecutionContext context) {
+
+        context.getLogger().info("Warmup de la instancia: " + Json.write(Startup.warmUp()));
+    }
+}
@@ -0,0 +1,60 @@
+package com.function;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ETagsTest {
+
+    // {id, version}
+    private static final ToIntFunction<long[]> ID = row -> (int) row[0];
+    private static final ToLongFunction<long[]> VERSION = row -> row[1];
+
+    @Test
+    public void rowEtagChangesWithTheVersion() {
+        assertEquals("W/\"7-ff\"", ETags.forRow(7, 255));
+        assertNotEquals(ETags.forRow(7, 255), ETags.forRow(7, 256));
+        assertNotEquals(ETags.forRow(7, 255), ETags.forRow(8, 255));
+    }
+
+    @Test
+    public void listEtagChangesWithAnyWriteDeleteOrPageBoundary() {
+        List<long[]> rows = List.of(new long[] {1, 10}, new long[] {2, 20}, new long[] {3, 30});
+        String etag = ETags.forRows(rows, false, ID, VERSION);
+
+        assertEquals(etag, ETags.forRows(List.of(new long[] {1, 10}, new long[] {2, 20}, new long[] {3, 30}), false, ID, VERSION));
+        // Escritura: la fila recibe una version mayor
+        assertNotEquals(etag, ETags.forRows(List.of(new long[] {1, 10}, new long[] {2, 61}, new long[] {3, 30}), false, ID, VERSION));
+        // Borrado: cambia la cantidad aunque la suma coincida
+        assertNotEquals(etag, ETags.forRows(List.of(new long[] {1, 30}, new long[] {3, 30}), false, ID, VERSION));
+        assertNotEquals(etag, ETags.forRows(rows, true, ID, VERSION));
+        assertNotEquals(etag, ETags.forRows(List.of(new long[] {4, 10}, new long[] {2, 20}, new long[] {3, 30}), false, ID, VERSION));
+        assertEquals("W/\"0---0\"", ETags.forRows(List.<long[]>of(), false, ID, VERSION));
+    }
+
+    @Test
+    public void matchesIfNoneMatchWithWeakComparison() {
+        String etag = ETags.forRow(7, 255);
+
+        assertFalse(ETags.matches(HttpRequestMessageMock.get(), etag));
+        assertTrue(ETags.matches(HttpRequestMessageMock.get().header("if-none-match", etag), etag));
+        assertTrue(ETags.matches(HttpRequestMessageMock.get().header("If-None-Match", "\"7-ff\""), etag));
+        assertTrue(ETags.matches(HttpRequestMessageMock.get().header("If-None-Match", "W/\"1-a\", W/\"7-ff\""), etag));
+        assertTrue(ETags.matches(HttpRequestMessageMock.get().header("If-None-Match", "*"), etag));
+        assertFalse(ETags.matches(HttpRequestMessageMock.get().header("If-None-Match", ETags.forRow(7, 256)), etag));
+    }
+
+    @Test
+    public void notModifiedCarriesTheEtag() {
+        String etag = ETags.forRow(7, 255);
+
+        var response = ETags.notModified(HttpRequestMessageMock.get(), etag);
+
+        assertEquals(304, response.getStatusCode());
+        assertEquals(etag, response.getHeader("ETag"));
+        assertNull(response.getBody());
+    }
+}
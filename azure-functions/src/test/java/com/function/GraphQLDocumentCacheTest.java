@@ -0,0 +1,99 @@
+package com.function;
+
+import java.util.Map;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphQLDocumentCacheTest {
+
+    private static final String QUERY = "{ hola }";
+
+    private GraphQLDocumentCache cache;
+    private GraphQL graphQL;
+
+    @BeforeEach
+    public void setUp() {
+        GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(
+            new SchemaParser().parse("type Query { hola: String }"),
+            RuntimeWiring.newRuntimeWiring()
+                .type("Query", type -> type.dataFetcher("hola", env -> "mundo"))
+                .build());
+        cache = new GraphQLDocumentCache(2);
+        graphQL = GraphQL.newGraphQL(schema).preparsedDocumentProvider(cache).build();
+    }
+
+    @Test
+    public void parsesEachQueryOnce() {
+        assertEquals(Map.of("hola", "mundo"), execute(QUERY, null).getData());
+        assertEquals(Map.of("hola", "mundo"), execute(QUERY, null).getData());
+
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(1, stats.get("size"));
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+    }
+
+    @Test
+    public void persistedQueryNeedsTheTextOnce() {
+        String hash = GraphQLDocumentCache.sha256Hex(QUERY);
+
+        ExecutionResult notFound = execute(PersistedQuerySupport.PERSISTED_QUERY_MARKER, hash);
+        assertEquals(1, notFound.getErrors().size());
+        assertEquals("PersistedQueryNotFound", notFound.getErrors().get(0).getMessage());
+
+        assertTrue(execute(QUERY, hash).getErrors().isEmpty());
+
+        ExecutionResult byHash = execute(PersistedQuerySupport.PERSISTED_QUERY_MARKER, hash);
+        assertTrue(byHash.getErrors().isEmpty());
+        assertEquals(Map.of("hola", "mundo"), byHash.getData());
+    }
+
+    @Test
+    public void rejectsHashThatDoesNotMatchTheQuery() {
+        ExecutionResult result = execute(QUERY, GraphQLDocumentCache.sha256Hex("{ otra }"));
+
+        assertEquals(1, result.getErrors().size());
+        assertEquals("PersistedQueryIdInvalid", result.getErrors().get(0).getMessage());
+        assertEquals(0, cache.getStats().get("size"));
+    }
+
+    @Test
+    public void doesNotCacheInvalidDocuments() {
+        assertFalse(execute("{ noExiste }", null).getErrors().isEmpty());
+
+        assertEquals(0, cache.getStats().get("size"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        execute("{ hola }", null);
+        execute("{ a: hola }", null);
+        execute("{ hola }", null);
+        execute("{ b: hola }", null);
+
+        // "{ a: hola }" fue el menos usado
+        String evicted = GraphQLDocumentCache.sha256Hex("{ a: hola }");
+        ExecutionResult result = execute(PersistedQuerySupport.PERSISTED_QUERY_MARKER, evicted);
+        assertEquals("PersistedQueryNotFound", result.getErrors().get(0).getMessage());
+        assertTrue(execute(PersistedQuerySupport.PERSISTED_QUERY_MARKER,
+            GraphQLDocumentCache.sha256Hex("{ hola }")).getErrors().isEmpty());
+    }
+
+    private ExecutionResult execute(String query, String hash) {
+        ExecutionInput.Builder input = ExecutionInput.newExecutionInput().query(query);
+        if (hash != null) {
+            input.extensions(Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", hash)));
+        }
+        return graphQL.execute(input.build());
+    }
+}
@@ -0,0 +1,73 @@
+package com.function;
+
+import com.microsoft.azure.functions.*;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Request para invocar las funciones en las pruebas; las respuestas se arman
+ * con {@link HttpResponseMessageMock}.
+ */
+public class HttpRequestMessageMock implements HttpRequestMessage<Optional<String>> {
+    private final HttpMethod method;
+    private final Map<String, String> headers = new HashMap<>();
+    private final Map<String, String> queryParameters = new HashMap<>();
+    private final Optional<String> body;
+
+    public HttpRequestMessageMock(HttpMethod method, String body) {
+        this.method = method;
+        this.body = Optional.ofNullable(body);
+    }
+
+    public static HttpRequestMessageMock get() {
+        return new HttpRequestMessageMock(HttpMethod.GET, null);
+    }
+
+    public HttpRequestMessageMock header(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    public HttpRequestMessageMock query(String name, String value) {
+        queryParameters.put(name, value);
+        return this;
+    }
+
+    @Override
+    public URI getUri() {
+        return URI.create("http://localhost/api");
+    }
+
+    @Override
+    public HttpMethod getHttpMethod() {
+        return method;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public Map<String, String> getQueryParameters() {
+        return queryParameters;
+    }
+
+    @Override
+    public Optional<String> getBody() {
+        return body;
+    }
+
+    @Override
+    public HttpResponseMessage.Builder createResponseBuilder(HttpStatus status) {
+        return new HttpResponseMessageMock.HttpResponseMessageBuilderMock().status(status);
+    }
+
+    @Override
+    public HttpResponseMessage.Builder createResponseBuilder(HttpStatusType status) {
+        return new HttpResponseMessageMock.HttpResponseMessageBuilderMock().status(status);
+    }
+}
@@ -0,0 +1,54 @@
+package com.function;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdListTest {
+
+    @Test
+    public void parsesInRequestOrderWithoutDuplicates() {
+        assertEquals(List.of(3, 1, 2), IdList.parse("3, 1,,2,3"));
+    }
+
+    @Test
+    public void rejectsInvalidIds() {
+        assertInvalid("1,x", "ID inválido en ids: x");
+        assertInvalid("1,0", "ID inválido en ids: 0");
+        assertInvalid("-4", "ID inválido en ids: -4");
+        assertInvalid(" , ", "ids no puede estar vacío");
+
+        StringBuilder tooMany = new StringBuilder();
+        for (int id = 1; id <= IdList.MAX_IDS + 1; id++) {
+            tooMany.append(id).append(',');
+        }
+        assertInvalid(tooMany.toString(), "ids admite como máximo " + IdList.MAX_IDS + " valores");
+    }
+
+    @Test
+    public void loadsRowsInRequestOrderAndReportsMissing() throws Exception {
+        try (Connection conn = TestDatabase.open("id_list")) {
+            int a = TestDatabase.insertProducto(conn, 1, 0, 10);
+            int b = TestDatabase.insertProducto(conn, 2, 0, 10);
+            List<Integer> ids = List.of(b, 999_999, a);
+
+            List<long[]> rows = IdList.load(conn, "productos", "id, version", ids,
+                rs -> new long[] {rs.getInt(1), rs.getLong(2)}, row -> (int) row[0]);
+
+            assertEquals(List.of(b, a), rows.stream().map(row -> (int) row[0]).toList());
+            assertEquals(List.of(999_999), IdList.missing(ids, rows, row -> (int) row[0]));
+
+            Map<String, String> etags = IdList.etags(rows, row -> (int) row[0], row -> row[1]);
+            assertEquals(List.of(String.valueOf(b), String.valueOf(a)), List.copyOf(etags.keySet()));
+            assertEquals(ETags.forRow(a, rows.get(1)[1]), etags.get(String.valueOf(a)));
+        }
+    }
+
+    private static void assertInvalid(String param, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> IdList.parse(param));
+        assertEquals(message, e.getMessage());
+    }
+}
@@ -0,0 +1,77 @@
+package com.function;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InventoryMovementTest {
+
+    @Test
+    public void appliesRelativeAndAbsoluteMovements() {
+        assertEquals(15, movement("entrada", 5).aplicar(10));
+        assertEquals(5, movement("SALIDA", 5).aplicar(10));
+        assertEquals(-5, movement("SALIDA", 15).aplicar(10));
+        assertEquals(3, movement("AJUSTE", 3).aplicar(10));
+        assertEquals(Integer.valueOf(3), movement("AJUSTE", 3).stockAbsoluto());
+        assertEquals(0, movement("AJUSTE", 3).delta());
+        assertNull(movement("SALIDA", 5).stockAbsoluto());
+    }
+
+    @Test
+    public void transferKeepsStockAndRecordsMovedUnits() {
+        Map<String, Object> data = data("TRANSFERENCIA", null);
+        data.put("bodega_destino_id", 2);
+        InventoryMovement movement = InventoryMovement.fromMap(data);
+
+        assertEquals(10, movement.aplicar(10));
+        assertEquals(Integer.valueOf(2), movement.getBodegaDestinoId());
+        assertNull(movement.cantidadRegistrada());
+    }
+
+    @Test
+    public void defaultsOptionalFields() {
+        InventoryMovement movement = movement("ENTRADA", 1);
+
+        assertEquals("", movement.getMotivo());
+        assertEquals("Sistema", movement.getUsuario());
+        assertNull(movement.getReferencia());
+    }
+
+    @Test
+    public void rejectsInvalidMovements() {
+        assertInvalid(new HashMap<>(Map.of("tipo_movimiento", "ENTRADA", "cantidad", 1)), "producto_id requerido");
+        assertInvalid(new HashMap<>(Map.of("producto_id", 1, "cantidad", 1)), "tipo_movimiento requerido");
+        assertInvalid(data("ENTRADA", 0), "cantidad debe ser mayor a 0");
+        assertInvalid(data("SALIDA", null), "cantidad debe ser mayor a 0");
+        assertInvalid(data("AJUSTE", -1), "cantidad no puede ser negativa");
+        assertInvalid(data("TRANSFERENCIA", null), "bodega_destino_id requerido para TRANSFERENCIA");
+        assertInvalid(data("ROBO", 1), "Tipo de movimiento inválido: ROBO");
+    }
+
+    private static void assertInvalid(Map<String, Object> data, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> InventoryMovement.fromMap(data));
+        assertEquals(message, e.getMessage());
+    }
+
+    static InventoryMovement movement(String tipo, int cantidad) {
+        return InventoryMovement.fromMap(data(tipo, cantidad));
+    }
+
+    static InventoryMovement movement(int productoId, String tipo, int cantidad) {
+        Map<String, Object> data = data(tipo, cantidad);
+        data.put("producto_id", productoId);
+        return InventoryMovement.fromMap(data);
+    }
+
+    private static Map<String, Object> data(String tipo, Integer cantidad) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("producto_id", 1);
+        data.put("tipo_movimiento", tipo);
+        if (cantidad != null) {
+            data.put("cantidad", cantidad);
+        }
+        return data;
+    }
+}
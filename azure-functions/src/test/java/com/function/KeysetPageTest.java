@@ -0,0 +1,118 @@
+package com.function;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeysetPageTest {
+
+    @Test
+    public void cursorRoundTrips() {
+        for (int id : new int[] {0, 1, 42, Integer.MAX_VALUE}) {
+            String cursor = KeysetPage.encodeCursor(id);
+            assertFalse(cursor.contains("="));
+            assertEquals(id, KeysetPage.decodeCursor(cursor));
+        }
+        assertEquals(42, KeysetPage.fromConnectionArgs(10, KeysetPage.encodeCursor(42)).getAfterId());
+    }
+
+    @Test
+    public void rejectsInvalidCursors() {
+        for (String cursor : new String[] {"no base64!", "", encode("42"), encode("id:x")}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> KeysetPage.decodeCursor(cursor));
+            assertEquals("Cursor inválido: " + cursor, e.getMessage());
+        }
+    }
+
+    @Test
+    public void parsesQueryParameters() {
+        KeysetPage page = KeysetPage.fromQuery(Map.of("after_id", " 7 ", "limit", "20"));
+        assertEquals(7, page.getAfterId());
+        assertEquals(20, page.getLimit());
+
+        assertEquals(KeysetPage.MAX_LIMIT, KeysetPage.fromQuery(Map.of("limit", "999999")).getLimit());
+        assertThrows(IllegalArgumentException.class, () -> KeysetPage.fromQuery(Map.of("limit", "0")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetPage.fromQuery(Map.of("after_id", "-1")));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> KeysetPage.fromQuery(Map.of("limit", "diez")));
+        assertEquals("limit inválido: diez", e.getMessage());
+    }
+
+    @Test
+    public void withoutLimitThePageIsUnbounded() {
+        KeysetPage page = KeysetPage.fromQuery(Map.of());
+
+        assertEquals(0, page.getAfterId());
+        assertEquals(KeysetPage.UNBOUNDED, page.getLimit());
+        assertNull(page.responseLimit());
+        assertFalse(page.trim(new ArrayList<>(List.of(1, 2, 3))));
+    }
+
+    @Test
+    public void describeTrimsTheExtraRow() {
+        List<Integer> rows = new ArrayList<>(List.of(3, 5, 8));
+        Map<String, Object> response = new HashMap<>();
+
+        KeysetPage.of(null, 2).describe(response, rows, Integer::intValue);
+
+        assertEquals(List.of(3, 5), rows);
+        assertEquals(2, response.get("limit"));
+        assertEquals(true, response.get("has_more"));
+        assertEquals(5, response.get("next_after_id"));
+    }
+
+    @Test
+    public void toConnectionBuildsRelayPageInfo() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int id : new int[] {11, 12, 13}) {
+            rows.add(Map.of("id", id));
+        }
+
+        graphql.relay.Connection<Map<String, Object>> connection = KeysetPage.of(10, 2).toConnection(rows);
+
+        assertEquals(2, connection.getEdges().size());
+        assertEquals(11, KeysetPage.decodeCursor(connection.getPageInfo().getStartCursor().getValue()));
+        assertEquals(12, KeysetPage.decodeCursor(connection.getPageInfo().getEndCursor().getValue()));
+        assertTrue(connection.getPageInfo().isHasPreviousPage());
+        assertTrue(connection.getPageInfo().isHasNextPage());
+    }
+
+    @Test
+    public void walksAllRowsThroughTheDatabase() throws Exception {
+        try (Connection conn = TestDatabase.open("keyset_page")) {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                ids.add(TestDatabase.insertProducto(conn, 1, 0, 10));
+            }
+
+            List<Integer> seen = new ArrayList<>();
+            Integer afterId = null;
+            do {
+                KeysetPage page = KeysetPage.of(afterId, 2);
+                List<Integer> rows = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM productos WHERE " + page.clause("id"))) {
+                    page.bind(stmt, 1);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            rows.add(rs.getInt(1));
+                        }
+                    }
+                }
+                Map<String, Object> response = new HashMap<>();
+                page.describe(response, rows, Integer::intValue);
+                seen.addAll(rows);
+                afterId = (Integer) response.get("next_after_id");
+            } while (afterId != null);
+
+            assertEquals(ids, seen);
+        }
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().encodeToString(value.getBytes());
+    }
+}
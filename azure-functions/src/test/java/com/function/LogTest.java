@@ -0,0 +1,130 @@
+package com.function;
+
+import com.microsoft.azure.functions.ExecutionContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class LogTest {
+
+    private final Captured invocationLog = new Captured();
+    private final Captured classLog = new Captured();
+    private ExecutionContext context;
+
+    @BeforeEach
+    public void setUp() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(invocationLog);
+        context = mock(ExecutionContext.class);
+        doReturn(logger).when(context).getLogger();
+        doReturn("inv-1").when(context).getInvocationId();
+        Logger.getLogger(Log.class.getName()).addHandler(classLog);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Log.end();
+        Logger.getLogger(Log.class.getName()).removeHandler(classLog);
+    }
+
+    @Test
+    public void errorsAreWrittenRightAwayWithTheInvocationLogger() throws Exception {
+        Log.begin("fn", HttpRequestMessageMock.get().header("x-correlation-id", "req-1"), context);
+
+        Log.error(() -> "falló", new IllegalStateException("sin conexión"));
+
+        assertEquals(1, invocationLog.records.size());
+        LogRecord record = invocationLog.records.get(0);
+        assertEquals(Level.SEVERE, record.getLevel());
+        Map<?, ?> json = Json.MAPPER.readValue(record.getMessage(), Map.class);
+        assertEquals("error", json.get("category"));
+        assertEquals("fn", json.get("function"));
+        assertEquals("req-1", json.get("correlationId"));
+        assertEquals("inv-1", json.get("invocationId"));
+        assertEquals("falló", json.get("msg"));
+        assertEquals("java.lang.IllegalStateException: sin conexión", json.get("error"));
+    }
+
+    @Test
+    public void invalidCorrelationIdFallsBackToTheInvocationId() throws Exception {
+        Log.begin("fn", HttpRequestMessageMock.get().header("X-Correlation-Id", "req-1\n{\"falso\": 1}"), context);
+
+        Log.error(() -> "x".repeat(1500), null);
+
+        Map<?, ?> json = Json.MAPPER.readValue(invocationLog.records.get(0).getMessage(), Map.class);
+        assertEquals("inv-1", json.get("correlationId"));
+        assertTrue(((String) json.get("msg")).endsWith("... (1500 caracteres)"));
+        assertFalse(json.containsKey("error"));
+    }
+
+    @Test
+    public void sampledInfoIsWrittenInTheBackground() throws Exception {
+        System.setProperty("LOG_SAMPLE_TODO", "1");
+        System.setProperty("LOG_SAMPLE_NADA", "0");
+        Log.begin("fn", HttpRequestMessageMock.get().header("X-Correlation-Id", "req-2"), context);
+
+        Log.info("nada", () -> fail("No debe armar el mensaje de una línea fuera de la muestra"));
+        Log.info("todo", () -> "hola");
+
+        // Puede haber líneas de otras pruebas todavía en la cola
+        long deadline = System.currentTimeMillis() + 5000;
+        List<Map<?, ?>> lines = classLog.lines("todo");
+        while (lines.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            lines = classLog.lines("todo");
+        }
+        assertEquals(1, lines.size());
+        assertEquals("hola", lines.get(0).get("msg"));
+        assertEquals("req-2", lines.get(0).get("correlationId"));
+        assertTrue(invocationLog.records.isEmpty());
+    }
+
+    @Test
+    public void outsideAnInvocationNothingIsWritten() {
+        Log.info("todo", () -> "hola");
+        Log.error(() -> "falló", null);
+
+        assertTrue(invocationLog.records.isEmpty());
+    }
+
+    private static final class Captured extends Handler {
+        final List<LogRecord> records = new CopyOnWriteArrayList<>();
+
+        List<Map<?, ?>> lines(String category) throws Exception {
+            List<Map<?, ?>> lines = new ArrayList<>();
+            for (LogRecord record : records) {
+                Map<?, ?> json = Json.MAPPER.readValue(record.getMessage(), Map.class);
+                if (category.equals(json.get("category"))) {
+                    lines.add(json);
+                }
+            }
+            return lines;
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            records.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
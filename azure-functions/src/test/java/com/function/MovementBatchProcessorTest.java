@@ -0,0 +1,182 @@
+package com.function;
+
+import com.microsoft.azure.functions.*;
+
+import java.sql.Connection;
+import java.util.*;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.function.InventoryMovementTest.movement;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class MovementBatchProcessorTest {
+
+    private Connection conn;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        conn = TestDatabase.open("movement_batch");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        conn.close();
+    }
+
+    @Test
+    public void appliesMovementsInOrderPerProduct() throws Exception {
+        int a = TestDatabase.insertProducto(conn, 10, 0, 100);
+        int b = TestDatabase.insertProducto(conn, 5, 0, 100);
+
+        Map<Integer, Map<String, Object>> results = new MovementBatchProcessor(2).process(conn, List.of(
+            item(0, b, "AJUSTE", 20),
+            item(1, a, "SALIDA", 4),
+            item(2, a, "SALIDA", 8),
+            item(3, a, "ENTRADA", 1),
+            item(4, b, "SALIDA", 5)));
+
+        assertSuccess(results.get(1), 10, 6);
+        // Se evalúa sobre el stock que dejó el movimiento anterior del mismo producto
+        assertError(results.get(2), "Stock insuficiente");
+        assertSuccess(results.get(3), 6, 7);
+        assertSuccess(results.get(0), 5, 20);
+        assertSuccess(results.get(4), 20, 15);
+
+        assertEquals(7, TestDatabase.stock(conn, a));
+        assertEquals(15, TestDatabase.stock(conn, b));
+        assertEquals(2, TestDatabase.movimientos(conn, a));
+        assertEquals(2, TestDatabase.movimientos(conn, b));
+
+        // Cada ítem aplicado trae el id de su fila en movimientos_inventario
+        Set<Object> movimientos = new HashSet<>();
+        for (int index : new int[] {0, 1, 3, 4}) {
+            Object id = results.get(index).get("movimiento_id");
+            assertNotNull(id);
+            movimientos.add(id);
+        }
+        assertEquals(4, movimientos.size());
+        assertFalse(results.get(2).containsKey("movimiento_id"));
+        try (var stmt = conn.prepareStatement("SELECT tipo_movimiento FROM movimientos_inventario WHERE id = ?")) {
+            stmt.setLong(1, (Long) results.get(3).get("movimiento_id"));
+            try (var rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals("ENTRADA", rs.getString(1));
+            }
+        }
+    }
+
+    @Test
+    public void timesLockUpdateAndInsert() throws Exception {
+        int a = TestDatabase.insertProducto(conn, 10, 0, 100);
+        StageTimer.begin("movement-batch");
+        try {
+            new MovementBatchProcessor(10).process(conn, List.of(item(0, a, "ENTRADA", 1)));
+
+            String header = StageTimer.header(new HttpResponseMessageMock.HttpResponseMessageBuilderMock().status(HttpStatus.OK))
+                .build()
+                .getHeader(StageTimer.HEADER);
+            assertTrue(header.matches("lock;dur=[0-9.]+, update;dur=[0-9.]+, insert;dur=[0-9.]+, total;dur=[0-9.]+"), header);
+        } finally {
+            StageTimer.end();
+        }
+    }
+
+    @Test
+    public void reportsMissingProductsPerItem() throws Exception {
+        int a = TestDatabase.insertProducto(conn, 10, 0, 100);
+
+        Map<Integer, Map<String, Object>> results = new MovementBatchProcessor(10).process(conn, List.of(
+            item(0, 999_999, "ENTRADA", 1),
+            item(1, a, "ENTRADA", 1)));
+
+        assertError(results.get(0), "Producto no encontrado");
+        assertEquals(999_999, results.get(0).get("producto_id"));
+        assertSuccess(results.get(1), 10, 11);
+    }
+
+    @Test
+    public void transferMovesTheProductAndRecordsItsStock() throws Exception {
+        int a = TestDatabase.insertProducto(conn, 10, 0, 100);
+        Map<String, Object> data = new HashMap<>(Map.of(
+            "producto_id", a, "tipo_movimiento", "TRANSFERENCIA", "bodega_destino_id", 2));
+
+        Map<Integer, Map<String, Object>> results = new MovementBatchProcessor(10).process(conn, List.of(
+            new MovementBatchProcessor.Item(0, InventoryMovement.fromMap(data))));
+
+        assertSuccess(results.get(0), 10, 10);
+        try (var stmt = conn.prepareStatement("SELECT bodega_id FROM productos WHERE id = " + a);
+             var rs = stmt.executeQuery()) {
+            rs.next();
+            assertEquals(2, rs.getInt(1));
+        }
+        try (var stmt = conn.prepareStatement("SELECT cantidad FROM movimientos_inventario WHERE producto_id = " + a);
+             var rs = stmt.executeQuery()) {
+            rs.next();
+            assertEquals(10, rs.getInt(1));
+        }
+    }
+
+    @Test
+    public void batchEndpointRejectsInvalidElementsPerItem() throws Exception {
+        TestDatabase.usePool();
+        int a;
+        try (Connection pooled = ConnectionPool.getConnection()) {
+            a = TestDatabase.insertProducto(pooled, 10, 0, 100);
+        }
+        String body = "[null, 5, {\"producto_id\": " + a + "}, " +
+            "{\"producto_id\": " + a + ", \"tipo_movimiento\": \"SALIDA\", \"cantidad\": 3}]";
+
+        HttpResponseMessage response = new InventoryFunction().runBatch(
+            new HttpRequestMessageMock(HttpMethod.POST, body), context());
+
+        assertEquals(200, response.getStatusCode());
+        Map<?, ?> json = Json.MAPPER.readValue((String) response.getBody(), Map.class);
+        assertEquals(4, json.get("total"));
+        assertEquals(1, json.get("aceptados"));
+        List<?> data = (List<?>) json.get("data");
+        assertEquals("El movimiento debe ser un objeto JSON", ((Map<?, ?>) data.get(0)).get("error"));
+        assertEquals("El movimiento debe ser un objeto JSON", ((Map<?, ?>) data.get(1)).get("error"));
+        assertEquals("tipo_movimiento requerido", ((Map<?, ?>) data.get(2)).get("error"));
+        assertEquals(7, ((Map<?, ?>) data.get(3)).get("stock_nuevo"));
+        // Con la escritura diferida apagada (default) el movimiento ya está en la BD al responder
+        assertFalse(StockAggregator.ENABLED);
+        try (Connection pooled = ConnectionPool.getConnection()) {
+            assertEquals(7, TestDatabase.stock(pooled, a));
+            assertEquals(1, TestDatabase.movimientos(pooled, a));
+        }
+    }
+
+    @Test
+    public void batchEndpointRejectsMalformedBody() {
+        HttpResponseMessage response = new InventoryFunction().runBatch(
+            new HttpRequestMessageMock(HttpMethod.POST, "[{"), context());
+
+        assertEquals(400, response.getStatusCode());
+    }
+
+    private static MovementBatchProcessor.Item item(int index, int productoId, String tipo, int cantidad) {
+        return new MovementBatchProcessor.Item(index, movement(productoId, tipo, cantidad));
+    }
+
+    private static void assertSuccess(Map<String, Object> result, int stockAnterior, int stockNuevo) {
+        assertEquals(true, result.get("success"), () -> String.valueOf(result));
+        assertEquals(stockAnterior, result.get("stock_anterior"));
+        assertEquals(stockNuevo, result.get("stock_nuevo"));
+    }
+
+    private static void assertError(Map<String, Object> result, String error) {
+        assertEquals(false, result.get("success"));
+        assertEquals(error, result.get("error"));
+    }
+
+    static ExecutionContext context() {
+        ExecutionContext context = mock(ExecutionContext.class);
+        doReturn(Logger.getGlobal()).when(context).getLogger();
+        doReturn(UUID.randomUUID().toString()).when(context).getInvocationId();
+        return context;
+    }
+}
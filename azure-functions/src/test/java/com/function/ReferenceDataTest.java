@@ -0,0 +1,78 @@
+package com.function;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * REFERENCE_CACHE_REFRESH_MS viene bajo desde la ejecución reference-cache de surefire en el pom.
+ */
+public class ReferenceDataTest {
+
+    private static ReferenceData data;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        TestDatabase.usePool();
+        data = ReferenceData.getInstance();
+    }
+
+    @Test
+    public void localWritesAreVisibleOnTheNextRead() throws Exception {
+        try (Connection conn = ConnectionPool.getConnection()) {
+            int before = data.bodegas(conn).size();
+            TestDatabase.update(conn, "INSERT INTO bodegas (nombre) VALUES ('Bodega local')");
+
+            ReferenceData.markChanged(ReferenceData.BODEGAS);
+
+            ReferenceData.Table<Bodega> bodegas = data.bodegas(conn);
+            assertEquals(before + 1, bodegas.size());
+            assertEquals("Bodega 1", bodegas.get(1).nombre());
+        }
+    }
+
+    @Test
+    public void writesFromOtherInstancesAreDetectedByVersion() throws Exception {
+        try (Connection conn = ConnectionPool.getConnection()) {
+            // Lo que haría el trigger de CatalogVersion en PostgreSQL
+            TestDatabase.update(conn,
+                "UPDATE categorias SET nombre = 'Renombrada', version = nextval('catalogo_version_seq') WHERE id = 1");
+
+            await(() -> {
+                try {
+                    return "Renombrada".equals(data.categorias(conn).get(1).nombre());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void pagesByKeyset() throws Exception {
+        try (Connection conn = ConnectionPool.getConnection()) {
+            ReferenceData.Table<Bodega> bodegas = data.bodegas(conn);
+
+            List<Bodega> page = bodegas.page(KeysetPage.of(1, 1));
+
+            // limit + 1 filas para que describe sepa si hay más
+            assertEquals(2, page.get(0).id());
+            assertEquals(Math.min(2, bodegas.size() - 1), page.size());
+            assertTrue(bodegas.page(KeysetPage.of(Integer.MAX_VALUE - 1, 10)).isEmpty());
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("La condición no se cumplió en 5 s");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.function;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import com.microsoft.azure.functions.HttpStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StageTimerTest {
+
+    @AfterEach
+    public void tearDown() {
+        StageTimer.end();
+    }
+
+    @Test
+    public void headerListsMeasuredStagesThenTotal() {
+        StageTimer.begin("timer-header");
+        StageTimer.record(StageTimer.Stage.QUERY, System.nanoTime() - 1_500_000);
+        StageTimer.record(StageTimer.Stage.SERIALIZE, System.nanoTime() - 20_000);
+
+        String header = serverTiming();
+
+        assertTrue(header.matches("query;dur=1\\.\\d{3}, serialize;dur=0\\.0\\d{2}, total;dur=\\d+\\.\\d{3}"), header);
+    }
+
+    @Test
+    public void withoutTimerNothingIsMeasured() {
+        StageTimer.record(StageTimer.Stage.QUERY, System.nanoTime());
+
+        assertNull(serverTiming());
+    }
+
+    @Test
+    public void executeQueryIsTimedAsQuery() throws Exception {
+        StageTimer.begin("timer-query");
+        try (Connection conn = TestDatabase.open("stage_timer");
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM productos");
+             ResultSet rs = StageTimer.executeQuery(stmt)) {
+            rs.next();
+        }
+
+        assertTrue(serverTiming().startsWith("query;dur="));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void endRecordsLatencyUntilReset() {
+        for (int i = 0; i < 3; i++) {
+            StageTimer.begin("timer-stats");
+            StageTimer.record(StageTimer.Stage.MAP, System.nanoTime() - 2_000_000);
+            StageTimer.end();
+        }
+
+        Map<String, Object> stages = (Map<String, Object>) StageTimer.getStats(true).get("timer-stats");
+        Map<String, Object> map = (Map<String, Object>) stages.get("map");
+        assertEquals(3L, map.get("count"));
+        assertTrue((Double) map.get("p50_ms") >= 2.0);
+        assertEquals(3L, ((Map<String, Object>) stages.get("total")).get("count"));
+        assertNull(stages.get("query"));
+
+        stages = (Map<String, Object>) StageTimer.getStats(false).get("timer-stats");
+        assertEquals(0L, ((Map<String, Object>) stages.get("map")).get("count"));
+    }
+
+    private static String serverTiming() {
+        return StageTimer.header(new HttpResponseMessageMock.HttpResponseMessageBuilderMock().status(HttpStatus.OK))
+            .build()
+            .getHeader(StageTimer.HEADER);
+    }
+}
@@ -0,0 +1,119 @@
+package com.function;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static com.function.InventoryMovementTest.movement;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El modo write-behind se activa desde la ejecución write-behind de surefire en el pom;
+ * el resto de las pruebas corre con el modo apagado.
+ */
+public class StockAggregatorTest {
+
+    private static StockAggregator aggregator;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        TestDatabase.usePool();
+        assertTrue(StockAggregator.ENABLED);
+        aggregator = StockAggregator.getInstance();
+    }
+
+    @Test
+    public void reservesInMemoryAndFlushesToTheDatabase() throws Exception {
+        int id = insertProducto(10);
+
+        Map<String, Object> result = aggregator.reserve(movement(id, "SALIDA", 3));
+        assertEquals(10, result.get("stock_anterior"));
+        assertEquals(7, result.get("stock_nuevo"));
+        assertEquals(1, result.get("bodega_id"));
+
+        await(() -> stock(id) == 7);
+        try (Connection conn = ConnectionPool.getConnection()) {
+            assertEquals(1, TestDatabase.movimientos(conn, id));
+        }
+    }
+
+    @Test
+    public void rejectsOverdraftAndUnknownProducts() throws Exception {
+        int id = insertProducto(2);
+
+        Map<String, Object> result = aggregator.reserve(movement(id, "SALIDA", 5));
+        assertEquals(2, result.get("stock_actual"));
+        assertNull(result.get("stock_nuevo"));
+
+        assertNull(aggregator.reserve(movement(999_999, "ENTRADA", 1)));
+        assertThrows(IllegalArgumentException.class, () -> aggregator.reserve(movement(id, "AJUSTE", 1)));
+    }
+
+    @Test
+    public void fencePersistsPendingAndReloadsDirectWrites() throws Exception {
+        int id = insertProducto(10);
+        aggregator.reserve(movement(id, "ENTRADA", 5));
+
+        try (StockAggregator.Fence fence = StockAggregator.fence(List.of(id));
+             Connection conn = ConnectionPool.getConnection()) {
+            // Lo pendiente queda escrito antes de la escritura directa
+            assertEquals(15, TestDatabase.stock(conn, id));
+            TestDatabase.update(conn, "UPDATE productos SET stock = 100 WHERE id = ?", id);
+        }
+
+        Map<String, Object> result = aggregator.reserve(movement(id, "SALIDA", 1));
+        assertEquals(100, result.get("stock_anterior"));
+        assertEquals(99, result.get("stock_nuevo"));
+    }
+
+    @Test
+    public void deadLettersMovementsTheDatabaseRejects() throws Exception {
+        int id = insertProducto(10);
+        aggregator.reserve(movement(id, "ENTRADA", 1));
+        await(() -> stock(id) == 11);
+        long deadLettered = (Long) aggregator.getStats().get("dead_lettered");
+
+        // Escritura directa sin fence: el slot queda con un stock que la BD ya no tiene
+        try (Connection conn = ConnectionPool.getConnection()) {
+            TestDatabase.update(conn, "UPDATE productos SET stock = 0 WHERE id = ?", id);
+        }
+        assertEquals(6, aggregator.reserve(movement(id, "SALIDA", 5)).get("stock_nuevo"));
+
+        await(() -> (Long) aggregator.getStats().get("dead_lettered") == deadLettered + 1);
+        assertEquals(0, stock(id));
+        List<?> deadLetters = (List<?>) aggregator.getStats().get("dead_letters");
+        assertTrue(deadLetters.stream().anyMatch(entry -> ((Map<?, ?>) entry).get("producto_id").equals(id)));
+
+        // El slot descartado se recarga desde la BD
+        Map<String, Object> result = aggregator.reserve(movement(id, "SALIDA", 1));
+        assertEquals(0, result.get("stock_actual"));
+        assertNull(result.get("stock_nuevo"));
+    }
+
+    private static int insertProducto(int stock) throws Exception {
+        try (Connection conn = ConnectionPool.getConnection()) {
+            return TestDatabase.insertProducto(conn, stock, 0, 1000);
+        }
+    }
+
+    private static int stock(int id) {
+        try (Connection conn = ConnectionPool.getConnection()) {
+            return TestDatabase.stock(conn, id);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("La condición no se cumplió en 5 s");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
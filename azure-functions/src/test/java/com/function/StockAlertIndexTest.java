@@ -0,0 +1,107 @@
+package com.function;
+
+import java.sql.Connection;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StockAlertIndexTest {
+
+    @Test
+    public void keysOrderBySeverityThenDeviation() {
+        List<StockAlertIndex.Key> keys = new ArrayList<>(List.of(
+            new StockAlertIndex.Key(2, 5.0, 1),
+            new StockAlertIndex.Key(1, 0.2, 2),
+            new StockAlertIndex.Key(1, 0.6, 4),
+            new StockAlertIndex.Key(1, 0.6, 3),
+            new StockAlertIndex.Key(0, 1.0, 5)));
+
+        Collections.sort(keys);
+
+        assertEquals(List.of(5, 3, 4, 2, 1), keys.stream().map(StockAlertIndex.Key::id).toList());
+    }
+
+    @Test
+    public void cursorRoundTrips() {
+        StockAlertIndex.Key key = new StockAlertIndex.Key(1, 0.375, 42);
+
+        assertEquals(key, StockAlertIndex.Key.decode(key.encode()));
+        for (String cursor : new String[] {"no base64!", KeysetPage.encodeCursor(42)}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> StockAlertIndex.Key.decode(cursor));
+            assertEquals("Cursor inválido: " + cursor, e.getMessage());
+        }
+    }
+
+    @Test
+    public void pagesAlertsFromTheDatabase() throws Exception {
+        try (Connection conn = TestDatabase.open("stock_alert_index")) {
+            int media = TestDatabase.insertProducto(conn, 30, 5, 10);
+            int altaLeve = TestDatabase.insertProducto(conn, 4, 5, 10);
+            int critica = TestDatabase.insertProducto(conn, 0, 5, 10);
+            int alta = TestDatabase.insertProducto(conn, 2, 5, 10);
+            TestDatabase.insertProducto(conn, 7, 5, 10);
+
+            StockAlertIndex.Page first = StockAlertIndex.query(conn, null, null, 2);
+            assertEquals(List.of(critica, alta), ids(first));
+            assertEquals(4, first.total());
+            assertEquals(Map.of("CRITICA", 1, "ALTA", 2, "MEDIA", 1), first.porSeveridad());
+            assertTrue(first.hasMore());
+
+            StockAlertIndex.Page second = StockAlertIndex.query(conn, null, first.nextCursor(), 2);
+            assertEquals(List.of(altaLeve, media), ids(second));
+            assertFalse(second.hasMore());
+            assertNull(second.nextCursor());
+
+            StockAlertIndex.Page altas = StockAlertIndex.query(conn, 1, null, 10);
+            assertEquals(List.of(alta, altaLeve), ids(altas));
+            assertEquals(2, altas.total());
+        }
+    }
+
+    @Test
+    public void movedAlertIsListedOnceAtItsNewPosition() throws Exception {
+        TestDatabase.usePool();
+        int id;
+        try (Connection conn = ConnectionPool.getConnection()) {
+            id = TestDatabase.insertProducto(conn, 2, 5, 10);
+        }
+        StockAlertIndex index = StockAlertIndex.getInstance();
+        assertEquals(List.of("ALTA"), severities(index, id));
+
+        try (Connection conn = ConnectionPool.getConnection()) {
+            TestDatabase.update(conn, "UPDATE productos SET stock = 0 WHERE id = ?", id);
+        }
+        StockAlertIndex.markChanged(id);
+        await(() -> severities(index, id).equals(List.of("CRITICA")));
+
+        try (Connection conn = ConnectionPool.getConnection()) {
+            TestDatabase.update(conn, "UPDATE productos SET stock = 7 WHERE id = ?", id);
+        }
+        StockAlertIndex.markChanged(id);
+        await(() -> severities(index, id).isEmpty());
+    }
+
+    private static List<Integer> ids(StockAlertIndex.Page page) {
+        return page.alertas().stream().map(StockAlert::id).toList();
+    }
+
+    private static List<String> severities(StockAlertIndex index, int id) {
+        return index.page(null, null, Integer.MAX_VALUE).alertas().stream()
+            .filter(alert -> alert.id() == id)
+            .map(StockAlert::severidad)
+            .toList();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("La condición no se cumplió en 5 s");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.function;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+
+/**
+ * Bases H2 en memoria (MODE=PostgreSQL) con el esquema de inventario, para las
+ * pruebas que pasan por JDBC.
+ *
+ * {@link #open} crea una base nueva por prueba. {@link ConnectionPool} se
+ * inicializa una sola vez por JVM, así que las pruebas que lo usan comparten la
+ * base de {@link #usePool}; cada una crea sus propios productos.
+ */
+final class TestDatabase {
+
+    private static final String POOL = "pool";
+
+    private static boolean poolReady;
+
+    private TestDatabase() {
+    }
+
+    static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * Base nueva con el esquema, una categoría y dos bodegas (ids 1 y 2).
+     */
+    static Connection open(String name) throws SQLException {
+        Connection conn = DriverManager.getConnection(url(name), "sa", "");
+        create(conn);
+        return conn;
+    }
+
+    /**
+     * Apunta {@link ConnectionPool} a la base compartida; debe llamarse antes
+     * de la primera conexión del pool.
+     */
+    static synchronized void usePool() throws SQLException {
+        if (poolReady) {
+            return;
+        }
+        try (Connection conn = open(POOL)) {
+            // la base sigue viva por DB_CLOSE_DELAY=-1
+        }
+        System.setProperty("POSTGRES_URL", url(POOL));
+        System.setProperty("POSTGRES_USER", "sa");
+        System.setProperty("POSTGRES_PASSWORD", "");
+        poolReady = true;
+    }
+
+    static int insertProducto(Connection conn, int stock, int stockMinimo, int stockMaximo) throws SQLException {
+        String sql = "INSERT INTO productos (sku, nombre, stock, stock_minimo, stock_maximo, precio, categoria_id, bodega_id) " +
+                     "VALUES (?, ?, ?, ?, ?, 100, 1, 1)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            String sku = "SKU-" + System.nanoTime();
+            stmt.setString(1, sku);
+            stmt.setString(2, "Producto " + sku);
+            stmt.setInt(3, stock);
+            stmt.setInt(4, stockMinimo);
+            stmt.setInt(5, stockMaximo);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    static int stock(Connection conn, int productoId) throws SQLException {
+        return queryInt(conn, "SELECT stock FROM productos WHERE id = ?", productoId);
+    }
+
+    static int movimientos(Connection conn, int productoId) throws SQLException {
+        return queryInt(conn, "SELECT COUNT(*) FROM movimientos_inventario WHERE producto_id = ?", productoId);
+    }
+
+    static void update(Connection conn, String sql, Object... params) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    private static int queryInt(Connection conn, String sql, int param) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, param);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static void create(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : readSchema().split(";")) {
+                if (!sql.isBlank()) {
+                    stmt.execute(sql);
+                }
+            }
+            stmt.execute("INSERT INTO categorias (nombre) VALUES ('Categoria 1')");
+            stmt.execute("INSERT INTO bodegas (nombre, capacidad_max) VALUES ('Bodega 1', 1000), ('Bodega 2', 1000)");
+        }
+    }
+
+    private static String readSchema() {
+        try (InputStream in = TestDatabase.class.getResourceAsStream("/schema.sql")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
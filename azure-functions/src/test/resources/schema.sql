@@ -0,0 +1,67 @@
+-- Esquema de inventario para las pruebas, el mismo de benchmarks/. Válido en H2 con MODE=PostgreSQL.
+-- Cada prueba lo recrea en su propia base en memoria.
+DROP TABLE IF EXISTS movimientos_inventario;
+DROP TABLE IF EXISTS productos;
+DROP TABLE IF EXISTS bodegas;
+DROP TABLE IF EXISTS categorias;
+
+-- version: ver CatalogVersion (en H2 no hay trigger, solo cambia en los INSERT)
+CREATE SEQUENCE IF NOT EXISTS catalogo_version_seq;
+
+CREATE TABLE categorias (
+    id SERIAL PRIMARY KEY,
+    nombre VARCHAR(50) NOT NULL UNIQUE,
+    descripcion VARCHAR(255),
+    estado VARCHAR(20) DEFAULT 'ACTIVO',
+    creado_en TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    modificado_en TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT DEFAULT nextval('catalogo_version_seq') NOT NULL
+);
+
+CREATE TABLE bodegas (
+    id SERIAL PRIMARY KEY,
+    nombre VARCHAR(100) NOT NULL,
+    direccion VARCHAR(255),
+    telefono VARCHAR(20),
+    email VARCHAR(100),
+    responsable VARCHAR(100),
+    estado VARCHAR(20) DEFAULT 'ACTIVO',
+    capacidad_max INTEGER DEFAULT 0,
+    creado_en TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    modificado_en TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT DEFAULT nextval('catalogo_version_seq') NOT NULL
+);
+
+CREATE TABLE productos (
+    id SERIAL PRIMARY KEY,
+    sku VARCHAR(50) NOT NULL UNIQUE,
+    nombre VARCHAR(120) NOT NULL,
+    descripcion VARCHAR(500),
+    stock INTEGER DEFAULT 0 NOT NULL CHECK (stock >= 0),
+    stock_minimo INTEGER DEFAULT 0,
+    stock_maximo INTEGER,
+    precio NUMERIC(10,2) DEFAULT 0,
+    categoria_id INTEGER REFERENCES categorias(id),
+    bodega_id INTEGER REFERENCES bodegas(id),
+    estado VARCHAR(20) DEFAULT 'ACTIVO',
+    unidad_medida VARCHAR(20) DEFAULT 'UNIDAD',
+    peso NUMERIC(8,2),
+    dimensiones VARCHAR(50),
+    creado_en TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    modificado_en TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT DEFAULT nextval('catalogo_version_seq') NOT NULL
+);
+
+CREATE TABLE movimientos_inventario (
+    id BIGSERIAL PRIMARY KEY,
+    producto_id INTEGER NOT NULL REFERENCES productos(id),
+    bodega_id INTEGER NOT NULL REFERENCES bodegas(id),
+    tipo_movimiento VARCHAR(20) NOT NULL,
+    cantidad INTEGER NOT NULL,
+    stock_anterior INTEGER NOT NULL,
+    stock_nuevo INTEGER NOT NULL,
+    motivo VARCHAR(255),
+    referencia VARCHAR(100),
+    fecha_movimiento TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    usuario VARCHAR(50) DEFAULT 'SYSTEM'
+);
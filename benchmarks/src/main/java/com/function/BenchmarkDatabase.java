@@ -0,0 +1,103 @@
+package com.function;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+
+/**
+ * Base H2 en memoria (MODE=PostgreSQL) con el esquema de inventario y datos sintéticos.
+ *
+ * Con {@code -Dbench.url=jdbc:postgresql://...} (y {@code bench.user} /
+ * {@code bench.password}) se usa un PostgreSQL local en su lugar; el esquema
+ * se recrea, así que debe ser una base desechable.
+ */
+public final class BenchmarkDatabase {
+
+    private BenchmarkDatabase() {
+    }
+
+    public static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * Prepara la base y apunta {@link ConnectionPool} a ella mediante las
+     * propiedades POSTGRES_*. Debe llamarse antes de la primera invocación de
+     * una función, ya que el pool se inicializa una sola vez por JVM.
+     */
+    public static void configurePool(int productos) throws SQLException, IOException {
+        String url = System.getProperty("bench.url", url("functions"));
+        String user = System.getProperty("bench.user", "sa");
+        String password = System.getProperty("bench.password", "");
+
+        try (Connection conn = DriverManager.getConnection(url, user, password)) {
+            create(conn, productos);
+        }
+
+        System.setProperty("POSTGRES_URL", url);
+        System.setProperty("POSTGRES_USER", user);
+        System.setProperty("POSTGRES_PASSWORD", password);
+    }
+
+    public static boolean isPostgres() {
+        return System.getProperty("bench.url", "").startsWith("jdbc:postgresql:");
+    }
+
+    /**
+     * Crea el esquema y carga {@code productos} productos repartidos en 10 bodegas y 10 categorías.
+     */
+    public static void create(Connection conn, int productos) throws SQLException, IOException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : readSchema().split(";")) {
+                if (!sql.isBlank()) {
+                    stmt.execute(sql);
+                }
+            }
+        }
+
+        try (PreparedStatement categoria = conn.prepareStatement("INSERT INTO categorias (nombre, descripcion) VALUES (?, ?)");
+             PreparedStatement bodega = conn.prepareStatement("INSERT INTO bodegas (nombre, direccion, responsable, capacidad_max) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= 10; i++) {
+                categoria.setString(1, "Categoria " + i);
+                categoria.setString(2, "Descripcion de la categoria " + i);
+                categoria.addBatch();
+
+                bodega.setString(1, "Bodega " + i);
+                bodega.setString(2, "Direccion " + i);
+                bodega.setString(3, "Responsable " + i);
+                bodega.setInt(4, 100000);
+                bodega.addBatch();
+            }
+            categoria.executeBatch();
+            bodega.executeBatch();
+        }
+
+        String sql = "INSERT INTO productos (sku, nombre, descripcion, stock, stock_minimo, stock_maximo, precio, categoria_id, bodega_id, peso, dimensiones) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 1; i <= productos; i++) {
+                stmt.setString(1, "SKU-" + i);
+                stmt.setString(2, "Producto " + i);
+                stmt.setString(3, "Descripcion del producto " + i);
+                // Uno de cada 20 bajo el mínimo, para que las alertas tengan datos
+                stmt.setInt(4, i % 20 == 7 ? i % 10 : 1000 + (i % 50));
+                stmt.setInt(5, 10);
+                stmt.setInt(6, 5000);
+                stmt.setDouble(7, 1000 + i);
+                stmt.setInt(8, 1 + (i % 10));
+                stmt.setInt(9, 1 + (i % 10));
+                stmt.setDouble(10, 1.5);
+                stmt.setString(11, "10x10x10");
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static String readSchema() throws IOException {
+        try (InputStream in = BenchmarkDatabase.class.getResourceAsStream("/schema.sql")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.function;
+
+import java.net.URI;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.microsoft.azure.functions.*;
+
+/**
+ * Request HTTP fijo para invocar las funciones fuera del host de Azure.
+ *
+ * Las respuestas se construyen con {@link HttpResponseMessageMock} de los tests
+ * de azure-functions. Se usa una clase concreta en lugar de mocks de Mockito
+ * para que el costo del stub no se mezcle con lo que se mide.
+ */
+public final class BenchmarkRequest implements HttpRequestMessage<Optional<String>> {
+
+    /** Contexto compartido; solo registra WARNING o superior para no medir la consola. */
+    public static final ExecutionContext CONTEXT = new BenchmarkContext();
+
+    private final HttpMethod method;
+    private final Map<String, String> queryParameters;
+    private final Optional<String> body;
+
+    private BenchmarkRequest(HttpMethod method, Map<String, String> queryParameters, String body) {
+        this.method = method;
+        this.queryParameters = queryParameters;
+        this.body = Optional.ofNullable(body);
+    }
+
+    public static BenchmarkRequest get(Map<String, String> queryParameters) {
+        return new BenchmarkRequest(HttpMethod.GET, queryParameters, null);
+    }
+
+    public static BenchmarkRequest post(String body) {
+        return new BenchmarkRequest(HttpMethod.POST, Collections.emptyMap(), body);
+    }
+
+    /**
+     * Falla si la respuesta no es 200 o trae errores de GraphQL, para no medir por
+     * error una ruta de error (por ejemplo, SQL no soportado por H2).
+     */
+    public static HttpResponseMessage check(HttpResponseMessage response) {
+        if (response.getStatusCode() != 200 || String.valueOf(response.getBody()).contains("\"errors\":")) {
+            throw new IllegalStateException("Respuesta " + response.getStatusCode() + ": " + response.getBody());
+        }
+        return response;
+    }
+
+    @Override
+    public URI getUri() {
+        return URI.create("http://localhost:7071/api/benchmark");
+    }
+
+    @Override
+    public HttpMethod getHttpMethod() {
+        return method;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Map<String, String> getQueryParameters() {
+        return queryParameters;
+    }
+
+    @Override
+    public Optional<String> getBody() {
+        return body;
+    }
+
+    @Override
+    public HttpResponseMessage.Builder createResponseBuilder(HttpStatus status) {
+        return new HttpResponseMessageMock.HttpResponseMessageBuilderMock().status(status);
+    }
+
+    @Override
+    public HttpResponseMessage.Builder createResponseBuilder(HttpStatusType status) {
+        return new HttpResponseMessageMock.HttpResponseMessageBuilderMock().status(status);
+    }
+
+    private static final class BenchmarkContext implements ExecutionContext {
+
+        private final Logger logger;
+
+        BenchmarkContext() {
+            logger = Logger.getLogger("benchmarks");
+            logger.setLevel(Level.WARNING);
+        }
+
+        @Override
+        public Logger getLogger() {
+            return logger;
+        }
+
+        @Override
+        public String getInvocationId() {
+            return "benchmark";
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "benchmark";
+        }
+    }
+}
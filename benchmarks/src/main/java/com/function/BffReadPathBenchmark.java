@@ -0,0 +1,82 @@
+package com.function;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Latencia de las lecturas del catálogo a través del BFF según su camino de
+ * lectura: {@code path=proxied} (BFF → function → BD) o {@code path=direct}
+ * (BFF → BD, catalog.read-path=direct).
+ *
+ * A diferencia del resto, mide contra BFFs ya levantados sobre la misma base:
+ * {@code -Dbench.bff.proxied} (default http://localhost:8080) y
+ * {@code -Dbench.bff.direct} (default http://localhost:8081). Para medir el
+ * camino y no la caché, ambos deben correr con CACHE_CATALOG_TTL_SECONDS=0 y
+ * CACHE_CATALOG_REVALIDATE_TTL_SECONDS=0.
+ *
+ * Las lecturas por id recorren los primeros {@code ids} productos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BffReadPathBenchmark {
+
+    @Param({"proxied", "direct"})
+    public String path;
+
+    @Param({"100"})
+    public int ids;
+
+    private HttpClient client;
+    private String base;
+    private HttpRequest listRequest;
+    private HttpRequest[] byIdRequests;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        base = "direct".equals(path)
+            ? System.getProperty("bench.bff.direct", "http://localhost:8081")
+            : System.getProperty("bench.bff.proxied", "http://localhost:8080");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        listRequest = request("/api/productos?limit=50");
+        byIdRequests = new HttpRequest[ids];
+        for (int i = 0; i < ids; i++) {
+            byIdRequests[i] = request("/api/productos/" + (i + 1));
+        }
+
+        check(list());
+        check(byId());
+    }
+
+    @Benchmark
+    public HttpResponse<byte[]> list() throws IOException, InterruptedException {
+        return client.send(listRequest, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    @Benchmark
+    public HttpResponse<byte[]> byId() throws IOException, InterruptedException {
+        HttpRequest request = byIdRequests[next];
+        next = (next + 1) % byIdRequests.length;
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private HttpRequest request(String uri) {
+        return HttpRequest.newBuilder(URI.create(base + uri)).GET().build();
+    }
+
+    private void check(HttpResponse<byte[]> response) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(base + " respondió " + response.statusCode() + " a " + response.uri());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.function;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Arranque en frío de las funciones, antes y después de {@link Startup} y AppCDS.
+ *
+ * - {@code firstRequest}: primer request (GraphQL + REST de productos) en una
+ *   JVM nueva, cada fork es una instancia recién creada. Con
+ *   {@code startup=true} se corre antes {@link Startup#warmUp}, como haría el
+ *   Warmup trigger antes de mandar tráfico.
+ * - {@code newJvm}: proceso completo desde lanzar {@code java} hasta responder
+ *   ese primer request y salir. Con {@code cds=true} la JVM arranca con un
+ *   archivo AppCDS generado en el setup por una corrida de entrenamiento del
+ *   mismo proceso y con el mismo classpath.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+public class ColdStartBenchmark {
+
+    private static final String GRAPHQL_PRODUCTS =
+        "{\"query\":\"{ productsConnection(first: 20) { edges { node { id sku nombre stock precio " +
+        "warehouse { id nombre } category { id nombre } } } pageInfo { hasNextPage endCursor } } }\"}";
+
+    private static final int PRODUCTOS = 1000;
+
+    @State(Scope.Benchmark)
+    public static class InProcess {
+
+        @Param({"false", "true"})
+        public boolean startup;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            BenchmarkDatabase.configurePool(PRODUCTOS);
+            if (startup) {
+                Startup.warmUp();
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class NewJvm {
+
+        @Param({"false", "true"})
+        public boolean cds;
+
+        private Path archive;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            if (cds) {
+                archive = Files.createTempFile("cold-start", ".jsa");
+                Files.delete(archive);
+                run("-XX:ArchiveClassesAtExit=" + archive);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            if (archive != null) {
+                Files.deleteIfExists(archive);
+            }
+        }
+
+        int launch() throws IOException, InterruptedException {
+            return cds ? run("-XX:SharedArchiveFile=" + archive) : run();
+        }
+    }
+
+    @Benchmark
+    @Fork(10)
+    @Measurement(iterations = 1)
+    public HttpResponseMessage firstRequest(InProcess state) {
+        return firstResponse();
+    }
+
+    @Benchmark
+    @Fork(1)
+    @Measurement(iterations = 10)
+    public int newJvm(NewJvm state) throws IOException, InterruptedException {
+        return state.launch();
+    }
+
+    /**
+     * Proceso lanzado por {@code newJvm}: prepara la base y responde el primer request.
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkDatabase.configurePool(PRODUCTOS);
+        firstResponse();
+    }
+
+    private static HttpResponseMessage firstResponse() {
+        BenchmarkRequest.check(new ProductFunction().run(
+            BenchmarkRequest.post(GRAPHQL_PRODUCTS), "graphql", BenchmarkRequest.CONTEXT));
+        return BenchmarkRequest.check(new ProductFunction().run(
+            BenchmarkRequest.get(Map.of("limit", "20")), "rest", BenchmarkRequest.CONTEXT));
+    }
+
+    // CDS solo acepta jars en el classpath; el de los forks de JMH es benchmarks.jar
+    private static int run(String... jvmArgs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(List.of(jvmArgs));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ColdStartBenchmark.class.getName());
+
+        Process process = new ProcessBuilder(command)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException("El proceso terminó con código " + exitCode + ": " + command);
+        }
+        return exitCode;
+    }
+}
@@ -0,0 +1,85 @@
+package com.function;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Rutas de lectura de {@link InventoryFunction} y el endpoint de movimientos en lote.
+ *
+ * El lote alterna ENTRADA y SALIDA de una unidad sobre los mismos productos para
+ * que el stock no cambie entre iteraciones. Los movimientos individuales están
+ * en {@link InventoryMovementBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryFunctionBenchmark {
+
+    private static final int PRODUCTOS = 1000;
+    private static final int BATCH_SIZE = 100;
+
+    private BenchmarkRequest listRequest;
+    private BenchmarkRequest alertsRequest;
+    private BenchmarkRequest reportRequest;
+    private BenchmarkRequest batchEntradaRequest;
+    private BenchmarkRequest batchSalidaRequest;
+    private boolean salida;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkDatabase.configurePool(PRODUCTOS);
+
+        listRequest = BenchmarkRequest.get(Map.of("limit", "100"));
+        alertsRequest = BenchmarkRequest.get(Map.of("limit", "100"));
+        reportRequest = BenchmarkRequest.get(Map.of());
+        batchEntradaRequest = BenchmarkRequest.post(batchBody("ENTRADA"));
+        batchSalidaRequest = BenchmarkRequest.post(batchBody("SALIDA"));
+
+        BenchmarkRequest.check(list());
+        BenchmarkRequest.check(alerts());
+        BenchmarkRequest.check(report());
+        String batch = String.valueOf(BenchmarkRequest.check(movementBatch()).getBody());
+        if (!batch.contains("\"rechazados\":0")) {
+            throw new IllegalStateException("El lote de prueba tuvo movimientos rechazados: " + batch);
+        }
+    }
+
+    @Benchmark
+    public HttpResponseMessage list() {
+        return new InventoryFunction().run(listRequest, "list", BenchmarkRequest.CONTEXT);
+    }
+
+    @Benchmark
+    public HttpResponseMessage alerts() {
+        return new InventoryFunction().run(alertsRequest, "alerts", BenchmarkRequest.CONTEXT);
+    }
+
+    @Benchmark
+    public HttpResponseMessage report() {
+        return new InventoryFunction().run(reportRequest, "report", BenchmarkRequest.CONTEXT);
+    }
+
+    @Benchmark
+    public HttpResponseMessage movementBatch() {
+        salida = !salida;
+        return new InventoryFunction().runBatch(salida ? batchSalidaRequest : batchEntradaRequest, BenchmarkRequest.CONTEXT);
+    }
+
+    private static String batchBody(String tipo) {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 1; i <= BATCH_SIZE; i++) {
+            if (i > 1) {
+                body.append(',');
+            }
+            body.append("{\"producto_id\":").append(i * (PRODUCTOS / BATCH_SIZE))
+                .append(",\"tipo_movimiento\":\"").append(tipo)
+                .append("\",\"cantidad\":1,\"motivo\":\"benchmark\"}");
+        }
+        return body.append(']').toString();
+    }
+}
@@ -0,0 +1,73 @@
+package com.function;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Movimientos individuales ({@code POST inventory/movement}).
+ *
+ * {@code path=writeBehind} activa {@link StockAggregator} (ENTRADA/SALIDA se
+ * aceptan en memoria y se escriben por lotes). {@code path=direct} usa la
+ * sentencia única con CTE de escritura, que H2 no soporta: requiere
+ * {@code -Dbench.url=jdbc:postgresql://...} y {@code -p path=direct}.
+ *
+ * Cada invocación alterna ENTRADA y SALIDA de una unidad recorriendo los
+ * productos, así que el stock se mantiene estable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryMovementBenchmark {
+
+    private static final int PRODUCTOS = 1000;
+
+    @Param({"writeBehind"})
+    public String path;
+
+    private BenchmarkRequest[] requests;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        if ("direct".equals(path) && !BenchmarkDatabase.isPostgres()) {
+            throw new IllegalStateException("path=direct requiere PostgreSQL (-Dbench.url=jdbc:postgresql://...)");
+        }
+        // Se lee una sola vez al cargar StockAggregator; cada valor de path corre en su propio fork
+        System.setProperty("INVENTORY_WRITE_BEHIND_ENABLED", String.valueOf("writeBehind".equals(path)));
+        BenchmarkDatabase.configurePool(PRODUCTOS);
+
+        requests = new BenchmarkRequest[PRODUCTOS * 2];
+        for (int i = 0; i < requests.length; i++) {
+            String tipo = i < PRODUCTOS ? "ENTRADA" : "SALIDA";
+            requests[i] = BenchmarkRequest.post("{\"producto_id\":" + (1 + i % PRODUCTOS) +
+                ",\"tipo_movimiento\":\"" + tipo + "\",\"cantidad\":1,\"motivo\":\"benchmark\"}");
+        }
+
+        BenchmarkRequest.check(movement());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        // Persiste lo pendiente antes de cerrar el fork; sin el modo activo no hace nada
+        List<Integer> ids = new ArrayList<>(PRODUCTOS);
+        for (int id = 1; id <= PRODUCTOS; id++) {
+            ids.add(id);
+        }
+        try (StockAggregator.Fence fence = StockAggregator.fence(ids)) {
+            // solo se necesita el flush al abrir
+        }
+    }
+
+    @Benchmark
+    public HttpResponseMessage movement() {
+        BenchmarkRequest request = requests[next];
+        next = (next + 1) % requests.length;
+        return new InventoryFunction().run(request, "movement", BenchmarkRequest.CONTEXT);
+    }
+}
@@ -0,0 +1,70 @@
+package com.function;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * {@link ProductFunction#run} por REST y GraphQL, de punta a punta: parseo del
+ * request, consulta a la base, mapeo y serialización de la respuesta.
+ *
+ * Igual que el worker de Java de Azure, cada invocación usa una instancia nueva
+ * de la función, así que el costo del constructor queda incluido.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductFunctionBenchmark {
+
+    private static final String GRAPHQL_PRODUCTS =
+        "{\"query\":\"{ productsConnection(first: 100) { edges { node { id sku nombre stock precio " +
+        "warehouse { id nombre } category { id nombre } } } pageInfo { hasNextPage endCursor } } }\"}";
+
+    private static final String GRAPHQL_PRODUCT =
+        "{\"query\":\"query($id: Int!) { product(id: $id) { id sku nombre stock precio warehouse { nombre } } }\"," +
+        "\"variables\":{\"id\":42}}";
+
+    private BenchmarkRequest listRequest;
+    private BenchmarkRequest byIdRequest;
+    private BenchmarkRequest graphqlListRequest;
+    private BenchmarkRequest graphqlByIdRequest;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkDatabase.configurePool(1000);
+
+        listRequest = BenchmarkRequest.get(Map.of("limit", "100"));
+        byIdRequest = BenchmarkRequest.get(Map.of("id", "42"));
+        graphqlListRequest = BenchmarkRequest.post(GRAPHQL_PRODUCTS);
+        graphqlByIdRequest = BenchmarkRequest.post(GRAPHQL_PRODUCT);
+
+        BenchmarkRequest.check(restList());
+        BenchmarkRequest.check(restById());
+        BenchmarkRequest.check(graphqlConnection());
+        BenchmarkRequest.check(graphqlById());
+    }
+
+    @Benchmark
+    public HttpResponseMessage restList() {
+        return new ProductFunction().run(listRequest, "rest", BenchmarkRequest.CONTEXT);
+    }
+
+    @Benchmark
+    public HttpResponseMessage restById() {
+        return new ProductFunction().run(byIdRequest, "rest", BenchmarkRequest.CONTEXT);
+    }
+
+    @Benchmark
+    public HttpResponseMessage graphqlConnection() {
+        return new ProductFunction().run(graphqlListRequest, "graphql", BenchmarkRequest.CONTEXT);
+    }
+
+    @Benchmark
+    public HttpResponseMessage graphqlById() {
+        return new ProductFunction().run(graphqlByIdRequest, "graphql", BenchmarkRequest.CONTEXT);
+    }
+}
@@ -0,0 +1,90 @@
+package com.function;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Mapeo + serialización de un listado de productos: Map por fila con búsqueda
+ * de columnas por nombre (como antes) contra {@link Producto#fromRow} y
+ * {@link Json#MAPPER}. Ejecutar con {@code -prof gc} para ver la asignación por operación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    private static final String SQL = "SELECT " + Producto.COLUMNS + " FROM productos ORDER BY id LIMIT ?";
+
+    // ObjectMapper por defecto, sin serializadores registrados
+    private static final ObjectMapper PLAIN_MAPPER = new ObjectMapper();
+
+    @Param({"100", "1000"})
+    public int rows;
+
+    private Connection conn;
+    private PreparedStatement stmt;
+
+    @Setup
+    public void setup() throws Exception {
+        conn = DriverManager.getConnection(BenchmarkDatabase.url("rowmapping"), "sa", "");
+        BenchmarkDatabase.create(conn, 1000);
+        stmt = conn.prepareStatement(SQL);
+        stmt.setInt(1, rows);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        stmt.close();
+        conn.close();
+    }
+
+    @Benchmark
+    public String hashMapPerRow() throws Exception {
+        List<Map<String, Object>> products = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                products.add(mapByName(rs));
+            }
+        }
+        return PLAIN_MAPPER.writeValueAsString(products);
+    }
+
+    @Benchmark
+    public String typedRecord() throws Exception {
+        List<Producto> products = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                products.add(Producto.fromRow(rs));
+            }
+        }
+        return Json.write(products);
+    }
+
+    // Mapeo previo a los records, copiado de ProductFunction
+    private static Map<String, Object> mapByName(ResultSet rs) throws SQLException {
+        Map<String, Object> product = new HashMap<>();
+        product.put("id", rs.getInt("id"));
+        product.put("sku", rs.getString("sku"));
+        product.put("nombre", rs.getString("nombre"));
+        product.put("descripcion", rs.getString("descripcion"));
+        product.put("stock", rs.getInt("stock"));
+        product.put("stock_minimo", rs.getInt("stock_minimo"));
+        product.put("stock_maximo", rs.getInt("stock_maximo"));
+        product.put("precio", rs.getDouble("precio"));
+        product.put("categoria_id", rs.getInt("categoria_id"));
+        product.put("bodega_id", rs.getInt("bodega_id"));
+        product.put("estado", rs.getString("estado"));
+        product.put("unidad_medida", rs.getString("unidad_medida"));
+        product.put("peso", rs.getDouble("peso"));
+        product.put("dimensiones", rs.getString("dimensiones"));
+        product.put("creado_en", rs.getTimestamp("creado_en"));
+        product.put("modificado_en", rs.getTimestamp("modificado_en"));
+        return product;
+    }
+}
@@ -0,0 +1,57 @@
+package com.function;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * {@link WarehouseFunction#run} por REST y GraphQL. La consulta GraphQL anida
+ * los productos de cada bodega para medir también el DataLoader.
+ *
+ * Cada invocación usa una instancia nueva de la función, como el worker de Java.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WarehouseFunctionBenchmark {
+
+    private static final String GRAPHQL_WAREHOUSES =
+        "{\"query\":\"{ warehousesConnection(first: 10) { edges { node { id nombre capacidad_max " +
+        "productos_count ocupacion_porcentaje products { id sku stock } } } pageInfo { hasNextPage } } }\"}";
+
+    private BenchmarkRequest listRequest;
+    private BenchmarkRequest byIdRequest;
+    private BenchmarkRequest graphqlRequest;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkDatabase.configurePool(1000);
+
+        listRequest = BenchmarkRequest.get(Map.of());
+        byIdRequest = BenchmarkRequest.get(Map.of("id", "3"));
+        graphqlRequest = BenchmarkRequest.post(GRAPHQL_WAREHOUSES);
+
+        BenchmarkRequest.check(restList());
+        BenchmarkRequest.check(restById());
+        BenchmarkRequest.check(graphqlWithProducts());
+    }
+
+    @Benchmark
+    public HttpResponseMessage restList() {
+        return new WarehouseFunction().run(listRequest, "rest", BenchmarkRequest.CONTEXT);
+    }
+
+    @Benchmark
+    public HttpResponseMessage restById() {
+        return new WarehouseFunction().run(byIdRequest, "rest", BenchmarkRequest.CONTEXT);
+    }
+
+    @Benchmark
+    public HttpResponseMessage graphqlWithProducts() {
+        return new WarehouseFunction().run(graphqlRequest, "graphql", BenchmarkRequest.CONTEXT);
+    }
+}
@@ -4,14 +4,34 @@ import com.example.bff.dto.Models.Product;
 import com.example.bff.dto.Models.Warehouse;
 import com.example.bff.dto.Models.IdRequest;
 import com.example.bff.dto.Models.FunctionResponse;
+import com.example.bff.dto.Models.AlertEvent;
+import com.example.bff.dto.Models.Dashboard;
+import com.example.bff.service.CatalogCache;
+import com.example.bff.service.CatalogCache.Entry;
+import com.example.bff.service.DashboardService;
+import com.example.bff.service.DirectCatalogReader;
+import com.example.bff.service.ItemBatcher;
+import com.example.bff.service.StockAlertStream;
 import jakarta.validation.Valid;
+import java.time.Duration;
 import java.util.Map;
 import java.util.List;
+import java.util.Optional;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import java.util.List;
 
@@ -19,14 +39,42 @@ import java.util.List;
 @RequestMapping("/api")
 public class BffController {
 
+  private static final Logger log = LoggerFactory.getLogger(BffController.class);
+
+  // Cursor de la siguiente página de los listados (ausente en la última página)
+  static final String NEXT_AFTER_ID_HEADER = "X-Next-After-Id";
+
   private final WebClient productFunc;
   private final WebClient warehouseFunc;
+  private final CatalogCache cache;
+  private final StockAlertStream alertStream;
+  private final DashboardService dashboard;
+  // Las lecturas por id que no están en caché se agrupan en una llamada ?ids= por ventana (ver ItemBatcherConfig)
+  private final ItemBatcher productBatcher;
+  private final ItemBatcher warehouseBatcher;
+  // catalog.read-path=direct: las lecturas salen de la base del BFF (si pasó la comprobación); las escrituras siguen en las functions
+  private final DirectCatalogReader direct;
+  private final Duration heartbeat;
 
   public BffController(
       @Qualifier("productFunc") WebClient productFunc,
-      @Qualifier("warehouseFunc") WebClient warehouseFunc) {
+      @Qualifier("warehouseFunc") WebClient warehouseFunc,
+      CatalogCache cache,
+      StockAlertStream alertStream,
+      DashboardService dashboard,
+      DirectCatalogReader direct,
+      @Qualifier("productBatcher") ItemBatcher productBatcher,
+      @Qualifier("warehouseBatcher") ItemBatcher warehouseBatcher,
+      @Value("${alerts.stream.heartbeat-seconds:15}") long heartbeatSeconds) {
     this.productFunc = productFunc;
     this.warehouseFunc = warehouseFunc;
+    this.cache = cache;
+    this.alertStream = alertStream;
+    this.dashboard = dashboard;
+    this.direct = direct;
+    this.productBatcher = productBatcher;
+    this.warehouseBatcher = warehouseBatcher;
+    this.heartbeat = Duration.ofSeconds(heartbeatSeconds);
   }
 
   // Endpoint de health check simple
@@ -42,23 +90,38 @@ public class BffController {
         .uri("/productfunction")
         .contentType(MediaType.APPLICATION_JSON)
         .bodyValue(body)
-        .retrieve().bodyToMono(Product.class);
+        .retrieve().bodyToMono(Product.class)
+        .doFinally(signal -> cache.invalidate(CatalogCache.PRODUCTOS, null));
   }
 
   @GetMapping("/productos")
-  public Mono<List> listProducts() {
-    return productFunc.get()
-        .uri("/productfunction")
-        .retrieve().bodyToMono(FunctionResponse.class)
-        .map(response -> (List) response.data);
+  public Mono<ResponseEntity<List>> listProducts(
+      @RequestParam(name = "after_id", required = false) Integer afterId,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) String ids) {
+    if (ids != null) {
+      return cache.get(CatalogCache.PRODUCTOS, CatalogCache.idsKey(ids), etag -> direct.active()
+          ? direct.productsByIds(ids, etag)
+          : CatalogCache.fetch(productFunc.get()
+              .uri(uri -> uri.path("/productfunction").queryParam("ids", ids).build()), etag))
+          .map(BffController::toPage);
+    }
+    return cache.get(CatalogCache.PRODUCTOS, CatalogCache.listKey(afterId, limit), etag -> direct.active()
+        ? direct.productPage(afterId, limit, etag)
+        : CatalogCache.fetch(productFunc.get()
+            .uri(uri -> uri.path("/productfunction")
+                .queryParamIfPresent("after_id", Optional.ofNullable(afterId))
+                .queryParamIfPresent("limit", Optional.ofNullable(limit))
+                .build()), etag))
+        .map(BffController::toPage);
   }
 
   @GetMapping("/productos/{id}")
-  public Mono<Object> getProduct(@PathVariable Long id) {
-    return productFunc.get()
-        .uri("/productfunction?id=" + id)
-        .retrieve().bodyToMono(FunctionResponse.class)
-        .map(response -> response.data);
+  public Mono<ResponseEntity<Object>> getProduct(@PathVariable Long id) {
+    return cache.get(CatalogCache.PRODUCTOS, CatalogCache.itemKey(id), etag -> direct.active()
+        ? direct.product(id, etag)
+        : productBatcher.get(id, etag))
+        .map(BffController::toItem);
   }
 
   @PutMapping("/productos/{id}")
@@ -68,14 +131,16 @@ public class BffController {
         .uri("/productfunction?id=" + id)
         .contentType(MediaType.APPLICATION_JSON)
         .bodyValue(body)
-        .retrieve().bodyToMono(Product.class);
+        .retrieve().bodyToMono(Product.class)
+        .doFinally(signal -> cache.invalidate(CatalogCache.PRODUCTOS, id));
   }
 
   @DeleteMapping("/productos/{id}")
   public Mono<Void> deleteProduct(@PathVariable Long id) {
     return productFunc.delete()
         .uri("/productfunction?id=" + id)
-        .retrieve().bodyToMono(Void.class);
+        .retrieve().bodyToMono(Void.class)
+        .doFinally(signal -> cache.invalidate(CatalogCache.PRODUCTOS, id));
   }
 
   /* ===================== Bodegas ===================== */
@@ -85,23 +150,38 @@ public class BffController {
         .uri("/warehousefunction")
         .contentType(MediaType.APPLICATION_JSON)
         .bodyValue(body)
-        .retrieve().bodyToMono(Warehouse.class);
+        .retrieve().bodyToMono(Warehouse.class)
+        .doFinally(signal -> cache.invalidate(CatalogCache.BODEGAS, null));
   }
 
   @GetMapping("/bodegas")
-  public Mono<List> listWarehouses() {
-    return warehouseFunc.get()
-        .uri("/warehousefunction")
-        .retrieve().bodyToMono(FunctionResponse.class)
-        .map(response -> (List) response.data);
+  public Mono<ResponseEntity<List>> listWarehouses(
+      @RequestParam(name = "after_id", required = false) Integer afterId,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) String ids) {
+    if (ids != null) {
+      return cache.get(CatalogCache.BODEGAS, CatalogCache.idsKey(ids), etag -> direct.active()
+          ? direct.warehousesByIds(ids, etag)
+          : CatalogCache.fetch(warehouseFunc.get()
+              .uri(uri -> uri.path("/warehousefunction").queryParam("ids", ids).build()), etag))
+          .map(BffController::toPage);
+    }
+    return cache.get(CatalogCache.BODEGAS, CatalogCache.listKey(afterId, limit), etag -> direct.active()
+        ? direct.warehousePage(afterId, limit, etag)
+        : CatalogCache.fetch(warehouseFunc.get()
+            .uri(uri -> uri.path("/warehousefunction")
+                .queryParamIfPresent("after_id", Optional.ofNullable(afterId))
+                .queryParamIfPresent("limit", Optional.ofNullable(limit))
+                .build()), etag))
+        .map(BffController::toPage);
   }
 
   @GetMapping("/bodegas/{id}")
-  public Mono<Object> getWarehouse(@PathVariable Long id) {
-    return warehouseFunc.get()
-        .uri("/warehousefunction?id=" + id)
-        .retrieve().bodyToMono(FunctionResponse.class)
-        .map(response -> response.data);
+  public Mono<ResponseEntity<Object>> getWarehouse(@PathVariable Long id) {
+    return cache.get(CatalogCache.BODEGAS, CatalogCache.itemKey(id), etag -> direct.active()
+        ? direct.warehouse(id, etag)
+        : warehouseBatcher.get(id, etag))
+        .map(BffController::toItem);
   }
 
   @PutMapping("/bodegas/{id}")
@@ -111,13 +191,77 @@ public class BffController {
         .uri("/warehousefunction?id=" + id)
         .contentType(MediaType.APPLICATION_JSON)
         .bodyValue(body)
-        .retrieve().bodyToMono(Warehouse.class);
+        .retrieve().bodyToMono(Warehouse.class)
+        .doFinally(signal -> cache.invalidate(CatalogCache.BODEGAS, id));
   }
 
   @DeleteMapping("/bodegas/{id}")
   public Mono<Void> deleteWarehouse(@PathVariable Long id) {
     return warehouseFunc.delete()
         .uri("/warehousefunction?id=" + id)
-        .retrieve().bodyToMono(Void.class);
+        .retrieve().bodyToMono(Void.class)
+        .doFinally(signal -> cache.invalidate(CatalogCache.BODEGAS, id));
+  }
+
+  /* ===================== Dashboard ===================== */
+  // Productos, bodegas, alertas y reporte en una llamada; con parcial=true si faltó alguna sección
+  @GetMapping("/dashboard")
+  public Mono<ResponseEntity<Dashboard>> getDashboard() {
+    return dashboard.load()
+        .map(body -> ResponseEntity
+            .status(dashboard.allFailed(body) ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK)
+            .body(body));
+  }
+
+  /* ===================== Alertas de stock ===================== */
+  // SSE con las transiciones de alerta; el tipo de evento es el estado nuevo y el id su seq.
+  // Los comentarios periódicos mantienen viva la conexión a través de proxies.
+  @GetMapping(value = "/alertas/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<AlertEvent>> streamAlerts() {
+    Flux<ServerSentEvent<AlertEvent>> events = alertStream.subscribe()
+        .map(event -> ServerSentEvent.builder(event)
+            .id(String.valueOf(event.seq))
+            .event(event.estadoNuevo)
+            .build());
+    Flux<ServerSentEvent<AlertEvent>> keepAlive = Flux.interval(heartbeat)
+        .onBackpressureDrop()
+        .map(tick -> ServerSentEvent.<AlertEvent>builder().comment("keepalive").build());
+    return Flux.merge(events, keepAlive);
+  }
+
+  // Sin conexión a la function (pool lleno, timeout de conexión): 503 para que el cliente reintente.
+  // El detalle (host, puerto, causa) queda en el log, no en la respuesta.
+  @ExceptionHandler(WebClientRequestException.class)
+  public ResponseEntity<Map<String, Object>> functionUnavailable(WebClientRequestException e) {
+    log.warn("Function no disponible: {} {}: {}", e.getMethod(), e.getUri(), e.getMessage());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body(Map.of("success", false, "error", "Function no disponible"));
+  }
+
+  // Error de la function (p. ej. id inexistente, también en lecturas agrupadas): mismo status
+  @ExceptionHandler(WebClientResponseException.class)
+  public ResponseEntity<Map<String, Object>> functionError(WebClientResponseException e) {
+    return ResponseEntity.status(e.getStatusCode())
+        .body(Map.of("success", false, "error", e.getStatusText()));
+  }
+
+  // El ETag de la function pasa al cliente; con If-None-Match igual, WebFlux responde 304 sin cuerpo
+  private static ResponseEntity<Object> toItem(Entry<Object> entry) {
+    return validated(ResponseEntity.ok(), entry).body(entry.body());
+  }
+
+  // El cuerpo sigue siendo la lista; el cursor viaja en un header para no romper a los clientes
+  private static ResponseEntity<List> toPage(Entry<FunctionResponse> entry) {
+    FunctionResponse response = entry.body();
+    ResponseEntity.BodyBuilder builder = validated(ResponseEntity.ok(), entry);
+    if (Boolean.TRUE.equals(response.hasMore) && response.nextAfterId != null) {
+      builder.header(NEXT_AFTER_ID_HEADER, String.valueOf(response.nextAfterId));
+    }
+    return builder.body((List) response.data);
+  }
+
+  private static ResponseEntity.BodyBuilder validated(ResponseEntity.BodyBuilder builder, Entry<?> entry) {
+    return entry.etag() != null ? builder.eTag(entry.etag()) : builder;
   }
 }
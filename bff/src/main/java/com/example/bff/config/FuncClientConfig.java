@@ -1,20 +1,106 @@
 package com.example.bff.config;
 
+import com.example.bff.service.RequestLog;
+import com.example.bff.service.ServerTiming;
+import io.micrometer.observation.ObservationRegistry;
+import io.netty.channel.ChannelOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+/**
+ * WebClients hacia las functions, cada uno con su propio pool de conexiones.
+ *
+ * Cada ajuste se lee de func.http.{cliente}.{ajuste} y, si no está, de
+ * func.http.{ajuste} (por ejemplo FUNC_HTTP_PRODUCT_H2C o FUNC_HTTP_H2C).
+ * El pool es acotado: cuando se llenan las conexiones y la cola de espera,
+ * los requests fallan rápido en vez de encolarse sin límite. Los gauges del
+ * pool se publican en Micrometer como reactor.netty.connection.provider.*
+ * con el nombre func-{cliente}, y cada llamada en el timer
+ * http.client.requests con los tags client, uri (path de la function),
+ * method, status y outcome.
+ *
+ * Cada llamada suma al Server-Timing del request su duración y las etapas que
+ * reporta la function, con el cliente como prefijo (ver {@link ServerTiming}),
+ * y lleva el correlation id del request en X-Correlation-Id (ver {@link RequestLog}).
+ */
 @Configuration
-public class FuncClientConfig {
+public class FuncClientConfig implements DisposableBean {
+
+  private final Environment env;
+  private final ObservationRegistry observations;
+  private final RequestLog requestLog;
+  private final List<ConnectionProvider> providers = new ArrayList<>();
+
+  public FuncClientConfig(Environment env, ObservationRegistry observations, RequestLog requestLog) {
+    this.env = env;
+    this.observations = observations;
+    this.requestLog = requestLog;
+  }
 
   @Bean(name = "productFunc")
   public WebClient productFunc(@Value("${func.productBaseUrl}") String base) {
-    return WebClient.builder().baseUrl(base).build();
+    return build("product", base);
   }
 
   @Bean(name = "warehouseFunc")
   public WebClient warehouseFunc(@Value("${func.warehouseBaseUrl}") String base) {
-    return WebClient.builder().baseUrl(base).build();
+    return build("warehouse", base);
+  }
+
+  @Bean(name = "inventoryFunc")
+  public WebClient inventoryFunc(@Value("${func.inventoryBaseUrl}") String base) {
+    return build("inventory", base);
+  }
+
+  @Override
+  public void destroy() {
+    providers.forEach(ConnectionProvider::dispose);
+  }
+
+  private WebClient build(String client, String base) {
+    ConnectionProvider provider = ConnectionProvider.builder("func-" + client)
+        .maxConnections(setting(client, "max-connections", Integer.class))
+        .pendingAcquireMaxCount(setting(client, "pending-acquire-max", Integer.class))
+        .pendingAcquireTimeout(Duration.ofMillis(setting(client, "pending-acquire-timeout-ms", Long.class)))
+        .maxIdleTime(Duration.ofMillis(setting(client, "max-idle-time-ms", Long.class)))
+        .maxLifeTime(Duration.ofMillis(setting(client, "max-life-time-ms", Long.class)))
+        .evictInBackground(Duration.ofMillis(setting(client, "evict-interval-ms", Long.class)))
+        .metrics(true)
+        .build();
+    providers.add(provider);
+
+    HttpClient http = HttpClient.create(provider)
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, setting(client, "connect-timeout-ms", Integer.class))
+        .responseTimeout(Duration.ofMillis(setting(client, "response-timeout-ms", Long.class)))
+        .compress(setting(client, "compress", Boolean.class));
+    if (setting(client, "h2c", Boolean.class)) {
+      // h2c por Upgrade desde HTTP/1.1: si el servidor no lo acepta, sigue en HTTP/1.1
+      http = http.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+    }
+
+    return WebClient.builder()
+        .baseUrl(base)
+        .clientConnector(new ReactorClientHttpConnector(http))
+        .filter(ServerTiming.upstream(client))
+        .filter(requestLog.downstream(client))
+        .observationRegistry(observations)
+        .observationConvention(new FuncClientObservationConvention(client))
+        .build();
+  }
+
+  private <T> T setting(String client, String name, Class<T> type) {
+    T value = env.getProperty("func.http." + client + "." + name, type);
+    return value != null ? value : env.getRequiredProperty("func.http." + name, type);
   }
 }
@@ -0,0 +1,43 @@
+package com.example.bff.config;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientRequestObservationContext;
+import org.springframework.web.reactive.function.client.DefaultClientRequestObservationConvention;
+
+/**
+ * Tags del timer http.client.requests para los WebClient hacia las functions.
+ *
+ * Las llamadas arman la URL con el id o la lista de ids en el query string
+ * (?id=5, ?ids=1,2,3), así que el uri es solo el path de la function
+ * (/api/productfunction): un valor por ruta y no uno por id. Se agrega el tag
+ * client=product|warehouse|inventory.
+ */
+class FuncClientObservationConvention extends DefaultClientRequestObservationConvention {
+
+  private final KeyValue client;
+
+  FuncClientObservationConvention(String client) {
+    this.client = KeyValue.of("client", client);
+  }
+
+  @Override
+  public KeyValues getLowCardinalityKeyValues(ClientRequestObservationContext context) {
+    return super.getLowCardinalityKeyValues(context).and(client);
+  }
+
+  @Override
+  protected KeyValue uri(ClientRequestObservationContext context) {
+    ClientRequest request = context.getRequest();
+    if (request != null) {
+      return KeyValue.of("uri", request.url().getPath());
+    }
+    String template = context.getUriTemplate();
+    if (template != null) {
+      int query = template.indexOf('?');
+      return KeyValue.of("uri", query >= 0 ? template.substring(0, query) : template);
+    }
+    return super.uri(context);
+  }
+}
@@ -0,0 +1,41 @@
+package com.example.bff.config;
+
+import com.example.bff.service.ItemBatcher;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Agrupadores de las lecturas por id de productos y bodegas (ver {@link ItemBatcher}).
+ *
+ * Las lecturas que no están en caché y llegan dentro de
+ * cache.catalog.batch-window-ms se envían en una sola llamada ?ids= de hasta
+ * cache.catalog.batch-max-size ids. Hay uno por function, con el nombre
+ * productBatcher o warehouseBatcher para elegirlo con @Qualifier.
+ */
+@Configuration
+public class ItemBatcherConfig {
+
+  private final Duration window;
+  private final int maxBatch;
+
+  public ItemBatcherConfig(
+      @Value("${cache.catalog.batch-window-ms:5}") long batchWindowMs,
+      @Value("${cache.catalog.batch-max-size:200}") int batchMaxSize) {
+    this.window = Duration.ofMillis(batchWindowMs);
+    this.maxBatch = batchMaxSize;
+  }
+
+  @Bean(name = "productBatcher")
+  public ItemBatcher productBatcher(@Qualifier("productFunc") WebClient productFunc) {
+    return new ItemBatcher(productFunc, "/productfunction", window, maxBatch);
+  }
+
+  @Bean(name = "warehouseBatcher")
+  public ItemBatcher warehouseBatcher(@Qualifier("warehouseFunc") WebClient warehouseFunc) {
+    return new ItemBatcher(warehouseFunc, "/warehousefunction", window, maxBatch);
+  }
+}
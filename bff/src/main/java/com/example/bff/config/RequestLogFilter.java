@@ -0,0 +1,32 @@
+package com.example.bff.config;
+
+import com.example.bff.service.RequestLog;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Asigna el correlation id del request, lo devuelve en X-Correlation-Id y
+ * escribe la línea de acceso muestreada (ver {@link RequestLog}).
+ */
+@Component
+public class RequestLogFilter implements WebFilter {
+
+  private final RequestLog requestLog;
+
+  public RequestLogFilter(RequestLog requestLog) {
+    this.requestLog = requestLog;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    String correlationId = RequestLog.correlationId(exchange.getRequest().getHeaders().getFirst(RequestLog.HEADER));
+    exchange.getResponse().getHeaders().set(RequestLog.HEADER, correlationId);
+    long started = System.nanoTime();
+    return chain.filter(exchange)
+        .contextWrite(RequestLog.context(correlationId))
+        .doFinally(signal -> requestLog.access(exchange, correlationId, started));
+  }
+}
@@ -0,0 +1,39 @@
+package com.example.bff.config;
+
+import com.example.bff.service.ServerTiming;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Agrega a cada respuesta el header Server-Timing con los tiempos de las
+ * functions llamadas para el request y el total del BFF (ver {@link ServerTiming}).
+ *
+ * El header expone cómo se reparte la latencia por dentro; se puede apagar con
+ * server-timing.enabled=false.
+ */
+@Component
+public class ServerTimingFilter implements WebFilter {
+
+  private final boolean enabled;
+
+  public ServerTimingFilter(@Value("${server-timing.enabled:true}") boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    if (!enabled) {
+      return chain.filter(exchange);
+    }
+    ServerTiming timing = new ServerTiming();
+    exchange.getResponse().beforeCommit(() -> {
+      exchange.getResponse().getHeaders().set(ServerTiming.HEADER, timing.header());
+      return Mono.empty();
+    });
+    return chain.filter(exchange).contextWrite(ServerTiming.context(timing));
+  }
+}
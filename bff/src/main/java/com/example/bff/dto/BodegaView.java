@@ -0,0 +1,32 @@
+package com.example.bff.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.LocalDateTime;
+
+/**
+ * Bodega para lecturas, con el mismo JSON que entrega WarehouseFunction
+ * (snake_case, fechas en epoch ms). Se arma directo desde la consulta JPQL.
+ */
+public record BodegaView(
+    Long id,
+    String nombre,
+    String direccion,
+    String telefono,
+    String email,
+    String responsable,
+    String estado,
+    @JsonProperty("capacidad_max") Integer capacidadMax,
+    @JsonProperty("creado_en") Long creadoEn,
+    @JsonProperty("modificado_en") Long modificadoEn,
+    @JsonIgnore long version
+) {
+
+    // Usado por las consultas de BodegaRepository
+    public BodegaView(Long id, String nombre, String direccion, String telefono, String email,
+                      String responsable, String estado, Integer capacidadMax,
+                      LocalDateTime creadoEn, LocalDateTime modificadoEn, Long version) {
+        this(id, nombre, direccion, telefono, email, responsable, estado, capacidadMax,
+            Timestamps.millis(creadoEn), Timestamps.millis(modificadoEn), version != null ? version : 0);
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.bff.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
+import java.util.Map;
 
 public class Models {
   public static class Product {
@@ -15,6 +17,42 @@ public class Models {
     public String nombre;
     public String direccion;
   }
+  // Transición de alerta de un producto (InventoryFunction /inventory/alert-events)
+  public static class AlertEvent {
+    public Long seq;
+    @JsonProperty("producto_id")
+    public Long productoId;
+    public String sku;
+    public String nombre;
+    @JsonProperty("estado_anterior")
+    public String estadoAnterior;
+    @JsonProperty("estado_nuevo")
+    public String estadoNuevo;
+    public Integer stock;
+    @JsonProperty("stock_minimo")
+    public Integer stockMinimo;
+    @JsonProperty("stock_maximo")
+    public Integer stockMaximo;
+    @JsonProperty("creado_en")
+    public Long creadoEn;
+  }
+  // Página de alertas de stock (InventoryFunction /inventory/alerts)
+  public static class AlertPage {
+    public List<Object> data;
+    @JsonProperty("total_alertas")
+    public Integer totalAlertas;
+    @JsonProperty("por_severidad")
+    public Map<String, Integer> porSeveridad;
+  }
+  // Datos de la página principal; las secciones que fallaron quedan en null y en errores
+  public static class Dashboard {
+    public Object productos;
+    public Object bodegas;
+    public AlertPage alertas;
+    public Object reporte;
+    public boolean parcial;
+    public Map<String, String> errores;
+  }
   public static class IdRequest {
     public Long id;
   }
@@ -23,6 +61,16 @@ public class Models {
     public boolean success;
     public T data;
     public Integer total;
+    @JsonProperty("has_more")
+    public Boolean hasMore;
+    @JsonProperty("next_after_id")
+    public Integer nextAfterId;
+    @JsonProperty("next_cursor")
+    public String nextCursor;
+    // Lecturas por ids: ETag de cada ítem e ids que no existen
+    public Map<String, String> etags;
+    @JsonProperty("no_encontrados")
+    public List<Long> noEncontrados;
     public String message;
     public String timestamp;
   }
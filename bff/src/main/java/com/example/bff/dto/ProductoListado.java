@@ -0,0 +1,29 @@
+package com.example.bff.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Fila de listado de productos con los nombres de su categoría y bodega.
+ *
+ * Proyección por interfaz de ProductoRepository.findListado: una sola consulta
+ * con LEFT JOIN trae solo estas columnas, sin entidades administradas ni
+ * relaciones LAZY que cargar después.
+ */
+public interface ProductoListado {
+
+    Long getId();
+
+    String getSku();
+
+    String getNombre();
+
+    Integer getStock();
+
+    BigDecimal getPrecio();
+
+    String getEstado();
+
+    String getCategoria();
+
+    String getBodega();
+}
@@ -0,0 +1,42 @@
+package com.example.bff.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Producto para lecturas, con el mismo JSON que entrega ProductFunction
+ * (snake_case, fechas en epoch ms). Se arma directo desde la consulta JPQL
+ * ({@code SELECT new ...}), sin cargar la entidad ni sus relaciones.
+ */
+public record ProductoView(
+    Long id,
+    String sku,
+    String nombre,
+    String descripcion,
+    Integer stock,
+    @JsonProperty("stock_minimo") Integer stockMinimo,
+    @JsonProperty("stock_maximo") Integer stockMaximo,
+    BigDecimal precio,
+    @JsonProperty("categoria_id") Long categoriaId,
+    @JsonProperty("bodega_id") Long bodegaId,
+    String estado,
+    @JsonProperty("unidad_medida") String unidadMedida,
+    BigDecimal peso,
+    String dimensiones,
+    @JsonProperty("creado_en") Long creadoEn,
+    @JsonProperty("modificado_en") Long modificadoEn,
+    @JsonIgnore long version
+) {
+
+    // Usado por las consultas de ProductoRepository
+    public ProductoView(Long id, String sku, String nombre, String descripcion, Integer stock,
+                        Integer stockMinimo, Integer stockMaximo, BigDecimal precio, Long categoriaId,
+                        Long bodegaId, String estado, String unidadMedida, BigDecimal peso,
+                        String dimensiones, LocalDateTime creadoEn, LocalDateTime modificadoEn, Long version) {
+        this(id, sku, nombre, descripcion, stock, stockMinimo, stockMaximo, precio, categoriaId, bodegaId,
+            estado, unidadMedida, peso, dimensiones, Timestamps.millis(creadoEn), Timestamps.millis(modificadoEn),
+            version != null ? version : 0);
+    }
+}
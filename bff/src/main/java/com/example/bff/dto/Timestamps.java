@@ -0,0 +1,17 @@
+package com.example.bff.dto;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Conversión de las columnas de fecha al formato de las functions: epoch ms en el JSON.
+ */
+final class Timestamps {
+
+    private Timestamps() {
+    }
+
+    static Long millis(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value).getTime() : null;
+    }
+}
@@ -66,6 +66,10 @@ public class Producto {
     @Column(name = "MODIFICADO_POR", length = 50)
     private String modificadoPor = "SYSTEM";
     
+    // La asigna la BD en cada INSERT y UPDATE (secuencia y trigger); solo se lee para los ETags
+    @Column(name = "VERSION", insertable = false, updatable = false)
+    private Long version;
+    
     // Constructores
     public Producto() {}
     
@@ -134,6 +138,8 @@ public class Producto {
     public String getModificadoPor() { return modificadoPor; }
     public void setModificadoPor(String modificadoPor) { this.modificadoPor = modificadoPor; }
     
+    public Long getVersion() { return version; }
+    
     @PrePersist
     protected void onCreate() {
         creadoEn = LocalDateTime.now();
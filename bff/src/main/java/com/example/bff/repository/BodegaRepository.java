@@ -1,14 +1,32 @@
 package com.example.bff.repository;
 
+import com.example.bff.dto.BodegaView;
 import com.example.bff.entity.Bodega;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BodegaRepository extends JpaRepository<Bodega, Long> {
     
+    // Proyección de lectura: solo las columnas de BodegaView
+    String VIEW = "SELECT new com.example.bff.dto.BodegaView(b.id, b.nombre, b.direccion, b.telefono, b.email, " +
+                  "b.responsable, b.estado, b.capacidadMax, b.creadoEn, b.modificadoEn, b.version) FROM Bodega b ";
+    
+    @Query(VIEW + "WHERE b.id > :afterId ORDER BY b.id")
+    List<BodegaView> findViewsAfter(@Param("afterId") Long afterId, Limit limit);
+    
+    @Query(VIEW + "WHERE b.id = :id")
+    Optional<BodegaView> findViewById(@Param("id") Long id);
+    
+    @Query(VIEW + "WHERE b.id IN :ids")
+    List<BodegaView> findViewsByIds(@Param("ids") Collection<Long> ids);
+    
     List<Bodega> findByEstado(String estado);
     
     @Query("SELECT b FROM Bodega b WHERE b.estado = 'ACTIVO'")
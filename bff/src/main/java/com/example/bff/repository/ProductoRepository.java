@@ -1,22 +1,54 @@
 package com.example.bff.repository;
 
+import com.example.bff.dto.ProductoListado;
+import com.example.bff.dto.ProductoView;
 import com.example.bff.entity.Producto;
 import com.example.bff.entity.Categoria;
 import com.example.bff.entity.Bodega;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductoRepository extends JpaRepository<Producto, Long> {
     
+    // Proyección de lectura: solo las columnas de ProductoView; categoria.id y bodega.id salen de la FK sin join
+    String VIEW = "SELECT new com.example.bff.dto.ProductoView(p.id, p.sku, p.nombre, p.descripcion, p.stock, " +
+                  "p.stockMinimo, p.stockMaximo, p.precio, p.categoria.id, p.bodega.id, p.estado, " +
+                  "p.unidadMedida, p.peso, p.dimensiones, p.creadoEn, p.modificadoEn, p.version) FROM Producto p ";
+    
+    @Query(VIEW + "WHERE p.id > :afterId ORDER BY p.id")
+    List<ProductoView> findViewsAfter(@Param("afterId") Long afterId, Limit limit);
+    
+    @Query(VIEW + "WHERE p.id = :id")
+    Optional<ProductoView> findViewById(@Param("id") Long id);
+    
+    @Query(VIEW + "WHERE p.id IN :ids")
+    List<ProductoView> findViewsByIds(@Param("ids") Collection<Long> ids);
+    
+    // Categoría y bodega vienen en la misma consulta (LEFT JOIN), así que
+    // recorrerlas o serializarlas no dispara una consulta por fila
+    
+    @Override
+    @EntityGraph(attributePaths = {"categoria", "bodega"})
+    List<Producto> findAll();
+    
+    @Override
+    @EntityGraph(attributePaths = {"categoria", "bodega"})
+    Optional<Producto> findById(Long id);
+    
+    @EntityGraph(attributePaths = {"categoria", "bodega"})
     Optional<Producto> findBySku(String sku);
     
     List<Producto> findByEstado(String estado);
     
+    @EntityGraph(attributePaths = {"categoria", "bodega"})
     @Query("SELECT p FROM Producto p WHERE p.estado = 'ACTIVO'")
     List<Producto> findAllActive();
     
@@ -24,7 +56,30 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     
     List<Producto> findByBodega(Bodega bodega);
     
-    @Query("SELECT p FROM Producto p WHERE p.stock <= p.stockMinimo")
+    // Por id de la relación, sin cargar antes la Categoria o la Bodega
+    @Query("SELECT p FROM Producto p LEFT JOIN FETCH p.categoria LEFT JOIN FETCH p.bodega " +
+           "WHERE p.categoria.id = :categoriaId")
+    List<Producto> findByCategoriaId(@Param("categoriaId") Long categoriaId);
+    
+    @Query("SELECT p FROM Producto p LEFT JOIN FETCH p.categoria LEFT JOIN FETCH p.bodega " +
+           "WHERE p.bodega.id = :bodegaId")
+    List<Producto> findByBodegaId(@Param("bodegaId") Long bodegaId);
+    
+    // Listado liviano: solo columnas, con los nombres de categoría y bodega resueltos en el JOIN
+    @Query("SELECT p.id AS id, p.sku AS sku, p.nombre AS nombre, p.stock AS stock, p.precio AS precio, " +
+           "p.estado AS estado, c.nombre AS categoria, b.nombre AS bodega " +
+           "FROM Producto p LEFT JOIN p.categoria c LEFT JOIN p.bodega b ORDER BY p.id")
+    List<ProductoListado> findListado();
+    
+    /**
+     * Productos bajo el mínimo, primero los de mayor faltante relativo. La
+     * expresión es la del índice IDX_PRODUCTOS_STOCK_BAJO, que solo indexa
+     * productos en alerta, así que Oracle no recorre la tabla completa.
+     */
+    @Query(value = "SELECT * FROM PRODUCTOS " +
+                   "WHERE CASE WHEN STOCK <= STOCK_MINIMO THEN (STOCK_MINIMO - STOCK) / GREATEST(STOCK_MINIMO, 1) END >= 0 " +
+                   "ORDER BY CASE WHEN STOCK <= STOCK_MINIMO THEN (STOCK_MINIMO - STOCK) / GREATEST(STOCK_MINIMO, 1) END DESC, ID",
+           nativeQuery = true)
     List<Producto> findProductosConStockBajo();
     
     @Query("SELECT p FROM Producto p WHERE p.stock = 0")
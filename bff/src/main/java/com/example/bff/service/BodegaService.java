@@ -1,10 +1,13 @@
 package com.example.bff.service;
 
+import com.example.bff.dto.BodegaView;
 import com.example.bff.entity.Bodega;
 import com.example.bff.repository.BodegaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,26 +18,48 @@ public class BodegaService {
     @Autowired
     private BodegaRepository bodegaRepository;
     
+    @Transactional(readOnly = true)
     public List<Bodega> findAll() {
         return bodegaRepository.findAll();
     }
     
+    @Transactional(readOnly = true)
     public List<Bodega> findAllActive() {
         return bodegaRepository.findAllActive();
     }
     
+    @Transactional(readOnly = true)
     public Optional<Bodega> findById(Long id) {
         return bodegaRepository.findById(id);
     }
     
+    @Transactional(readOnly = true)
     public List<Bodega> findByResponsable(String responsable) {
         return bodegaRepository.findByResponsable(responsable);
     }
     
+    @Transactional(readOnly = true)
     public List<Bodega> findByCapacidadMinima(Integer capacidad) {
         return bodegaRepository.findByCapacidadMinima(capacidad);
     }
     
+    // Lecturas por proyección para el camino directo del BFF (ver DirectCatalogReader)
+    
+    @Transactional(readOnly = true)
+    public List<BodegaView> findViewsAfter(long afterId, int limit) {
+        return bodegaRepository.findViewsAfter(afterId, Limit.of(limit));
+    }
+    
+    @Transactional(readOnly = true)
+    public Optional<BodegaView> findViewById(Long id) {
+        return bodegaRepository.findViewById(id);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<BodegaView> findViewsByIds(Collection<Long> ids) {
+        return bodegaRepository.findViewsByIds(ids);
+    }
+    
     public Bodega save(Bodega bodega) {
         return bodegaRepository.save(bodega);
     }
@@ -67,6 +92,7 @@ public class BodegaService {
         }
     }
     
+    @Transactional(readOnly = true)
     public boolean existsById(Long id) {
         return bodegaRepository.existsById(id);
     }
@@ -0,0 +1,195 @@
+package com.example.bff.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import com.example.bff.dto.Models.FunctionResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Caché de las lecturas del catálogo (productos y bodegas) que el BFF pide a las functions.
+ *
+ * Cada entrada guarda el future de la llamada, así que los misses concurrentes
+ * de una misma clave esperan la misma llamada en vez de hacer una cada uno.
+ * Los errores y las respuestas vacías no se guardan. Las entradas vencen a los
+ * cache.catalog.ttl-seconds; las escrituras hechas por este BFF invalidan al
+ * momento el ítem y todas las páginas del listado. Los cambios hechos por
+ * otros caminos se ven a lo más tras el TTL.
+ *
+ * Una carga que estaba en curso al invalidar pudo leer los datos de antes de
+ * la escritura: cada carga anota la generación de su caché al empezar, cada
+ * invalidación la incrementa, y una carga que termina con otra generación
+ * responde a quienes la esperaban pero no queda en caché.
+ *
+ * Cada entrada lleva el ETag que mandó la function. Al vencer, la última
+ * versión se conserva hasta cache.catalog.revalidate-ttl-seconds y la
+ * siguiente lectura la revalida con If-None-Match: si la function responde
+ * 304 se reutiliza sin volver a descargar ni deserializar el cuerpo.
+ *
+ * Cada lectura marca en el Server-Timing del request (ver {@link ServerTiming})
+ * si fue hit o miss; solo el pedido que dispara la carga recibe además los
+ * tiempos de la function.
+ *
+ * Hits, misses y evictions se publican en Micrometer como cache.* con
+ * cache=productos|bodegas.
+ */
+@Component
+public class CatalogCache {
+
+    public static final String PRODUCTOS = "productos";
+    public static final String BODEGAS = "bodegas";
+
+    private static final String ITEM_PREFIX = "id:";
+    private static final String LIST_PREFIX = "list:";
+
+    /**
+     * Cuerpo de una respuesta de la function y su ETag (null si no lo mandó).
+     */
+    public record Entry<T>(T body, String etag) {
+    }
+
+    private record Stores(AsyncCache<String, Entry<?>> fresh, Cache<String, Entry<?>> validated,
+                          AtomicLong generation) {
+    }
+
+    private final Map<String, Stores> caches;
+
+    public CatalogCache(
+            MeterRegistry registry,
+            @Value("${cache.catalog.ttl-seconds:30}") long ttlSeconds,
+            @Value("${cache.catalog.revalidate-ttl-seconds:600}") long revalidateTtlSeconds,
+            @Value("${cache.catalog.max-size:10000}") long maxSize) {
+        this.caches = Map.of(
+            PRODUCTOS, create(registry, PRODUCTOS, ttlSeconds, revalidateTtlSeconds, maxSize),
+            BODEGAS, create(registry, BODEGAS, ttlSeconds, revalidateTtlSeconds, maxSize));
+    }
+
+    public static String itemKey(Long id) {
+        return ITEM_PREFIX + id;
+    }
+
+    public static String listKey(Integer afterId, Integer limit) {
+        return LIST_PREFIX + afterId + ":" + limit;
+    }
+
+    // Como listado: cualquier escritura lo invalida
+    public static String idsKey(String ids) {
+        return LIST_PREFIX + "ids:" + ids;
+    }
+
+    /**
+     * Valor en caché o el resultado de {@code loader}, que se suscribe una sola
+     * vez por clave aunque haya varios pedidos simultáneos.
+     *
+     * {@code loader} recibe el ETag de la última versión conocida (o null) y
+     * termina vacío si la function confirmó que no cambió.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<Entry<T>> get(String cache, String key, Function<String, Mono<Entry<T>>> loader) {
+        Stores stores = caches.get(cache);
+        return Mono.deferContextual(context -> {
+            boolean[] miss = {false};
+            long generation = stores.generation().get();
+            // El contexto del pedido que dispara la carga (su ServerTiming) pasa al loader
+            CompletableFuture<Entry<?>> future = stores.fresh().get(key, (k, executor) -> {
+                miss[0] = true;
+                CompletableFuture<Entry<?>> loading = load(stores, k, loader, generation).contextWrite(context).toFuture();
+                loading.whenComplete((entry, error) -> discardIfStale(stores, k, loading, generation));
+                return loading;
+            });
+            if (miss[0]) {
+                // Si terminó antes de quedar en la caché, whenComplete no la encontró
+                discardIfStale(stores, key, future, generation);
+            }
+            ServerTiming.from(context).ifPresent(timing -> timing.describe("cache", cache + (miss[0] ? ":miss" : ":hit")));
+            // Cancelar un pedido no cancela la llamada que comparten los demás
+            return Mono.fromFuture(future, true);
+        })
+            .map(entry -> (Entry<T>) entry);
+    }
+
+    /**
+     * GET condicional a una function con el ETag conocido, para usar como
+     * loader de {@link #get}; termina vacío si la function respondió 304.
+     */
+    public static Mono<Entry<FunctionResponse>> fetch(WebClient.RequestHeadersSpec<?> request, String etag) {
+        return request
+            .headers(headers -> {
+                if (etag != null) {
+                    headers.setIfNoneMatch(etag);
+                }
+            })
+            .exchangeToMono(response -> {
+                if (response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                    return response.releaseBody().then(Mono.<Entry<FunctionResponse>>empty());
+                }
+                if (response.statusCode().is2xxSuccessful()) {
+                    String responseEtag = response.headers().asHttpHeaders().getETag();
+                    return response.bodyToMono(FunctionResponse.class)
+                        .map(body -> new Entry<FunctionResponse>(body, responseEtag));
+                }
+                return response.createError();
+            });
+    }
+
+    /**
+     * Invalida el ítem (si {@code id} no es null) y todas las páginas del listado.
+     * Se conservan los ETags: si la escritura no tocó una página, revalidarla cuesta un 304.
+     */
+    public void invalidate(String cache, Long id) {
+        Stores stores = caches.get(cache);
+        stores.generation().incrementAndGet();
+        // La vista asíncrona incluye las cargas en curso y no espera a que terminen
+        Map<String, ?> entries = stores.fresh().asMap();
+        if (id != null) {
+            entries.remove(itemKey(id));
+        }
+        entries.keySet().removeIf(key -> key.startsWith(LIST_PREFIX));
+    }
+
+    private static <T> Mono<Entry<?>> load(Stores stores, String key, Function<String, Mono<Entry<T>>> loader,
+                                           long generation) {
+        Entry<?> known = stores.validated().getIfPresent(key);
+        return loader.apply(known != null ? known.etag() : null)
+            .<Entry<?>>map(entry -> {
+                if (entry.etag() != null && stores.generation().get() == generation) {
+                    stores.validated().put(key, entry);
+                }
+                return entry;
+            })
+            .switchIfEmpty(Mono.justOrEmpty(known));
+    }
+
+    // Quita la carga si hubo una invalidación mientras corría
+    private static void discardIfStale(Stores stores, String key, CompletableFuture<Entry<?>> loading,
+                                       long generation) {
+        if (loading.isDone() && stores.generation().get() != generation) {
+            stores.fresh().asMap().remove(key, loading);
+        }
+    }
+
+    private static Stores create(MeterRegistry registry, String name, long ttlSeconds,
+                                 long revalidateTtlSeconds, long maxSize) {
+        AsyncCache<String, Entry<?>> fresh = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .maximumSize(maxSize)
+            .recordStats()
+            .buildAsync();
+        Cache<String, Entry<?>> validated = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(revalidateTtlSeconds))
+            .maximumSize(maxSize)
+            .build();
+        return new Stores(CaffeineCacheMetrics.monitor(registry, fresh, name), validated, new AtomicLong());
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.bff.service;
+
+import com.example.bff.dto.Models.AlertPage;
+import com.example.bff.dto.Models.Dashboard;
+import com.example.bff.dto.Models.FunctionResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Datos de la página principal (productos, bodegas, alertas y reporte) en una sola respuesta.
+ *
+ * Las cuatro llamadas a las functions salen a la vez, así que la respuesta
+ * tarda lo que la más lenta y no la suma. Cada rama tiene su propio timeout
+ * (dashboard.{rama}.timeout-ms o, si no está, dashboard.timeout-ms); si una
+ * falla o vence, su sección queda en null, se informa en errores y el resto
+ * se entrega igual. Productos y bodegas pasan por {@link CatalogCache}.
+ */
+@Service
+public class DashboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardService.class);
+
+    public static final String PRODUCTOS = "productos";
+    public static final String BODEGAS = "bodegas";
+    public static final String ALERTAS = "alertas";
+    public static final String REPORTE = "reporte";
+
+    private final WebClient productFunc;
+    private final WebClient warehouseFunc;
+    private final WebClient inventoryFunc;
+    private final CatalogCache cache;
+    private final int pageSize;
+    private final Map<String, Duration> timeouts;
+
+    public DashboardService(
+            @Qualifier("productFunc") WebClient productFunc,
+            @Qualifier("warehouseFunc") WebClient warehouseFunc,
+            @Qualifier("inventoryFunc") WebClient inventoryFunc,
+            CatalogCache cache,
+            Environment env,
+            @Value("${dashboard.page-size:20}") int pageSize) {
+        this.productFunc = productFunc;
+        this.warehouseFunc = warehouseFunc;
+        this.inventoryFunc = inventoryFunc;
+        this.cache = cache;
+        this.pageSize = pageSize;
+        long defaultTimeoutMs = env.getProperty("dashboard.timeout-ms", Long.class, 2000L);
+        this.timeouts = Map.of(
+            PRODUCTOS, timeout(env, PRODUCTOS, defaultTimeoutMs),
+            BODEGAS, timeout(env, BODEGAS, defaultTimeoutMs),
+            ALERTAS, timeout(env, ALERTAS, defaultTimeoutMs),
+            REPORTE, timeout(env, REPORTE, defaultTimeoutMs));
+    }
+
+    public Mono<Dashboard> load() {
+        return Mono.defer(() -> {
+            Map<String, String> errores = new ConcurrentHashMap<>();
+            return Mono.zip(
+                    branch(PRODUCTOS, productos(), errores),
+                    branch(BODEGAS, bodegas(), errores),
+                    branch(ALERTAS, alertas(), errores),
+                    branch(REPORTE, reporte(), errores))
+                .map(sections -> {
+                    Dashboard dashboard = new Dashboard();
+                    dashboard.productos = sections.getT1().orElse(null);
+                    dashboard.bodegas = sections.getT2().orElse(null);
+                    dashboard.alertas = sections.getT3().orElse(null);
+                    dashboard.reporte = sections.getT4().orElse(null);
+                    dashboard.parcial = !errores.isEmpty();
+                    dashboard.errores = new TreeMap<>(errores);
+                    return dashboard;
+                });
+        });
+    }
+
+    /**
+     * Si fallaron todas las ramas.
+     */
+    public boolean allFailed(Dashboard dashboard) {
+        return dashboard.errores.size() == timeouts.size();
+    }
+
+    private Mono<Object> productos() {
+        return cache.<FunctionResponse>get(CatalogCache.PRODUCTOS, CatalogCache.listKey(null, pageSize),
+                etag -> CatalogCache.fetch(productFunc.get()
+                    .uri(uri -> uri.path("/productfunction").queryParam("limit", pageSize).build()), etag))
+            .map(entry -> entry.body().data);
+    }
+
+    private Mono<Object> bodegas() {
+        return cache.<FunctionResponse>get(CatalogCache.BODEGAS, CatalogCache.listKey(null, pageSize),
+                etag -> CatalogCache.fetch(warehouseFunc.get()
+                    .uri(uri -> uri.path("/warehousefunction").queryParam("limit", pageSize).build()), etag))
+            .map(entry -> entry.body().data);
+    }
+
+    private Mono<AlertPage> alertas() {
+        return inventoryFunc.get()
+            .uri(uri -> uri.path("/inventory/alerts").queryParam("limit", pageSize).build())
+            .retrieve()
+            .bodyToMono(AlertPage.class);
+    }
+
+    private Mono<Object> reporte() {
+        return inventoryFunc.get()
+            .uri("/inventory/report")
+            .retrieve()
+            .bodyToMono(FunctionResponse.class)
+            .map(response -> response.data);
+    }
+
+    // Nunca falla: un error o timeout deja la sección vacía y queda anotado en errores
+    private <T> Mono<Optional<T>> branch(String name, Mono<T> source, Map<String, String> errores) {
+        Duration timeout = timeouts.get(name);
+        return source
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .timeout(timeout)
+            .onErrorResume(e -> Mono.deferContextual(context -> {
+                String message = e instanceof TimeoutException
+                    ? "Sin respuesta en " + timeout.toMillis() + " ms"
+                    : e.getMessage();
+                log.atWarn()
+                    .addKeyValue("correlationId", RequestLog.correlationId(context))
+                    .log("Dashboard sin {}: {}", name, message);
+                errores.put(name, message);
+                return Mono.just(Optional.<T>empty());
+            }));
+    }
+
+    private static Duration timeout(Environment env, String branch, long defaultMs) {
+        return Duration.ofMillis(env.getProperty("dashboard." + branch + ".timeout-ms", Long.class, defaultMs));
+    }
+}
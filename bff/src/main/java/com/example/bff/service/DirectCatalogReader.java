@@ -0,0 +1,307 @@
+package com.example.bff.service;
+
+import com.example.bff.dto.BodegaView;
+import com.example.bff.dto.Models.FunctionResponse;
+import com.example.bff.dto.ProductoView;
+import com.example.bff.service.CatalogCache.Entry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+/**
+ * Lecturas del catálogo servidas por el BFF desde su propia base (camino
+ * directo, catalog.read-path=direct), sin pasar por las functions.
+ *
+ * Usa las proyecciones de ProductoService y BodegaService en transacciones de
+ * solo lectura sobre el pool Hikari del BFF, y entrega lo mismo que las
+ * functions: el mismo JSON, la misma paginación (after_id, limit, has_more,
+ * next_after_id), la misma lectura por ids y los mismos ETags, así que
+ * {@link CatalogCache} y los clientes no notan el cambio de camino. Las
+ * escrituras siguen yendo a las functions.
+ *
+ * Solo tiene sentido si la base del BFF es la misma PostgreSQL que escriben
+ * las functions; con la Oracle propia del BFF (db/oracle-schema-oci.sql) las
+ * lecturas no verían esas escrituras. Por eso el camino directo no se activa
+ * hasta que {@link #verifySameDatabase} confirma al arrancar que la primera
+ * página de productos y de bodegas tiene aquí el mismo ETag que en las
+ * functions; mientras tanto, o si no coinciden, las lecturas siguen yendo a
+ * las functions.
+ *
+ * JPA bloquea, así que cada consulta corre en el scheduler boundedElastic.
+ */
+@Service
+public class DirectCatalogReader {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectCatalogReader.class);
+
+    // Filas de la página que se compara al arrancar
+    private static final int VERIFY_LIMIT = 50;
+
+    private final ProductoService productos;
+    private final BodegaService bodegas;
+    private final WebClient productFunc;
+    private final WebClient warehouseFunc;
+    private final boolean requested;
+    private final boolean verify;
+    private final int verifyAttempts;
+    private final int defaultLimit;
+    private final int maxLimit;
+    private final int maxIds;
+    private volatile boolean active;
+
+    public DirectCatalogReader(
+            ProductoService productos,
+            BodegaService bodegas,
+            @Qualifier("productFunc") WebClient productFunc,
+            @Qualifier("warehouseFunc") WebClient warehouseFunc,
+            @Value("${catalog.read-path:functions}") String readPath,
+            @Value("${catalog.direct.verify:true}") boolean verify,
+            @Value("${catalog.direct.verify-attempts:10}") int verifyAttempts,
+            @Value("${catalog.direct.default-limit:0}") int defaultLimit,
+            @Value("${catalog.direct.max-limit:1000}") int maxLimit,
+            @Value("${catalog.direct.max-ids:1000}") int maxIds) {
+        this.productos = productos;
+        this.bodegas = bodegas;
+        this.productFunc = productFunc;
+        this.warehouseFunc = warehouseFunc;
+        this.requested = "direct".equalsIgnoreCase(readPath);
+        this.verify = verify;
+        this.verifyAttempts = verifyAttempts;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+        this.maxIds = maxIds;
+    }
+
+    /**
+     * Si las lecturas del catálogo salen de la base del BFF.
+     */
+    public boolean active() {
+        return active;
+    }
+
+    /**
+     * Con catalog.read-path=direct, compara la primera página de productos y
+     * de bodegas leída aquí con la de las functions, mandando a la function el
+     * ETag local: un 304 significa los mismos datos. Reintenta con espera si
+     * las functions aún no responden o si una escritura cayó entre las dos
+     * lecturas. catalog.direct.verify=false activa el camino sin comprobar.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifySameDatabase() {
+        if (!requested) {
+            return;
+        }
+        if (!verify) {
+            log.warn("catalog.read-path=direct sin comprobar la base (catalog.direct.verify=false)");
+            active = true;
+            return;
+        }
+        sameFirstPage(productPage(null, VERIFY_LIMIT, null), productFunc, "/productfunction")
+            .zipWith(sameFirstPage(warehousePage(null, VERIFY_LIMIT, null), warehouseFunc, "/warehousefunction"),
+                Boolean::logicalAnd)
+            .flatMap(same -> same
+                ? Mono.just(true)
+                : Mono.error(new IllegalStateException("los datos de la base del BFF no coinciden con los de las functions")))
+            .retryWhen(Retry.backoff(verifyAttempts, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+            .subscribe(
+                same -> {
+                    active = true;
+                    log.info("Lecturas directas del catálogo activas: la base del BFF coincide con la de las functions");
+                },
+                e -> log.error("catalog.read-path=direct queda sin efecto y las lecturas siguen en las functions: {}",
+                    e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+    }
+
+    // true si la function responde 304 al ETag de la página local
+    private static Mono<Boolean> sameFirstPage(Mono<Entry<FunctionResponse>> local, WebClient function, String path) {
+        return local.flatMap(entry -> CatalogCache.fetch(
+                function.get().uri(uri -> uri.path(path).queryParam("limit", VERIFY_LIMIT).build()), entry.etag())
+            .map(remote -> false)
+            .defaultIfEmpty(true));
+    }
+
+    public Mono<Entry<FunctionResponse>> productPage(Integer afterId, Integer limit, String etag) {
+        return page(afterId, limit, productos::findViewsAfter, ProductoView::id, ProductoView::version, etag);
+    }
+
+    public Mono<Entry<FunctionResponse>> productsByIds(String ids, String etag) {
+        return byIds(ids, productos::findViewsByIds, ProductoView::id, ProductoView::version, etag);
+    }
+
+    public Mono<Entry<Object>> product(Long id, String etag) {
+        return item(() -> productos.findViewById(id), ProductoView::id, ProductoView::version,
+            "Producto no encontrado", etag);
+    }
+
+    public Mono<Entry<FunctionResponse>> warehousePage(Integer afterId, Integer limit, String etag) {
+        return page(afterId, limit, bodegas::findViewsAfter, BodegaView::id, BodegaView::version, etag);
+    }
+
+    public Mono<Entry<FunctionResponse>> warehousesByIds(String ids, String etag) {
+        return byIds(ids, bodegas::findViewsByIds, BodegaView::id, BodegaView::version, etag);
+    }
+
+    public Mono<Entry<Object>> warehouse(Long id, String etag) {
+        return item(() -> bodegas.findViewById(id), BodegaView::id, BodegaView::version,
+            "Bodega no encontrada", etag);
+    }
+
+    @FunctionalInterface
+    private interface PageQuery<T> {
+        List<T> find(long afterId, int limit);
+    }
+
+    private <T> Mono<Entry<FunctionResponse>> page(Integer afterId, Integer limit, PageQuery<T> query,
+                                                   ToLongFunction<T> idOf, ToLongFunction<T> versionOf, String known) {
+        if (afterId != null && afterId < 0) {
+            return badRequest("after_id no puede ser negativo");
+        }
+        if (limit != null && limit <= 0) {
+            return badRequest("limit debe ser mayor a 0");
+        }
+        long after = afterId != null ? afterId : 0;
+        // Sin limit, igual que KeysetPage en las functions: sin tope salvo que se configure uno
+        int size;
+        if (limit != null) {
+            size = Math.min(limit, maxLimit);
+        } else {
+            size = defaultLimit > 0 ? defaultLimit : Integer.MAX_VALUE - 1;
+        }
+
+        return blocking(() -> {
+            // Una fila extra para saber si hay más páginas
+            List<T> rows = new ArrayList<>(query.find(after, size + 1));
+            boolean hasMore = rows.size() > size;
+            if (hasMore) {
+                rows.remove(size);
+            }
+            String etag = listETag(rows, hasMore, idOf, versionOf);
+            if (etag.equals(known)) {
+                return null;
+            }
+            FunctionResponse<Object> response = new FunctionResponse<>();
+            response.success = true;
+            response.data = rows;
+            response.total = rows.size();
+            response.hasMore = hasMore;
+            if (hasMore) {
+                response.nextAfterId = (int) idOf.applyAsLong(rows.get(rows.size() - 1));
+            }
+            return new Entry<FunctionResponse>(response, etag);
+        });
+    }
+
+    private <T> Mono<Entry<FunctionResponse>> byIds(String param, Function<Set<Long>, List<T>> query,
+                                                    ToLongFunction<T> idOf, ToLongFunction<T> versionOf, String known) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (String part : param.split(",")) {
+            String value = part.trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            long id;
+            try {
+                id = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return badRequest("ID inválido en ids: " + value);
+            }
+            if (id <= 0) {
+                return badRequest("ID inválido en ids: " + value);
+            }
+            ids.add(id);
+        }
+        if (ids.isEmpty()) {
+            return badRequest("ids no puede estar vacío");
+        }
+        if (ids.size() > maxIds) {
+            return badRequest("ids admite como máximo " + maxIds + " valores");
+        }
+
+        return blocking(() -> {
+            Map<Long, T> byId = new HashMap<>();
+            for (T row : query.apply(ids)) {
+                byId.put(idOf.applyAsLong(row), row);
+            }
+            // En el orden pedido, como IdList en las functions
+            List<T> rows = new ArrayList<>(byId.size());
+            List<Long> missing = new ArrayList<>();
+            Map<String, String> etags = new LinkedHashMap<>();
+            for (Long id : ids) {
+                T row = byId.get(id);
+                if (row == null) {
+                    missing.add(id);
+                } else {
+                    rows.add(row);
+                    etags.put(String.valueOf(id), itemETag(id, versionOf.applyAsLong(row)));
+                }
+            }
+            String etag = listETag(rows, false, idOf, versionOf);
+            if (etag.equals(known)) {
+                return null;
+            }
+            FunctionResponse<Object> response = new FunctionResponse<>();
+            response.success = true;
+            response.data = rows;
+            response.total = rows.size();
+            response.noEncontrados = missing;
+            response.etags = etags;
+            return new Entry<FunctionResponse>(response, etag);
+        });
+    }
+
+    private <T> Mono<Entry<Object>> item(Callable<Optional<T>> query, ToLongFunction<T> idOf,
+                                         ToLongFunction<T> versionOf, String notFound, String known) {
+        return blocking(() -> {
+            T row = query.call()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, notFound));
+            String etag = itemETag(idOf.applyAsLong(row), versionOf.applyAsLong(row));
+            return etag.equals(known) ? null : new Entry<Object>(row, etag);
+        });
+    }
+
+    // Vacío si la consulta devuelve null (no cambió)
+    private static <R> Mono<R> blocking(Callable<R> query) {
+        return Mono.fromCallable(query).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static <R> Mono<R> badRequest(String message) {
+        return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, message));
+    }
+
+    // Mismo formato que ETags.forRow / ETags.forRows en las functions
+    private static String itemETag(long id, long version) {
+        return "W/\"" + id + "-" + Long.toHexString(version) + "\"";
+    }
+
+    private static <T> String listETag(List<T> rows, boolean hasMore, ToLongFunction<T> idOf, ToLongFunction<T> versionOf) {
+        long sum = 0;
+        for (T row : rows) {
+            sum += versionOf.applyAsLong(row);
+        }
+        String first = rows.isEmpty() ? "" : String.valueOf(idOf.applyAsLong(rows.get(0)));
+        String last = rows.isEmpty() ? "" : String.valueOf(idOf.applyAsLong(rows.get(rows.size() - 1)));
+        return "W/\"" + rows.size() + "-" + first + "-" + last + (hasMore ? "+" : "") + "-" + Long.toHexString(sum) + "\"";
+    }
+}
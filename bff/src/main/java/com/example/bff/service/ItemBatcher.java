@@ -0,0 +1,188 @@
+package com.example.bff.service;
+
+import com.example.bff.dto.Models.FunctionResponse;
+import com.example.bff.service.CatalogCache.Entry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+/**
+ * Agrupa las lecturas por id que llegan a una function dentro de una misma
+ * ventana corta en un solo request {@code ?ids=1,2,3}.
+ *
+ * El primer pedido de una ventana programa el envío a los windowMs; si antes
+ * se juntan maxBatch ids, se envía de inmediato. Los pedidos simultáneos del
+ * mismo id comparten el resultado. Un lote de un solo id usa la lectura por id
+ * con If-None-Match, así que un pedido aislado cuesta lo mismo que antes.
+ *
+ * Sirve como loader de {@link CatalogCache#get}: recibe el ETag conocido y
+ * termina vacío si el ítem no cambió. Un id inexistente termina con el mismo
+ * 404 que la lectura individual.
+ *
+ * El lote se envía fuera del request que lo abrió, así que lleva su propio
+ * contexto: los tiempos de la function van al Server-Timing de todos los
+ * requests que esperan alguno de sus ids, y los correlation ids de esos
+ * requests van a la línea de bff.downstream (el primero se reenvía a la
+ * function, ver {@link RequestLog#context(List)}).
+ */
+public class ItemBatcher {
+
+    private static final ParameterizedTypeReference<FunctionResponse<List<Map<String, Object>>>> BULK_TYPE =
+        new ParameterizedTypeReference<>() {};
+
+    private final WebClient client;
+    private final String path;
+    private final Duration window;
+    private final int maxBatch;
+
+    // Lote en formación; se reemplaza al enviarlo
+    private Map<Long, Pending> pending = new LinkedHashMap<>();
+
+    // timings y correlationIds: los de los requests que esperan este id
+    private record Pending(String etag, CompletableFuture<Entry<Object>> result, List<ServerTiming> timings,
+                           List<String> correlationIds) {
+    }
+
+    public ItemBatcher(WebClient client, String path, Duration window, int maxBatch) {
+        this.client = client;
+        this.path = path;
+        this.window = window;
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * Ítem con su ETag, o vacío si sigue igual a {@code etag}.
+     */
+    public Mono<Entry<Object>> get(Long id, String etag) {
+        return Mono.deferContextual(context ->
+            Mono.fromFuture(enqueue(id, etag, ServerTiming.from(context).orElse(null),
+                RequestLog.correlationId(context)), true));
+    }
+
+    private CompletableFuture<Entry<Object>> enqueue(Long id, String etag, ServerTiming timing, String correlationId) {
+        Map<Long, Pending> full = null;
+        Pending entry;
+        synchronized (this) {
+            entry = pending.get(id);
+            if (entry == null) {
+                entry = new Pending(etag, new CompletableFuture<>(), new ArrayList<>(), new ArrayList<>());
+                pending.put(id, entry);
+                if (pending.size() == 1) {
+                    Map<Long, Pending> batch = pending;
+                    Schedulers.parallel().schedule(() -> flush(batch), window.toMillis(), TimeUnit.MILLISECONDS);
+                }
+                if (pending.size() >= maxBatch) {
+                    full = pending;
+                    pending = new LinkedHashMap<>();
+                }
+            }
+            if (timing != null) {
+                entry.timings().add(timing);
+            }
+            if (correlationId != null) {
+                entry.correlationIds().add(correlationId);
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return entry.result();
+    }
+
+    // Envía el lote si sigue en formación (si se llenó, ya se envió)
+    private void flush(Map<Long, Pending> batch) {
+        synchronized (this) {
+            if (pending != batch) {
+                return;
+            }
+            pending = new LinkedHashMap<>();
+        }
+        send(batch);
+    }
+
+    private void send(Map<Long, Pending> batch) {
+        if (batch.size() == 1) {
+            Map.Entry<Long, Pending> only = batch.entrySet().iterator().next();
+            sendOne(only.getKey(), only.getValue());
+            return;
+        }
+        String ids = batch.keySet().stream().map(String::valueOf).collect(Collectors.joining(","));
+        client.get()
+            .uri(uri -> uri.path(path).queryParam("ids", ids).build())
+            .retrieve()
+            .bodyToMono(BULK_TYPE)
+            .contextWrite(context(batch.values()))
+            .subscribe(response -> complete(batch, response), error -> fail(batch, error));
+    }
+
+    private void sendOne(Long id, Pending request) {
+        CatalogCache.fetch(client.get().uri(uri -> uri.path(path).queryParam("id", id).build()), request.etag())
+            .map(entry -> new Entry<Object>(entry.body().data, entry.etag()))
+            .contextWrite(context(List.of(request)))
+            .subscribe(
+                entry -> request.result().complete(entry),
+                error -> request.result().completeExceptionally(error),
+                // Vacío: 304, no cambió
+                () -> request.result().complete(null));
+    }
+
+    // Los tiempos del lote van al Server-Timing de cada request que lo espera y
+    // sus correlation ids al log de la llamada
+    private static Context context(Collection<Pending> requests) {
+        List<ServerTiming> timings = new ArrayList<>();
+        Set<String> correlationIds = new LinkedHashSet<>();
+        for (Pending request : requests) {
+            timings.addAll(request.timings());
+            correlationIds.addAll(request.correlationIds());
+        }
+        Context context = RequestLog.context(List.copyOf(correlationIds));
+        return timings.isEmpty() ? context : context.putAll(ServerTiming.context(ServerTiming.fanOut(timings)));
+    }
+
+    private static void complete(Map<Long, Pending> batch, FunctionResponse<List<Map<String, Object>>> response) {
+        Map<String, String> etags = response.etags != null ? response.etags : Map.of();
+        List<Map<String, Object>> items = response.data != null ? response.data : new ArrayList<>();
+        for (Map<String, Object> item : items) {
+            Long id = ((Number) item.get("id")).longValue();
+            Pending request = batch.remove(id);
+            if (request == null) {
+                continue;
+            }
+            String etag = etags.get(String.valueOf(id));
+            if (etag != null && Objects.equals(etag, request.etag())) {
+                request.result().complete(null);
+            } else {
+                request.result().complete(new Entry<>(item, etag));
+            }
+        }
+        // Lo que queda no existe
+        batch.forEach((id, request) -> request.result().completeExceptionally(notFound(id)));
+    }
+
+    private static void fail(Map<Long, Pending> batch, Throwable error) {
+        batch.values().forEach(request -> request.result().completeExceptionally(error));
+    }
+
+    private static WebClientResponseException notFound(Long id) {
+        return WebClientResponseException.create(HttpStatus.NOT_FOUND.value(), "No encontrado: " + id,
+            HttpHeaders.EMPTY, new byte[0], StandardCharsets.UTF_8);
+    }
+}
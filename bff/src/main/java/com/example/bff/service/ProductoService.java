@@ -1,17 +1,26 @@
 package com.example.bff.service;
 
+import com.example.bff.dto.ProductoView;
+import com.example.bff.dto.ProductoListado;
 import com.example.bff.entity.Producto;
-import com.example.bff.entity.Categoria;
-import com.example.bff.entity.Bodega;
 import com.example.bff.repository.ProductoRepository;
-import com.example.bff.repository.CategoriaRepository;
-import com.example.bff.repository.BodegaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Productos del BFF sobre JPA.
+ *
+ * Las lecturas corren en transacciones de solo lectura: Hibernate no hace
+ * flush (FlushMode.MANUAL) ni guarda snapshots para dirty checking de las
+ * entidades cargadas, y las relaciones vienen en la misma consulta (ver
+ * ProductoRepository), así que listar miles de productos no dispara una
+ * consulta por fila.
+ */
 @Service
 @Transactional
 public class ProductoService {
@@ -19,38 +28,59 @@ public class ProductoService {
     @Autowired
     private ProductoRepository productoRepository;
     
-    @Autowired
-    private CategoriaRepository categoriaRepository;
-    
-    @Autowired
-    private BodegaRepository bodegaRepository;
-    
+    @Transactional(readOnly = true)
     public List<Producto> findAll() {
         return productoRepository.findAll();
     }
     
+    @Transactional(readOnly = true)
     public List<Producto> findAllActive() {
         return productoRepository.findAllActive();
     }
     
+    @Transactional(readOnly = true)
     public Optional<Producto> findById(Long id) {
         return productoRepository.findById(id);
     }
     
+    @Transactional(readOnly = true)
     public Optional<Producto> findBySku(String sku) {
         return productoRepository.findBySku(sku);
     }
     
+    @Transactional(readOnly = true)
     public List<Producto> findByCategoria(Long categoriaId) {
-        Optional<Categoria> categoria = categoriaRepository.findById(categoriaId);
-        return categoria.map(productoRepository::findByCategoria).orElse(List.of());
+        return productoRepository.findByCategoriaId(categoriaId);
     }
     
+    @Transactional(readOnly = true)
     public List<Producto> findByBodega(Long bodegaId) {
-        Optional<Bodega> bodega = bodegaRepository.findById(bodegaId);
-        return bodega.map(productoRepository::findByBodega).orElse(List.of());
+        return productoRepository.findByBodegaId(bodegaId);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<ProductoListado> findListado() {
+        return productoRepository.findListado();
+    }
+    
+    // Lecturas por proyección para el camino directo del BFF (ver DirectCatalogReader)
+    
+    @Transactional(readOnly = true)
+    public List<ProductoView> findViewsAfter(long afterId, int limit) {
+        return productoRepository.findViewsAfter(afterId, Limit.of(limit));
+    }
+    
+    @Transactional(readOnly = true)
+    public Optional<ProductoView> findViewById(Long id) {
+        return productoRepository.findViewById(id);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<ProductoView> findViewsByIds(Collection<Long> ids) {
+        return productoRepository.findViewsByIds(ids);
     }
     
+    @Transactional(readOnly = true)
     public List<Producto> findProductosConStockBajo() {
         return productoRepository.findProductosConStockBajo();
     }
@@ -108,6 +138,7 @@ public class ProductoService {
         }
     }
     
+    @Transactional(readOnly = true)
     public boolean existsById(Long id) {
         return productoRepository.existsById(id);
     }
@@ -0,0 +1,178 @@
+package com.example.bff.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Correlation id por request y logs muestreados de los caminos calientes.
+ *
+ * Cada request al BFF lleva un correlation id (el header X-Correlation-Id
+ * si viene y es válido, si no uno nuevo) que se devuelve en la respuesta, se
+ * guarda en el contexto de Reactor y se reenvía a las functions, que lo usan
+ * en sus propios logs.
+ *
+ * Hay un logger por categoría, para poder subir o bajar su nivel por separado:
+ * - bff.access: una línea por request (método, path, status, duración).
+ * - bff.downstream: una línea por llamada a una function (cliente, path,
+ *   status, tiempo hasta la respuesta).
+ *
+ * Se escribe 1 de cada logging.sample.{categoria} requests (default
+ * logging.sample.rate); 1 escribe todos y 0 ninguno. La decisión sale del
+ * hash del correlation id, con el mismo criterio que las functions: con la
+ * misma tasa, un request muestreado queda completo en el BFF y en las
+ * functions. Los 5xx y los errores de conexión se escriben siempre. Los campos
+ * van como key-values de SLF4J y solo se arman si la línea se escribe.
+ */
+@Component
+public class RequestLog {
+
+    public static final String HEADER = "X-Correlation-Id";
+
+    public static final String ACCESS = "access";
+    public static final String DOWNSTREAM = "downstream";
+
+    private static final Object KEY = RequestLog.class;
+    private static final Object BATCH_KEY = ItemBatcher.class;
+    private static final int MAX_CORRELATION_ID = 64;
+
+    private static final Logger accessLog = LoggerFactory.getLogger("bff." + ACCESS);
+    private static final Logger downstreamLog = LoggerFactory.getLogger("bff." + DOWNSTREAM);
+
+    private final Environment env;
+    private final int defaultRate;
+    private final Map<String, Integer> rates = new ConcurrentHashMap<>();
+
+    public RequestLog(Environment env, @Value("${logging.sample.rate:100}") int defaultRate) {
+        this.env = env;
+        this.defaultRate = defaultRate;
+    }
+
+    public static Context context(String correlationId) {
+        return Context.of(KEY, correlationId);
+    }
+
+    /**
+     * Contexto de una llamada que atiende a varios requests (un lote de
+     * {@link ItemBatcher}): el primer id se reenvía a la function y todos van
+     * en el campo correlationIds de la línea de bff.downstream.
+     */
+    public static Context context(List<String> correlationIds) {
+        if (correlationIds.isEmpty()) {
+            return Context.empty();
+        }
+        Context context = context(correlationIds.get(0));
+        return correlationIds.size() == 1 ? context : context.put(BATCH_KEY, correlationIds);
+    }
+
+    /**
+     * Correlation id del request actual, o null fuera de un request.
+     */
+    public static String correlationId(ContextView context) {
+        return context.getOrDefault(KEY, null);
+    }
+
+    /**
+     * El id recibido si es corto y sin caracteres de control; si no, uno nuevo.
+     */
+    public static String correlationId(String header) {
+        if (header != null && !header.isEmpty() && header.length() <= MAX_CORRELATION_ID) {
+            boolean valid = true;
+            for (int i = 0; i < header.length() && valid; i++) {
+                char c = header.charAt(i);
+                valid = Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.';
+            }
+            if (valid) {
+                return header;
+            }
+        }
+        // Sin SecureRandom: solo tiene que ser poco probable que se repita
+        return Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    public boolean sampled(String category, String correlationId) {
+        int rate = rates.computeIfAbsent(category,
+            c -> env.getProperty("logging.sample." + c, Integer.class, defaultRate));
+        if (rate <= 1) {
+            return rate == 1;
+        }
+        return Math.floorMod(correlationId.hashCode(), rate) == 0;
+    }
+
+    public void access(ServerWebExchange exchange, String correlationId, long startNanos) {
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        boolean failed = status != null && status.is5xxServerError();
+        if (!failed && !sampled(ACCESS, correlationId)) {
+            return;
+        }
+        accessLog.atLevel(failed ? Level.WARN : Level.INFO)
+            .addKeyValue("correlationId", correlationId)
+            .addKeyValue("method", () -> exchange.getRequest().getMethod().name())
+            .addKeyValue("path", () -> exchange.getRequest().getPath().value())
+            .addKeyValue("status", () -> status != null ? status.value() : 200)
+            .addKeyValue("durationMs", () -> (System.nanoTime() - startNanos) / 1_000_000)
+            .log("request");
+    }
+
+    // Un lote se registra si alguno de sus requests entra en la muestra
+    private boolean sampled(String category, String correlationId, List<String> batched) {
+        return batched != null
+            ? batched.stream().anyMatch(id -> sampled(category, id))
+            : sampled(category, correlationId);
+    }
+
+    /**
+     * Filtro para los WebClient hacia las functions: reenvía el correlation id
+     * y registra la llamada.
+     */
+    public ExchangeFilterFunction downstream(String client) {
+        return (request, next) -> Mono.deferContextual(context -> {
+            String correlationId = correlationId(context);
+            if (correlationId == null) {
+                return next.exchange(request);
+            }
+            List<String> batched = context.getOrDefault(BATCH_KEY, null);
+            ClientRequest withId = ClientRequest.from(request).header(HEADER, correlationId).build();
+            long started = System.nanoTime();
+            return next.exchange(withId)
+                .doOnNext(response -> {
+                    boolean failed = response.statusCode().is5xxServerError();
+                    if (failed || sampled(DOWNSTREAM, correlationId, batched)) {
+                        downstream(downstreamLog.atLevel(failed ? Level.WARN : Level.INFO), correlationId, batched)
+                            .addKeyValue("client", client)
+                            .addKeyValue("method", () -> request.method().name())
+                            .addKeyValue("path", () -> request.url().getPath())
+                            .addKeyValue("status", () -> response.statusCode().value())
+                            .addKeyValue("durationMs", () -> (System.nanoTime() - started) / 1_000_000)
+                            .log("function");
+                    }
+                })
+                .doOnError(e -> downstream(downstreamLog.atWarn(), correlationId, batched)
+                    .addKeyValue("client", client)
+                    .addKeyValue("path", () -> request.url().getPath())
+                    .addKeyValue("durationMs", () -> (System.nanoTime() - started) / 1_000_000)
+                    .log("function sin respuesta: {}", e.toString()));
+        });
+    }
+
+    // correlationIds solo en las llamadas de un lote
+    private static LoggingEventBuilder downstream(LoggingEventBuilder line, String correlationId, List<String> batched) {
+        line.addKeyValue("correlationId", correlationId);
+        return batched != null ? line.addKeyValue("correlationIds", batched) : line;
+    }
+}
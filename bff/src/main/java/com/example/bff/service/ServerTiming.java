@@ -0,0 +1,116 @@
+package com.example.bff.service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Métricas Server-Timing de un request al BFF.
+ *
+ * El filtro web crea una instancia por request y la deja en el contexto de
+ * Reactor; el filtro de los WebClient ({@link #upstream}) le agrega, por cada
+ * llamada a una function hecha para ese request, el tiempo hasta recibir los
+ * headers ({cliente}.http) y las etapas que mandó la function en su propio
+ * Server-Timing, con el nombre del cliente como prefijo
+ * (product.connect, product.query, ...). Al responder se agrega bff con el
+ * total del BFF.
+ *
+ * Las lecturas servidas desde {@link CatalogCache} sin llamar a la function
+ * solo llevan la marca cache;desc="{caché}:hit".
+ */
+public final class ServerTiming {
+
+    public static final String HEADER = "Server-Timing";
+
+    private static final Object KEY = ServerTiming.class;
+
+    private final long startNanos = System.nanoTime();
+    private final Queue<String> metrics = new ConcurrentLinkedQueue<>();
+    // Un lote agrupado sirve a varios requests: sus métricas van a todos
+    private final List<ServerTiming> targets;
+
+    public ServerTiming() {
+        this.targets = List.of();
+    }
+
+    private ServerTiming(List<ServerTiming> targets) {
+        this.targets = targets;
+    }
+
+    public static Context context(ServerTiming timing) {
+        return Context.of(KEY, timing);
+    }
+
+    public static Optional<ServerTiming> from(ContextView context) {
+        return context.getOrEmpty(KEY);
+    }
+
+    /**
+     * Instancia que reenvía cada métrica a todas las de {@code timings}.
+     */
+    public static ServerTiming fanOut(List<ServerTiming> timings) {
+        return new ServerTiming(List.copyOf(timings));
+    }
+
+    /**
+     * Filtro para los WebClient hacia las functions; {@code client} es el prefijo de sus métricas.
+     */
+    public static ExchangeFilterFunction upstream(String client) {
+        return (request, next) -> Mono.deferContextual(context -> {
+            Optional<ServerTiming> timing = from(context);
+            if (timing.isEmpty()) {
+                return next.exchange(request);
+            }
+            long started = System.nanoTime();
+            return next.exchange(request)
+                .doOnNext(response -> timing.get().addUpstream(client, System.nanoTime() - started,
+                    response.headers().asHttpHeaders().getFirst(HEADER)));
+        });
+    }
+
+    public void describe(String metric, String description) {
+        add(metric + ";desc=\"" + description + "\"");
+    }
+
+    /**
+     * Valor del header: las métricas en el orden en que llegaron y al final el total del BFF.
+     */
+    public String header() {
+        StringBuilder header = new StringBuilder();
+        for (String metric : metrics) {
+            header.append(metric).append(", ");
+        }
+        return header.append(duration("bff", System.nanoTime() - startNanos)).toString();
+    }
+
+    private void addUpstream(String client, long nanos, String upstreamHeader) {
+        add(duration(client + ".http", nanos));
+        if (upstreamHeader == null) {
+            return;
+        }
+        for (String metric : upstreamHeader.split(",")) {
+            String trimmed = metric.trim();
+            if (!trimmed.isEmpty()) {
+                add(client + "." + trimmed);
+            }
+        }
+    }
+
+    private void add(String metric) {
+        if (targets.isEmpty()) {
+            metrics.add(metric);
+        } else {
+            targets.forEach(target -> target.add(metric));
+        }
+    }
+
+    private static String duration(String metric, long nanos) {
+        return String.format(Locale.ROOT, "%s;dur=%.3f", metric, nanos / 1_000_000.0);
+    }
+}
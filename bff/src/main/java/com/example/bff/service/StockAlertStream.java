@@ -0,0 +1,170 @@
+package com.example.bff.service;
+
+import com.example.bff.dto.Models.AlertEvent;
+import com.example.bff.dto.Models.FunctionResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+/**
+ * Transiciones de alerta de stock para los clientes SSE.
+ *
+ * Un único poller por instancia sigue el outbox de InventoryFunction
+ * (/inventory/alert-events) con su cursor y reparte cada lote entre todos los
+ * suscriptores; solo corre mientras haya alguno conectado y, al volver a
+ * empezar, arranca desde la posición actual en vez de reenviar lo perdido.
+ *
+ * Las transiciones se combinan por producto dos veces: dentro de cada lote
+ * del poller y en la cola de cada suscriptor mientras no pida más. Un cliente
+ * lento recibe solo el último estado de cada producto (con el estado anterior
+ * que vio por última vez) y nunca más de una entrada pendiente por producto, y
+ * una ráfaga que vuelve al estado inicial no se envía.
+ */
+@Service
+public class StockAlertStream {
+
+    private static final Logger log = LoggerFactory.getLogger(StockAlertStream.class);
+
+    private static final int PAGE_SIZE = 500;
+
+    private static final ParameterizedTypeReference<FunctionResponse<List<AlertEvent>>> PAGE_TYPE =
+        new ParameterizedTypeReference<>() {};
+
+    private final WebClient inventoryFunc;
+    private final Flux<List<AlertEvent>> batches;
+
+    // Solo lo usa el poller, que procesa un tick a la vez
+    private volatile String cursor;
+
+    public StockAlertStream(
+            @Qualifier("inventoryFunc") WebClient inventoryFunc,
+            @Value("${alerts.stream.poll-interval-ms:1000}") long pollIntervalMs) {
+        this.inventoryFunc = inventoryFunc;
+        this.batches = Flux.interval(Duration.ofMillis(pollIntervalMs))
+            .onBackpressureDrop()
+            .concatMap(tick -> poll(), 1)
+            .filter(batch -> !batch.isEmpty())
+            .doOnCancel(() -> cursor = null)
+            .publish()
+            .refCount(1);
+    }
+
+    /**
+     * Transiciones desde el momento de la suscripción, a la velocidad que pida el cliente.
+     */
+    public Flux<AlertEvent> subscribe() {
+        return Flux.create(sink -> {
+            Mailbox mailbox = new Mailbox(sink);
+            Disposable upstream = batches.subscribe(mailbox::offer, sink::error);
+            sink.onRequest(n -> mailbox.drain());
+            sink.onDispose(upstream);
+        });
+    }
+
+    // Lee todas las páginas disponibles; un error se registra y se reintenta en el siguiente tick
+    private Mono<List<AlertEvent>> poll() {
+        return fetch(cursor)
+            .expand(page -> Boolean.TRUE.equals(page.hasMore) ? fetch(page.nextCursor) : Mono.empty())
+            .doOnNext(page -> {
+                if (page.nextCursor != null) {
+                    cursor = page.nextCursor;
+                }
+            })
+            .concatMapIterable(page -> page.data != null ? page.data : List.<AlertEvent>of())
+            .collectList()
+            .map(StockAlertStream::coalesce)
+            .onErrorResume(e -> {
+                log.warn("Error leyendo eventos de alerta: {}", e.getMessage());
+                return Mono.just(List.of());
+            });
+    }
+
+    private Mono<FunctionResponse<List<AlertEvent>>> fetch(String after) {
+        return inventoryFunc.get()
+            .uri(uri -> {
+                uri.path("/inventory/alert-events").queryParam("limit", PAGE_SIZE);
+                if (after != null) {
+                    uri.queryParam("after", after);
+                }
+                return uri.build();
+            })
+            .retrieve()
+            .bodyToMono(PAGE_TYPE);
+    }
+
+    private static List<AlertEvent> coalesce(List<AlertEvent> events) {
+        Map<Long, AlertEvent> byProduct = new LinkedHashMap<>();
+        for (AlertEvent event : events) {
+            byProduct.merge(event.productoId, event, StockAlertStream::merge);
+        }
+        return new ArrayList<>(byProduct.values());
+    }
+
+    /**
+     * Último estado de {@code next} partiendo del estado anterior de
+     * {@code previous}; null (se descarta) si el producto volvió al estado inicial.
+     */
+    private static AlertEvent merge(AlertEvent previous, AlertEvent next) {
+        if (previous.estadoAnterior.equals(next.estadoNuevo)) {
+            return null;
+        }
+        AlertEvent merged = new AlertEvent();
+        merged.seq = next.seq;
+        merged.productoId = next.productoId;
+        merged.sku = next.sku;
+        merged.nombre = next.nombre;
+        merged.estadoAnterior = previous.estadoAnterior;
+        merged.estadoNuevo = next.estadoNuevo;
+        merged.stock = next.stock;
+        merged.stockMinimo = next.stockMinimo;
+        merged.stockMaximo = next.stockMaximo;
+        merged.creadoEn = next.creadoEn;
+        return merged;
+    }
+
+    /**
+     * Cola de un suscriptor con a lo más una transición pendiente por producto.
+     * Solo emite lo que el cliente pidió; el resto espera combinándose.
+     */
+    private static final class Mailbox {
+
+        private final FluxSink<AlertEvent> sink;
+        private final Map<Long, AlertEvent> pending = new LinkedHashMap<>();
+
+        Mailbox(FluxSink<AlertEvent> sink) {
+            this.sink = sink;
+        }
+
+        synchronized void offer(List<AlertEvent> events) {
+            for (AlertEvent event : events) {
+                pending.merge(event.productoId, event, StockAlertStream::merge);
+            }
+            drain();
+        }
+
+        // Se quita de la cola antes de emitir, así un request reentrante no ve el mismo evento
+        synchronized void drain() {
+            Iterator<AlertEvent> it = pending.values().iterator();
+            while (sink.requestedFromDownstream() > 0 && it.hasNext()) {
+                AlertEvent event = it.next();
+                it.remove();
+                sink.next(event);
+                it = pending.values().iterator();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.bff.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.bff.service.CatalogCache.Entry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class CatalogCacheTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final String KEY = CatalogCache.itemKey(1L);
+
+    private CatalogCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+    private final List<String> knownEtags = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        cache = new CatalogCache(new SimpleMeterRegistry(), 30, 600, 100);
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() {
+        Sinks.One<Entry<String>> sink = Sinks.one();
+
+        CompletableFuture<Entry<String>> first = get(etag -> sink.asMono()).toFuture();
+        CompletableFuture<Entry<String>> second = get(etag -> sink.asMono()).toFuture();
+        sink.tryEmitValue(new Entry<>("v1", "W/\"1-a\""));
+
+        assertEquals("v1", first.join().body());
+        assertEquals("v1", second.join().body());
+        assertEquals(1, loads.get());
+        assertEquals("v1", get(etag -> Mono.just(new Entry<>("v2", null))).block(TIMEOUT).body());
+    }
+
+    @Test
+    void notModifiedReusesTheLastVersion() {
+        get(etag -> Mono.just(new Entry<>("v1", "W/\"1-a\""))).block(TIMEOUT);
+        cache.invalidate(CatalogCache.PRODUCTOS, 1L);
+
+        Entry<String> revalidated = get(etag -> Mono.empty()).block(TIMEOUT);
+
+        assertEquals("v1", revalidated.body());
+        assertEquals(List.of("null", "W/\"1-a\""), knownEtags);
+    }
+
+    @Test
+    void loadThatRacedAnInvalidationIsNotCached() {
+        Sinks.One<Entry<String>> sink = Sinks.one();
+        CompletableFuture<Entry<String>> stale = get(etag -> sink.asMono()).toFuture();
+
+        cache.invalidate(CatalogCache.PRODUCTOS, 1L);
+        sink.tryEmitValue(new Entry<>("antes", "W/\"1-a\""));
+
+        // Quien la esperaba recibe la respuesta, pero la siguiente lectura vuelve a cargar
+        assertEquals("antes", stale.join().body());
+        Entry<String> fresh = get(etag -> Mono.just(new Entry<>("despues", "W/\"1-b\""))).block(TIMEOUT);
+        assertEquals("despues", fresh.body());
+        assertEquals(2, loads.get());
+        // Tampoco quedó como versión conocida para revalidar
+        assertEquals(List.of("null", "null"), knownEtags);
+    }
+
+    @Test
+    void invalidationDropsEveryListPage() {
+        String page = CatalogCache.listKey(null, 10);
+        cache.get(CatalogCache.PRODUCTOS, page, etag -> Mono.just(new Entry<>("p1", null))).block(TIMEOUT);
+
+        cache.invalidate(CatalogCache.PRODUCTOS, 99L);
+
+        assertEquals("p2", cache.get(CatalogCache.PRODUCTOS, page,
+            etag -> Mono.just(new Entry<>("p2", null))).block(TIMEOUT).body());
+    }
+
+    @Test
+    void errorsAndEmptyLoadsAreNotCached() {
+        assertThrows(IllegalStateException.class,
+            () -> get(etag -> Mono.error(new IllegalStateException("caída"))).block(TIMEOUT));
+        assertNull(get(etag -> Mono.empty()).block(TIMEOUT));
+
+        assertEquals("v1", get(etag -> Mono.just(new Entry<>("v1", null))).block(TIMEOUT).body());
+        assertEquals(3, loads.get());
+    }
+
+    private Mono<Entry<String>> get(Function<String, Mono<Entry<String>>> loader) {
+        return cache.get(CatalogCache.PRODUCTOS, KEY, etag -> {
+            loads.incrementAndGet();
+            knownEtags.add(String.valueOf(etag));
+            return loader.apply(etag);
+        });
+    }
+}
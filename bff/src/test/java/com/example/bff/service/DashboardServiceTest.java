@@ -0,0 +1,106 @@
+package com.example.bff.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.bff.dto.Models.Dashboard;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+class DashboardServiceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void branchesRunInParallel() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Duration delay = Duration.ofMillis(300);
+        Function<String, ExchangeFunction> tracked = body -> request -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return json(body, delay).doOnNext(response -> inFlight.decrementAndGet());
+        };
+        ExchangeFunction alerts = tracked.apply("{\"data\": [], \"total_alertas\": 0}");
+        ExchangeFunction report = tracked.apply("{\"data\": {\"total\": 3}}");
+        DashboardService service = service(
+            tracked.apply("{\"data\": [{\"id\": 1}]}"),
+            tracked.apply("{\"data\": [{\"id\": 2}]}"),
+            request -> request.url().getPath().endsWith("/alerts") ? alerts.exchange(request) : report.exchange(request),
+            new MockEnvironment());
+
+        Dashboard dashboard = service.load().block(TIMEOUT);
+
+        assertFalse(dashboard.parcial);
+        assertEquals(List.of(Map.of("id", 1)), dashboard.productos);
+        assertEquals(List.of(Map.of("id", 2)), dashboard.bodegas);
+        assertEquals(0, dashboard.alertas.totalAlertas);
+        assertEquals(Map.of("total", 3), dashboard.reporte);
+        // Las cuatro llamadas estuvieron en curso a la vez
+        assertEquals(4, maxInFlight.get());
+    }
+
+    @Test
+    void failedOrSlowBranchesLeaveTheirSectionEmpty() {
+        DashboardService service = service(
+            request -> json("{\"data\": []}", Duration.ZERO),
+            request -> json("{\"data\": []}", Duration.ofSeconds(2)),
+            request -> request.url().getPath().endsWith("/alerts")
+                ? Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build())
+                : json("{\"data\": {}}", Duration.ZERO),
+            new MockEnvironment().withProperty("dashboard.bodegas.timeout-ms", "100"));
+
+        Dashboard dashboard = service.load().block(TIMEOUT);
+
+        assertTrue(dashboard.parcial);
+        assertEquals(List.of("alertas", "bodegas"), List.copyOf(dashboard.errores.keySet()));
+        assertEquals("Sin respuesta en 100 ms", dashboard.errores.get("bodegas"));
+        assertNull(dashboard.bodegas);
+        assertNull(dashboard.alertas);
+        assertEquals(List.of(), dashboard.productos);
+        assertFalse(service.allFailed(dashboard));
+    }
+
+    @Test
+    void allFailedWhenNoBranchAnswers() {
+        ExchangeFunction down = request -> Mono.error(new IllegalStateException("Connection refused"));
+        DashboardService service = service(down, down, down, new MockEnvironment());
+
+        Dashboard dashboard = service.load().block(TIMEOUT);
+
+        assertEquals(4, dashboard.errores.size());
+        assertTrue(service.allFailed(dashboard));
+    }
+
+    private static DashboardService service(ExchangeFunction products, ExchangeFunction warehouses,
+                                            ExchangeFunction inventory, MockEnvironment env) {
+        return new DashboardService(client(products), client(warehouses), client(inventory),
+            new CatalogCache(new SimpleMeterRegistry(), 30, 600, 100), env, 20);
+    }
+
+    private static WebClient client(ExchangeFunction exchange) {
+        return WebClient.builder().baseUrl("http://localhost/api").exchangeFunction(exchange).build();
+    }
+
+    private static Mono<ClientResponse> json(String body, Duration delay) {
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build())
+            .delayElement(delay);
+    }
+}
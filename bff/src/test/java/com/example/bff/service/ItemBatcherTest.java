@@ -0,0 +1,139 @@
+package com.example.bff.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.bff.service.CatalogCache.Entry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+class ItemBatcherTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+
+    @Test
+    void readsInOneWindowShareOneRequest() {
+        ItemBatcher batcher = batcher(Duration.ofMillis(50), 10);
+
+        CompletableFuture<Entry<Object>> one = batcher.get(1L, null).toFuture();
+        CompletableFuture<Entry<Object>> two = batcher.get(2L, null).toFuture();
+        CompletableFuture<Entry<Object>> twoAgain = batcher.get(2L, null).toFuture();
+        CompletableFuture<Entry<Object>> unchanged = batcher.get(3L, etag(3)).toFuture();
+        CompletableFuture<Entry<Object>> missing = batcher.get(4L, null).toFuture();
+
+        assertEquals(Map.of("id", 1), one.join().body());
+        assertEquals(etag(1), one.join().etag());
+        assertSame(two.join(), twoAgain.join());
+        assertNull(unchanged.join());
+        CompletionException error = assertThrows(CompletionException.class, missing::join);
+        assertEquals(HttpStatus.NOT_FOUND, ((WebClientResponseException) error.getCause()).getStatusCode());
+
+        assertEquals(1, requests.size());
+        assertEquals("ids=1,2,3,4", requests.get(0).url().getQuery());
+    }
+
+    @Test
+    void singleIdUsesTheConditionalRead() {
+        ItemBatcher batcher = batcher(Duration.ofMillis(10), 10);
+
+        assertNull(batcher.get(5L, etag(5)).block(TIMEOUT));
+        assertEquals(Map.of("id", 6), batcher.get(6L, etag(99)).block(TIMEOUT).body());
+
+        assertEquals("id=5", requests.get(0).url().getQuery());
+        assertEquals(etag(5), requests.get(0).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+    }
+
+    @Test
+    void fullBatchIsSentWithoutWaitingForTheWindow() {
+        ItemBatcher batcher = batcher(Duration.ofMinutes(1), 2);
+
+        CompletableFuture<Entry<Object>> one = batcher.get(1L, null).toFuture();
+        CompletableFuture<Entry<Object>> two = batcher.get(2L, null).toFuture();
+
+        assertEquals(Map.of("id", 1), one.orTimeout(5, TimeUnit.SECONDS).join().body());
+        assertEquals(Map.of("id", 2), two.join().body());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void batchCarriesTheCorrelationIdOfItsRequests() {
+        ItemBatcher batcher = batcher(Duration.ofMillis(50), 10);
+
+        CompletableFuture<Entry<Object>> one = batcher.get(1L, null)
+            .contextWrite(RequestLog.context("req-1")).toFuture();
+        CompletableFuture<Entry<Object>> two = batcher.get(2L, null)
+            .contextWrite(RequestLog.context("req-2")).toFuture();
+        one.join();
+        two.join();
+
+        assertEquals("req-1", requests.get(0).headers().getFirst(RequestLog.HEADER));
+    }
+
+    private ItemBatcher batcher(Duration window, int maxBatch) {
+        RequestLog requestLog = new RequestLog(new MockEnvironment(), 0);
+        WebClient client = WebClient.builder()
+            .baseUrl("http://localhost/api")
+            .filter(requestLog.downstream("product"))
+            .exchangeFunction(request -> {
+                requests.add(request);
+                return Mono.just(respond(request));
+            })
+            .build();
+        return new ItemBatcher(client, "/productfunction", window, maxBatch);
+    }
+
+    // ids existentes: 1 a 3, 5 y 6; el ETag de cada uno es etag(id)
+    private static ClientResponse respond(ClientRequest request) {
+        String query = request.url().getQuery();
+        if (query.startsWith("id=")) {
+            long id = Long.parseLong(query.substring(3));
+            if (etag(id).equals(request.headers().getFirst(HttpHeaders.IF_NONE_MATCH))) {
+                return ClientResponse.create(HttpStatus.NOT_MODIFIED).build();
+            }
+            return json("{\"success\": true, \"data\": {\"id\": " + id + "}}").header(HttpHeaders.ETAG, etag(id)).build();
+        }
+        assertTrue(query.startsWith("ids="));
+        StringBuilder data = new StringBuilder();
+        StringBuilder etags = new StringBuilder();
+        for (String value : query.substring(4).split(",")) {
+            long id = Long.parseLong(value);
+            if (id == 4) {
+                continue;
+            }
+            data.append(data.length() > 0 ? "," : "").append("{\"id\": ").append(id).append('}');
+            etags.append(etags.length() > 0 ? "," : "").append('"').append(id).append("\": \"")
+                .append(etag(id).replace("\"", "\\\"")).append('"');
+        }
+        return json("{\"success\": true, \"data\": [" + data + "], \"etags\": {" + etags + "}}").build();
+    }
+
+    private static ClientResponse.Builder json(String body) {
+        return ClientResponse.create(HttpStatus.OK)
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .body(body);
+    }
+
+    private static String etag(long id) {
+        return "W/\"" + id + "-a\"";
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.bff.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+class RequestLogTest {
+
+    @Test
+    void keepsValidCorrelationIdsAndReplacesTheRest() {
+        assertEquals("req-1_a.B", RequestLog.correlationId("req-1_a.B"));
+
+        for (String header : new String[] {null, "", "req 1", "req-1\n{}", "x".repeat(65)}) {
+            String generated = RequestLog.correlationId(header);
+            assertNotEquals(header, generated);
+            assertTrue(generated.matches("[0-9a-f]{1,16}"), generated);
+        }
+    }
+
+    @Test
+    void samplesByCategoryRateAndCorrelationIdHash() {
+        MockEnvironment env = new MockEnvironment()
+            .withProperty("logging.sample.access", "1")
+            .withProperty("logging.sample.downstream", "0");
+        RequestLog log = new RequestLog(env, 7);
+
+        assertTrue(log.sampled(RequestLog.ACCESS, "cualquiera"));
+        assertFalse(log.sampled(RequestLog.DOWNSTREAM, "cualquiera"));
+        // Misma regla que las functions: hash del id módulo la tasa
+        for (String id : List.of("a", "req-1", "req-2", "3f2a9c")) {
+            assertEquals(Math.floorMod(id.hashCode(), 7) == 0, log.sampled("otra", id));
+        }
+    }
+
+    @Test
+    void batchContextForwardsTheFirstId() {
+        assertTrue(RequestLog.context(List.of()).isEmpty());
+        assertEquals("req-1", RequestLog.correlationId(RequestLog.context(List.of("req-1"))));
+        assertEquals(1, RequestLog.context(List.of("req-1")).size());
+
+        Context batch = RequestLog.context(List.of("req-2", "req-3"));
+        assertEquals("req-2", RequestLog.correlationId(batch));
+        assertEquals(2, batch.size());
+    }
+
+    @Test
+    void downstreamForwardsTheCorrelationId() {
+        RequestLog log = new RequestLog(new MockEnvironment(), 0);
+        AtomicReference<ClientRequest> sent = new AtomicReference<>();
+        WebClient client = WebClient.builder()
+            .filter(log.downstream("product"))
+            .exchangeFunction(request -> {
+                sent.set(request);
+                return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+            })
+            .build();
+
+        client.get().uri("http://localhost/api/productfunction").retrieve().toBodilessEntity()
+            .contextWrite(RequestLog.context(List.of("req-2", "req-3")))
+            .block(Duration.ofSeconds(5));
+        assertEquals("req-2", sent.get().headers().getFirst(RequestLog.HEADER));
+
+        client.get().uri("http://localhost/api/productfunction").retrieve().toBodilessEntity()
+            .block(Duration.ofSeconds(5));
+        assertNull(sent.get().headers().getFirst(RequestLog.HEADER));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.bff.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+class ServerTimingTest {
+
+    private static final String METRIC = "[a-z.]+;dur=\\d+\\.\\d{3}";
+
+    @Test
+    void headerKeepsArrivalOrderAndEndsWithTheBffTotal() {
+        ServerTiming timing = new ServerTiming();
+        timing.describe("cache", "productos:hit");
+
+        String header = timing.header();
+
+        assertTrue(header.matches("cache;desc=\"productos:hit\", bff;dur=\\d+\\.\\d{3}"), header);
+    }
+
+    @Test
+    void upstreamPrefixesTheFunctionStages() {
+        ServerTiming timing = new ServerTiming();
+        WebClient client = WebClient.builder()
+            .filter(ServerTiming.upstream("product"))
+            .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(ServerTiming.HEADER, "query;dur=1.250, total;dur=2.000")
+                .build()))
+            .build();
+
+        client.get().uri("http://localhost/api/productfunction").retrieve().toBodilessEntity()
+            .contextWrite(ServerTiming.context(timing))
+            .block(Duration.ofSeconds(5));
+
+        String[] metrics = timing.header().split(", ");
+        assertEquals(4, metrics.length);
+        assertTrue(metrics[0].matches("product\\.http;dur=\\d+\\.\\d{3}"), metrics[0]);
+        assertEquals("product.query;dur=1.250", metrics[1]);
+        assertEquals("product.total;dur=2.000", metrics[2]);
+        assertTrue(metrics[3].matches("bff;dur=\\d+\\.\\d{3}"), metrics[3]);
+    }
+
+    @Test
+    void fanOutSendsEachMetricToEveryRequest() {
+        ServerTiming first = new ServerTiming();
+        ServerTiming second = new ServerTiming();
+
+        ServerTiming.fanOut(List.of(first, second)).describe("batch", "ids:2");
+
+        for (ServerTiming timing : List.of(first, second)) {
+            String[] metrics = timing.header().split(", ");
+            assertEquals("batch;desc=\"ids:2\"", metrics[0]);
+            assertTrue(metrics[1].matches(METRIC), metrics[1]);
+        }
+    }
+}
@@ -31,12 +31,13 @@ DROP TABLE PRODUCTOS;
 -- Finalmente eliminar las tablas base
 DROP TABLE BODEGAS;
 DROP TABLE CATEGORIAS;
+DROP SEQUENCE SEQ_CATALOGO_VERSION;
 
 -- =====================================================
 -- MENSAJE DE CONFIRMACIÓN
 -- =====================================================
 SELECT 'SCHEMA DE INVENTARIO ELIMINADO COMPLETAMENTE' as MENSAJE FROM DUAL;
-SELECT 'Objetos eliminados: Vistas, Triggers, Tablas' as OBJETOS FROM DUAL;
+SELECT 'Objetos eliminados: Vistas, Triggers, Tablas, Secuencias' as OBJETOS FROM DUAL;
 SELECT 'Datos perdidos: Todos los productos, bodegas, categorías y movimientos' as DATOS FROM DUAL;
 
 COMMIT;
@@ -3,6 +3,14 @@
 -- SISTEMA DE INVENTARIO - SCHEMA MEJORADO PARA OCI
 -- =====================================================
 
+-- =====================================================
+-- SECUENCIA DE VERSIONES DEL CATÁLOGO
+-- =====================================================
+-- VERSION de CATEGORIAS, BODEGAS y PRODUCTOS: nuevo valor en cada INSERT
+-- (default) y en cada UPDATE (triggers de auditoría). Los ETags se calculan
+-- desde ella, igual que en PostgreSQL (ver CatalogVersion en las functions).
+CREATE SEQUENCE SEQ_CATALOGO_VERSION;
+
 -- =====================================================
 -- TABLA DE CATEGORÍAS
 -- =====================================================
@@ -14,7 +22,8 @@ CREATE TABLE CATEGORIAS (
   CREADO_EN   TIMESTAMP DEFAULT SYSTIMESTAMP,
   MODIFICADO_EN TIMESTAMP DEFAULT SYSTIMESTAMP,
   CREADO_POR  VARCHAR2(50) DEFAULT 'SYSTEM',
-  MODIFICADO_POR VARCHAR2(50) DEFAULT 'SYSTEM'
+  MODIFICADO_POR VARCHAR2(50) DEFAULT 'SYSTEM',
+  VERSION       NUMBER(19) DEFAULT SEQ_CATALOGO_VERSION.NEXTVAL NOT NULL
 );
 
 -- =====================================================
@@ -32,7 +41,8 @@ CREATE TABLE BODEGAS (
   CREADO_EN     TIMESTAMP DEFAULT SYSTIMESTAMP,
   MODIFICADO_EN TIMESTAMP DEFAULT SYSTIMESTAMP,
   CREADO_POR    VARCHAR2(50) DEFAULT 'SYSTEM',
-  MODIFICADO_POR VARCHAR2(50) DEFAULT 'SYSTEM'
+  MODIFICADO_POR VARCHAR2(50) DEFAULT 'SYSTEM',
+  VERSION       NUMBER(19) DEFAULT SEQ_CATALOGO_VERSION.NEXTVAL NOT NULL
 );
 
 -- =====================================================
@@ -57,6 +67,7 @@ CREATE TABLE PRODUCTOS (
   MODIFICADO_EN TIMESTAMP DEFAULT SYSTIMESTAMP,
   CREADO_POR    VARCHAR2(50) DEFAULT 'SYSTEM',
   MODIFICADO_POR VARCHAR2(50) DEFAULT 'SYSTEM',
+  VERSION       NUMBER(19) DEFAULT SEQ_CATALOGO_VERSION.NEXTVAL NOT NULL,
   
   CONSTRAINT FK_PRODUCTO_CATEGORIA 
     FOREIGN KEY (CATEGORIA_ID) REFERENCES CATEGORIAS(ID),
@@ -112,6 +123,12 @@ CREATE INDEX IDX_PRODUCTOS_BODEGA ON PRODUCTOS(BODEGA_ID);
 CREATE INDEX IDX_PRODUCTOS_CATEGORIA ON PRODUCTOS(CATEGORIA_ID);
 CREATE INDEX IDX_PRODUCTOS_ESTADO ON PRODUCTOS(ESTADO);
 CREATE INDEX IDX_PRODUCTOS_STOCK ON PRODUCTOS(STOCK);
+-- Índice de función para alertas de stock bajo: las filas fuera de alerta dan
+-- NULL y no se indexan, así que el índice solo contiene productos en alerta.
+-- ProductoRepository.findProductosConStockBajo debe usar la misma expresión.
+CREATE INDEX IDX_PRODUCTOS_STOCK_BAJO ON PRODUCTOS(
+  CASE WHEN STOCK <= STOCK_MINIMO THEN (STOCK_MINIMO - STOCK) / GREATEST(STOCK_MINIMO, 1) END
+);
 
 -- Índices para MOVIMIENTOS_INVENTARIO
 CREATE INDEX IDX_MOVIMIENTOS_PRODUCTO ON MOVIMIENTOS_INVENTARIO(PRODUCTO_ID);
@@ -123,30 +140,33 @@ CREATE INDEX IDX_MOVIMIENTOS_TIPO ON MOVIMIENTOS_INVENTARIO(TIPO_MOVIMIENTO);
 -- TRIGGERS PARA AUDITORÍA AUTOMÁTICA
 -- =====================================================
 
--- Trigger para actualizar MODIFICADO_EN automáticamente en CATEGORIAS
+-- Trigger para actualizar MODIFICADO_EN y VERSION automáticamente en CATEGORIAS
 CREATE OR REPLACE TRIGGER TR_CATEGORIAS_AUDIT
   BEFORE UPDATE ON CATEGORIAS
   FOR EACH ROW
 BEGIN
   :NEW.MODIFICADO_EN := SYSTIMESTAMP;
+  :NEW.VERSION := SEQ_CATALOGO_VERSION.NEXTVAL;
 END;
 /
 
--- Trigger para actualizar MODIFICADO_EN automáticamente en BODEGAS
+-- Trigger para actualizar MODIFICADO_EN y VERSION automáticamente en BODEGAS
 CREATE OR REPLACE TRIGGER TR_BODEGAS_AUDIT
   BEFORE UPDATE ON BODEGAS
   FOR EACH ROW
 BEGIN
   :NEW.MODIFICADO_EN := SYSTIMESTAMP;
+  :NEW.VERSION := SEQ_CATALOGO_VERSION.NEXTVAL;
 END;
 /
 
--- Trigger para actualizar MODIFICADO_EN automáticamente en PRODUCTOS
+-- Trigger para actualizar MODIFICADO_EN y VERSION automáticamente en PRODUCTOS
 CREATE OR REPLACE TRIGGER TR_PRODUCTOS_AUDIT
   BEFORE UPDATE ON PRODUCTOS
   FOR EACH ROW
 BEGIN
   :NEW.MODIFICADO_EN := SYSTIMESTAMP;
+  :NEW.VERSION := SEQ_CATALOGO_VERSION.NEXTVAL;
 END;
 /
 
@@ -0,0 +1,41 @@
+-- =====================================================
+-- VERSIÓN DEL CATÁLOGO (PostgreSQL)
+-- =====================================================
+-- Columna VERSION de categorias, bodegas y productos: nuevo valor de
+-- catalogo_version_seq en cada INSERT (default de la columna) y en cada UPDATE
+-- (trigger BEFORE UPDATE). Los ETags y la caché de datos de referencia de las
+-- functions se calculan desde ella (ver CatalogVersion).
+--
+-- Es idempotente. Agregar la columna reescribe cada tabla con un lock
+-- ACCESS EXCLUSIVE: ejecutar en una ventana de mantenimiento, antes de
+-- desplegar las functions, con un rol dueño de las tablas.
+--   psql "$POSTGRES_URL" -f db/postgres/001-catalogo-version.sql
+
+BEGIN;
+
+CREATE SEQUENCE IF NOT EXISTS catalogo_version_seq;
+
+CREATE OR REPLACE FUNCTION catalogo_version_siguiente() RETURNS trigger AS $$
+BEGIN
+    NEW.version := nextval('catalogo_version_seq');
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+ALTER TABLE categorias ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT nextval('catalogo_version_seq');
+ALTER TABLE bodegas ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT nextval('catalogo_version_seq');
+ALTER TABLE productos ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT nextval('catalogo_version_seq');
+
+DROP TRIGGER IF EXISTS categorias_version ON categorias;
+CREATE TRIGGER categorias_version BEFORE UPDATE ON categorias
+    FOR EACH ROW EXECUTE FUNCTION catalogo_version_siguiente();
+
+DROP TRIGGER IF EXISTS bodegas_version ON bodegas;
+CREATE TRIGGER bodegas_version BEFORE UPDATE ON bodegas
+    FOR EACH ROW EXECUTE FUNCTION catalogo_version_siguiente();
+
+DROP TRIGGER IF EXISTS productos_version ON productos;
+CREATE TRIGGER productos_version BEFORE UPDATE ON productos
+    FOR EACH ROW EXECUTE FUNCTION catalogo_version_siguiente();
+
+COMMIT;
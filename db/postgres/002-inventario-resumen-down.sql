@@ -0,0 +1,16 @@
+-- =====================================================
+-- QUITAR EL RESUMEN PRECALCULADO DEL REPORTE (PostgreSQL)
+-- =====================================================
+-- Ejecutar al apagar INVENTORY_REPORT_SUMMARY_ENABLED: sin el modo nadie
+-- consolida inventario_resumen_delta y el trigger solo agrega filas.
+-- Para volver a activarlo, aplicar de nuevo 002-inventario-resumen.sql.
+--   psql "$POSTGRES_URL" -f db/postgres/002-inventario-resumen-down.sql
+
+BEGIN;
+
+DROP TRIGGER IF EXISTS productos_inventario_resumen ON productos;
+DROP FUNCTION IF EXISTS inventario_resumen_aplicar();
+DROP TABLE IF EXISTS inventario_resumen_delta;
+DROP TABLE IF EXISTS inventario_resumen;
+
+COMMIT;
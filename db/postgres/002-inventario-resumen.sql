@@ -0,0 +1,101 @@
+-- =====================================================
+-- RESUMEN PRECALCULADO DEL REPORTE DE INVENTARIO (PostgreSQL)
+-- =====================================================
+-- Solo se necesita con INVENTORY_REPORT_SUMMARY_ENABLED=true (ver
+-- InventorySummary en las functions). Un trigger sobre productos agrega el
+-- efecto de cada cambio en inventario_resumen_delta y las functions lo
+-- consolidan en inventario_resumen en segundo plano.
+--
+-- Aplicar antes de activar el modo. Con el modo apagado nadie consolida los
+-- deltas: quitarlo con 002-inventario-resumen-down.sql.
+--   psql "$POSTGRES_URL" -f db/postgres/002-inventario-resumen.sql
+--
+-- La carga inicial corre en la misma transacción que crea el trigger. CREATE
+-- TRIGGER bloquea las escrituras sobre productos hasta el commit, así que
+-- ningún cambio queda fuera del resumen ni se cuenta dos veces.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS inventario_resumen (
+    id INTEGER PRIMARY KEY CHECK (id = 1),
+    total_productos BIGINT NOT NULL DEFAULT 0,
+    valor_total_inventario NUMERIC NOT NULL DEFAULT 0,
+    total_unidades BIGINT NOT NULL DEFAULT 0,
+    productos_stock_bajo BIGINT NOT NULL DEFAULT 0,
+    productos_sin_stock BIGINT NOT NULL DEFAULT 0,
+    actualizado_en TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS inventario_resumen_delta (
+    total_productos BIGINT NOT NULL,
+    valor_total_inventario NUMERIC NOT NULL,
+    total_unidades BIGINT NOT NULL,
+    productos_stock_bajo BIGINT NOT NULL,
+    productos_sin_stock BIGINT NOT NULL
+);
+
+-- Top 5 de activos por stock del reporte
+CREATE INDEX IF NOT EXISTS idx_productos_activos_stock ON productos (stock DESC, id) WHERE estado = 'ACTIVO';
+
+-- Mismos criterios que los FILTER del reporte en vivo
+CREATE OR REPLACE FUNCTION inventario_resumen_aplicar() RETURNS trigger AS $$
+DECLARE
+    d_productos BIGINT := 0;
+    d_valor NUMERIC := 0;
+    d_unidades BIGINT := 0;
+    d_bajo BIGINT := 0;
+    d_sin BIGINT := 0;
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        IF OLD.estado = 'ACTIVO' THEN
+            d_productos := d_productos - 1;
+            d_valor := d_valor - COALESCE(OLD.stock * OLD.precio, 0);
+            d_unidades := d_unidades - COALESCE(OLD.stock, 0);
+        END IF;
+        IF OLD.stock <= OLD.stock_minimo THEN
+            d_bajo := d_bajo - 1;
+        END IF;
+        IF OLD.stock = 0 THEN
+            d_sin := d_sin - 1;
+        END IF;
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        IF NEW.estado = 'ACTIVO' THEN
+            d_productos := d_productos + 1;
+            d_valor := d_valor + COALESCE(NEW.stock * NEW.precio, 0);
+            d_unidades := d_unidades + COALESCE(NEW.stock, 0);
+        END IF;
+        IF NEW.stock <= NEW.stock_minimo THEN
+            d_bajo := d_bajo + 1;
+        END IF;
+        IF NEW.stock = 0 THEN
+            d_sin := d_sin + 1;
+        END IF;
+    END IF;
+    -- Cambios que no afectan el reporte (p. ej. solo el nombre) no generan delta
+    IF d_productos <> 0 OR d_valor <> 0 OR d_unidades <> 0 OR d_bajo <> 0 OR d_sin <> 0 THEN
+        INSERT INTO inventario_resumen_delta
+        VALUES (d_productos, d_valor, d_unidades, d_bajo, d_sin);
+    END IF;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS productos_inventario_resumen ON productos;
+CREATE TRIGGER productos_inventario_resumen
+    AFTER INSERT OR UPDATE OR DELETE ON productos
+    FOR EACH ROW EXECUTE FUNCTION inventario_resumen_aplicar();
+
+-- Carga inicial (o recálculo completo si se vuelve a aplicar)
+DELETE FROM inventario_resumen_delta;
+DELETE FROM inventario_resumen;
+INSERT INTO inventario_resumen (id, total_productos, valor_total_inventario, total_unidades, productos_stock_bajo, productos_sin_stock)
+SELECT 1,
+       COUNT(*) FILTER (WHERE estado = 'ACTIVO'),
+       COALESCE(SUM(stock * precio) FILTER (WHERE estado = 'ACTIVO'), 0),
+       COALESCE(SUM(stock) FILTER (WHERE estado = 'ACTIVO'), 0),
+       COUNT(*) FILTER (WHERE stock <= stock_minimo),
+       COUNT(*) FILTER (WHERE stock = 0)
+FROM productos;
+
+COMMIT;
@@ -0,0 +1,75 @@
+-- =====================================================
+-- OUTBOX DE TRANSICIONES DE ALERTA DE STOCK (PostgreSQL)
+-- =====================================================
+-- Un trigger sobre productos agrega una fila a alertas_stock_eventos cada vez
+-- que cambia el estado de alerta (OK, STOCK_BAJO, SIN_STOCK, STOCK_EXCESIVO)
+-- de un producto. Lo lee GET /api/inventory/alert-events (ver StockAlertOutbox
+-- en las functions), que también borra en segundo plano los eventos más
+-- antiguos que INVENTORY_ALERT_EVENTS_RETENTION_HOURS.
+--
+-- Es idempotente. Aplicar antes de desplegar las functions que lo leen:
+--   psql "$POSTGRES_URL" -f db/postgres/003-alertas-stock-eventos.sql
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS alertas_stock_eventos (
+    seq BIGSERIAL PRIMARY KEY,
+    txid BIGINT NOT NULL DEFAULT txid_current(),
+    producto_id INTEGER NOT NULL,
+    sku VARCHAR(50),
+    nombre VARCHAR(200),
+    estado_anterior VARCHAR(20) NOT NULL,
+    estado_nuevo VARCHAR(20) NOT NULL,
+    stock INTEGER,
+    stock_minimo INTEGER,
+    stock_maximo INTEGER,
+    creado_en TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Cursor (txid, seq) de los lectores
+CREATE INDEX IF NOT EXISTS idx_alertas_stock_eventos_cursor ON alertas_stock_eventos (txid, seq);
+-- Borrado por antigüedad
+CREATE INDEX IF NOT EXISTS idx_alertas_stock_eventos_creado ON alertas_stock_eventos (creado_en);
+
+-- Mismo criterio que StockAlert.tipoAlerta
+CREATE OR REPLACE FUNCTION estado_alerta_stock(stock INTEGER, minimo INTEGER, maximo INTEGER)
+RETURNS VARCHAR AS $$
+    SELECT CASE
+        WHEN stock <= 0 THEN 'SIN_STOCK'
+        WHEN stock <= minimo THEN 'STOCK_BAJO'
+        WHEN stock >= maximo THEN 'STOCK_EXCESIVO'
+        ELSE 'OK'
+    END
+$$ LANGUAGE sql IMMUTABLE;
+
+CREATE OR REPLACE FUNCTION alertas_stock_registrar() RETURNS trigger AS $$
+DECLARE
+    anterior VARCHAR(20) := 'OK';
+    nuevo VARCHAR(20) := 'OK';
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        anterior := estado_alerta_stock(OLD.stock, OLD.stock_minimo, OLD.stock_maximo);
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        nuevo := estado_alerta_stock(NEW.stock, NEW.stock_minimo, NEW.stock_maximo);
+    END IF;
+    IF anterior = nuevo THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO alertas_stock_eventos (producto_id, sku, nombre, estado_anterior, estado_nuevo, stock, stock_minimo, stock_maximo)
+        VALUES (OLD.id, OLD.sku, OLD.nombre, anterior, nuevo, OLD.stock, OLD.stock_minimo, OLD.stock_maximo);
+    ELSE
+        INSERT INTO alertas_stock_eventos (producto_id, sku, nombre, estado_anterior, estado_nuevo, stock, stock_minimo, stock_maximo)
+        VALUES (NEW.id, NEW.sku, NEW.nombre, anterior, nuevo, NEW.stock, NEW.stock_minimo, NEW.stock_maximo);
+    END IF;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS productos_alertas_stock ON productos;
+CREATE TRIGGER productos_alertas_stock
+    AFTER INSERT OR DELETE OR UPDATE OF stock, stock_minimo, stock_maximo ON productos
+    FOR EACH ROW EXECUTE FUNCTION alertas_stock_registrar();
+
+COMMIT;
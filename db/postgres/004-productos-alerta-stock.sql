@@ -0,0 +1,22 @@
+-- =====================================================
+-- ÍNDICE PARCIAL DE ALERTAS DE STOCK (PostgreSQL)
+-- =====================================================
+-- Sirve la carga del índice de alertas en memoria de las functions (ver
+-- StockAlertIndex): solo las filas en alerta, con el mismo predicado que
+-- StockAlert.CONDITION.
+--
+-- CONCURRENTLY para no bloquear escrituras, así que no va dentro de una
+-- transacción. Un CREATE INDEX CONCURRENTLY que falla a medias deja el índice
+-- INVALID y el IF NOT EXISTS no lo rehace: el primer paso lo borra en ese caso
+-- (\gexec es de psql). Es idempotente.
+--   psql "$POSTGRES_URL" -f db/postgres/004-productos-alerta-stock.sql
+
+SELECT 'DROP INDEX CONCURRENTLY ' || quote_ident(n.nspname) || '.' || quote_ident(c.relname)
+FROM pg_index i
+JOIN pg_class c ON c.oid = i.indexrelid
+JOIN pg_namespace n ON n.oid = c.relnamespace
+WHERE c.relname = 'idx_productos_alerta_stock' AND NOT i.indisvalid
+\gexec
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_productos_alerta_stock ON productos (id)
+    WHERE stock <= stock_minimo OR stock >= stock_maximo;